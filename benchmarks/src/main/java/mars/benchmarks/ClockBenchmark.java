@@ -0,0 +1,58 @@
+package mars.benchmarks;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mars.time.FakeClock;
+import mars.time.TimeFake;
+
+/**
+ * Reading the fake time: through {@link Instant}s, as {@link FakeClock} and
+ * the faked event loop used to on every call, against the primitive fast path.
+ * Run with {@code -prof gc} to see the allocation rate of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class ClockBenchmark {
+	private final TimeFake timeFake = new TimeFake(10.5);
+	private final FakeClock clock = new FakeClock(timeFake);
+
+	@Benchmark
+	public Instant instantConversion() {
+		return timeFake.toFake(Instant.now());
+	}
+
+	@Benchmark
+	public Instant clockInstant() {
+		return clock.instant();
+	}
+
+	@Benchmark
+	public long clockMillis() {
+		return clock.millis();
+	}
+
+	@Benchmark
+	public long nowNanos() {
+		return timeFake.nowNanos();
+	}
+
+	@Benchmark
+	public long systemNanoTime() {
+		return System.nanoTime();
+	}
+}
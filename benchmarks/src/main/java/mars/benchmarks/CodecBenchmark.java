@@ -0,0 +1,92 @@
+package mars.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import mars.codec.BinaryCodec;
+
+/**
+ * Encoding and decoding messages with {@link BinaryCodec} against JSON through
+ * Jackson, as the broker converter does. {@link #main(String[])} prints the
+ * encoded size of every message type in both forms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class CodecBenchmark {
+	@Param({ "PlatformStatusIndication", "PlatformReachabilityIndication", "PsDemandResponse", "PsDemandRequest",
+			"PsStateUpdate" })
+	public String message;
+
+	private final BinaryCodec binary = new BinaryCodec();
+	private final ObjectMapper json = jsonMapper();
+	private Object sample;
+	private byte[] binaryBytes;
+	private byte[] jsonBytes;
+
+	/*
+	 * Derived properties, like PlatformAlarms.unavailable, are written but not
+	 * read back.
+	 */
+	static ObjectMapper jsonMapper() {
+		return JsonMapper.builder().addModule(new JavaTimeModule())
+				.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		sample = MessageSamples.all().get(message);
+		binaryBytes = binary.encode(sample);
+		jsonBytes = json.writeValueAsBytes(sample);
+	}
+
+	@Benchmark
+	public byte[] binaryEncode() {
+		return binary.encode(sample);
+	}
+
+	@Benchmark
+	public Object binaryDecode() {
+		return binary.decode(binaryBytes, sample.getClass());
+	}
+
+	@Benchmark
+	public byte[] jsonEncode() throws Exception {
+		return json.writeValueAsBytes(sample);
+	}
+
+	@Benchmark
+	public Object jsonDecode() throws Exception {
+		return json.readValue(jsonBytes, sample.getClass());
+	}
+
+	public static void main(String[] args) throws Exception {
+		final BinaryCodec binary = new BinaryCodec();
+		final ObjectMapper json = jsonMapper();
+		System.out.printf("%-32s %8s %8s %6s%n", "message", "json", "binary", "ratio");
+		for (final var e : MessageSamples.all().entrySet()) {
+			final int j = json.writeValueAsBytes(e.getValue()).length;
+			final int b = binary.encode(e.getValue()).length;
+			System.out.printf("%-32s %8d %8d %6.2f%n", e.getKey(), j, b, (double) b / j);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package mars.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eventloop.El;
+import eventloop.EventLoop.Event;
+import eventloop.EventQueue;
+import eventloop.IdleStrategy;
+import eventloop.LinkedEventQueue;
+import eventloop.MpscEventQueue;
+import eventloop.StandardEventLoop;
+
+/**
+ * Producer threads feeding a {@link StandardEventLoop}, with 1, 4 and 16
+ * producers, for each {@link EventQueue} and {@link IdleStrategy}.
+ * <p>
+ * {@code throughput*} measures how many events per second the loop runs: each
+ * producer keeps at most {@value #IN_FLIGHT} events in flight, so that the
+ * queue does not grow without bounds. {@code latency*} adds one event and waits
+ * for the loop to run it: in sample time mode JMH reports the percentiles, p99
+ * included, of the enqueue to dispatch latency (plus the hand back to the
+ * producer, a volatile read).
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class EventQueueBenchmark {
+	private static final int IN_FLIGHT = 1024;
+
+	@State(Scope.Benchmark)
+	public static class Loop {
+		@Param({ "mpsc", "linked" })
+		String queue;
+
+		@Param({ "PARK", "YIELD", "SPIN" })
+		IdleStrategy idle;
+
+		StandardEventLoop loop;
+		private Thread thread;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			loop = new StandardEventLoop("mpsc".equals(queue) ? new MpscEventQueue() : new LinkedEventQueue(), idle,
+					StandardEventLoop.DEFAULT_BATCH_SIZE);
+			thread = new Thread(loop, "benchmark loop");
+			thread.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			loop.exec(El::quit);
+			thread.join();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Producer {
+		final AtomicInteger inFlight = new AtomicInteger();
+		final Event done = inFlight::decrementAndGet;
+
+		volatile boolean dispatched;
+		final Event dispatch = () -> dispatched = true;
+	}
+
+	private static void throughput(Loop l, Producer p) {
+		while (p.inFlight.get() >= IN_FLIGHT)
+			Thread.onSpinWait();
+		p.inFlight.incrementAndGet();
+		l.loop.exec(p.done);
+	}
+
+	private static void latency(Loop l, Producer p) {
+		p.dispatched = false;
+		l.loop.exec(p.dispatch);
+		while (!p.dispatched)
+			Thread.onSpinWait();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Threads(1)
+	public void throughput1(Loop l, Producer p) {
+		throughput(l, p);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Threads(4)
+	public void throughput4(Loop l, Producer p) {
+		throughput(l, p);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@Threads(16)
+	public void throughput16(Loop l, Producer p) {
+		throughput(l, p);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Threads(1)
+	public void latency1(Loop l, Producer p) {
+		latency(l, p);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Threads(4)
+	public void latency4(Loop l, Producer p) {
+		latency(l, p);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Threads(16)
+	public void latency16(Loop l, Producer p) {
+		latency(l, p);
+	}
+}
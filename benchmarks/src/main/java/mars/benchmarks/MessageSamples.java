@@ -0,0 +1,93 @@
+package mars.benchmarks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mars.messages.Anomaly;
+import mars.messages.AnomalyConfirm;
+import mars.messages.AnomalyIndication;
+import mars.messages.DroneLandedConfirm;
+import mars.messages.DroneLandedIndication;
+import mars.messages.GeoCoord;
+import mars.messages.PayloadBay;
+import mars.messages.PlatformAlarms;
+import mars.messages.PlatformAssignmentConfirm;
+import mars.messages.PlatformAssignmentIndication;
+import mars.messages.PlatformAvailabilityConfirm;
+import mars.messages.PlatformAvailabilityIndication;
+import mars.messages.PlatformCylinderEnterRequest;
+import mars.messages.PlatformCylinderEnterResponse;
+import mars.messages.PlatformCylinderLeftConfirm;
+import mars.messages.PlatformCylinderLeftIndication;
+import mars.messages.PlatformQuitRequest;
+import mars.messages.PlatformQuitResponse;
+import mars.messages.PlatformReachabilityConfirm;
+import mars.messages.PlatformReachabilityIndication;
+import mars.messages.PlatformStatus;
+import mars.messages.PlatformStatusConfirm;
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsAbortConfirm;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedConfirm;
+import mars.messages.PsCompletedIndication;
+import mars.messages.PsDemandRequest;
+import mars.messages.PsDemandResponse;
+import mars.messages.PsPlatformAvailability;
+import mars.messages.PsPlatformReachability;
+import mars.messages.PsState;
+import mars.messages.PsStateUpdate;
+import mars.messages.ReadyPsRequest;
+import mars.messages.ReadyPsResponse;
+import mars.messages.RestoringPayload;
+
+/**
+ * A message of each type, with lists as long as in a busy simulation: 8 bays
+ * per platform, 20 platforms per PS.
+ */
+final class MessageSamples {
+	static final int BAYS = 8;
+	static final int PLATFORMS = 20;
+
+	private MessageSamples() {
+	}
+
+	static Map<String, Object> all() {
+		final Instant at = Instant.ofEpochMilli(1_650_000_000_000L);
+		final List<PayloadBay> bays = new ArrayList<>();
+		for (int i = 0; i < BAYS; i++)
+			bays.add(new PayloadBay(i, i % 4 == 3 ? null
+					: new RestoringPayload("PAYLOAD-" + i, "BATTERY", 0.25 * i, at.plusSeconds(60 * i)), 30_000));
+		final PlatformStatus status = new PlatformStatus(42, new PlatformAlarms(false, false), bays, 90_000);
+		final List<PsPlatformAvailability> availabilities = new ArrayList<>();
+		final List<PsPlatformReachability> reachabilities = new ArrayList<>();
+		for (int i = 0; i < PLATFORMS; i++) {
+			availabilities.add(new PsPlatformAvailability("PLT" + i, new GeoCoord(9.19 + i * 0.01, 45.46 - i * 0.01)));
+			reachabilities.add(new PsPlatformReachability("PLT" + i, at.plusSeconds(i * 30), at.plusSeconds(i * 45)));
+		}
+
+		final Map<String, Object> samples = new LinkedHashMap<>();
+		for (final Object m : List.of(new AnomalyConfirm(), new AnomalyIndication(EnumSet.of(Anomaly.CYLINDER_BUSY)),
+				new DroneLandedConfirm(), new DroneLandedIndication(42, "PLT3", "DRONE-17"),
+				new PlatformAssignmentConfirm(), new PlatformAssignmentIndication(42, "PLT3", at),
+				new PlatformAvailabilityConfirm(42, reachabilities),
+				new PlatformAvailabilityIndication(42, availabilities), new PlatformCylinderEnterRequest(42, "PLT3"),
+				new PlatformCylinderEnterResponse(), new PlatformCylinderLeftConfirm(),
+				new PlatformCylinderLeftIndication(42, "PLT3"), new PlatformQuitRequest("PLT3"),
+				new PlatformQuitResponse(42, at), new PlatformReachabilityConfirm(),
+				new PlatformReachabilityIndication(42, reachabilities), new PlatformStatusConfirm(),
+				new PlatformStatusIndication(status), new PlatformStatusRequest(),
+				new PlatformStatusResponse(new GeoCoord(9.19, 45.46), status), new PsAbortConfirm(),
+				new PsAbortIndication(42), new PsCompletedConfirm(), new PsCompletedIndication(42, "PLT3"),
+				new PsDemandRequest(7, "BATTERY", at), new PsDemandResponse(7, 42, availabilities),
+				new PsStateUpdate(42, PsState.LANDED, PsState.ENDED), new ReadyPsRequest(42, 3),
+				new ReadyPsResponse()))
+			samples.put(m.getClass().getSimpleName(), m);
+		return samples;
+	}
+}
@@ -0,0 +1,157 @@
+package mars.benchmarks;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eventloop.EventLoop.Event;
+import eventloop.Timeout;
+import eventloop.TimingWheel;
+
+/**
+ * Compares the {@link TimingWheel} driven by the event loop with the
+ * {@link Timer} it replaced, with a given number of timeouts already pending.
+ * <p>
+ * {@code scheduleCancel} is what a pit stop does with its timeouts most of the
+ * time: arm one and cancel it before it fires. {@code churn} replaces a random
+ * pending timeout with a new one, keeping the population constant.
+ * <p>
+ * A {@link Timer} can only expire tasks on its own thread in real time, so the
+ * expiry path is compared against a {@link PriorityQueue}, the same binary heap
+ * the {@link Timer} keeps its tasks in, minus the locking and the hand over to
+ * the loop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Thread)
+public class TimeoutBenchmark {
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+	private static final Event NOOP = () -> {
+	};
+
+	@Param({ "10000", "100000", "1000000" })
+	int pending;
+
+	private final SplittableRandom random = new SplittableRandom(42);
+
+	private Timer timer;
+	private TimerTask[] timerTasks;
+
+	private TimingWheel wheel;
+	private Timeout[] wheelTimeouts;
+	private long wheelTime;
+
+	private PriorityQueue<long[]> heap;
+	private long heapTime;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		timer = new Timer(true);
+		timerTasks = new TimerTask[pending];
+		wheel = new TimingWheel();
+		wheelTimeouts = new Timeout[pending];
+		heap = new PriorityQueue<>(pending, (a, b) -> Long.compare(a[0], b[0]));
+		for (int i = 0; i < pending; i++) {
+			final long delay = HOUR + random.nextLong(HOUR);
+			timerTasks[i] = new NoopTask();
+			timer.schedule(timerTasks[i], delay);
+			wheelTimeouts[i] = wheel.schedule(delay, NOOP);
+			heap.add(new long[] { delay });
+		}
+	}
+
+	/*
+	 * Cancelled tasks stay in the Timer heap until their time comes: purge them
+	 * so that every iteration starts from the same population.
+	 */
+	@Setup(Level.Iteration)
+	public void purge() {
+		timer.purge();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		timer.cancel();
+	}
+
+	@Benchmark
+	public void timerScheduleCancel() {
+		final TimerTask task = new NoopTask();
+		timer.schedule(task, 1 + random.nextLong(HOUR));
+		task.cancel();
+	}
+
+	@Benchmark
+	public void wheelScheduleCancel() {
+		wheel.schedule(wheelTime + 1 + random.nextLong(HOUR), NOOP).cancel();
+	}
+
+	@Benchmark
+	public void timerChurn() {
+		final int i = random.nextInt(pending);
+		timerTasks[i].cancel();
+		timerTasks[i] = new NoopTask();
+		timer.schedule(timerTasks[i], HOUR + random.nextLong(HOUR));
+	}
+
+	@Benchmark
+	public void wheelChurn() {
+		final int i = random.nextInt(pending);
+		wheelTimeouts[i].cancel();
+		wheelTimeouts[i] = wheel.schedule(wheelTime + HOUR + random.nextLong(HOUR), NOOP);
+	}
+
+	/**
+	 * One timeout armed a few milliseconds ahead, then time advanced until it
+	 * expires, with the pending ones being cascaded along the way.
+	 */
+	@Benchmark
+	public void wheelExpire(Blackhole bh) {
+		wheel.schedule(wheelTime + 1 + random.nextInt(10), NOOP);
+		Object expired;
+		while ((expired = wheel.poll(wheelTime)) == null)
+			wheelTime++;
+		bh.consume(expired);
+		// keep the population steady: what expires gets re-armed an hour ahead
+		while ((expired = wheel.poll(wheelTime)) != null)
+			wheel.schedule(wheelTime + HOUR + random.nextLong(HOUR), NOOP);
+	}
+
+	@Benchmark
+	public void heapExpire(Blackhole bh) {
+		heap.add(new long[] { heapTime + 1 + random.nextInt(10) });
+		while (heap.peek()[0] > heapTime)
+			heapTime++;
+		bh.consume(heap.poll());
+		while (heap.peek()[0] <= heapTime) {
+			heap.poll();
+			heap.add(new long[] { heapTime + HOUR + random.nextLong(HOUR) });
+		}
+	}
+
+	private static final class NoopTask extends TimerTask {
+		@Override
+		public void run() {
+		}
+	}
+}
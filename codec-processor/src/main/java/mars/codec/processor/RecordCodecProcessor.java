@@ -0,0 +1,319 @@
+package mars.codec.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@code mars.codec.RecordCodec} for each public record of the
+ * packages annotated with {@code mars.codec.GenerateCodecs}, named after the
+ * record with a {@code Codec} suffix, and lists them in
+ * {@code META-INF/services/mars.codec.RecordCodec}.
+ * <p>
+ * The generated codecs call the accessors and the canonical constructor
+ * directly and write the same bytes, under the same schema, as the codecs
+ * {@code BinaryCodec} builds by reflection: the two can be mixed on the wire.
+ */
+@SupportedAnnotationTypes(RecordCodecProcessor.ANNOTATION)
+public class RecordCodecProcessor extends AbstractProcessor {
+	static final String ANNOTATION = "mars.codec.GenerateCodecs";
+	private static final String SERVICES = "META-INF/services/mars.codec.RecordCodec";
+
+	private final List<String> generated = new ArrayList<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeServices();
+			return false;
+		}
+		for (final TypeElement annotation : annotations)
+			for (final Element e : roundEnv.getElementsAnnotatedWith(annotation))
+				if (e instanceof PackageElement p)
+					for (final Element member : p.getEnclosedElements())
+						if (member.getKind() == ElementKind.RECORD && member.getModifiers().contains(Modifier.PUBLIC))
+							generate((TypeElement) member);
+		return true;
+	}
+
+	private void generate(TypeElement record) {
+		if (!record.getTypeParameters().isEmpty()) {
+			error(record, "Generic records are not supported");
+			return;
+		}
+		final String pkg = processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+		final String name = record.getSimpleName() + "Codec";
+		try {
+			final String source = new Generator(processingEnv.getTypeUtils(), record, pkg, name).source();
+			try (Writer w = processingEnv.getFiler().createSourceFile(pkg + "." + name, record).openWriter()) {
+				w.write(source);
+			}
+			generated.add(pkg + "." + name);
+		} catch (final UnsupportedOperationException e) {
+			error(record, e.getMessage());
+		} catch (final IOException e) {
+			error(record, "Cannot write " + name + ": " + e);
+		}
+	}
+
+	private void writeServices() {
+		if (generated.isEmpty())
+			return;
+		try (Writer w = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES)
+				.openWriter()) {
+			for (final String codec : generated)
+				w.write(codec + "\n");
+		} catch (final IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "Cannot write " + SERVICES + ": " + e);
+		}
+	}
+
+	private void error(Element e, String message) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, e);
+	}
+
+	/*
+	 * Writes the codec of a record, with a field per nested record codec and per
+	 * enum values array.
+	 */
+	private static final class Generator {
+		private static final Set<String> PARAMETERS = Set.of("writer", "reader", "value");
+
+		private final Types types;
+		private final TypeElement record;
+		private final String pkg;
+		private final String name;
+		private final Map<String, String> codecs = new LinkedHashMap<>();
+		private final Map<String, String> enums = new LinkedHashMap<>();
+
+		Generator(Types types, TypeElement record, String pkg, String name) {
+			this.types = types;
+			this.record = record;
+			this.pkg = pkg;
+			this.name = name;
+		}
+
+		String source() {
+			final String type = record.getQualifiedName().toString();
+			final StringBuilder write = new StringBuilder();
+			final StringBuilder read = new StringBuilder();
+			final List<String> args = new ArrayList<>();
+			for (final RecordComponentElement c : record.getRecordComponents()) {
+				final String component = c.getSimpleName().toString();
+				final String local = PARAMETERS.contains(component) ? component + '_' : component;
+				write.append("\t\t").append(writeStatement(c.asType(), "value." + component + "()", "writer", 0))
+						.append('\n');
+				read.append("\t\tfinal ").append(c.asType()).append(' ').append(local).append(" = ")
+						.append(readExpression(c.asType(), "reader", 0)).append(";\n");
+				args.add(local);
+			}
+			final StringBuilder sb = new StringBuilder();
+			sb.append("package ").append(pkg).append(";\n\n");
+			sb.append("@javax.annotation.processing.Generated(\"").append(RecordCodecProcessor.class.getName())
+					.append("\")\n");
+			sb.append("public final class ").append(name).append(" implements mars.codec.RecordCodec<").append(type)
+					.append("> {\n");
+			sb.append("\tprivate static final String SCHEMA = \"").append(schema(record.asType())).append("\";\n");
+			enums.forEach((field, enumType) -> sb.append("\tprivate static final ").append(enumType).append("[] ")
+					.append(field).append(" = ").append(enumType).append(".values();\n"));
+			codecs.forEach((field, recordType) -> sb.append("\tprivate mars.codec.RecordCodec<").append(recordType)
+					.append("> ").append(field).append(";\n"));
+			sb.append("\n\t@Override\n\tpublic Class<").append(type).append("> type() {\n\t\treturn ").append(type)
+					.append(".class;\n\t}\n");
+			sb.append("\n\t@Override\n\tpublic String schema() {\n\t\treturn SCHEMA;\n\t}\n");
+			sb.append("\n\t@Override\n\tpublic void write(mars.codec.BinaryWriter writer, ").append(type)
+					.append(" value) {\n").append(write).append("\t}\n");
+			sb.append("\n\t@Override\n\tpublic ").append(type).append(" read(mars.codec.BinaryReader reader) {\n")
+					.append(read).append("\t\treturn new ").append(type).append('(').append(String.join(", ", args))
+					.append(");\n\t}\n");
+			// resolved on first use, as BinaryCodec instantiates the generated codecs
+			codecs.forEach((field, recordType) -> sb.append("\n\tprivate mars.codec.RecordCodec<").append(recordType)
+					.append("> ").append(field).append("() {\n\t\tif (").append(field).append(" == null)\n\t\t\t")
+					.append(field).append(" = mars.codec.BinaryCodec.codecFor(").append(recordType)
+					.append(".class);\n\t\treturn ").append(field).append(";\n\t}\n"));
+			return sb.append("}\n").toString();
+		}
+
+		private String writeStatement(TypeMirror t, String value, String writer, int depth) {
+			switch (t.getKind()) {
+			case INT:
+				return writer + ".writeSignedInt(" + value + ");";
+			case LONG:
+				return writer + ".writeSignedLong(" + value + ");";
+			case DOUBLE:
+				return writer + ".writeDouble(" + value + ");";
+			case BOOLEAN:
+				return writer + ".writeBoolean(" + value + ");";
+			case DECLARED:
+				break;
+			default:
+				throw unsupported(t);
+			}
+			final DeclaredType d = (DeclaredType) t;
+			final TypeElement e = (TypeElement) d.asElement();
+			final String q = e.getQualifiedName().toString();
+			switch (q) {
+			case "java.lang.String":
+				return writer + ".writeString(" + value + ");";
+			case "java.time.Instant":
+				return writer + ".writeInstant(" + value + ");";
+			case "java.lang.Integer":
+			case "java.lang.Long":
+			case "java.lang.Double":
+			case "java.lang.Boolean": {
+				final String v = "v" + depth;
+				final TypeMirror primitive = unboxed(q);
+				return "{ final " + q + " " + v + " = " + value + "; " + writer + ".writeBoolean(" + v
+						+ " != null); if (" + v + " != null) " + writeStatement(primitive, v, writer, depth + 1)
+						+ " }";
+			}
+			case "java.util.List":
+			case "java.util.EnumSet": {
+				final String w = "w" + depth;
+				final String el = "e" + depth;
+				return writer + ".writeCollection(" + value + ", (" + w + ", " + el + ") -> { "
+						+ writeStatement(d.getTypeArguments().get(0), el, w, depth + 1) + " });";
+			}
+			default:
+			}
+			if (e.getKind() == ElementKind.ENUM)
+				return writer + ".writeEnum(" + value + ");";
+			if (e.getKind() == ElementKind.RECORD)
+				return writer + ".writeRecord(" + codec(q) + "(), " + value + ");";
+			throw unsupported(t);
+		}
+
+		private String readExpression(TypeMirror t, String reader, int depth) {
+			switch (t.getKind()) {
+			case INT:
+				return reader + ".readSignedInt()";
+			case LONG:
+				return reader + ".readSignedLong()";
+			case DOUBLE:
+				return reader + ".readDouble()";
+			case BOOLEAN:
+				return reader + ".readBoolean()";
+			case DECLARED:
+				break;
+			default:
+				throw unsupported(t);
+			}
+			final DeclaredType d = (DeclaredType) t;
+			final TypeElement e = (TypeElement) d.asElement();
+			final String q = e.getQualifiedName().toString();
+			switch (q) {
+			case "java.lang.String":
+				return reader + ".readString()";
+			case "java.time.Instant":
+				return reader + ".readInstant()";
+			case "java.lang.Integer":
+			case "java.lang.Long":
+			case "java.lang.Double":
+			case "java.lang.Boolean":
+				return "(" + reader + ".readBoolean() ? " + q + ".valueOf("
+						+ readExpression(unboxed(q), reader, depth) + ") : null)";
+			case "java.util.List": {
+				final String r = "r" + depth;
+				return reader + ".readList(" + r + " -> "
+						+ readExpression(d.getTypeArguments().get(0), r, depth + 1) + ")";
+			}
+			case "java.util.EnumSet": {
+				final TypeMirror element = d.getTypeArguments().get(0);
+				final String enumType = ((TypeElement) ((DeclaredType) element).asElement()).getQualifiedName()
+						.toString();
+				return reader + ".readEnumSet(" + enumType + ".class, " + enumValues(enumType) + ")";
+			}
+			default:
+			}
+			if (e.getKind() == ElementKind.ENUM)
+				return reader + ".readEnum(" + enumValues(q) + ")";
+			if (e.getKind() == ElementKind.RECORD)
+				return reader + ".readRecord(" + codec(q) + "())";
+			throw unsupported(t);
+		}
+
+		/*
+		 * As ReflectiveRecordCodec names the types, so that the fingerprints match.
+		 */
+		private String schema(TypeMirror t) {
+			if (t.getKind().isPrimitive())
+				return t.getKind().name().toLowerCase();
+			if (t.getKind() != TypeKind.DECLARED)
+				throw unsupported(t);
+			final DeclaredType d = (DeclaredType) t;
+			final TypeElement e = (TypeElement) d.asElement();
+			final String simple = e.getSimpleName().toString();
+			if (!d.getTypeArguments().isEmpty())
+				return simple + '<' + schema(d.getTypeArguments().get(0)) + '>';
+			if (e.getKind() != ElementKind.RECORD)
+				return simple;
+			final StringBuilder sb = new StringBuilder(simple).append('(');
+			String separator = "";
+			for (final RecordComponentElement c : e.getRecordComponents()) {
+				sb.append(separator).append(c.getSimpleName()).append(':').append(schema(c.asType()));
+				separator = ",";
+			}
+			return sb.append(')').toString();
+		}
+
+		private String codec(String recordType) {
+			final String simple = simpleName(recordType);
+			return unique(codecs, Character.toLowerCase(simple.charAt(0)) + simple.substring(1) + "Codec", recordType);
+		}
+
+		private String enumValues(String enumType) {
+			return unique(enums, simpleName(enumType).toUpperCase() + "_VALUES", enumType);
+		}
+
+		private static String unique(Map<String, String> fields, String field, String type) {
+			String f = field;
+			for (int i = 2; fields.containsKey(f) && !fields.get(f).equals(type); i++)
+				f = field + i;
+			fields.put(f, type);
+			return f;
+		}
+
+		private static String simpleName(String qualified) {
+			return qualified.substring(qualified.lastIndexOf('.') + 1);
+		}
+
+		private TypeMirror unboxed(String boxed) {
+			return types.getPrimitiveType(switch (boxed) {
+			case "java.lang.Integer" -> TypeKind.INT;
+			case "java.lang.Long" -> TypeKind.LONG;
+			case "java.lang.Double" -> TypeKind.DOUBLE;
+			default -> TypeKind.BOOLEAN;
+			});
+		}
+
+		private UnsupportedOperationException unsupported(TypeMirror t) {
+			return new UnsupportedOperationException("Unsupported component type in " + record + ": " + t);
+		}
+	}
+}
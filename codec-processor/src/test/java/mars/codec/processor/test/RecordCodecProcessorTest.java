@@ -0,0 +1,91 @@
+package mars.codec.processor.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import mars.codec.BinaryCodec;
+import mars.codec.BinaryReader;
+import mars.codec.BinaryWriter;
+import mars.codec.RecordCodec;
+import mars.codec.processor.RecordCodecProcessor;
+
+class RecordCodecProcessorTest {
+	private static JavaFileObject source(String name, String code) {
+		return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static byte[] encode(RecordCodec<?> codec, Object value) {
+		final BinaryWriter writer = new BinaryWriter();
+		((RecordCodec<Object>) codec).write(writer, value);
+		return writer.toByteArray();
+	}
+
+	@Test
+	void testGeneratedCodecsWriteAsTheReflectiveOnes() throws Exception {
+		final Path out = Files.createTempDirectory("codecs");
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final StringWriter diagnostics = new StringWriter();
+		final var task = compiler.getTask(diagnostics, null, null,
+				List.of("-d", out.toString(), "-classpath", System.getProperty("java.class.path")), null,
+				List.of(source("sample.package-info", "@mars.codec.GenerateCodecs package sample;"),
+						source("sample.Kind", "package sample; public enum Kind { A, B }"),
+						source("sample.Bay",
+								"package sample; public record Bay(int bayId, String payloadType, Double charge) {}"),
+						source("sample.Status", "package sample; import java.util.*; public record Status("
+								+ "Integer readyPsId, long value, boolean busy, List<Bay> bays, List<String> names,"
+								+ " java.time.Instant at, Kind kind, EnumSet<Kind> kinds, Bay main) {}")));
+		task.setProcessors(List.of(new RecordCodecProcessor()));
+		assertTrue(task.call(), diagnostics.toString());
+		assertEquals(List.of("sample.BayCodec", "sample.StatusCodec"),
+				Files.readAllLines(out.resolve("META-INF/services/mars.codec.RecordCodec")));
+
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { out.toUri().toURL() },
+				getClass().getClassLoader())) {
+			final Class<?> bay = loader.loadClass("sample.Bay");
+			final Class<?> status = loader.loadClass("sample.Status");
+			final Class<?> kind = loader.loadClass("sample.Kind");
+			final Object a = kind.getEnumConstants()[0];
+			final Object b = kind.getEnumConstants()[1];
+			final var bayConstructor = bay.getConstructors()[0];
+			final Object bay1 = bayConstructor.newInstance(1, "BATTERY", 0.5);
+			final Object bay2 = bayConstructor.newInstance(2, "BATTERY", null);
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			final Object value = status.getConstructors()[0].newInstance(null, -5L, true, List.of(bay1, bay2),
+					List.of("x", "y", "x"), Instant.ofEpochMilli(123), b, EnumSet.of((Enum) a, (Enum) b),
+					null);
+
+			final RecordCodec<?> generated = (RecordCodec<?>) loader.loadClass("sample.StatusCodec")
+					.getConstructor().newInstance();
+			final RecordCodec<?> reflective = BinaryCodec.codecFor(status);
+			assertEquals(reflective.schema(), generated.schema());
+			final byte[] bytes = encode(generated, value);
+			assertArrayEquals(encode(reflective, value), bytes);
+			assertEquals(value, generated.read(new BinaryReader(bytes)));
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package mars.codec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Encodes records in a compact binary form, preceded by the fingerprint of
+ * their schema: a message is decoded only into the same version of the record
+ * it was encoded from.
+ * <p>
+ * The codecs generated at compile time for the packages annotated with
+ * {@link GenerateCodecs} are found through the {@link ServiceLoader}; for other
+ * records a codec is built once, from their components.
+ */
+public class BinaryCodec {
+
+	private static final Map<Class<?>, RecordCodec<?>> GENERATED = new HashMap<>();
+
+	static {
+		for (final RecordCodec<?> codec : ServiceLoader.load(RecordCodec.class, BinaryCodec.class.getClassLoader()))
+			GENERATED.put(codec.type(), codec);
+	}
+
+	private static final ClassValue<RecordCodec<?>> CODECS = new ClassValue<>() {
+		@Override
+		protected RecordCodec<?> computeValue(Class<?> type) {
+			final RecordCodec<?> generated = GENERATED.get(type);
+			return generated != null ? generated : new ReflectiveRecordCodec<>(type);
+		}
+	};
+
+	private static final ThreadLocal<BinaryWriter> WRITERS = ThreadLocal.withInitial(BinaryWriter::new);
+
+	/**
+	 * @return the generated codec of the record, if any
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> RecordCodec<T> codecFor(Class<T> type) {
+		return (RecordCodec<T>) CODECS.get(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	public byte[] encode(Object message) {
+		final RecordCodec<Object> codec = (RecordCodec<Object>) codecFor(message.getClass());
+		final BinaryWriter writer = WRITERS.get();
+		writer.reset();
+		writer.writeFixedInt(codec.fingerprint());
+		codec.write(writer, message);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @throws IllegalArgumentException if encoded from another type or version,
+	 *                                  or malformed
+	 */
+	public <T> T decode(byte[] bytes, Class<T> type) {
+		final RecordCodec<T> codec = codecFor(type);
+		final BinaryReader reader = new BinaryReader(bytes);
+		final int fingerprint = reader.readFixedInt();
+		if (fingerprint != codec.fingerprint())
+			throw new IllegalArgumentException(
+					"Not encoded from " + codec.schema() + ": fingerprint " + Integer.toHexString(fingerprint));
+		final T message = codec.read(reader);
+		if (!reader.isAtEnd())
+			throw new IllegalArgumentException("Trailing bytes after " + type.getSimpleName());
+		return message;
+	}
+}
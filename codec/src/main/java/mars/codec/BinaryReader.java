@@ -0,0 +1,121 @@
+package mars.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads what a {@link BinaryWriter} wrote.
+ */
+public final class BinaryReader {
+	private final List<String> strings = new ArrayList<>();
+	private final byte[] bytes;
+	private int position;
+
+	public BinaryReader(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	public boolean isAtEnd() {
+		return position == bytes.length;
+	}
+
+	public int readByte() {
+		if (position == bytes.length)
+			throw new IllegalArgumentException("Truncated message");
+		return bytes[position++] & 0xFF;
+	}
+
+	public int readFixedInt() {
+		return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+	}
+
+	public long readVarLong() {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = readByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	public long readSignedLong() {
+		final long v = readVarLong();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	public int readSignedInt() {
+		return (int) readSignedLong();
+	}
+
+	public boolean readBoolean() {
+		return readByte() != 0;
+	}
+
+	public double readDouble() {
+		long bits = 0;
+		for (int i = 0; i < 8; i++)
+			bits = bits << 8 | readByte();
+		return Double.longBitsToDouble(bits);
+	}
+
+	public String readString() {
+		final long tag = readVarLong();
+		if (tag == 0)
+			return null;
+		if (tag > 1) {
+			if (tag - 2 >= strings.size())
+				throw new IllegalArgumentException("Unknown string reference: " + tag);
+			return strings.get((int) (tag - 2));
+		}
+		final long length = readVarLong();
+		if (length > bytes.length - position)
+			throw new IllegalArgumentException("Truncated message");
+		final String s = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+		position += length;
+		strings.add(s);
+		return s;
+	}
+
+	public Instant readInstant() {
+		return readBoolean() ? Instant.ofEpochMilli(readSignedLong()) : null;
+	}
+
+	/**
+	 * @param constants the values of the enum
+	 */
+	public <E extends Enum<E>> E readEnum(E[] constants) {
+		final long tag = readVarLong();
+		if (tag > constants.length)
+			throw new IllegalArgumentException("Unknown ordinal: " + (tag - 1));
+		return tag == 0 ? null : constants[(int) tag - 1];
+	}
+
+	public <E> List<E> readList(Function<BinaryReader, E> element) {
+		final long tag = readVarLong();
+		return tag == 0 ? null : readElements(new ArrayList<>(), tag - 1, element);
+	}
+
+	public <E extends Enum<E>> EnumSet<E> readEnumSet(Class<E> type, E[] constants) {
+		final long tag = readVarLong();
+		return tag == 0 ? null : readElements(EnumSet.noneOf(type), tag - 1, r -> r.readEnum(constants));
+	}
+
+	private <E, C extends Collection<E>> C readElements(C c, long size, Function<BinaryReader, E> element) {
+		if (size > bytes.length - position)
+			throw new IllegalArgumentException("Truncated message");
+		for (long i = 0; i < size; i++)
+			c.add(element.apply(this));
+		return c;
+	}
+
+	public <R> R readRecord(RecordCodec<R> codec) {
+		return readBoolean() ? codec.read(this) : null;
+	}
+}
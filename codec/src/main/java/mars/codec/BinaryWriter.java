@@ -0,0 +1,164 @@
+package mars.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes the compact binary form of a message: integers as varints, zig-zag
+ * encoded when signed, instants as epoch milliseconds and each string once, the
+ * following occurrences referring to the first one.
+ * <p>
+ * Null strings, enums and collections take the 0 tag, other nullable values
+ * are preceded by a presence byte.
+ */
+public final class BinaryWriter {
+	private final Map<String, Integer> strings = new HashMap<>();
+	private byte[] bytes;
+	private int size;
+
+	public BinaryWriter() {
+		this(256);
+	}
+
+	public BinaryWriter(int capacity) {
+		bytes = new byte[capacity];
+	}
+
+	/**
+	 * Starts a new message.
+	 */
+	public void reset() {
+		size = 0;
+		strings.clear();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	private void ensure(int more) {
+		if (size + more > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+	}
+
+	public void writeByte(int b) {
+		ensure(1);
+		bytes[size++] = (byte) b;
+	}
+
+	public void writeFixedInt(int v) {
+		ensure(4);
+		bytes[size++] = (byte) (v >>> 24);
+		bytes[size++] = (byte) (v >>> 16);
+		bytes[size++] = (byte) (v >>> 8);
+		bytes[size++] = (byte) v;
+	}
+
+	/**
+	 * @param v taken as unsigned
+	 */
+	public void writeVarLong(long v) {
+		ensure(10);
+		while ((v & ~0x7FL) != 0) {
+			bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		bytes[size++] = (byte) v;
+	}
+
+	public void writeSignedLong(long v) {
+		writeVarLong((v << 1) ^ (v >> 63));
+	}
+
+	public void writeSignedInt(int v) {
+		writeSignedLong(v);
+	}
+
+	public void writeBoolean(boolean v) {
+		writeByte(v ? 1 : 0);
+	}
+
+	public void writeDouble(double v) {
+		final long bits = Double.doubleToLongBits(v);
+		ensure(8);
+		for (int shift = 56; shift >= 0; shift -= 8)
+			bytes[size++] = (byte) (bits >>> shift);
+	}
+
+	/**
+	 * Null, a new string or the index of one already written in this message.
+	 */
+	public void writeString(String s) {
+		if (s == null) {
+			writeByte(0);
+			return;
+		}
+		final Integer index = strings.putIfAbsent(s, strings.size());
+		if (index != null) {
+			writeVarLong(index + 2L);
+			return;
+		}
+		writeByte(1);
+		final int length = s.length();
+		for (int i = 0; i < length; i++)
+			if (s.charAt(i) >= 0x80) {
+				final byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(utf8.length);
+				ensure(utf8.length);
+				System.arraycopy(utf8, 0, bytes, size, utf8.length);
+				size += utf8.length;
+				return;
+			}
+		writeVarLong(length);
+		ensure(length);
+		for (int i = 0; i < length; i++)
+			bytes[size++] = (byte) s.charAt(i);
+	}
+
+	/**
+	 * Down to the millisecond.
+	 */
+	public void writeInstant(Instant i) {
+		writeBoolean(i != null);
+		if (i != null)
+			writeSignedLong(i.toEpochMilli());
+	}
+
+	/**
+	 * The ordinal shifted by one, 0 being null.
+	 */
+	public void writeEnum(Enum<?> e) {
+		writeVarLong(e == null ? 0 : e.ordinal() + 1L);
+	}
+
+	/**
+	 * The size shifted by one, 0 being null, then the elements.
+	 */
+	public <E> void writeCollection(Collection<E> c, BiConsumer<BinaryWriter, ? super E> element) {
+		if (c == null) {
+			writeByte(0);
+			return;
+		}
+		writeVarLong(c.size() + 1L);
+		for (final E e : c)
+			element.accept(this, e);
+	}
+
+	/**
+	 * A presence byte, then the components.
+	 */
+	public <R> void writeRecord(RecordCodec<R> codec, R record) {
+		writeBoolean(record != null);
+		if (record != null)
+			codec.write(this, record);
+	}
+}
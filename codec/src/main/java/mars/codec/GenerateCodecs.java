@@ -0,0 +1,16 @@
+package mars.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Has the codec processor generate a {@link RecordCodec} for each record of the
+ * annotated package, registered for {@link BinaryCodec} in
+ * {@code META-INF/services}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.PACKAGE)
+public @interface GenerateCodecs {
+}
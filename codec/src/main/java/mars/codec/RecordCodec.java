@@ -0,0 +1,25 @@
+package mars.codec;
+
+/**
+ * Reads and writes the components of a record in their declaration order,
+ * without names: the {@link #fingerprint()} of its schema tells the versions
+ * apart.
+ *
+ * @param <T> the record type
+ */
+public interface RecordCodec<T> {
+	Class<T> type();
+
+	/**
+	 * @return the names and types of the components, nested records included
+	 */
+	String schema();
+
+	default int fingerprint() {
+		return schema().hashCode();
+	}
+
+	void write(BinaryWriter writer, T value);
+
+	T read(BinaryReader reader);
+}
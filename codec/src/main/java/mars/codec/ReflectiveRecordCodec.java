@@ -0,0 +1,181 @@
+package mars.codec;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link RecordCodec} built from the record components, through method
+ * handles.
+ * <p>
+ * Components can be primitives, their boxes, strings, instants, enums, enum
+ * sets, lists and other records, written as described in {@link BinaryWriter}:
+ * the codecs generated at compile time write the same bytes.
+ */
+final class ReflectiveRecordCodec<T> implements RecordCodec<T> {
+
+	private interface ValueCodec {
+		String schema();
+
+		void write(BinaryWriter writer, Object value);
+
+		Object read(BinaryReader reader);
+	}
+
+	private final Class<T> type;
+	private final String schema;
+	private final ValueCodec[] components;
+	private final MethodHandle[] accessors;
+	private final MethodHandle constructor;
+
+	ReflectiveRecordCodec(Class<T> type) {
+		if (!type.isRecord())
+			throw new IllegalArgumentException("Not a record: " + type.getName());
+		this.type = type;
+		final RecordComponent[] rc = type.getRecordComponents();
+		components = new ValueCodec[rc.length];
+		accessors = new MethodHandle[rc.length];
+		final Class<?>[] types = new Class<?>[rc.length];
+		final StringBuilder sb = new StringBuilder(type.getSimpleName()).append('(');
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			for (int i = 0; i < rc.length; i++) {
+				components[i] = codecOf(rc[i].getGenericType());
+				final var accessor = rc[i].getAccessor();
+				accessor.setAccessible(true);
+				accessors[i] = lookup.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class));
+				types[i] = rc[i].getType();
+				sb.append(i == 0 ? "" : ",").append(rc[i].getName()).append(':').append(components[i].schema());
+			}
+			final Constructor<T> canonical = type.getDeclaredConstructor(types);
+			canonical.setAccessible(true);
+			constructor = lookup.unreflectConstructor(canonical).asSpreader(Object[].class, rc.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot access record " + type.getName(), e);
+		}
+		schema = sb.append(')').toString();
+	}
+
+	@Override
+	public Class<T> type() {
+		return type;
+	}
+
+	@Override
+	public String schema() {
+		return schema;
+	}
+
+	@Override
+	public void write(BinaryWriter writer, T value) {
+		try {
+			for (int i = 0; i < components.length; i++)
+				components[i].write(writer, (Object) accessors[i].invokeExact((Object) value));
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public T read(BinaryReader reader) {
+		final Object[] args = new Object[components.length];
+		for (int i = 0; i < components.length; i++)
+			args[i] = components[i].read(reader);
+		try {
+			return type.cast((Object) constructor.invokeExact(args));
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static ValueCodec codecOf(Type t) {
+		if (t instanceof ParameterizedType p) {
+			final Class<?> raw = (Class<?>) p.getRawType();
+			final ValueCodec element = codecOf(p.getActualTypeArguments()[0]);
+			final String schema = raw.getSimpleName() + '<' + element.schema() + '>';
+			if (raw == List.class)
+				return codec(schema, (w, v) -> w.writeCollection((List<Object>) v, element::write),
+						r -> r.readList(element::read));
+			if (raw == EnumSet.class) {
+				final Class enumType = (Class) p.getActualTypeArguments()[0];
+				final Enum[] constants = (Enum[]) enumType.getEnumConstants();
+				return codec(schema, (w, v) -> w.writeCollection((EnumSet<?>) v, element::write),
+						r -> r.readEnumSet(enumType, constants));
+			}
+			throw new IllegalArgumentException("Unsupported component type: " + t);
+		}
+		final Class<?> c = (Class<?>) t;
+		if (c == int.class)
+			return codec("int", (w, v) -> w.writeSignedInt((Integer) v), BinaryReader::readSignedInt);
+		if (c == long.class)
+			return codec("long", (w, v) -> w.writeSignedLong((Long) v), BinaryReader::readSignedLong);
+		if (c == double.class)
+			return codec("double", (w, v) -> w.writeDouble((Double) v), BinaryReader::readDouble);
+		if (c == boolean.class)
+			return codec("boolean", (w, v) -> w.writeBoolean((Boolean) v), BinaryReader::readBoolean);
+		if (c == String.class)
+			return codec("String", (w, v) -> w.writeString((String) v), BinaryReader::readString);
+		if (c == Instant.class)
+			return codec("Instant", (w, v) -> w.writeInstant((Instant) v), BinaryReader::readInstant);
+		if (c == Integer.class)
+			return nullable(codecOf(int.class), "Integer");
+		if (c == Long.class)
+			return nullable(codecOf(long.class), "Long");
+		if (c == Double.class)
+			return nullable(codecOf(double.class), "Double");
+		if (c == Boolean.class)
+			return nullable(codecOf(boolean.class), "Boolean");
+		if (c.isEnum()) {
+			final Enum[] constants = (Enum[]) c.getEnumConstants();
+			return codec(c.getSimpleName(), (w, v) -> w.writeEnum((Enum<?>) v), r -> r.readEnum(constants));
+		}
+		if (c.isRecord()) {
+			final RecordCodec<Object> codec = (RecordCodec<Object>) BinaryCodec.codecFor(c);
+			return codec(codec.schema(), (w, v) -> w.writeRecord(codec, v), r -> r.readRecord(codec));
+		}
+		throw new IllegalArgumentException("Unsupported component type: " + t);
+	}
+
+	private static ValueCodec codec(String schema, BiConsumer<BinaryWriter, Object> write,
+			Function<BinaryReader, Object> read) {
+		return new ValueCodec() {
+			@Override
+			public String schema() {
+				return schema;
+			}
+
+			@Override
+			public void write(BinaryWriter writer, Object value) {
+				write.accept(writer, value);
+			}
+
+			@Override
+			public Object read(BinaryReader reader) {
+				return read.apply(reader);
+			}
+		};
+	}
+
+	private static ValueCodec nullable(ValueCodec value, String schema) {
+		return codec(schema, (w, v) -> {
+			w.writeBoolean(v != null);
+			if (v != null)
+				value.write(w, v);
+		}, r -> r.readBoolean() ? value.read(r) : null);
+	}
+}
@@ -0,0 +1,93 @@
+package mars.codec.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import mars.codec.BinaryCodec;
+import mars.codec.BinaryReader;
+import mars.codec.BinaryWriter;
+
+class BinaryCodecTest {
+	enum Kind {
+		A, B, C
+	}
+
+	record Payload(String id, String payloadType, double restoredAt, Instant willRestoreAt) {
+	}
+
+	record Bay(int bayId, Payload payload, long prepareMillis) {
+	}
+
+	record Status(Integer readyPsId, boolean busy, List<Bay> bays, long serviceMillis, EnumSet<Kind> kinds,
+			Kind kind) {
+	}
+
+	record OtherStatus(Integer readyPsId, boolean busy) {
+	}
+
+	private final BinaryCodec out = new BinaryCodec();
+
+	@Test
+	void testRoundTrip() {
+		final Instant at = Instant.ofEpochMilli(1_600_000_000_123L);
+		final List<Bay> bays = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			bays.add(new Bay(i, i == 2 ? null : new Payload("P" + i, "BATTERY", 0.5 * i, at), -i));
+		final Status status = new Status(null, true, bays, Long.MAX_VALUE, EnumSet.of(Kind.A, Kind.C), Kind.B);
+		assertEquals(status, out.decode(out.encode(status), Status.class));
+
+		final Status empty = new Status(3, false, null, 0, EnumSet.noneOf(Kind.class), null);
+		assertEquals(empty, out.decode(out.encode(empty), Status.class));
+	}
+
+	@Test
+	void testRepeatedStringsAreWrittenOnce() {
+		final Instant at = Instant.ofEpochMilli(0);
+		final List<Bay> one = List.of(new Bay(0, new Payload("P", "BATTERY", 0, at), 0));
+		final List<Bay> two = List.of(one.get(0), new Bay(1, new Payload("Q", "BATTERY", 0, at), 0));
+		final int first = out.encode(new Status(1, false, one, 0, null, null)).length;
+		final int second = out.encode(new Status(1, false, two, 0, null, null)).length;
+		// bay: presence, id, payload presence, "Q", reference to "BATTERY", double,
+		// instant, prepareMillis
+		assertEquals(1 + 1 + 1 + 3 + 1 + 8 + 2 + 1, second - first);
+	}
+
+	@Test
+	void testInstantsAreKeptToTheMillisecond() {
+		final Payload p = new Payload(null, null, 0, Instant.ofEpochSecond(10, 123_456_789));
+		assertEquals(Instant.ofEpochSecond(10, 123_000_000), out.decode(out.encode(p), Payload.class).willRestoreAt());
+	}
+
+	@Test
+	void testOtherSchemasAreRejected() {
+		final byte[] bytes = out.encode(new OtherStatus(1, true));
+		final var e = assertThrows(IllegalArgumentException.class, () -> out.decode(bytes, Status.class));
+		assertTrue(e.getMessage().startsWith("Not encoded from Status("), e.getMessage());
+		assertThrows(IllegalArgumentException.class,
+				() -> out.decode(Arrays.copyOf(bytes, bytes.length - 1), OtherStatus.class));
+	}
+
+	@Test
+	void testVarints() {
+		final BinaryWriter w = new BinaryWriter(1);
+		final long[] values = { 0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE };
+		for (final long v : values)
+			w.writeSignedLong(v);
+		final BinaryReader r = new BinaryReader(w.toByteArray());
+		for (final long v : values)
+			assertEquals(v, r.readSignedLong());
+		assertTrue(r.isAtEnd());
+		w.reset();
+		w.writeSignedLong(-64);
+		assertEquals(1, w.size());
+	}
+}
@@ -1,15 +1,43 @@
 package eventloop;
 
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.function.Consumer;
 
 import eventloop.EventLoop.Event;
 
+/**
+ * Static access to the {@link EventLoop} running on the current thread.
+ * <p>
+ * Each loop binds itself to its thread while running, so any number of loops
+ * can run at the same time. Code calling the loop many times can get it once
+ * with {@link #current()} and use it directly.
+ */
 public class El {
 
-	final static Map<Thread, EventLoop> loops = new HashMap<>();
+	private final static ThreadLocal<EventLoop> CURRENT = new ThreadLocal<>();
+
+	static void bind(EventLoop eventLoop) {
+		CURRENT.set(eventLoop);
+	}
+
+	static void unbind() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * @return the loop running on this thread, {@code null} if none
+	 */
+	static EventLoop lookup() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return the loop running on this thread
+	 * @throws RuntimeException if not called from an event loop thread
+	 */
+	public static EventLoop current() {
+		return getLoop("current()");
+	}
 
 	public static Timeout setTimeout(long millis, Event c) {
 		return getLoop("setTimeout()").setTimeout_(millis, c);
@@ -19,6 +47,14 @@ public class El {
 		return getLoop("now()").now_();
 	}
 
+	public static long nowMillis() {
+		return getLoop("nowMillis()").nowMillis_();
+	}
+
+	public static long nowNanos() {
+		return getLoop("nowNanos()").nowNanos_();
+	}
+
 	public static void quit() {
 		getLoop("quit()").quit_();
 	}
@@ -28,17 +64,25 @@ public class El {
 	}
 
 	public static boolean inEl() {
-		return loops.get(Thread.currentThread()) != null;
+		return CURRENT.get() != null;
 	}
 
 	private static EventLoop getLoop(String name) {
-		final var el = loops.get(Thread.currentThread());
+		final var el = CURRENT.get();
 		if (el == null)
-			throw new RuntimeException(name + "can be called only FROM an event loop thread");
+			throw new RuntimeException(name + " can be called only FROM an event loop thread");
 		return el;
 	}
 
+	public static Runnable holdClock() {
+		return getLoop("holdClock()").holdClock_();
+	}
+
 	public static Consumer<Event> executor() {
 		return getLoop("executor()").executor_();
 	}
+
+	public static Consumer<Event> executor(Lane lane) {
+		return getLoop("executor()").executor_(lane);
+	}
 }
@@ -10,8 +10,9 @@ public class ElFormatter extends Formatter {
 
 	@Override
 	public String format(LogRecord record) {
-		if (El.inEl())
-			record.setInstant(El.now());
+		final EventLoop el = El.lookup();
+		if (el != null)
+			record.setInstant(el.now_());
 		return formatter.format(record);
 	}
 }
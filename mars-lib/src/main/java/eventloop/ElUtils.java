@@ -1,40 +1,139 @@
 package eventloop;
 
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import eventloop.EventLoop.Event;
+import eventloop.RpcMetrics.Outcome;
 
 public class ElUtils {
 	private ElUtils() {
 
 	}
 
+	/**
+	 * Calls back on the loop with the outcome of the stage, or with a timeout if
+	 * it takes longer than {@code timeoutMillis}. Exactly one of the callbacks is
+	 * called. Errors are given as {@link CompletionException}s, as to a dependent
+	 * stage.
+	 * <p>
+	 * The clock of the loop is held until the outcome has been handed to it, for
+	 * {@code timeoutMillis} of real time at most, so that on virtual time a reply
+	 * coming from another thread is not overtaken by the timeout.
+	 * 
+	 * @see EventLoop#holdClock_(long)
+	 */
 	public static <T> void process(final CompletionStage<T> stage, long timeoutMillis, Consumer<T> onDone,
 			Consumer<Throwable> onError, Event onTimeout) {
+		process(null, null, stage, timeoutMillis, onDone, onError, onTimeout);
+	}
+
+	/**
+	 * As {@link #process(CompletionStage, long, Consumer, Consumer, Event)}, also
+	 * recording the latency and the outcome of the call in
+	 * {@link RpcMetrics#CALLS}. The loop reports the reply under the message
+	 * name, see {@link EventLoopMetrics}.
+	 * 
+	 * @param message the name of the message sent, null not to record the call
+	 * @param agent   the agent called
+	 */
+	public static <T> void process(String message, String agent, final CompletionStage<T> stage, long timeoutMillis,
+			Consumer<T> onDone, Consumer<Throwable> onError, Event onTimeout) {
 		if (stage == null)
 			throw new NullPointerException("Invocation is null");
-		final AtomicBoolean cancelled = new AtomicBoolean();
-		final Timeout timeout = El.setTimeout(timeoutMillis, () -> {
-			cancelled.set(true);
-			onTimeout.run();
-		});
-		final var inLoopExecutor = El.executor();
-		stage.thenAccept(t -> inLoopExecutor.accept(() -> {
-			if (cancelled.get())
+		final PendingCall<T> call = new PendingCall<>(El.current(), onDone, onError, onTimeout);
+		if (message != null) {
+			call.message = message;
+			call.agent = agent;
+			call.startNanos = call.loop.nowNanos_();
+		}
+		call.timeout = call.loop.setTimeout_(timeoutMillis, call);
+		call.hold = call.loop.holdClock_(timeoutMillis);
+		stage.whenComplete(call);
+	}
+
+	/*
+	 * A single object per call: it receives the outcome on any thread, is handed
+	 * to the loop as is, and is also the timeout event. The outcome is published
+	 * by the volatile write of arrived; done is touched on the loop only.
+	 * 
+	 * When the timeout expires after the outcome has arrived but before it has
+	 * been run, as the loop runs expired timeouts ahead of queued events, the
+	 * outcome wins: it came in time.
+	 * 
+	 * The hold of the clock is released once the outcome has been queued, or when
+	 * the timeout runs after the hold has lapsed.
+	 */
+	private static final class PendingCall<T> implements Event, BiConsumer<T, Throwable> {
+		private final EventLoop loop;
+		private final Consumer<T> onDone;
+		private final Consumer<Throwable> onError;
+		private final Event onTimeout;
+		private Timeout timeout;
+		private Runnable hold;
+		private String message;
+		private String agent;
+		private long startNanos;
+		private T result;
+		private Throwable error;
+		private volatile boolean arrived;
+		private boolean done;
+
+		private PendingCall(EventLoop loop, Consumer<T> onDone, Consumer<Throwable> onError, Event onTimeout) {
+			this.loop = loop;
+			this.onDone = onDone;
+			this.onError = onError;
+			this.onTimeout = onTimeout;
+		}
+
+		@Override
+		public void accept(T result, Throwable error) {
+			this.result = result;
+			this.error = error;
+			arrived = true;
+			try {
+				loop.executor_().accept(this);
+			} finally {
+				hold.run();
+			}
+		}
+
+		@Override
+		public void run() throws Throwable {
+			if (done)
+				return;
+			done = true;
+			if (!arrived) {
+				hold.run();
+				record(Outcome.TIMEOUT);
+				onTimeout.run();
 				return;
+			}
 			timeout.cancel();
-			onDone.accept(t);
-		})).exceptionally(t -> {
-			inLoopExecutor.accept(() -> {
-				if (cancelled.get())
-					return;
-				timeout.cancel();
-				onError.accept(t);
-			});
-			return null;
-		});
-	}
+			if (error == null) {
+				record(Outcome.DONE);
+				onDone.accept(result);
+			} else {
+				record(Outcome.ERROR);
+				onError.accept(error instanceof CompletionException ? error : new CompletionException(error));
+			}
+		}
 
+		private void record(Outcome outcome) {
+			if (message != null)
+				RpcMetrics.CALLS.record(message, agent, outcome, loop.nowNanos_() - startNanos);
+		}
+
+		@Override
+		public Class<?> originClass() {
+			return onTimeout.getClass();
+		}
+
+		@Override
+		public String origin() {
+			return message == null ? null : message + RpcMetrics.REPLY_SUFFIX;
+		}
+	}
 }
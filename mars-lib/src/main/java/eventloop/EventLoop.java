@@ -1,6 +1,7 @@
 package eventloop;
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -9,6 +10,23 @@ public interface EventLoop extends Runnable {
 	@FunctionalInterface
 	static interface Event {
 		void run() throws Throwable;
+
+		/**
+		 * The class this event comes from, for metrics and diagnostics: events
+		 * wrapping another one return the class of the wrapped event.
+		 */
+		default Class<?> originClass() {
+			return getClass();
+		}
+
+		/**
+		 * The name this event is reported under when its class does not tell it
+		 * apart, e.g. the message it serves; null to go by {@link #originClass()}.
+		 * Events wrapping another one return the origin of the wrapped event.
+		 */
+		default String origin() {
+			return null;
+		}
 	}
 
 	void exec(Event e);
@@ -23,11 +41,62 @@ public interface EventLoop extends Runnable {
 
 	Instant now_();
 
+	/**
+	 * {@link #now_()} in milliseconds since the epoch, without creating objects.
+	 */
+	default long nowMillis_() {
+		return now_().toEpochMilli();
+	}
+
+	/**
+	 * {@link #now_()} in nanoseconds since the epoch, without creating objects.
+	 */
+	default long nowNanos_() {
+		final Instant now = now_();
+		return now.getEpochSecond() * 1_000_000_000 + now.getNano();
+	}
+
 	void quit_();
 
 	void addQuitEvent_(Event event);
 
 	Consumer<Event> executor_();
 
+	/**
+	 * An executor adding its events to the given {@link Lane}; loops without
+	 * lanes use the same one as {@link #executor_()}.
+	 */
+	default Consumer<Event> executor_(Lane lane) {
+		return executor_();
+	}
+
 	void setOnThrown(Function<Throwable, Boolean> onThrown);
+
+	/**
+	 * Keeps a virtual clock from moving forward while work that will feed this
+	 * loop is carried out on another thread.
+	 * 
+	 * @return the action releasing the hold; real time loops have nothing to hold
+	 */
+	default Runnable holdClock_() {
+		return () -> {
+		};
+	}
+
+	/**
+	 * As {@link #holdClock_()}, for work that may never feed this loop: the hold
+	 * lapses by itself after {@code maxMillis} of real time.
+	 */
+	default Runnable holdClock_(long maxMillis) {
+		return holdClock_();
+	}
+
+	/**
+	 * Can be called from any thread.
+	 * 
+	 * @return the metrics of this loop, if it records them
+	 */
+	default Optional<EventLoopMetrics> getMetrics() {
+		return Optional.empty();
+	}
 }
@@ -0,0 +1,135 @@
+package eventloop;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Live metrics of a {@link StandardEventLoop}: how many events are waiting, how
+ * long they wait before being run, how long they take to run, grouped by
+ * origin, how many timeouts are pending and how many events have thrown.
+ * <p>
+ * The origin of an event is its {@link Event#origin() explicit origin}, if
+ * any, otherwise the class declaring it, which for a lambda is the one where
+ * it is written, e.g. the caller of {@link El#setTimeout(long, Event)} for a
+ * timeout; the remote calls go by message name, see {@link RpcMetrics}.
+ * Timeouts are reported apart, with a {@value #TIMEOUT_SUFFIX} suffix.
+ * <p>
+ * With a queue having {@link Lane}s, the dispatch latency and the counters of
+ * each lane are reported too.
+ * <p>
+ * Everything but the enqueue counter is recorded by the loop thread; a
+ * {@link #snapshot()} can be taken from any thread without blocking it.
+ */
+public final class EventLoopMetrics {
+	public static final String TIMEOUT_SUFFIX = " (timeout)";
+
+	/**
+	 * A point in time copy of the metrics. Times are in nanoseconds.
+	 *
+	 * @param queueDepth          events waiting in the queue
+	 * @param pendingTimeouts     timeouts set and neither fired nor cancelled
+	 * @param thrown              events that have thrown
+	 * @param dispatchLatency     from the enqueue of an event to its start
+	 * @param serviceTimes        run time of the events by origin
+	 * @param laneDispatchLatency dispatch latency by lane
+	 * @param lanes               counters by lane, empty if the queue has no
+	 *                            lanes
+	 */
+	public static record Snapshot(long queueDepth, int pendingTimeouts, long thrown, Histogram dispatchLatency,
+			Map<String, Histogram> serviceTimes, Map<Lane, Histogram> laneDispatchLatency,
+			Map<Lane, LaneStats> lanes) {
+	}
+
+	private final IntSupplier pendingTimeouts;
+	private final EventQueue queue;
+	private final LongAdder enqueued = new LongAdder();
+	private final AtomicLong dequeued = new AtomicLong();
+	private final AtomicLong thrown = new AtomicLong();
+	private final Histogram dispatchLatency = new Histogram();
+	private final Map<Lane, Histogram> laneDispatchLatency = new EnumMap<>(Lane.class);
+	private final Map<String, Histogram> serviceTimes = new ConcurrentHashMap<>();
+	private final ClassValue<Histogram> queuedOrigins = new ClassValue<>() {
+		@Override
+		protected Histogram computeValue(Class<?> type) {
+			return serviceTimes.computeIfAbsent(originOf(type), k -> new Histogram());
+		}
+	};
+	private final ClassValue<Histogram> timeoutOrigins = new ClassValue<>() {
+		@Override
+		protected Histogram computeValue(Class<?> type) {
+			return serviceTimes.computeIfAbsent(originOf(type) + TIMEOUT_SUFFIX, k -> new Histogram());
+		}
+	};
+
+	EventLoopMetrics(IntSupplier pendingTimeouts, EventQueue queue) {
+		this.pendingTimeouts = pendingTimeouts;
+		this.queue = queue;
+		for (final Lane lane : Lane.values())
+			laneDispatchLatency.put(lane, new Histogram());
+	}
+
+	/**
+	 * The explicit origin of the event, the simple name of its origin class
+	 * otherwise.
+	 */
+	static String originOf(Event event) {
+		final String origin = event.origin();
+		return origin != null ? origin : originOf(event.originClass());
+	}
+
+	/**
+	 * The simple name of the class, the one enclosing it for a lambda.
+	 */
+	static String originOf(Class<?> type) {
+		final String name = type.getName();
+		final int lambda = name.indexOf("$$Lambda");
+		final String declaring = lambda < 0 ? name : name.substring(0, lambda);
+		return declaring.substring(declaring.lastIndexOf('.') + 1);
+	}
+
+	void enqueued() {
+		enqueued.increment();
+	}
+
+	void dequeued(Lane lane, long enqueuedAtNanos, long startNanos) {
+		dequeued.lazySet(dequeued.get() + 1);
+		dispatchLatency.record(startNanos - enqueuedAtNanos);
+		laneDispatchLatency.get(lane).record(startNanos - enqueuedAtNanos);
+	}
+
+	void ran(Event event, boolean timeout, long serviceNanos) {
+		final String origin = event.origin();
+		final Histogram histogram;
+		if (origin == null)
+			histogram = (timeout ? timeoutOrigins : queuedOrigins).get(event.originClass());
+		else
+			histogram = serviceTimes.computeIfAbsent(timeout ? origin + TIMEOUT_SUFFIX : origin,
+					k -> new Histogram());
+		histogram.record(serviceNanos);
+	}
+
+	void thrown() {
+		thrown.lazySet(thrown.get() + 1);
+	}
+
+	public Snapshot snapshot() {
+		final Map<String, Histogram> times = new TreeMap<>();
+		serviceTimes.forEach((origin, histogram) -> times.put(origin, histogram.copy()));
+		final Map<Lane, Histogram> laneLatency = new EnumMap<>(Lane.class);
+		final Map<Lane, LaneStats> lanes = new EnumMap<>(Lane.class);
+		for (final Lane lane : Lane.values()) {
+			laneLatency.put(lane, laneDispatchLatency.get(lane).copy());
+			queue.stats(lane).ifPresent(stats -> lanes.put(lane, stats));
+		}
+		final long depth = enqueued.sum() - dequeued.get();
+		return new Snapshot(Math.max(depth, 0), pendingTimeouts.getAsInt(), thrown.get(), dispatchLatency.copy(),
+				times, laneLatency, lanes);
+	}
+}
@@ -0,0 +1,55 @@
+package eventloop;
+
+import java.util.Optional;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * The queue of events waiting to be run by a {@link StandardEventLoop}: any
+ * thread can add to it, only the loop thread takes from it.
+ * <p>
+ * Waiting for events is not up to the queue: when it is empty the loop idles
+ * according to its {@link IdleStrategy}.
+ */
+public interface EventQueue {
+
+	/**
+	 * Adds an event. Can be called from any thread.
+	 */
+	void add(Event event);
+
+	/**
+	 * Adds an event to the given lane. Can be called from any thread.
+	 * 
+	 * @throws java.util.concurrent.RejectedExecutionException if the lane is
+	 *                                                         full
+	 */
+	default void add(Event event, Lane lane) {
+		add(event);
+	}
+
+	/**
+	 * Takes the oldest event, without waiting. Called on the loop thread only.
+	 * 
+	 * @return the event or {@code null} if the queue is empty
+	 */
+	Event poll();
+
+	/**
+	 * Can be called from any thread.
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Tells the queue which thread consumes it.
+	 */
+	default void bindTo(Thread consumer) {
+	}
+
+	/**
+	 * @return the counters of the lane, if the queue has lanes
+	 */
+	default Optional<LaneStats> stats(Lane lane) {
+		return Optional.empty();
+	}
+}
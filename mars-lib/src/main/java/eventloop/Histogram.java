@@ -0,0 +1,141 @@
+package eventloop;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non negative values, HDR style: every power of two
+ * is split in {@value #SUB_BUCKETS} linear buckets, so that any recorded value
+ * is known within about 3%. Values above {@value #MAX_EXPONENT} bits are
+ * recorded in the last bucket.
+ * <p>
+ * Recording is wait free and allocation free but must be done by a single
+ * thread at a time, typically the event loop thread. Any other thread can take
+ * a {@link #copy()} at any time without blocking the recording one; the copy
+ * may miss the values being recorded meanwhile.
+ */
+public final class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Records a value; negative ones are recorded as 0.
+	 */
+	public void record(long value) {
+		final int index = indexOf(value);
+		counts.lazySet(index, counts.get(index) + 1);
+	}
+
+	/**
+	 * Records a value from any thread, for a histogram shared by several
+	 * recording threads.
+	 */
+	public void recordConcurrently(long value) {
+		counts.incrementAndGet(indexOf(value));
+	}
+
+	/**
+	 * @return a point in time copy of this histogram
+	 */
+	public Histogram copy() {
+		final Histogram copy = new Histogram();
+		for (int i = 0; i < BUCKETS; i++)
+			copy.counts.lazySet(i, counts.get(i));
+		return copy;
+	}
+
+	/**
+	 * Records the values of another histogram, from the recording thread.
+	 */
+	public void add(Histogram other) {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.lazySet(i, counts.get(i) + other.counts.get(i));
+	}
+
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the highest value equivalent to the one at the given percentile, 0
+	 *         if nothing has been recorded
+	 */
+	public long valueAt(double percentile) {
+		final long count = count();
+		if (count == 0)
+			return 0;
+		final long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return highestValueOf(i);
+		}
+		return highestValueOf(BUCKETS - 1);
+	}
+
+	/**
+	 * @return the highest value equivalent to the highest recorded one, 0 if
+	 *         nothing has been recorded
+	 */
+	public long max() {
+		for (int i = BUCKETS - 1; i >= 0; i--)
+			if (counts.get(i) != 0)
+				return highestValueOf(i);
+		return 0;
+	}
+
+	/**
+	 * @return the mean of the recorded values, each one taken as the middle of
+	 *         its bucket
+	 */
+	public double mean() {
+		long count = 0;
+		double sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			final long c = counts.get(i);
+			if (c != 0) {
+				count += c;
+				sum += c * (lowestValueOf(i) + highestValueOf(i)) / 2.0;
+			}
+		}
+		return count == 0 ? 0 : sum / count;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count() + " p50=" + valueAt(50) + " p99=" + valueAt(99) + " p99.9=" + valueAt(99.9)
+				+ " max=" + max();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) Math.max(value, 0);
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	static long lowestValueOf(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		final int shift = index / SUB_BUCKETS - 1;
+		return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		final int shift = index / SUB_BUCKETS - 1;
+		return lowestValueOf(index) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,61 @@
+package eventloop;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a {@link StandardEventLoop} does when it has nothing to run.
+ * <p>
+ * {@link #PARK} gives the CPU away until an event is added or the next timeout
+ * is due; the other two keep the loop thread running, trading a core for a
+ * shorter enqueue to dispatch latency.
+ */
+public enum IdleStrategy {
+	/**
+	 * Busy spins: lowest latency, burns a whole core while idle.
+	 */
+	SPIN {
+		@Override
+		void idle(long maxNanos) {
+			Thread.onSpinWait();
+		}
+	},
+	/**
+	 * Yields to the other threads, staying runnable.
+	 */
+	YIELD {
+		@Override
+		void idle(long maxNanos) {
+			Thread.yield();
+		}
+	},
+	/**
+	 * Parks the thread, to be unparked by the producers.
+	 */
+	PARK {
+		@Override
+		void idle(long maxNanos) {
+			if (maxNanos == Long.MAX_VALUE)
+				LockSupport.park(this);
+			else
+				LockSupport.parkNanos(this, maxNanos);
+		}
+
+		@Override
+		boolean parks() {
+			return true;
+		}
+	};
+
+	/**
+	 * Idles once, for at most the given time. May return earlier, spuriously
+	 * too.
+	 */
+	abstract void idle(long maxNanos);
+
+	/**
+	 * @return {@code true} if idling must be interrupted by unparking the thread
+	 */
+	boolean parks() {
+		return false;
+	}
+}
@@ -0,0 +1,16 @@
+package eventloop;
+
+/**
+ * The priority lanes of a {@link LanedEventQueue}: control events always go
+ * ahead of bulk ones.
+ */
+public enum Lane {
+	/**
+	 * Heartbeats, timeouts, pit stop lifecycle: the default lane.
+	 */
+	CONTROL,
+	/**
+	 * Traffic that can wait or be rejected, like status updates.
+	 */
+	BULK
+}
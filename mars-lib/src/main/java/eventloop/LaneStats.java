@@ -0,0 +1,12 @@
+package eventloop;
+
+/**
+ * The counters of a lane of a {@link LanedEventQueue}.
+ *
+ * @param depth    events waiting
+ * @param capacity events the lane can hold
+ * @param rejected events rejected so far
+ * @param blocked  times a producer had to wait for room
+ */
+public record LaneStats(int depth, int capacity, long rejected, long blocked) {
+}
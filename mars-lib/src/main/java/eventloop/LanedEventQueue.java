@@ -0,0 +1,164 @@
+package eventloop;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Bounded {@link EventQueue} with a {@link Lane#CONTROL} lane always polled
+ * before the {@link Lane#BULK} one. Each lane is a {@link MpscEventQueue} with
+ * its own capacity and {@link OverloadPolicy}.
+ */
+public class LanedEventQueue implements EventQueue {
+	/**
+	 * Unbounded: replies, timeouts and the events loops post to each other must
+	 * neither be lost nor wait, as two full loops waiting for each other would
+	 * never move again.
+	 */
+	public static final int DEFAULT_CONTROL_CAPACITY = Integer.MAX_VALUE;
+	public static final int DEFAULT_BULK_CAPACITY = 16_384;
+
+	private final Map<Lane, Bounded> lanes = new EnumMap<>(Lane.class);
+	private final Bounded control;
+	private final Bounded bulk;
+	private volatile Thread consumer;
+
+	/**
+	 * An unbounded control lane and a bulk lane rejecting its events when full,
+	 * to be failed back to the caller.
+	 */
+	public LanedEventQueue() {
+		this(DEFAULT_CONTROL_CAPACITY, OverloadPolicy.REJECT, DEFAULT_BULK_CAPACITY, OverloadPolicy.REJECT);
+	}
+
+	public LanedEventQueue(int controlCapacity, OverloadPolicy controlPolicy, int bulkCapacity,
+			OverloadPolicy bulkPolicy) {
+		control = new Bounded(Lane.CONTROL, controlCapacity, controlPolicy);
+		bulk = new Bounded(Lane.BULK, bulkCapacity, bulkPolicy);
+		lanes.put(Lane.CONTROL, control);
+		lanes.put(Lane.BULK, bulk);
+	}
+
+	@Override
+	public void bindTo(Thread consumer) {
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void add(Event event) {
+		add(event, Lane.CONTROL);
+	}
+
+	@Override
+	public void add(Event event, Lane lane) {
+		lanes.get(lane).add(event);
+	}
+
+	@Override
+	public Event poll() {
+		final Event event = control.poll();
+		return event != null ? event : bulk.poll();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return control.queue.isEmpty() && bulk.queue.isEmpty();
+	}
+
+	@Override
+	public Optional<LaneStats> stats(Lane lane) {
+		final Bounded b = lanes.get(lane);
+		return Optional.of(new LaneStats(b.size.get(), b.capacity, b.rejected.get(), b.blocked.get()));
+	}
+
+	private final class Bounded {
+		private final Lane lane;
+		private final int capacity;
+		private final OverloadPolicy policy;
+		private final MpscEventQueue queue = new MpscEventQueue();
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong blocked = new AtomicLong();
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notFull = lock.newCondition();
+		private final AtomicInteger waiting = new AtomicInteger();
+
+		private Bounded(Lane lane, int capacity, OverloadPolicy policy) {
+			if (capacity < 1)
+				throw new IllegalArgumentException("Capacity must be positive");
+			this.lane = lane;
+			this.capacity = capacity;
+			this.policy = policy;
+		}
+
+		private void add(Event event) {
+			reserve();
+			queue.add(event);
+		}
+
+		/*
+		 * Takes a place in the lane or applies the policy. The loop thread never
+		 * waits for itself.
+		 */
+		private void reserve() {
+			while (true) {
+				final int s = size.get();
+				if (s < capacity || Thread.currentThread() == consumer) {
+					if (size.compareAndSet(s, s + 1))
+						return;
+					continue;
+				}
+				if (policy != OverloadPolicy.BLOCK) {
+					rejected.incrementAndGet();
+					throw new RejectedExecutionException(lane + " lane is full (" + capacity + " events)");
+				}
+				awaitRoom();
+			}
+		}
+
+		/*
+		 * A producer counts itself as waiting before looking at the size, the
+		 * consumer looks at the waiting ones after freeing a place: one of the two
+		 * sees the other.
+		 */
+		private void awaitRoom() {
+			blocked.incrementAndGet();
+			lock.lock();
+			waiting.incrementAndGet();
+			try {
+				while (size.get() >= capacity)
+					notFull.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				rejected.incrementAndGet();
+				throw new RejectedExecutionException("Interrupted while waiting for room in the " + lane + " lane");
+			} finally {
+				waiting.decrementAndGet();
+				lock.unlock();
+			}
+		}
+
+		private Event poll() {
+			final Event event = queue.poll();
+			if (event == null)
+				return null;
+			size.decrementAndGet();
+			if (waiting.get() > 0) {
+				lock.lock();
+				try {
+					notFull.signal();
+				} finally {
+					lock.unlock();
+				}
+			}
+			return event;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package eventloop;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * {@link EventQueue} on a {@link LinkedBlockingQueue}, as the loop used to have:
+ * producers and consumer go through its locks.
+ */
+public class LinkedEventQueue implements EventQueue {
+	private final LinkedBlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+
+	@Override
+	public void add(Event event) {
+		queue.add(event);
+	}
+
+	@Override
+	public Event poll() {
+		return queue.poll();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+}
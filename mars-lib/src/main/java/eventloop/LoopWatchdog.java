@@ -0,0 +1,202 @@
+package eventloop;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Watches a {@link StandardEventLoop} from a thread of its own, reporting the
+ * events running longer than a threshold, and keeps the table of the slowest
+ * events run so far.
+ * <p>
+ * A stall is reported once per event, while it is still running, as a
+ * {@link StalledEventException} carrying the stack of the loop thread at that
+ * moment. The stall is logged at once, and handed to the loop to be reported.
+ * With the {@link Policy#FAIL} policy the loop thread is also interrupted and
+ * the exception is thrown by the loop as soon as the event is over, as if the
+ * event itself had thrown it, the interrupt being cleared: meant for tests.
+ */
+public class LoopWatchdog implements Closeable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(LoopWatchdog.class);
+
+	public enum Policy {
+		/**
+		 * Reports the stall and lets the event go on.
+		 */
+		WARN,
+		/**
+		 * Reports the stall, interrupts the loop thread and fails the event.
+		 */
+		FAIL
+	}
+
+	/**
+	 * One of the slowest events.
+	 *
+	 * @param origin the origin of the event, as in {@link EventLoopMetrics}
+	 * @param nanos  how long it took
+	 * @param at     the loop time it started at
+	 */
+	public static record SlowEvent(String origin, long nanos, Instant at) {
+	}
+
+	public static class StalledEventException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public StalledEventException(String origin, long runningMillis) {
+			super("Event from " + origin + " running for " + runningMillis + " ms");
+		}
+	}
+
+	private final StandardEventLoop loop;
+	private final long thresholdNanos;
+	private final Policy policy;
+	private final int slowestCount;
+	private final Consumer<Throwable> onStall;
+	private final Thread thread;
+
+	private final AtomicLong startedAt = new AtomicLong();
+	private final AtomicReference<Event> running = new AtomicReference<>();
+	// guarded by this, with the FAIL policy
+	private StalledEventException failure;
+	private final List<SlowEvent> slowest = new ArrayList<>();
+	private volatile long slowestFloor;
+	private long reported;
+
+	/**
+	 * @param loop            the loop to watch
+	 * @param thresholdMillis how long an event can run before being reported
+	 * @param policy          what to do with a stalled event
+	 * @param slowestCount    how many of the slowest events to keep
+	 * @param onStall         receives the stalls, on the loop thread
+	 */
+	public LoopWatchdog(StandardEventLoop loop, long thresholdMillis, Policy policy, int slowestCount,
+			Consumer<Throwable> onStall) {
+		if (thresholdMillis <= 0)
+			throw new IllegalArgumentException("Threshold must be positive");
+		this.loop = loop;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+		this.policy = policy;
+		this.slowestCount = slowestCount;
+		this.onStall = onStall;
+		this.thread = new Thread(this::watch, "MARS Loop Watchdog");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts watching. Can be called from any thread.
+	 */
+	public LoopWatchdog start() {
+		loop.watchedBy(this);
+		thread.start();
+		return this;
+	}
+
+	@Override
+	public void close() {
+		loop.watchedBy(null);
+		thread.interrupt();
+	}
+
+	/**
+	 * @return the slowest events so far, the slowest first
+	 */
+	public synchronized List<SlowEvent> slowest() {
+		return List.copyOf(slowest);
+	}
+
+	// called on the loop thread
+
+	void started(Event event, long startNanos) {
+		running.lazySet(event);
+		startedAt.lazySet(startNanos);
+	}
+
+	void ended(Event event, long nanos) {
+		final StalledEventException stalled;
+		if (policy == Policy.FAIL)
+			stalled = endFailing();
+		else {
+			stalled = null;
+			startedAt.lazySet(0);
+			running.lazySet(null);
+		}
+		if (nanos > slowestFloor && slowestCount > 0)
+			addSlowest(new SlowEvent(EventLoopMetrics.originOf(event), nanos, loop.now_()));
+		if (stalled != null)
+			throw stalled;
+	}
+
+	/*
+	 * The interrupt was meant for the stalled event only: the loop goes on.
+	 */
+	private synchronized StalledEventException endFailing() {
+		startedAt.set(0);
+		running.set(null);
+		final StalledEventException stalled = failure;
+		failure = null;
+		if (stalled != null)
+			Thread.interrupted();
+		return stalled;
+	}
+
+	private synchronized void addSlowest(SlowEvent event) {
+		slowest.add(event);
+		slowest.sort(Comparator.comparingLong(SlowEvent::nanos).reversed());
+		if (slowest.size() > slowestCount) {
+			slowest.remove(slowestCount);
+			slowestFloor = slowest.get(slowestCount - 1).nanos();
+		}
+	}
+
+	// called on the watchdog thread
+
+	private void watch() {
+		final long period = Math.max(thresholdNanos / 4, TimeUnit.MILLISECONDS.toNanos(1));
+		while (!Thread.currentThread().isInterrupted()) {
+			check(System.nanoTime());
+			LockSupport.parkNanos(this, period);
+		}
+	}
+
+	private void check(long now) {
+		final long started = startedAt.get();
+		if (started == 0 || started == reported || now - started < thresholdNanos)
+			return;
+		final Event event = running.get();
+		final Thread loopThread = loop.runningThread();
+		if (event == null || loopThread == null)
+			return;
+		reported = started;
+		final StalledEventException e = new StalledEventException(EventLoopMetrics.originOf(event),
+				TimeUnit.NANOSECONDS.toMillis(now - started));
+		e.setStackTrace(loopThread.getStackTrace());
+		LOGGER.warn("Event loop stalled", e);
+		try {
+			loop.executor_().accept(() -> onStall.accept(e));
+		} catch (final RuntimeException t) {
+			LOGGER.error("Cannot report stall", t);
+		}
+		if (policy == Policy.FAIL)
+			fail(e, started, loopThread);
+	}
+
+	private synchronized void fail(StalledEventException e, long started, Thread loopThread) {
+		if (startedAt.get() != started)
+			return;
+		failure = e;
+		loopThread.interrupt();
+	}
+}
@@ -0,0 +1,84 @@
+package eventloop;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Lock-free multi producer, single consumer {@link EventQueue}.
+ * <p>
+ * A linked list where producers swap themselves in at the tail with a single
+ * atomic exchange and then link the previous node to theirs, while the consumer
+ * follows the links from the head without any atomic operation. Between the
+ * exchange and the link a producer has claimed its place but the node is not
+ * reachable yet: the consumer sees the queue as not empty and waits for the
+ * link, which is a matter of a few instructions.
+ */
+public final class MpscEventQueue implements EventQueue {
+	private static final VarHandle TAIL;
+	private static final VarHandle HEAD;
+	private static final VarHandle NEXT;
+	static {
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			TAIL = lookup.findVarHandle(MpscEventQueue.class, "tail", Node.class);
+			HEAD = lookup.findVarHandle(MpscEventQueue.class, "head", Node.class);
+			NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+		} catch (final ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final class Node {
+		private Event event;
+		@SuppressWarnings("unused")
+		private volatile Node next;
+
+		private Node(Event event) {
+			this.event = event;
+		}
+	}
+
+	/*
+	 * The head is a consumed node, the events start from its successor.
+	 */
+	@SuppressWarnings("unused")
+	private volatile Node head;
+	@SuppressWarnings("unused")
+	private volatile Node tail;
+
+	public MpscEventQueue() {
+		final Node stub = new Node(null);
+		HEAD.set(this, stub);
+		TAIL.set(this, stub);
+	}
+
+	@Override
+	public void add(Event event) {
+		final Node node = new Node(event);
+		final Node previous = (Node) TAIL.getAndSet(this, node);
+		NEXT.setRelease(previous, node);
+	}
+
+	@Override
+	public Event poll() {
+		final Node head = (Node) HEAD.getOpaque(this);
+		Node next = (Node) NEXT.getAcquire(head);
+		if (next == null) {
+			if (head == TAIL.getAcquire(this))
+				return null;
+			while ((next = (Node) NEXT.getAcquire(head)) == null)
+				Thread.onSpinWait();
+		}
+		final Event event = next.event;
+		next.event = null;
+		HEAD.setRelease(this, next);
+		return event;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return HEAD.getAcquire(this) == TAIL.getAcquire(this);
+	}
+}
@@ -0,0 +1,20 @@
+package eventloop;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * What a full lane of a {@link LanedEventQueue} does with a new event. Events
+ * added from the loop thread itself are always accepted, as the loop cannot
+ * wait for itself.
+ */
+public enum OverloadPolicy {
+	/**
+	 * Throws a {@link RejectedExecutionException} to the producer, that can reply
+	 * with an error.
+	 */
+	REJECT,
+	/**
+	 * The producer waits for room.
+	 */
+	BLOCK
+}
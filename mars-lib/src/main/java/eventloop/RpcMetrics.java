@@ -0,0 +1,127 @@
+package eventloop;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Latency and outcome of remote calls. For the calls made, as recorded by
+ * {@link ElUtils}, from the invocation to the handling of its outcome on the
+ * loop, in the nanoseconds of the loop. For the calls served, as recorded by
+ * {@link #served(String, String, Event)}, from the arrival of the invocation
+ * to the end of its handling on the loop, in real nanoseconds: an handler
+ * throwing is an error.
+ * <p>
+ * The latency is kept by message name, the outcomes by message name and agent:
+ * a few counters per agent, so that thousands of agents coming and going cost
+ * little.
+ * <p>
+ * The {@link EventLoopMetrics} of the loop report the handling of a call
+ * served under the message name, and the handling of the outcome of a call
+ * made under the message name with a {@value #REPLY_SUFFIX} suffix.
+ * <p>
+ * Recording can be done by any thread; a {@link #snapshot()} can be taken from
+ * any thread as well.
+ */
+public final class RpcMetrics {
+
+	/**
+	 * The calls made by this process.
+	 */
+	public static final RpcMetrics CALLS = new RpcMetrics();
+	/**
+	 * The calls served by this process.
+	 */
+	public static final RpcMetrics SERVED = new RpcMetrics();
+
+	public static final String REPLY_SUFFIX = " (reply)";
+
+	public enum Outcome {
+		DONE, ERROR, TIMEOUT
+	}
+
+	/**
+	 * @param message the name of the message
+	 * @param agent   the agent called, or calling
+	 */
+	public static record Key(String message, String agent) {
+	}
+
+	/**
+	 * The outcomes of the calls of a {@link Key}.
+	 */
+	public static record Counts(long done, long errors, long timeouts) {
+	}
+
+	/**
+	 * A point in time copy of the metrics of a message.
+	 */
+	public static record Stats(Histogram latency, long done, long errors, long timeouts) {
+	}
+
+	private static final Comparator<Key> ORDER = Comparator.comparing(Key::message).thenComparing(Key::agent,
+			Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+	private final Map<Key, AtomicLongArray> counts = new ConcurrentHashMap<>();
+
+	public void record(String message, String agent, Outcome outcome, long latencyNanos) {
+		latencies.computeIfAbsent(message, k -> new Histogram()).recordConcurrently(latencyNanos);
+		counts.computeIfAbsent(new Key(message, agent), k -> new AtomicLongArray(Outcome.values().length))
+				.incrementAndGet(outcome.ordinal());
+	}
+
+	/**
+	 * @return an event running the given one and recording in this the time
+	 *         from now to its end, reported by the loop under the message name
+	 */
+	public Event served(String message, String agent, Event event) {
+		final long arrivedNanos = System.nanoTime();
+		return new Event() {
+			@Override
+			public void run() throws Throwable {
+				try {
+					event.run();
+				} catch (final Throwable t) {
+					record(message, agent, Outcome.ERROR, System.nanoTime() - arrivedNanos);
+					throw t;
+				}
+				record(message, agent, Outcome.DONE, System.nanoTime() - arrivedNanos);
+			}
+
+			@Override
+			public Class<?> originClass() {
+				return event.originClass();
+			}
+
+			@Override
+			public String origin() {
+				return message;
+			}
+		};
+	}
+
+	/**
+	 * @return the outcomes by message name and agent
+	 */
+	public Map<Key, Counts> snapshot() {
+		final Map<Key, Counts> snapshot = new TreeMap<>(ORDER);
+		counts.forEach((key, c) -> snapshot.put(key, new Counts(c.get(0), c.get(1), c.get(2))));
+		return snapshot;
+	}
+
+	/**
+	 * @return the metrics by message name, all agents together
+	 */
+	public Map<String, Stats> byMessage() {
+		final Map<String, Stats> byMessage = new TreeMap<>();
+		latencies.forEach((message, latency) -> byMessage.put(message, new Stats(latency.copy(), 0, 0, 0)));
+		snapshot().forEach((key, c) -> byMessage.computeIfPresent(key.message(), (m, s) -> new Stats(s.latency(),
+				s.done() + c.done(), s.errors() + c.errors(), s.timeouts() + c.timeouts())));
+		return byMessage;
+	}
+}
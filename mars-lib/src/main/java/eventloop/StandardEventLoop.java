@@ -3,31 +3,89 @@ package eventloop;
 import java.time.Instant;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Single threaded event loop.
+ * <p>
+ * Timeouts are kept in a {@link TimingWheel} driven by the loop thread itself:
+ * while waiting for events the loop sleeps at most until the next deadline, and
+ * expired timeouts are run directly, without going through the queue.
+ * <p>
+ * Queued events are drained in batches: the clock and the timeouts are looked
+ * at once per batch, not once per event. By default the queue is a
+ * {@link LanedEventQueue}, whose unbounded control lane goes ahead of the
+ * bounded bulk one, and the loop parks when idle; both can be chosen at
+ * construction.
+ * <p>
+ * Unless disabled at construction, the loop records its
+ * {@link EventLoopMetrics}: each queued event then carries the time it was
+ * added at.
+ * <p>
+ * The loop keeps count of the queued events not run yet and publishes the
+ * number of pending timeouts after each event, so that other threads can wait
+ * for it to be {@link #isEmpty() empty} without polling: the loop signals them
+ * when it gets there.
+ */
 public class StandardEventLoop implements EventLoop {
 	private final static Logger LOGGER = LoggerFactory.getLogger(StandardEventLoop.class);
 
-	private final BlockingQueue<Event> queue = new LinkedBlockingQueue<Event>();
-	private final Timer timer = new Timer();
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	private final EventQueue queue;
+	private final IdleStrategy idleStrategy;
+	private final int batchSize;
+	private final EventLoopMetrics metrics;
+	private volatile LoopWatchdog watchdog;
+	private int batchLeft;
+	/*
+	 * Set while the loop is parked, so that producers know they have to unpark
+	 * it.
+	 */
+	private volatile Thread parked;
+	private final TimingWheel wheel = new TimingWheel();
+	private final long origin = System.nanoTime();
+	private final long originEpochNanos = epochNanosOf(Instant.now());
 	private Function<Throwable, Boolean> onThrown = t -> {
 		t.printStackTrace();
 		return false;
 	};
-	private Thread runningThread;
+	private volatile Thread runningThread;
 	private boolean quit;
 	private final List<Event> quitEvents = new LinkedList<>();
 
+	/*
+	 * Queued events, the running one included, and timeouts in the wheel as of
+	 * the end of the last event: the count of timeouts is written before the
+	 * queued event is discounted.
+	 */
+	private final AtomicLong work = new AtomicLong();
+	private volatile int timers;
+	private final ReentrantLock waitLock = new ReentrantLock();
+	private final Condition settled = waitLock.newCondition();
+	private volatile int waiters;
+	private final List<Awaiting> awaiting = new CopyOnWriteArrayList<>();
+	private boolean fromQueue;
+
+	/*
+	 * The time of the current event: the instant is created on demand.
+	 */
+	private long currentEventNanos = Long.MIN_VALUE;
 	private Instant currentEventTime;
-	private int tasks;
+	private final Consumer<Event> executor = e -> setTimeout_(0, e);
 
 	@Override
 	public Timeout setTimeout_(long millis, Event c) {
@@ -36,23 +94,74 @@ public class StandardEventLoop implements EventLoop {
 		if (millis == 0) {
 			addToQueue(c);
 			return Timeout.NULL;
-		} else {
-			final TimerTask task = new ExecutingTask(c);
-			timer.schedule(task, millis);
-			return new CancellingTimeout(task);
 		}
+		final long deadline = deadlineAfter(millis);
+		if (isElThread())
+			return wheel.schedule(deadline, c);
+		final TimingWheel.Entry entry = wheel.newEntry(deadline, c);
+		addToQueue(() -> wheel.add(entry));
+		return entry;
+	}
+
+	/**
+	 * The {@link #clockMillis()} at which a timeout set now for the given delay
+	 * expires. Rounded up by one tick, so that a timeout never fires before the
+	 * whole delay has elapsed.
+	 */
+	protected long deadlineAfter(long millis) {
+		final long deadline = clockMillis() + millis + 1;
+		return deadline < 0 ? Long.MAX_VALUE : deadline;
+	}
+
+	/**
+	 * The monotonic clock driving the timeouts: milliseconds elapsed since the
+	 * loop was created.
+	 */
+	protected long clockMillis() {
+		return (System.nanoTime() - origin) / 1_000_000;
+	}
+
+	/**
+	 * The time of the loop now, in nanoseconds since the epoch. Follows the
+	 * monotonic clock from the creation of the loop, so it never goes back with
+	 * the wall clock.
+	 */
+	protected long epochNanos() {
+		return originEpochNanos + System.nanoTime() - origin;
+	}
+
+	private static long epochNanosOf(Instant i) {
+		return i.getEpochSecond() * 1_000_000_000 + i.getNano();
 	}
 
+	/**
+	 * The time the current event started at, {@code null} before the first one.
+	 */
 	@Override
 	public Instant now_() {
-		return currentEventTime;
+		Instant t = currentEventTime;
+		if (t == null && currentEventNanos != Long.MIN_VALUE) {
+			t = Instant.ofEpochSecond(0, currentEventNanos);
+			currentEventTime = t;
+		}
+		return t;
+	}
+
+	@Override
+	public long nowMillis_() {
+		return Math.floorDiv(currentEventNanos, 1_000_000);
+	}
+
+	@Override
+	public long nowNanos_() {
+		return currentEventNanos;
 	}
 
 	@Override
 	public void quit_() {
 		if (!isElThread())
 			throw new RuntimeException("quit() can be called only FROM the event loop thread");
-		queue.addAll(quitEvents);
+		quitEvents.forEach(this::enqueue);
 		quit = true;
 
 	}
@@ -64,9 +173,41 @@ public class StandardEventLoop implements EventLoop {
 
 	private Event currentEvent;
 
-	private boolean started;
+	private volatile boolean started;
 
 	public StandardEventLoop() {
+		this(new LanedEventQueue(), IdleStrategy.PARK, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param queue        the queue of the events, empty
+	 * @param idleStrategy what to do when there is nothing to run
+	 * @param batchSize    how many queued events to run in a row before looking
+	 *                     at the timeouts again
+	 */
+	public StandardEventLoop(EventQueue queue, IdleStrategy idleStrategy, int batchSize) {
+		this(queue, idleStrategy, batchSize, true);
+	}
+
+	/**
+	 * @param queue        the queue of the events, empty
+	 * @param idleStrategy what to do when there is nothing to run
+	 * @param batchSize    how many queued events to run in a row before looking
+	 *                     at the timeouts again
+	 * @param withMetrics  whether to record the {@link EventLoopMetrics}
+	 */
+	public StandardEventLoop(EventQueue queue, IdleStrategy idleStrategy, int batchSize, boolean withMetrics) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+		this.queue = queue;
+		this.idleStrategy = idleStrategy;
+		this.batchSize = batchSize;
+		this.metrics = withMetrics ? new EventLoopMetrics(() -> timers, queue) : null;
+	}
+
+	@Override
+	public Optional<EventLoopMetrics> getMetrics() {
+		return Optional.ofNullable(metrics);
 	}
 
 	@Override
@@ -77,34 +218,192 @@ public class StandardEventLoop implements EventLoop {
 	@Override
 	public void run() {
 		this.runningThread = Thread.currentThread();
-		El.loops.put(this.runningThread, this);
+		El.bind(this);
+		wheel.bindTo(this.runningThread);
+		queue.bindTo(this.runningThread);
 		started = true;
+		signalWaiters();
 		try {
 			while (!Thread.currentThread().isInterrupted()) {
 				if (quit && queue.isEmpty())
 					break;
-				try {
-					currentEvent = queue.take();
-				} catch (final InterruptedException e) {
-					e.printStackTrace();
-					Thread.currentThread().interrupt();
+				currentEvent = nextEvent();
+				if (currentEvent == null)
 					continue;
-				}
 				try {
-					currentEventTime = Instant.now();
-					currentEvent.run();
+					currentEventNanos = epochNanos();
+					currentEventTime = null;
+					dispatch(currentEvent);
 				} catch (final Throwable t) {
+					if (metrics != null)
+						metrics.thrown();
 					if (onThrown(t))
 						return;
 				} finally {
 					currentEvent = null;
+					settle();
 				}
 			}
 		} finally {
+			El.unbind();
 			this.runningThread = null;
-			El.loops.remove(this.runningThread);
+			awaiting.forEach(a -> a.done.countDown());
+			signalWaiters();
 			LOGGER.info("BYE");
-			timer.cancel();
+		}
+	}
+
+	/*
+	 * With metrics, events coming from the queue are wrapped and the others are
+	 * expired timeouts.
+	 */
+	private void dispatch(Event event) throws Throwable {
+		final LoopWatchdog w = watchdog;
+		if (metrics == null && w == null) {
+			event.run();
+			return;
+		}
+		final long start = System.nanoTime();
+		final Event actual;
+		if (event instanceof Queued queued) {
+			if (metrics != null)
+				metrics.dequeued(queued.lane, queued.enqueuedAt, start);
+			actual = queued.event;
+		} else
+			actual = event;
+		if (w != null)
+			w.started(actual, start);
+		try {
+			actual.run();
+		} finally {
+			final long nanos = System.nanoTime() - start;
+			if (metrics != null)
+				metrics.ran(actual, actual == event, nanos);
+			if (w != null)
+				w.ended(actual, nanos);
+		}
+	}
+
+	/*
+	 * Called on the loop thread after each event.
+	 */
+	private void settle() {
+		timers = wheel.size();
+		final long left = fromQueue ? work.decrementAndGet() : work.get();
+		if (left == 0 && timers == 0 && waiters > 0)
+			signalWaiters();
+		if (!awaiting.isEmpty())
+			checkAwaiting();
+	}
+
+	private void signalWaiters() {
+		waitLock.lock();
+		try {
+			settled.signalAll();
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	private void checkAwaiting() {
+		for (final Awaiting a : awaiting) {
+			try {
+				if (!a.predicate.getAsBoolean())
+					continue;
+				a.met = true;
+			} catch (final Throwable t) {
+				a.thrown = t;
+			}
+			awaiting.remove(a);
+			a.done.countDown();
+		}
+	}
+
+	void watchedBy(LoopWatchdog watchdog) {
+		this.watchdog = watchdog;
+	}
+
+	Thread runningThread() {
+		return runningThread;
+	}
+
+	/**
+	 * Called on the loop thread when there is nothing to run and the next
+	 * timeout is due at the given {@link #clockMillis()}, {@link Long#MAX_VALUE}
+	 * if there is none.
+	 * 
+	 * @return {@code true} if the clock has been brought to the deadline, so
+	 *         that the loop does not need to wait for it
+	 */
+	protected boolean advanceClock(long deadline) {
+		return false;
+	}
+
+	/**
+	 * How long to idle, in real time, for the {@link #clockMillis()} to reach the
+	 * given deadline.
+	 */
+	protected long nanosUntil(long deadline) {
+		return TimeUnit.MILLISECONDS.toNanos(Math.max(deadline - clockMillis(), 0));
+	}
+
+	/*
+	 * Expired timeouts go first, then queued events; the timeouts are checked
+	 * again only when a batch is over or the queue is empty. When there is
+	 * nothing to do the loop idles until the next deadline. Once quitting,
+	 * pending timeouts are not run anymore.
+	 * 
+	 * Returns null when interrupted.
+	 */
+	private Event nextEvent() {
+		while (true) {
+			fromQueue = true;
+			if (quit)
+				return queue.poll();
+			if (batchLeft > 0) {
+				batchLeft--;
+				final Event queued = queue.poll();
+				if (queued != null)
+					return queued;
+			}
+			final Event expired = wheel.poll(clockMillis());
+			if (expired != null) {
+				fromQueue = false;
+				return expired;
+			}
+			final Event queued = queue.poll();
+			if (queued != null) {
+				batchLeft = batchSize - 1;
+				return queued;
+			}
+			batchLeft = 0;
+			final long next = wheel.nextDeadline();
+			if (advanceClock(next))
+				continue;
+			idle(next == Long.MAX_VALUE ? Long.MAX_VALUE : nanosUntil(next));
+			if (Thread.currentThread().isInterrupted())
+				return null;
+		}
+	}
+
+	/*
+	 * The parked flag is raised before looking at the queue one last time and
+	 * producers look at it after adding: either the loop sees the event or the
+	 * producer sees the loop parked.
+	 */
+	private void idle(long maxNanos) {
+		if (maxNanos == 0)
+			return;
+		if (!idleStrategy.parks()) {
+			idleStrategy.idle(maxNanos);
+			return;
+		}
+		parked = runningThread;
+		try {
+			if (queue.isEmpty())
+				idleStrategy.idle(maxNanos);
+		} finally {
+			parked = null;
 		}
 	}
 
@@ -121,56 +420,44 @@ public class StandardEventLoop implements EventLoop {
 	}
 
 	private void addToQueue(Event r) {
+		addToQueue(r, Lane.CONTROL);
+	}
+
+	private void addToQueue(Event r, Lane lane) {
 		if (quit)
 			return;
-		LOGGER.trace("Adding " + r);
-		queue.add(r);
+		LOGGER.trace("Adding {} to {}", r, lane);
+		enqueue(r, lane);
 	}
 
-	private boolean isElThread() {
-		return Thread.currentThread().equals(runningThread);
+	private void enqueue(Event r) {
+		enqueue(r, Lane.CONTROL);
 	}
 
-	private final class CancellingTimeout implements Timeout {
-		private final TimerTask task;
-
-		private CancellingTimeout(TimerTask task) {
-			this.task = task;
-		}
-
-		@Override
-		public void cancel() {
-			if (!isElThread())
-				throw new RuntimeException("cancel() can be called only FROM the event loop thread");
-			task.cancel();
+	/*
+	 * A full lane can throw: the event is counted by the metrics only once
+	 * added.
+	 */
+	private void enqueue(Event r, Lane lane) {
+		work.incrementAndGet();
+		try {
+			if (metrics == null)
+				queue.add(r, lane);
+			else
+				queue.add(new Queued(r, lane, System.nanoTime()), lane);
+		} catch (final RuntimeException e) {
+			work.decrementAndGet();
+			throw e;
 		}
+		if (metrics != null)
+			metrics.enqueued();
+		final Thread p = parked;
+		if (p != null)
+			LockSupport.unpark(p);
 	}
 
-	private final class ExecutingTask extends TimerTask {
-		private final Event c;
-		private boolean cancelled;
-
-		private ExecutingTask(Event c) {
-			tasks++;
-			this.c = c;
-		}
-
-		@Override
-		public boolean cancel() {
-			this.cancelled = true;
-			tasks--;
-			return super.cancel();
-		}
-
-		@Override
-		public void run() {
-			addToQueue(() -> {
-				if (cancelled)
-					return;
-				tasks--;
-				addToQueue(c);
-			});
-		}
+	private boolean isElThread() {
+		return Thread.currentThread().equals(runningThread);
 	}
 
 	@Override
@@ -180,23 +467,126 @@ public class StandardEventLoop implements EventLoop {
 
 	@Override
 	public void waitEmpty() throws InterruptedException {
+		waitEmpty(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Waits for the loop to be started and then either {@link #isEmpty() empty}
+	 * or over.
+	 * 
+	 * @return {@code false} if the timeout has elapsed before
+	 */
+	public boolean waitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
 		if (isElThread())
 			throw new RuntimeException("waitEmpty() can be called only OUTSIDE the event loop thread");
-		while (!started) {
-			Thread.sleep(10);// TODO ugly
+		long left = unit.toNanos(timeout);
+		waitLock.lock();
+		waiters++;
+		try {
+			while (!started || isRunning() && !isEmpty()) {
+				if (left <= 0)
+					return false;
+				left = settled.awaitNanos(left);
+			}
+			return true;
+		} finally {
+			waiters--;
+			waitLock.unlock();
 		}
-		while (!isEmpty() && isRunning()) {
-			Thread.sleep(10);// TODO ugly
+	}
+
+	/**
+	 * Waits for a condition on the state of the loop to hold. The predicate is
+	 * evaluated on the loop thread, after each event, starting with one added
+	 * for the purpose.
+	 * 
+	 * @return {@code false} if the timeout has elapsed or the loop is over before
+	 */
+	public boolean awaitCondition(BooleanSupplier predicate, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		if (isElThread())
+			throw new RuntimeException("awaitCondition() can be called only OUTSIDE the event loop thread");
+		final Awaiting a = new Awaiting(predicate);
+		awaiting.add(a);
+		try {
+			if (started && !isRunning())
+				return false;
+			addToQueue(() -> {
+			});
+			a.done.await(timeout, unit);
+		} finally {
+			awaiting.remove(a);
 		}
+		if (a.thrown != null)
+			throw new IllegalStateException("Condition has thrown", a.thrown);
+		return a.met;
 	}
 
+	/**
+	 * Nothing queued, running nor pending. Can be called from any thread.
+	 */
 	@Override
 	public boolean isEmpty() {
-		return queue.size() == 0 && currentEvent == null && tasks == 0;
+		return work.get() == 0 && timers == 0;
 	}
 
 	@Override
 	public Consumer<Event> executor_() {
-		return e -> setTimeout_(0, e);
+		return executor;
+	}
+
+	/**
+	 * Events are added to the given lane, if the queue has lanes. Adding can
+	 * throw a {@link java.util.concurrent.RejectedExecutionException} when the
+	 * lane is full, depending on its {@link OverloadPolicy}.
+	 */
+	@Override
+	public Consumer<Event> executor_(Lane lane) {
+		if (lane == Lane.CONTROL)
+			return executor_();
+		return e -> addToQueue(e, lane);
+	}
+
+	private static final class Awaiting {
+		private final BooleanSupplier predicate;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile boolean met;
+		private volatile Throwable thrown;
+
+		private Awaiting(BooleanSupplier predicate) {
+			this.predicate = predicate;
+		}
+	}
+
+	private static class Queued implements Event {
+		private final Event event;
+		private final Lane lane;
+		private final long enqueuedAt;
+
+		private Queued(Event event, Lane lane, long enqueuedAt) {
+			this.event = event;
+			this.lane = lane;
+			this.enqueuedAt = enqueuedAt;
+		}
+
+		@Override
+		public void run() throws Throwable {
+			event.run();
+		}
+
+		@Override
+		public Class<?> originClass() {
+			return event.originClass();
+		}
+
+		@Override
+		public String origin() {
+			return event.origin();
+		}
+
+		@Override
+		public String toString() {
+			return event.toString();
+		}
 	}
 }
@@ -0,0 +1,288 @@
+package eventloop;
+
+import eventloop.EventLoop.Event;
+
+/**
+ * Hierarchical timing wheel with a one millisecond tick.
+ * <p>
+ * Four levels of 256 slots cover about 49 days; farther deadlines are parked
+ * in an overflow bucket that is re-examined every time the top level wraps. An
+ * entry is stored at the level given by the highest bit in which its deadline
+ * differs from the current time, so insertion and cancellation are O(1) and a
+ * slot is cascaded to the lower levels only when the current time reaches it.
+ * Occupancy bitmaps let {@link #poll(long)} and {@link #nextDeadline()} jump
+ * over empty stretches instead of ticking through them.
+ * <p>
+ * Time is whatever monotonic millisecond count the owner drives the wheel
+ * with, starting from zero. Entries with the same deadline expire in insertion
+ * order.
+ * <p>
+ * Not thread safe: once {@link #bindTo(Thread) bound}, only the owner thread
+ * may add, cancel or poll.
+ */
+public final class TimingWheel {
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+	private static final long RANGE_MASK = (1L << (SLOT_BITS * LEVELS)) - 1;
+	private static final int WORDS_PER_LEVEL = SLOTS / Long.SIZE;
+
+	private static final int OVERFLOW = LEVELS * SLOTS;
+	private static final int DUE = OVERFLOW + 1;
+	private static final int DETACHED = -1;
+
+	private final Entry[] heads = new Entry[DUE + 1];
+	private final Entry[] tails = new Entry[DUE + 1];
+	private final long[] occupied = new long[LEVELS * WORDS_PER_LEVEL];
+
+	private long now;
+	private volatile int size;
+	private Thread owner;
+
+	public TimingWheel() {
+		this(0);
+	}
+
+	public TimingWheel(long now) {
+		this.now = now;
+	}
+
+	/**
+	 * Restricts {@link Entry#cancel()} and the other mutators to the given
+	 * thread.
+	 */
+	public void bindTo(Thread owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Creates an entry without scheduling it. Safe to call from any thread: the
+	 * entry can then be handed over to the owner thread and {@link #add(Entry)
+	 * added} there.
+	 */
+	public Entry newEntry(long deadline, Event event) {
+		return new Entry(deadline, event);
+	}
+
+	public Entry schedule(long deadline, Event event) {
+		final Entry entry = newEntry(deadline, event);
+		add(entry);
+		return entry;
+	}
+
+	/**
+	 * Schedules an entry created by {@link #newEntry(long, Event)}, unless it has
+	 * been cancelled in the meanwhile.
+	 */
+	public void add(Entry entry) {
+		if (entry.cancelled || entry.bucket != DETACHED)
+			return;
+		insert(entry);
+	}
+
+	/**
+	 * Advances the wheel up to {@code time} and returns the event of the first
+	 * entry expired at or before it, or {@code null} if there is none yet.
+	 * Entries are handed out one at a time, so an event can still cancel the
+	 * ones expiring at the same tick.
+	 */
+	public Event poll(long time) {
+		advance(time);
+		final Entry entry = heads[DUE];
+		if (entry == null)
+			return null;
+		unlink(entry);
+		return entry.event;
+	}
+
+	/**
+	 * @return the earliest time at which {@link #poll(long)} has something to do,
+	 *         either expiring or cascading entries; {@link Long#MAX_VALUE} if the
+	 *         wheel is empty
+	 */
+	public long nextDeadline() {
+		if (heads[DUE] != null)
+			return now;
+		for (int level = 0; level < LEVELS; level++) {
+			final int slot = nextOccupied(level);
+			if (slot >= 0)
+				return slotTime(level, slot);
+		}
+		if (heads[OVERFLOW] != null)
+			return overflowTime();
+		return Long.MAX_VALUE;
+	}
+
+	public long now() {
+		return now;
+	}
+
+	/**
+	 * @return the number of scheduled entries, including the expired ones not
+	 *         yet polled; can be read from any thread
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private void advance(long time) {
+		while (heads[DUE] == null) {
+			int bucket = DETACHED;
+			long at = Long.MAX_VALUE;
+			for (int level = 0; level < LEVELS; level++) {
+				final int slot = nextOccupied(level);
+				if (slot >= 0) {
+					bucket = level * SLOTS + slot;
+					at = slotTime(level, slot);
+					break;
+				}
+			}
+			if (bucket == DETACHED && heads[OVERFLOW] != null) {
+				bucket = OVERFLOW;
+				at = overflowTime();
+			}
+			if (at > time) {
+				if (time > now)
+					now = time;
+				return;
+			}
+			now = at;
+			// detached first: overflow entries may land in the same bucket again
+			Entry entry = heads[bucket];
+			heads[bucket] = null;
+			tails[bucket] = null;
+			if (bucket < OVERFLOW)
+				occupied[bucket >>> 6] &= ~(1L << bucket);
+			while (entry != null) {
+				final Entry next = entry.next;
+				entry.bucket = DETACHED;
+				size--;
+				if (bucket < SLOTS)
+					link(DUE, entry);
+				else
+					insert(entry);
+				entry = next;
+			}
+		}
+	}
+
+	private void insert(Entry entry) {
+		final long deadline = Math.max(entry.deadline, now);
+		final long diff = deadline ^ now;
+		if (diff <= SLOT_MASK) {
+			link((int) (deadline & SLOT_MASK), entry);
+			return;
+		}
+		final int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+		if (level >= LEVELS) {
+			link(OVERFLOW, entry);
+			return;
+		}
+		link(level * SLOTS + (int) ((deadline >>> (level * SLOT_BITS)) & SLOT_MASK), entry);
+	}
+
+	/*
+	 * Level 0 can hold entries expiring right now; on the upper levels the slot
+	 * of the current time has already been cascaded, so the search starts past
+	 * it.
+	 */
+	private int nextOccupied(int level) {
+		final int current = (int) ((now >>> (level * SLOT_BITS)) & SLOT_MASK);
+		final int from = level == 0 ? current : current + 1;
+		if (from >= SLOTS)
+			return -1;
+		final int base = level * WORDS_PER_LEVEL;
+		int word = from >>> 6;
+		long bits = occupied[base + word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == WORDS_PER_LEVEL)
+				return -1;
+			bits = occupied[base + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	private long slotTime(int level, int slot) {
+		final long above = (1L << ((level + 1) * SLOT_BITS)) - 1;
+		return (now & ~above) | ((long) slot << (level * SLOT_BITS));
+	}
+
+	private long overflowTime() {
+		return (now | RANGE_MASK) + 1;
+	}
+
+	private void link(int bucket, Entry entry) {
+		entry.bucket = bucket;
+		entry.next = null;
+		entry.prev = tails[bucket];
+		if (entry.prev == null) {
+			heads[bucket] = entry;
+			if (bucket < OVERFLOW)
+				occupied[bucket >>> 6] |= 1L << bucket;
+		} else
+			entry.prev.next = entry;
+		tails[bucket] = entry;
+		size++;
+	}
+
+	private void unlink(Entry entry) {
+		final int bucket = entry.bucket;
+		if (entry.prev == null)
+			heads[bucket] = entry.next;
+		else
+			entry.prev.next = entry.next;
+		if (entry.next == null)
+			tails[bucket] = entry.prev;
+		else
+			entry.next.prev = entry.prev;
+		if (heads[bucket] == null && bucket < OVERFLOW)
+			occupied[bucket >>> 6] &= ~(1L << bucket);
+		entry.prev = null;
+		entry.next = null;
+		entry.bucket = DETACHED;
+		size--;
+	}
+
+	private void checkOwner() {
+		if (owner != null && Thread.currentThread() != owner)
+			throw new RuntimeException("cancel() can be called only FROM the event loop thread");
+	}
+
+	public final class Entry implements Timeout {
+		private final long deadline;
+		private final Event event;
+		private Entry prev;
+		private Entry next;
+		private int bucket = DETACHED;
+		private boolean cancelled;
+
+		private Entry(long deadline, Event event) {
+			this.deadline = deadline;
+			this.event = event;
+		}
+
+		public long deadline() {
+			return deadline;
+		}
+
+		@Override
+		public void cancel() {
+			checkOwner();
+			if (cancelled)
+				return;
+			cancelled = true;
+			if (bucket != DETACHED)
+				unlink(this);
+		}
+
+		@Override
+		public String toString() {
+			return "Timeout@" + deadline;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package mars.comm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import eventloop.Histogram;
+
+/**
+ * A {@link SignalEmitter} handing the signals over to a thread of its own,
+ * which publishes them through another emitter, so that the event loop
+ * emitting them does not wait for the broker.
+ * <p>
+ * The signals wait in a bounded ring buffer, from which the publishing thread
+ * takes them in batches: a burst of signals costs a single wake up. When the
+ * buffer is full the {@link Policy} decides. Signals are published in the order
+ * they have been emitted; one that cannot be published is logged and counted,
+ * and the others go on.
+ */
+public class AsyncSignalPublisher implements SignalEmitter, Closeable {
+	private final static Logger LOGGER = LoggerFactory.getLogger(AsyncSignalPublisher.class);
+
+	public static final int DEFAULT_CAPACITY = 4_096;
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	private static final long CLOSE_WAIT_MILLIS = 5_000;
+
+	public enum Policy {
+		/**
+		 * The new signal is dropped.
+		 */
+		DROP_NEWEST,
+		/**
+		 * The oldest signal waiting is dropped to make room for the new one.
+		 */
+		DROP_OLDEST,
+		/**
+		 * The emitter waits for room.
+		 */
+		BLOCK
+	}
+
+	/**
+	 * @param depth     signals waiting
+	 * @param capacity  signals the buffer can hold
+	 * @param highWater the most signals that have been waiting
+	 * @param published signals published so far
+	 * @param dropped   signals dropped so far
+	 * @param failed    signals that could not be published
+	 * @param blocked   times an emitter had to wait for room
+	 * @param latency   nanoseconds from the emission to the end of the publish
+	 */
+	public static record Stats(int depth, int capacity, int highWater, long published, long dropped, long failed,
+			long blocked, Histogram latency) {
+	}
+
+	private static record Signal(String name, String id, Object payload, long emittedNanos) {
+	}
+
+	private final SignalEmitter emitter;
+	private final Signal[] ring;
+	private final int batchSize;
+	private final Policy policy;
+	private final Thread thread;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Histogram latency = new Histogram();
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	// guarded by the lock
+	private int head;
+	private int size;
+	private int highWater;
+	private long dropped;
+	private long blocked;
+	private boolean closed;
+
+	/**
+	 * With {@value #DEFAULT_CAPACITY} signals, dropping the oldest when full.
+	 */
+	public AsyncSignalPublisher(SignalEmitter emitter) {
+		this(emitter, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, Policy.DROP_OLDEST);
+	}
+
+	/**
+	 * Taking up to {@value #DEFAULT_BATCH_SIZE} signals at once.
+	 */
+	public AsyncSignalPublisher(SignalEmitter emitter, int capacity, Policy policy) {
+		this(emitter, capacity, DEFAULT_BATCH_SIZE, policy);
+	}
+
+	/**
+	 * @param emitter   publishes the signals, on the publishing thread
+	 * @param capacity  how many signals can wait
+	 * @param batchSize how many signals are taken from the buffer at once
+	 * @param policy    what to do when the buffer is full
+	 */
+	public AsyncSignalPublisher(SignalEmitter emitter, int capacity, int batchSize, Policy policy) {
+		if (capacity < 1 || batchSize < 1)
+			throw new IllegalArgumentException("Capacity and batch size must be positive");
+		this.emitter = emitter;
+		this.ring = new Signal[capacity];
+		this.batchSize = batchSize;
+		this.policy = policy;
+		this.thread = new Thread(this::publishAll, "MARS Signal Publisher");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts publishing. Can be called from any thread.
+	 */
+	public AsyncSignalPublisher start() {
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * Queues the signal for publishing.
+	 *
+	 * @throws IOException if closed, or interrupted while waiting for room
+	 */
+	@Override
+	public void emit(String name, String id, Object payload) throws IOException {
+		final Signal signal = new Signal(name, id, payload, System.nanoTime());
+		lock.lock();
+		try {
+			if (size == ring.length && !makeRoom())
+				return;
+			if (closed)
+				throw new IOException("Signal publisher closed");
+			ring[(head + size) % ring.length] = signal;
+			if (++size > highWater)
+				highWater = size;
+			if (size == 1)
+				notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Publishes the signals waiting, for a few seconds at most, and stops.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signal();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			thread.join(CLOSE_WAIT_MILLIS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (thread.isAlive()) {
+			LOGGER.warn("{} signals not published", stats().depth());
+			thread.interrupt();
+		}
+	}
+
+	public Stats stats() {
+		lock.lock();
+		try {
+			return new Stats(size, ring.length, highWater, published.get(), dropped, failed.get(), blocked,
+					latency.copy());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * Applies the policy to a full buffer: false if the new signal is to be
+	 * dropped.
+	 */
+	private boolean makeRoom() throws IOException {
+		switch (policy) {
+		case DROP_NEWEST -> {
+			dropped++;
+			return false;
+		}
+		case DROP_OLDEST -> {
+			ring[head] = null;
+			head = (head + 1) % ring.length;
+			size--;
+			dropped++;
+			return true;
+		}
+		default -> {
+			blocked++;
+			try {
+				while (size == ring.length && !closed)
+					notFull.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				dropped++;
+				throw new IOException("Interrupted while waiting for room");
+			}
+			return true;
+		}
+		}
+	}
+
+	private void publishAll() {
+		final Signal[] batch = new Signal[batchSize];
+		while (true) {
+			final int n;
+			lock.lock();
+			try {
+				while (size == 0 && !closed)
+					notEmpty.await();
+				if (size == 0)
+					return;
+				n = Math.min(size, batchSize);
+				for (int i = 0; i < n; i++) {
+					batch[i] = ring[head];
+					ring[head] = null;
+					head = (head + 1) % ring.length;
+				}
+				size -= n;
+				notFull.signalAll();
+			} catch (final InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < n; i++) {
+				publish(batch[i]);
+				batch[i] = null;
+			}
+		}
+	}
+
+	private void publish(Signal signal) {
+		try {
+			emitter.emit(signal.name(), signal.id(), signal.payload());
+			published.incrementAndGet();
+		} catch (final IOException | RuntimeException e) {
+			failed.incrementAndGet();
+			LOGGER.error("Cannot emit signal: {}[{}]({})", signal.name(), signal.id(), signal.payload(), e);
+		}
+		latency.record(System.nanoTime() - signal.emittedNanos());
+	}
+}
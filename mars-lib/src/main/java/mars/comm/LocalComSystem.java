@@ -0,0 +1,245 @@
+package mars.comm;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.ComSystem;
+import com.cellply.invosys.agent.AbstractResponder;
+import com.cellply.invosys.agent.Agent;
+import com.cellply.invosys.agent.CallContext;
+import com.cellply.invosys.agent.InvocationContext;
+import com.cellply.invosys.agent.OutgoingInvocation;
+import com.cellply.invosys.signalling.SignalDispatcher;
+import com.cellply.invosys.signalling.SignalDto;
+import com.cellply.invosys.signalling.SignalEmitter;
+import com.cellply.invosys.signalling.SignalSubscriber;
+
+/**
+ * A {@link ComSystem} connecting the agents of the same process, without a
+ * broker: signals go through a {@link LocalSignalBus}, invocations straight to
+ * the responder of the called agent.
+ * <p>
+ * As signals, invocations are delivered on the invoking thread and their
+ * results on the resolving one, so responders and callers are expected to hand
+ * them over to their event loop, as they do with a broker. Parameters and
+ * results are passed by reference or through the given copier. Invoking an
+ * unknown agent or method fails at once.
+ */
+public class LocalComSystem implements ComSystem {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(LocalComSystem.class);
+
+	private final UnaryOperator<Object> copier;
+	private final LocalSignalBus bus;
+	private final Map<String, LocalAgent> agents = new ConcurrentHashMap<>();
+
+	public LocalComSystem() {
+		this(UnaryOperator.identity());
+	}
+
+	/**
+	 * @param copier copies the parameters, results and signal payloads, e.g.
+	 *               through their JSON form to catch what a broker would not
+	 *               carry
+	 */
+	public LocalComSystem(UnaryOperator<Object> copier) {
+		this.copier = copier;
+		this.bus = new LocalSignalBus(copier);
+	}
+
+	@Override
+	public Agent createAgent(String name) throws IOException {
+		final LocalAgent agent = new LocalAgent(name);
+		if (agents.putIfAbsent(name, agent) != null)
+			throw new IOException("Agent already exists: " + name);
+		return agent;
+	}
+
+	@Override
+	public SignalEmitter createEmitter(String agentName) throws IOException {
+		return bus.emitter(agentName);
+	}
+
+	@Override
+	public SignalSubscriber createSignalSubscriber(String name, String filter, Consumer<SignalDto> consumer)
+			throws IOException {
+		return bus.subscribe(name, filter, consumer);
+	}
+
+	@Override
+	public SignalDispatcher createSignalSubscriber(String name, String filter) throws IOException {
+		final LocalDispatcher dispatcher = new LocalDispatcher();
+		dispatcher.subscriber = bus.subscribe(name, filter, dispatcher::dispatch);
+		return dispatcher;
+	}
+
+	/**
+	 * Forgets the agents; the subscriptions are closed by their owners.
+	 */
+	@Override
+	public void close() {
+		agents.clear();
+	}
+
+	private <T> OutgoingInvocation<T> invoke(String callerName, Class<T> resultType, String destAgent, String method,
+			Object params) {
+		final OutgoingInvocation<T> invocation = new OutgoingInvocation<>();
+		final LocalAgent dest = agents.get(destAgent);
+		if (dest == null) {
+			invocation.completeExceptionally(new IOException("No agent: " + destAgent));
+			return invocation;
+		}
+		final AbstractResponder<?> responder = dest.methods.get(method);
+		if (responder == null) {
+			invocation.completeExceptionally(new IOException("No method " + method + " on agent: " + destAgent));
+			return invocation;
+		}
+		try {
+			execute(responder,
+					new LocalCallContext<Object, T>(dest, callerName, copier.apply(params), resultType, invocation));
+		} catch (final RuntimeException e) {
+			LOGGER.error("Responder of {} on {} failed", method, destAgent, e);
+			invocation.completeExceptionally(e);
+		}
+		return invocation;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <P> void execute(AbstractResponder<P> responder, CallContext<?> callCtx) {
+		responder.executeInvocation((CallContext<P>) callCtx);
+	}
+
+	private class LocalAgent implements Agent {
+		private final String name;
+		private final Map<String, AbstractResponder<?>> methods = new ConcurrentHashMap<>();
+		private final InvocationContext invocationContext;
+
+		LocalAgent(String name) {
+			this.name = name;
+			this.invocationContext = new InvocationContext() {
+				@Override
+				public <T> OutgoingInvocation<T> invoke(Class<T> resultType, String destAgent, String method,
+						Object params) {
+					return LocalComSystem.this.invoke(name, resultType, destAgent, method, params);
+				}
+			};
+		}
+
+		@Override
+		public void addMethod(String method, AbstractResponder<?> responder) {
+			methods.put(method, responder);
+		}
+
+		@Override
+		public InvocationContext getInvocationContext() {
+			return invocationContext;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	private class LocalCallContext<P, T> implements CallContext<P> {
+		private final LocalAgent agent;
+		private final String callingAgentId;
+		private final P params;
+		private final Class<T> resultType;
+		private final OutgoingInvocation<T> invocation;
+
+		@SuppressWarnings("unchecked")
+		LocalCallContext(LocalAgent agent, String callingAgentId, Object params, Class<T> resultType,
+				OutgoingInvocation<T> invocation) {
+			this.agent = agent;
+			this.callingAgentId = callingAgentId;
+			this.params = (P) params;
+			this.resultType = resultType;
+			this.invocation = invocation;
+		}
+
+		@Override
+		public P params() {
+			return params;
+		}
+
+		@Override
+		public String callingAgentId() {
+			return callingAgentId;
+		}
+
+		@Override
+		public void exec(Exec<P> exec) {
+			try {
+				resolve(exec.apply(agent.invocationContext, params));
+			} catch (final Exception e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void resolve(Object result) {
+			if (result != null && !resultType.isInstance(result)) {
+				fail(new ClassCastException(
+						"Expected " + resultType.getName() + ", got " + result.getClass().getName()));
+				return;
+			}
+			invocation.complete(resultType.cast(copier.apply(result)));
+		}
+
+		@Override
+		public void fail(Exception e) {
+			invocation.completeExceptionally(e);
+		}
+
+		@Override
+		public <R> BiConsumer<R, Throwable> action() {
+			return (r, t) -> {
+				if (t == null)
+					resolve(r);
+				else
+					fail(t instanceof Exception e ? e : new Exception(t));
+			};
+		}
+	}
+
+	private static class LocalDispatcher implements SignalDispatcher {
+		private static record Handler<T>(Class<T> type, H<T> h) {
+			void handle(SignalDto dto) {
+				if (dto.payload != null && !type.isInstance(dto.payload)) {
+					LOGGER.error("Signal {}[{}] from {} is not a {}: {}", dto.name, dto.id, dto.agentId,
+							type.getName(), dto.payload);
+					return;
+				}
+				h.h(dto.name, dto.id, dto.agentId, type.cast(dto.payload));
+			}
+		}
+
+		private final Map<String, List<Handler<?>>> handlers = new ConcurrentHashMap<>();
+		private SignalSubscriber subscriber;
+
+		@Override
+		public <T> void register(String id, Class<T> type, H<T> h) {
+			handlers.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).add(new Handler<>(type, h));
+		}
+
+		private void dispatch(SignalDto dto) {
+			for (final Handler<?> handler : handlers.getOrDefault(dto.id, List.of()))
+				handler.handle(dto);
+		}
+
+		@Override
+		public void close() throws IOException {
+			subscriber.close();
+		}
+	}
+}
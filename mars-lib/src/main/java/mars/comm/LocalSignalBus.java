@@ -0,0 +1,93 @@
+package mars.comm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.signalling.SignalDto;
+import com.cellply.invosys.signalling.SignalEmitter;
+import com.cellply.invosys.signalling.SignalSubscriber;
+
+/**
+ * Delivers signals between agents of the same process, without a broker: the
+ * emitters and subscribers of a bus stand in for those of a ComSystem, with the
+ * same filters on the signal ids, see {@link TopicFilter}.
+ * <p>
+ * Signals are delivered on the emitting thread, so subscribers are expected to
+ * hand them over to their event loop, as they do with a broker. Payloads are
+ * passed by reference, records being immutable, or through the given copier,
+ * once per subscriber. The subscribers of a signal name and id are looked up
+ * once, until the subscriptions change.
+ *
+ * @see LocalComSystem
+ */
+public class LocalSignalBus {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(LocalSignalBus.class);
+
+	private static record Subscription(String name, TopicFilter filter, Consumer<SignalDto> consumer) {
+	}
+
+	private final UnaryOperator<Object> copier;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private volatile Map<String, List<Subscription>> routes = new ConcurrentHashMap<>();
+
+	public LocalSignalBus() {
+		this(UnaryOperator.identity());
+	}
+
+	/**
+	 * @param copier copies the payloads, e.g. through their JSON form to catch
+	 *               what a broker would not carry
+	 */
+	public LocalSignalBus(UnaryOperator<Object> copier) {
+		this.copier = copier;
+	}
+
+	/**
+	 * @return emits signals as the given agent
+	 */
+	public SignalEmitter emitter(String agentName) {
+		return (name, id, payload) -> publish(agentName, name, id, payload);
+	}
+
+	/**
+	 * @param name     the signal name
+	 * @param filter   the signal ids, with wildcards
+	 * @param consumer receives the signals until closed
+	 */
+	public SignalSubscriber subscribe(String name, String filter, Consumer<SignalDto> consumer) {
+		final Subscription s = new Subscription(name, new TopicFilter(filter), consumer);
+		subscriptions.add(s);
+		routes = new ConcurrentHashMap<>();
+		return () -> {
+			subscriptions.remove(s);
+			routes = new ConcurrentHashMap<>();
+		};
+	}
+
+	private void publish(String agentName, String name, String id, Object payload) {
+		for (final Subscription s : routes.computeIfAbsent(name + '/' + id, k -> route(name, id))) {
+			final SignalDto dto = new SignalDto();
+			dto.agentId = agentName;
+			dto.name = name;
+			dto.id = id;
+			dto.payload = copier.apply(payload);
+			try {
+				s.consumer.accept(dto);
+			} catch (final RuntimeException e) {
+				LOGGER.error("Subscriber of {}[{}] failed on signal from {}", name, s.filter, agentName, e);
+			}
+		}
+	}
+
+	private List<Subscription> route(String name, String id) {
+		return subscriptions.stream().filter(s -> s.name.equals(name) && s.filter.matches(id)).toList();
+	}
+}
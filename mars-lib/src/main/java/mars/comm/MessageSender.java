@@ -7,6 +7,7 @@ import com.cellply.invosys.agent.OutgoingInvocation;
 
 import eventloop.ElUtils;
 import eventloop.EventLoop.Event;
+import eventloop.RpcMetrics;
 
 public class MessageSender<T> {
 
@@ -15,9 +16,24 @@ public class MessageSender<T> {
 	private final Consumer<Throwable> onError;
 	private final Event onTimeout;
 	private final long timeoutMillis;
+	private final String message;
+	private final String agent;
 
 	public MessageSender(Supplier<OutgoingInvocation<T>> send, Consumer<T> onDone, Consumer<Throwable> onError,
 			Event onTimeout, long timeoutMillis) {
+		this(null, null, send, onDone, onError, onTimeout, timeoutMillis);
+	}
+
+	/**
+	 * A sender recording its calls in {@link RpcMetrics#CALLS}.
+	 * 
+	 * @param message the name of the message sent
+	 * @param agent   the agent called
+	 */
+	public MessageSender(String message, String agent, Supplier<OutgoingInvocation<T>> send, Consumer<T> onDone,
+			Consumer<Throwable> onError, Event onTimeout, long timeoutMillis) {
+		this.message = message;
+		this.agent = agent;
 		this.send = send;
 		this.onDone = onDone;
 		this.onError = onError;
@@ -26,6 +42,6 @@ public class MessageSender<T> {
 	}
 
 	public void send() {
-		ElUtils.process(send.get(), timeoutMillis, onDone, onError, onTimeout);
+		ElUtils.process(message, agent, send.get(), timeoutMillis, onDone, onError, onTimeout);
 	}
 }
@@ -0,0 +1,56 @@
+package mars.comm;
+
+/**
+ * A filter of routing keys with the wildcards of AMQP topic exchanges, as used
+ * by signal subscribers: keys are words separated by dots, {@code *} stands
+ * for exactly one word and {@code #} for zero or more, so that
+ * {@code mars.drone.#} matches {@code mars.drone} and
+ * {@code mars.drone.3.battery}.
+ */
+public final class TopicFilter {
+	private static final String ONE = "*";
+	private static final String ANY = "#";
+
+	private final String filter;
+	private final String[] words;
+	private final boolean literal;
+
+	public TopicFilter(String filter) {
+		this.filter = filter;
+		this.words = filter.split("\\.", -1);
+		this.literal = filter.indexOf('*') < 0 && filter.indexOf('#') < 0;
+	}
+
+	public boolean matches(String routingKey) {
+		if (literal)
+			return filter.equals(routingKey);
+		if (words.length == 1 && words[0].equals(ANY))
+			return true;
+		return matches(routingKey.split("\\.", -1), 0, 0);
+	}
+
+	/*
+	 * Backtracks only on #, at most once per # that is not the last word.
+	 */
+	private boolean matches(String[] key, int w, int k) {
+		for (; w < words.length; w++, k++) {
+			final String word = words[w];
+			if (word.equals(ANY)) {
+				if (w == words.length - 1)
+					return true;
+				for (int skip = k; skip <= key.length; skip++)
+					if (matches(key, w + 1, skip))
+						return true;
+				return false;
+			}
+			if (k == key.length || !(word.equals(ONE) || word.equals(key[k])))
+				return false;
+		}
+		return k == key.length;
+	}
+
+	@Override
+	public String toString() {
+		return filter;
+	}
+}
@@ -10,7 +10,10 @@ import com.cellply.invosys.signalling.SignalEmitter;
 import eventloop.El;
 import eventloop.Timeout;
 
-public class HeartbeatEmitter {
+/**
+ * Sends a signal per period for a single agent.
+ */
+public class HeartbeatEmitter implements HeartbeatSource {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatEmitter.class);
 
@@ -28,6 +31,7 @@ public class HeartbeatEmitter {
 		this.periodInSeconds = periodInSeconds;
 	}
 
+	@Override
 	public synchronized void start() {
 		if (timeout != null)
 			return;
@@ -39,6 +43,7 @@ public class HeartbeatEmitter {
 		timeout = El.setTimeout(periodInSeconds * 1000, this::schedule);
 	}
 
+	@Override
 	public synchronized void stop() {
 		timeout.cancel();
 		this.timeout = null;
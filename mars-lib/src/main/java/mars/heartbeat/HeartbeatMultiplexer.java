@@ -0,0 +1,170 @@
+package mars.heartbeat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import eventloop.El;
+import eventloop.Timeout;
+
+/**
+ * Sends the heartbeats of many agents hosted in the same process with one
+ * signal per period and heartbeat id, whose payload is the list of the names of
+ * the agents; {@link HeartbeatReceiver} expands it back into a heartbeat per
+ * agent. To be used on the event loop thread only.
+ * <p>
+ * Bundles hold at most a given number of agents: when there are more, the
+ * bundles are spread over the period, each at a random point of its slice. An
+ * agent is also sent alone when started, to be discovered at once. A spread
+ * bundle only carries the agents still started when it is sent, and is
+ * cancelled when none of its id is left.
+ */
+public class HeartbeatMultiplexer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatMultiplexer.class);
+
+	public static final int DEFAULT_MAX_BUNDLE_SIZE = 500;
+
+	private final SignalEmitter emitter;
+	private final String category;
+	private final long periodMillis;
+	private final int maxBundleSize;
+	private final Random random;
+	private final Map<String, Set<String>> agentsById = new LinkedHashMap<>();
+	private final Map<String, List<Timeout>> spreadById = new HashMap<>();
+	private Timeout timeout;
+
+	public HeartbeatMultiplexer(SignalEmitter emitter, String category, int periodInSeconds) {
+		this(emitter, category, periodInSeconds, DEFAULT_MAX_BUNDLE_SIZE, new Random());
+	}
+
+	/**
+	 * @param emitter         emits the bundles, as the hosting process
+	 * @param category        the signal name
+	 * @param periodInSeconds the heartbeat period
+	 * @param maxBundleSize   how many agents a signal holds at most
+	 * @param random          places the bundles in their slice of the period
+	 */
+	public HeartbeatMultiplexer(SignalEmitter emitter, String category, int periodInSeconds, int maxBundleSize,
+			Random random) {
+		if (maxBundleSize <= 0)
+			throw new IllegalArgumentException("Bundle size must be positive");
+		this.emitter = emitter;
+		this.category = category;
+		this.periodMillis = periodInSeconds * 1000L;
+		this.maxBundleSize = maxBundleSize;
+		this.random = random;
+	}
+
+	/**
+	 * @return the heartbeats of the given agent, sent by this multiplexer while
+	 *         started
+	 */
+	public HeartbeatSource source(String agentName, String id) {
+		return new HeartbeatSource() {
+			@Override
+			public void start() {
+				add(agentName, id);
+			}
+
+			@Override
+			public void stop() {
+				remove(agentName, id);
+			}
+		};
+	}
+
+	/**
+	 * @return how many agents are sent
+	 */
+	public int size() {
+		return agentsById.values().stream().mapToInt(Set::size).sum();
+	}
+
+	private void add(String agentName, String id) {
+		if (!agentsById.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(agentName))
+			return;
+		emit(id, List.of(agentName));
+		if (timeout == null)
+			timeout = El.setTimeout(periodMillis, this::beat);
+	}
+
+	private void remove(String agentName, String id) {
+		final Set<String> agents = agentsById.get(id);
+		if (agents == null || !agents.remove(agentName))
+			return;
+		if (agents.isEmpty()) {
+			agentsById.remove(id);
+			cancelSpread(id);
+		}
+		if (agentsById.isEmpty() && timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+	}
+
+	private void beat() {
+		timeout = El.setTimeout(periodMillis, this::beat);
+		// the bundles of the previous period have all been sent
+		spreadById.clear();
+		agentsById.forEach((id, agents) -> {
+			final List<List<String>> bundles = bundle(agents);
+			emit(id, bundles.get(0));
+			final long slice = periodMillis / bundles.size();
+			for (int i = 1; i < bundles.size(); i++) {
+				final List<String> bundle = bundles.get(i);
+				spreadById.computeIfAbsent(id, k -> new ArrayList<>()).add(El
+						.setTimeout(i * slice + (long) (random.nextDouble() * slice), () -> emitStarted(id, bundle)));
+			}
+		});
+	}
+
+	private void emitStarted(String id, List<String> bundle) {
+		final Set<String> agents = agentsById.get(id);
+		if (agents == null)
+			return;
+		final List<String> started = new ArrayList<>(bundle);
+		started.retainAll(agents);
+		if (!started.isEmpty())
+			emit(id, started);
+	}
+
+	private void cancelSpread(String id) {
+		final List<Timeout> spread = spreadById.remove(id);
+		if (spread != null)
+			spread.forEach(Timeout::cancel);
+	}
+
+	private List<List<String>> bundle(Set<String> agents) {
+		final List<List<String>> bundles = new ArrayList<>();
+		List<String> bundle = null;
+		for (final String agentName : agents) {
+			if (bundle == null || bundle.size() == maxBundleSize) {
+				bundle = new ArrayList<>(Math.min(maxBundleSize, agents.size()));
+				bundles.add(bundle);
+			}
+			bundle.add(agentName);
+		}
+		return bundles;
+	}
+
+	private void emit(String id, List<String> agents) {
+		LOGGER.debug("Emitting HEARTBEAT for {} agents", agents.size());
+		try {
+			emitter.emit(category, id, agents);
+		} catch (final IOException e) {
+			LOGGER.error("Cannot emit heartbeats", e);
+		}
+	}
+}
@@ -2,10 +2,9 @@ package mars.heartbeat;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,7 +14,6 @@ import com.cellply.invosys.signalling.SignalDto;
 import com.cellply.invosys.signalling.SignalSubscriber;
 
 import eventloop.El;
-import eventloop.Timeout;
 
 public class HeartbeatReceiver implements Closeable {
 
@@ -24,16 +22,41 @@ public class HeartbeatReceiver implements Closeable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatReceiver.class);
 
 	private final SignalSubscriber signalSubscriber;
-	private final Map<String, Timeout> agents = new HashMap<>();
 	private final List<AgentLifecycleListener> listeners = new LinkedList<>();
-	private final int lostTimeoutInSeconds;
+	private final LivenessTracker tracker;
 
 	public HeartbeatReceiver(ComSystem comSystem, String idFilter, String category, int expectedPeriodInSeconds)
 			throws IOException {
+		this(comSystem, idFilter, category, expectedPeriodInSeconds, 0);
+	}
+
+	/**
+	 * @param phiThreshold the suspicion level at which an agent is lost, on top
+	 *                     of the expected period; 0 to go by the period only
+	 * @see LivenessTracker
+	 */
+	public HeartbeatReceiver(ComSystem comSystem, String idFilter, String category, int expectedPeriodInSeconds,
+			double phiThreshold) throws IOException {
 		final var executor = El.executor();
 		signalSubscriber = comSystem.createSignalSubscriber(category, idFilter,
 				s -> executor.accept(() -> this.consume(s)));
-		this.lostTimeoutInSeconds = expectedPeriodInSeconds * DIE_PERIODS;
+		final long lostAfterMillis = expectedPeriodInSeconds * DIE_PERIODS * 1000L;
+		tracker = new LivenessTracker(lostAfterMillis, phiThreshold, new AgentLifecycleListener() {
+			@Override
+			public void agentLost(String agentName, String category) {
+				notifyLost(agentName, category);
+			}
+
+			@Override
+			public void agentDiscovered(String agentName, String category) {
+				emitAgentDiscovered(agentName, category);
+			}
+
+			@Override
+			public void agentReturned(String agentName, String category) {
+				emitAgentReturned(agentName, category);
+			}
+		});
 	}
 
 	@Override
@@ -46,22 +69,13 @@ public class HeartbeatReceiver implements Closeable {
 	}
 
 	private void consume(SignalDto dto) {
-		LOGGER.debug("HEARTBEAT received " + dto.agentId + " " + dto.id);
-		final String agentName = dto.agentId;
-		final var timeout = agents.get(agentName);
-		agents.put(agentName, El.setTimeout(lostTimeoutInSeconds * 1000L, () -> {
-			agents.put(agentName, Timeout.NULL);
-			notifyLost(agentName, dto.id);
-		}));
-		if (timeout == null) {
-			emitAgentDiscovered(agentName, dto.id);
-		} else {
-			if (timeout == Timeout.NULL) {
-				emitAgentReturned(agentName, dto.id);
-			} else {
-				timeout.cancel();
-			}
-		}
+		LOGGER.debug("HEARTBEAT received {} {}", dto.agentId, dto.id);
+		if (dto.payload instanceof Collection<?> bundle) {
+			// sent by a HeartbeatMultiplexer for the agents it hosts
+			for (final Object agentName : bundle)
+				tracker.heartbeat(String.valueOf(agentName), dto.id);
+		} else
+			tracker.heartbeat(dto.agentId, dto.id);
 	}
 
 	public void addAgentLifeListener(AgentLifecycleListener l) {
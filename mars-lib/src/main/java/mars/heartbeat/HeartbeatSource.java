@@ -0,0 +1,10 @@
+package mars.heartbeat;
+
+/**
+ * Sends the heartbeats of an agent, from {@link #start()} to {@link #stop()}.
+ */
+public interface HeartbeatSource {
+	void start();
+
+	void stop();
+}
@@ -9,15 +9,52 @@ public class LifecycleManager implements Closeable {
 
 	private static final String SIGNAL_NAME = "HEARTBEAT";
 	private static final int MAX_MISSING_HEARTBEATS = 3;
-	private final HeartbeatEmitter heartbeatEmitter;
+	private final HeartbeatSource heartbeatEmitter;
 	private final HeartbeatReceiver heartbeatReceiver;
 
 	public LifecycleManager(ComSystem comSystem, String agentName, int heartbeatPeriodInSeconds, String emittedId,
 			String interesetedIdFilter) throws IOException {
-		heartbeatEmitter = new HeartbeatEmitter(comSystem.createEmitter(agentName), emittedId, SIGNAL_NAME,
-				heartbeatPeriodInSeconds);
+		this(comSystem, agentName, heartbeatPeriodInSeconds, emittedId, interesetedIdFilter, 0);
+	}
+
+	/**
+	 * @param phiThreshold the suspicion level at which an agent is lost, with a
+	 *                     phi-accrual detector learning the heartbeat intervals of
+	 *                     each agent; 0 to lose agents after a fixed number of
+	 *                     missing heartbeats
+	 */
+	public LifecycleManager(ComSystem comSystem, String agentName, int heartbeatPeriodInSeconds, String emittedId,
+			String interesetedIdFilter, double phiThreshold) throws IOException {
+		this(comSystem, new HeartbeatEmitter(comSystem.createEmitter(agentName), emittedId, SIGNAL_NAME,
+				heartbeatPeriodInSeconds), heartbeatPeriodInSeconds, interesetedIdFilter, phiThreshold);
+	}
+
+	/**
+	 * For an agent hosted with many others, whose heartbeats are sent by a
+	 * {@link #multiplexer(ComSystem, String, int) multiplexer}.
+	 */
+	public LifecycleManager(ComSystem comSystem, HeartbeatMultiplexer multiplexer, String agentName,
+			int heartbeatPeriodInSeconds, String emittedId, String interesetedIdFilter, double phiThreshold)
+			throws IOException {
+		this(comSystem, multiplexer.source(agentName, emittedId), heartbeatPeriodInSeconds, interesetedIdFilter,
+				phiThreshold);
+	}
+
+	private LifecycleManager(ComSystem comSystem, HeartbeatSource heartbeatSource, int heartbeatPeriodInSeconds,
+			String interesetedIdFilter, double phiThreshold) throws IOException {
+		heartbeatEmitter = heartbeatSource;
 		heartbeatReceiver = new HeartbeatReceiver(comSystem, interesetedIdFilter, SIGNAL_NAME,
-				heartbeatPeriodInSeconds * MAX_MISSING_HEARTBEATS);
+				heartbeatPeriodInSeconds * MAX_MISSING_HEARTBEATS, phiThreshold);
+	}
+
+	/**
+	 * @param hostName the agent name the bundles are emitted as
+	 * @return sends the heartbeats of the agents of this process in bundles, for
+	 *         {@link LifecycleManager}s on the current event loop
+	 */
+	public static HeartbeatMultiplexer multiplexer(ComSystem comSystem, String hostName, int heartbeatPeriodInSeconds)
+			throws IOException {
+		return new HeartbeatMultiplexer(comSystem.createEmitter(hostName), SIGNAL_NAME, heartbeatPeriodInSeconds);
 	}
 
 	public void start() {
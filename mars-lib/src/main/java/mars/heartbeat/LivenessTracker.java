@@ -0,0 +1,244 @@
+package mars.heartbeat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import eventloop.El;
+import eventloop.Timeout;
+
+/**
+ * Tells which agents are alive from their heartbeats: an agent is lost when
+ * it has not been heard of for a given time, and returns with its next
+ * heartbeat. To be used on the event loop thread only.
+ * <p>
+ * Each agent gets an handle, an index in arrays holding when it was last
+ * heard of and when it will be lost, so that a heartbeat is a map lookup and a
+ * few array stores. Losses are found by a sweep of the arrays, run by a single
+ * timeout armed for the earliest possible loss, at most
+ * {@value #SWEEPS_PER_PERIOD} times per lost period: a loss is reported at most
+ * a tenth of the period late. Nothing is armed when every agent is lost.
+ * <p>
+ * With a phi threshold, the tracker also learns the distribution of the
+ * intervals between the heartbeats of each agent, as a moving mean and
+ * variance: once {@value #MIN_INTERVALS} intervals have been seen, an agent is
+ * lost when its {@link #phi(String) suspicion level} reaches the threshold,
+ * later than the lost period for irregular heartbeats. The lost period is the
+ * acceptable pause of every agent: the variance of regular heartbeats shrinks
+ * towards nothing, and a single late one must not lose them. Until the
+ * intervals are learnt the lost period applies.
+ */
+public class LivenessTracker {
+	static final int SWEEPS_PER_PERIOD = 10;
+	/**
+	 * The intervals to learn before phi decides.
+	 */
+	static final int MIN_INTERVALS = 5;
+	private static final int INITIAL_CAPACITY = 64;
+	/**
+	 * Weight of the last interval in the moving mean and variance.
+	 */
+	private static final double ALPHA = 0.1;
+
+	private final long lostAfterMillis;
+	private final long minSweepGapMillis;
+	private final double phiThreshold;
+	private final double thresholdDeviations;
+	private final AgentLifecycleListener listener;
+	private final Map<String, Integer> handles = new HashMap<>();
+	private String[] names = new String[INITIAL_CAPACITY];
+	private String[] categories = new String[INITIAL_CAPACITY];
+	private long[] lastSeen = new long[INITIAL_CAPACITY];
+	private long[] lostAt = new long[INITIAL_CAPACITY];
+	private boolean[] lost = new boolean[INITIAL_CAPACITY];
+	private double[] meanInterval = new double[INITIAL_CAPACITY];
+	private double[] intervalVariance = new double[INITIAL_CAPACITY];
+	private int[] intervals = new int[INITIAL_CAPACITY];
+	private int size;
+	private Timeout sweep;
+	private long sweepAt;
+
+	/**
+	 * @param lostAfterMillis how long an agent can stay silent before being lost
+	 * @param listener        told about discovered, lost and returned agents,
+	 *                        with the category of their last heartbeat
+	 */
+	public LivenessTracker(long lostAfterMillis, AgentLifecycleListener listener) {
+		this(lostAfterMillis, 0, listener);
+	}
+
+	/**
+	 * @param lostAfterMillis how long an agent can stay silent before being lost,
+	 *                        until its heartbeats have been learnt
+	 * @param phiThreshold    the suspicion level at which an agent is lost, 0 to
+	 *                        go by the lost period only
+	 * @param listener        told about discovered, lost and returned agents,
+	 *                        with the category of their last heartbeat
+	 */
+	public LivenessTracker(long lostAfterMillis, double phiThreshold, AgentLifecycleListener listener) {
+		if (lostAfterMillis <= 0)
+			throw new IllegalArgumentException("Lost period must be positive");
+		if (phiThreshold != 0 && phiThreshold < 1)
+			throw new IllegalArgumentException("Phi threshold must be at least 1: " + phiThreshold);
+		this.lostAfterMillis = lostAfterMillis;
+		this.minSweepGapMillis = Math.max(lostAfterMillis / SWEEPS_PER_PERIOD, 1);
+		this.phiThreshold = phiThreshold;
+		this.thresholdDeviations = phiThreshold == 0 ? 0 : deviationsAt(phiThreshold);
+		this.listener = listener;
+	}
+
+	public void heartbeat(String agentName, String category) {
+		final long now = El.nowMillis();
+		final Integer handle = handles.get(agentName);
+		if (handle == null) {
+			final int h = add(agentName, category, now);
+			armSweep(lostAt[h]);
+			listener.agentDiscovered(agentName, categories[h]);
+			return;
+		}
+		final int h = handle;
+		if (phiThreshold != 0)
+			learn(h, now - lastSeen[h]);
+		lastSeen[h] = now;
+		lostAt[h] = now + allowance(h);
+		categories[h] = category;
+		if (lost[h]) {
+			lost[h] = false;
+			armSweep(lostAt[h]);
+			listener.agentReturned(agentName, category);
+		} else if (lostAt[h] < sweepAt)
+			armSweep(lostAt[h]);
+	}
+
+	/**
+	 * @return whether the agent has been heard of and is not lost
+	 */
+	public boolean isAlive(String agentName) {
+		final Integer handle = handles.get(agentName);
+		return handle != null && !lost[handle];
+	}
+
+	/**
+	 * The suspicion level of an agent now: the minus log10 of the probability of
+	 * its next heartbeat coming even later, given the intervals seen so far. 1
+	 * means a 10% chance for the agent to be still alive, 3 a 0.1% one.
+	 *
+	 * @return 0 until {@value #MIN_INTERVALS} intervals have been seen with a phi
+	 *         threshold
+	 */
+	public double phi(String agentName) {
+		final Integer handle = handles.get(agentName);
+		if (handle == null || intervals[handle] < MIN_INTERVALS)
+			return 0;
+		final int h = handle;
+		final double y = (El.nowMillis() - lastSeen[h] - meanInterval[h]) / deviation(h);
+		final double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+		final double later = y > 0 ? e / (1 + e) : 1 - 1 / (1 + e);
+		return -Math.log10(Math.max(later, Double.MIN_NORMAL));
+	}
+
+	/**
+	 * @return how many agents have been heard of
+	 */
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * The logistic approximation of the normal distribution used by phi, solved
+	 * for the threshold with Newton's method.
+	 */
+	private static double deviationsAt(double phi) {
+		final double later = Math.pow(10, -phi);
+		final double r = Math.log((1 - later) / later);
+		double y = r / 1.5976;
+		for (int i = 0; i < 50; i++) {
+			final double next = y - (0.070566 * y * y * y + 1.5976 * y - r) / (0.211698 * y * y + 1.5976);
+			if (Math.abs(next - y) < 1e-9)
+				return next;
+			y = next;
+		}
+		return y;
+	}
+
+	private double deviation(int h) {
+		return Math.max(Math.sqrt(intervalVariance[h]), 1);
+	}
+
+	/*
+	 * The first interval gives the mean and a quarter of it as deviation.
+	 */
+	private void learn(int h, long interval) {
+		final double mean = meanInterval[h];
+		if (intervals[h] < MIN_INTERVALS)
+			intervals[h]++;
+		if (mean == 0) {
+			meanInterval[h] = interval;
+			intervalVariance[h] = interval * interval / 16.0;
+			return;
+		}
+		final double diff = interval - mean;
+		final double increment = ALPHA * diff;
+		meanInterval[h] = mean + increment;
+		intervalVariance[h] = (1 - ALPHA) * (intervalVariance[h] + diff * increment);
+	}
+
+	private long allowance(int h) {
+		if (phiThreshold == 0 || intervals[h] < MIN_INTERVALS)
+			return lostAfterMillis;
+		return Math.max(lostAfterMillis, (long) (meanInterval[h] + thresholdDeviations * deviation(h)));
+	}
+
+	private int add(String agentName, String category, long now) {
+		if (size == names.length) {
+			final int capacity = size * 2;
+			names = Arrays.copyOf(names, capacity);
+			categories = Arrays.copyOf(categories, capacity);
+			lastSeen = Arrays.copyOf(lastSeen, capacity);
+			lostAt = Arrays.copyOf(lostAt, capacity);
+			lost = Arrays.copyOf(lost, capacity);
+			meanInterval = Arrays.copyOf(meanInterval, capacity);
+			intervalVariance = Arrays.copyOf(intervalVariance, capacity);
+			intervals = Arrays.copyOf(intervals, capacity);
+		}
+		final int h = size++;
+		names[h] = agentName;
+		categories[h] = category;
+		lastSeen[h] = now;
+		lostAt[h] = now + lostAfterMillis;
+		handles.put(agentName, h);
+		return h;
+	}
+
+	/*
+	 * A sweep already armed earlier is kept: losses only move forward, but for
+	 * an agent whose heartbeats have become more regular.
+	 */
+	private void armSweep(long at) {
+		if (sweep != null) {
+			if (sweepAt <= at)
+				return;
+			sweep.cancel();
+		}
+		final long now = El.nowMillis();
+		sweepAt = Math.max(at, now);
+		sweep = El.setTimeout(sweepAt - now, this::sweep);
+	}
+
+	private void sweep() {
+		sweep = null;
+		final long now = El.nowMillis();
+		long earliest = Long.MAX_VALUE;
+		for (int h = 0; h < size; h++) {
+			if (lost[h])
+				continue;
+			if (lostAt[h] <= now) {
+				lost[h] = true;
+				listener.agentLost(names[h], categories[h]);
+			} else if (lostAt[h] < earliest)
+				earliest = lostAt[h];
+		}
+		if (earliest != Long.MAX_VALUE)
+			armSweep(Math.max(earliest, now + minSweepGapMillis));
+	}
+}
@@ -1,13 +1,61 @@
 package mars.simulation;
 
+import mars.comm.AsyncSignalPublisher;
+import mars.comm.AsyncSignalPublisher.Policy;
+
 public class SharedConfiguration {
-	public Integer timeRate;
+	/**
+	 * How fast the simulated time runs compared to the real one, null for real
+	 * time. Can be fractional.
+	 */
+	public Double timeRate;
 	public int heartbeatPeriodInSeconds = 5;
 	public long commsTimeoutMillis = 10_000;
+	/**
+	 * How long the tower waits for a drone to land on a platform.
+	 */
+	public long landingWaitMillis = 15_000;
+	/**
+	 * How long the tower waits for a pit stop to be ready on a platform.
+	 */
+	public long psReadyWaitMillis = 30_000;
+	/**
+	 * Events running longer than this are reported as stalls, 0 to disable.
+	 */
+	public long stallThresholdMillis = 0;
+	/**
+	 * The suspicion level at which an agent is lost, learning the intervals
+	 * between its heartbeats, 0 to go by missing heartbeats only. 8 is a sensible
+	 * value.
+	 */
+	public double phiThreshold = 0;
+	/**
+	 * How long a platform merges its bay updates into a single status
+	 * indication, 0 to send each at once.
+	 */
+	public long statusWindowMillis = 0;
+	/**
+	 * The file the tower captures its traffic into, to be replayed later, null
+	 * not to capture.
+	 */
+	public String captureFile;
+	/**
+	 * How many signals of an agent can wait to be published, see
+	 * {@link AsyncSignalPublisher}.
+	 */
+	public int signalCapacity = AsyncSignalPublisher.DEFAULT_CAPACITY;
+	/**
+	 * What to do with a signal emitted when {@link #signalCapacity} are waiting:
+	 * DROP_NEWEST, DROP_OLDEST or BLOCK.
+	 */
+	public Policy signalPolicy = Policy.DROP_OLDEST;
 
 	@Override
 	public String toString() {
 		return "SharedConfiguration [timeRate=" + timeRate + ", heartbeatPeriodInSeconds=" + heartbeatPeriodInSeconds
-				+ ", commsTimeoutMillis=" + commsTimeoutMillis + "]";
+				+ ", commsTimeoutMillis=" + commsTimeoutMillis + ", landingWaitMillis=" + landingWaitMillis
+				+ ", psReadyWaitMillis=" + psReadyWaitMillis + ", stallThresholdMillis=" + stallThresholdMillis
+				+ ", phiThreshold=" + phiThreshold + ", statusWindowMillis=" + statusWindowMillis + ", captureFile="
+				+ captureFile + ", signalCapacity=" + signalCapacity + ", signalPolicy=" + signalPolicy + "]";
 	}
 }
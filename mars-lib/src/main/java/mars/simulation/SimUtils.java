@@ -14,10 +14,14 @@ import com.google.gson.Gson;
 import eventloop.El;
 import eventloop.EventLoop;
 import eventloop.StandardEventLoop;
+import mars.comm.LocalComSystem;
 import mars.time.FakedEventLoop;
 import mars.time.TimeFake;
+import mars.utils.Backoff;
 
 public class SimUtils {
+	private static final long FIRST_RETRY_MILLIS = 250;
+	private static final long MAX_RETRY_MILLIS = 30_000;
 
 	/**
 	 * Starts a simulator connecting it through a ComSystem broker to other agents
@@ -28,44 +32,81 @@ public class SimUtils {
 	 * @param hostName          the host name of the ConSystem broker
 	 * @param port              the optional port to connect to,potherwise
 	 *                          defaultport is used, based on thetype ofbroker
-	 * @param comSystemConsumer a consumer that receives the ComSystem ready to use
+	 * @param comSystemConsumer a consumer that receives the ComSystem ready to
+	 *                          use, on the loop; the broker is connected to on
+	 *                          another thread, retrying with a growing delay
 	 * @param rate              the optional time acceleration rate
 	 * @return the {@link Thread} that is running the {@link EventLoop}.
 	 */
 	public static Thread runSimulator(String hostName, Optional<Integer> port,
-			final Consumer<ComSystem> comSystemConsumer, final Integer rate) {
-		final EventLoop eventLoop;
+			final Consumer<ComSystem> comSystemConsumer, final Double rate) {
+		final EventLoop eventLoop = createEventLoop(rate);
+		final Thread thread = new Thread(eventLoop, "MARS Event Loop");
+		thread.start();
 
-		if (rate != null) {
-			final TimeFake timeFake = new TimeFake(rate);
-			eventLoop = new FakedEventLoop(timeFake);
-		} else {
-			eventLoop = new StandardEventLoop();
-		}
+		final Thread connector = new Thread(() -> connect(hostName, port, eventLoop, comSystemConsumer),
+				"MARS Broker Connector");
+		connector.setDaemon(true);
+		connector.start();
 
-		final Thread thread = new Thread(eventLoop, "MARS Event Loop");
+		return thread;
+	}
+
+	/**
+	 * Starts a simulator inside its own {@link EventLoop} on a ComSystem shared
+	 * with other simulators of the same process, e.g. a {@link LocalComSystem}.
+	 * The ComSystem is not closed when the loop quits.
+	 * 
+	 * @param comSystem         the shared ComSystem
+	 * @param name              names the thread running the loop
+	 * @param comSystemConsumer a consumer that receives the ComSystem, on the loop
+	 * @param rate              the optional time acceleration rate
+	 * @return the {@link Thread} that is running the {@link EventLoop}.
+	 */
+	public static Thread runSimulator(ComSystem comSystem, String name, final Consumer<ComSystem> comSystemConsumer,
+			final Double rate) {
+		final EventLoop eventLoop = createEventLoop(rate);
+		final Thread thread = new Thread(eventLoop, "MARS Event Loop " + name);
 		thread.start();
+		eventLoop.exec(() -> comSystemConsumer.accept(comSystem));
+		return thread;
+	}
+
+	private static EventLoop createEventLoop(final Double rate) {
+		if (rate != null)
+			return new FakedEventLoop(new TimeFake(rate));
+		return new StandardEventLoop();
+	}
 
-		eventLoop.exec(() -> {
-			ComSystem tryComSystem;
-			while (true) {
+	/*
+	 * Runs off the loop, which is free to run anything else while the broker is
+	 * late: the ComSystem is handed to the loop once connected.
+	 */
+	private static void connect(String hostName, Optional<Integer> port, EventLoop eventLoop,
+			Consumer<ComSystem> comSystemConsumer) {
+		final Backoff backoff = new Backoff(FIRST_RETRY_MILLIS, MAX_RETRY_MILLIS);
+		while (true) {
+			try {
+				System.out.println("Connecting to " + hostName + port.map(p -> " port " + p).orElse(""));
+				final ComSystem comSystem = new RabbitComSystem(hostName, port.orElse(null),
+						new JacksonJsonConverter());
+				eventLoop.exec(() -> {
+					El.addQuitEvent(() -> {
+						comSystem.close();
+					});
+					comSystemConsumer.accept(comSystem);
+				});
+				return;
+			} catch (final Exception e) {
+				final long delay = backoff.next();
+				System.err.println("Cannot connect to: " + hostName + ". Retrying in " + delay + " ms");
 				try {
-					System.out.println("Connecting to " + hostName + port.map(p -> " port " + p).orElse(""));
-					tryComSystem = new RabbitComSystem(hostName, port.orElse(null), new JacksonJsonConverter());
-					break;
-				} catch (final Exception e) {
-					System.err.println("Cannot connect to: " + hostName + ". Retrying in 5s");
-					Thread.sleep(5000);
+					Thread.sleep(delay);
+				} catch (final InterruptedException ie) {
+					return;
 				}
 			}
-			final ComSystem comSystem = tryComSystem;
-			El.addQuitEvent(() -> {
-				comSystem.close();
-			});
-			comSystemConsumer.accept(comSystem);
-		});
-
-		return thread;
+		}
 	}
 
 	public static SharedConfiguration loadSharedConf() throws IOException {
@@ -24,6 +24,11 @@ public class FakeClock extends Clock {
 
 	@Override
 	public Instant instant() {
-		return timeFake.toFake(Instant.now());
+		return timeFake.now();
+	}
+
+	@Override
+	public long millis() {
+		return timeFake.nowMillis();
 	}
 }
\ No newline at end of file
@@ -1,27 +1,35 @@
 package mars.time;
 
-import java.time.Instant;
-
 import eventloop.StandardEventLoop;
-import eventloop.Timeout;
 
+/**
+ * Event loop running on the fake time of a {@link TimeFake}: timeouts are
+ * kept in fake milliseconds, so that they follow the changes of rate, pauses
+ * and steps made after they have been set.
+ */
 public class FakedEventLoop extends StandardEventLoop {
 	private final TimeFake timeFake;
 
+	public FakedEventLoop(TimeFake timeFake) {
+		this.timeFake = timeFake;
+		// the loop may be idling for a deadline computed at the former rate
+		timeFake.onChange(() -> executor_().accept(() -> {
+		}));
+	}
+
 	@Override
-	public Timeout setTimeout_(long millis, Event c) {
-		if (millis < 0)
-			throw new IllegalArgumentException("Timeout cannot be negative");
-		final long fakeMillis = timeFake.toReal(millis);
-		return super.setTimeout_(fakeMillis, () -> c.run());
+	protected long clockMillis() {
+		return timeFake.fakeNanos() / 1_000_000;
 	}
 
 	@Override
-	public Instant now_() {
-		return timeFake.toFake(super.now_());
+	protected long nanosUntil(long deadline) {
+		final long fakeNanos = deadline * 1_000_000 - timeFake.fakeNanos();
+		return fakeNanos <= 0 ? 0 : timeFake.toRealNanos(fakeNanos);
 	}
 
-	public FakedEventLoop(TimeFake timeFake) {
-		this.timeFake = timeFake;
+	@Override
+	protected long epochNanos() {
+		return timeFake.nowNanos();
 	}
 }
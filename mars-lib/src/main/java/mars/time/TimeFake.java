@@ -2,40 +2,206 @@ package mars.time;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
+/**
+ * Fake time running at a rate of the real one: 2 is twice as fast, 0.5 half
+ * as fast. The rate can be changed at any time, from any thread, without the
+ * fake time jumping: each change starts a new segment from the fake time
+ * reached so far. The fake time can also be paused and, while paused, moved
+ * forward by steps.
+ * <p>
+ * Conversions are carried out in nanoseconds. The fake time starts at the
+ * given instant, the current real time by default.
+ */
 public class TimeFake {
-	private final long speedFactor;
-	private final Instant t0;
+	/*
+	 * From realNanos on, fake time is fakeNanos plus the real time elapsed since,
+	 * times the rate; it stays still when paused. Both are relative to the
+	 * origins.
+	 */
+	private static record Segment(long realNanos, long fakeNanos, double rate, boolean paused) {
+		long fakeAt(long real) {
+			return paused ? fakeNanos : fakeNanos + (long) ((real - realNanos) * rate);
+		}
+	}
+
+	private final LongSupplier nanoClock;
+	private final long nanoOrigin;
+	private final Instant realOrigin;
+	private final Instant fakeOrigin;
+	private final long fakeOriginEpochNanos;
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+	private volatile Segment segment;
+
+	public TimeFake(double rate) {
+		this(rate, Instant.now());
+	}
+
+	/**
+	 * @param rate  the initial rate
+	 * @param start the fake time now
+	 */
+	public TimeFake(double rate, Instant start) {
+		this(rate, start, System::nanoTime);
+	}
+
+	/**
+	 * @param rate      the initial rate
+	 * @param start     the fake time now
+	 * @param nanoClock the monotonic real clock, {@link System#nanoTime()} but in
+	 *                  tests
+	 */
+	public TimeFake(double rate, Instant start, LongSupplier nanoClock) {
+		checkRate(rate);
+		this.nanoClock = nanoClock;
+		this.nanoOrigin = nanoClock.getAsLong();
+		this.realOrigin = Instant.now();
+		this.fakeOrigin = start;
+		this.fakeOriginEpochNanos = start.getEpochSecond() * 1_000_000_000 + start.getNano();
+		this.segment = new Segment(0, 0, rate, false);
+	}
+
+	private static void checkRate(double rate) {
+		if (!(rate > 0) || Double.isInfinite(rate))
+			throw new IllegalArgumentException("Rate must be positive: " + rate);
+	}
+
+	/**
+	 * Called after each change of rate, pause, resume or step, on the thread
+	 * making it.
+	 */
+	public void onChange(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	/*
+	 * Listeners are called outside of the lock.
+	 */
+	private void change(Function<Segment, Segment> next) {
+		synchronized (this) {
+			final Segment s = segment;
+			final Segment n = next.apply(s);
+			if (n == s)
+				return;
+			segment = n;
+		}
+		listeners.forEach(Runnable::run);
+	}
+
+	private long realNanos() {
+		return nanoClock.getAsLong() - nanoOrigin;
+	}
+
+	public double getRate() {
+		return segment.rate;
+	}
+
+	public boolean isPaused() {
+		return segment.paused;
+	}
+
+	public void setRate(double rate) {
+		checkRate(rate);
+		change(s -> {
+			final long real = realNanos();
+			return new Segment(real, s.fakeAt(real), rate, s.paused);
+		});
+	}
+
+	public void pause() {
+		change(s -> {
+			final long real = realNanos();
+			return s.paused ? s : new Segment(real, s.fakeAt(real), s.rate, true);
+		});
+	}
 
-	public TimeFake(long speedFactor) {
-		this.speedFactor = speedFactor;
-		final ZonedDateTime startOfDay = ZonedDateTime.now().truncatedTo(ChronoUnit.DAYS);
-		t0 = startOfDay.toInstant();
+	public void resume() {
+		change(s -> s.paused ? new Segment(realNanos(), s.fakeNanos, s.rate, false) : s);
 	}
 
+	/**
+	 * Moves the paused fake time forward.
+	 */
+	public void step(Duration d) {
+		if (d.isNegative())
+			throw new IllegalArgumentException("Time cannot go back");
+		change(s -> {
+			if (!s.paused)
+				throw new IllegalStateException("Time can be stepped only when paused");
+			return new Segment(s.realNanos, s.fakeNanos + d.toNanos(), s.rate, true);
+		});
+	}
+
+	/**
+	 * @return the fake nanoseconds elapsed since the start, never decreasing
+	 */
+	public long fakeNanos() {
+		return segment.fakeAt(realNanos());
+	}
+
+	/**
+	 * @return the real nanoseconds the given fake ones take at the current rate,
+	 *         {@link Long#MAX_VALUE} when paused
+	 */
+	public long toRealNanos(long fakeNanos) {
+		final Segment s = segment;
+		if (s.paused)
+			return Long.MAX_VALUE;
+		return (long) Math.ceil(fakeNanos / s.rate);
+	}
+
+	public Instant now() {
+		return fakeOrigin.plusNanos(fakeNanos());
+	}
+
+	/**
+	 * {@link #now()} in nanoseconds since the epoch, without creating objects.
+	 */
+	public long nowNanos() {
+		return fakeOriginEpochNanos + fakeNanos();
+	}
+
+	/**
+	 * {@link #now()} in milliseconds since the epoch, without creating objects.
+	 */
+	public long nowMillis() {
+		return Math.floorDiv(nowNanos(), 1_000_000);
+	}
+
+	/**
+	 * At the current rate.
+	 */
 	public Duration toFake(Duration d) {
-		return d.multipliedBy(speedFactor);
+		return Duration.ofNanos((long) (d.toNanos() * segment.rate));
 	}
 
+	/**
+	 * At the current rate.
+	 */
 	public Duration toReal(Duration d) {
-		return d.dividedBy(speedFactor);
+		return Duration.ofNanos((long) Math.ceil(d.toNanos() / segment.rate));
 	}
 
+	/**
+	 * @param i a real instant, since the last change of rate
+	 */
 	public Instant toFake(Instant i) {
-		final var realDuration = Duration.between(t0, i);
-		final var fakeDuration = toFake(realDuration);
-		return t0.plus(fakeDuration);
+		final long real = Duration.between(realOrigin, i).toNanos();
+		return fakeOrigin.plusNanos(segment.fakeAt(real));
 	}
 
+	/**
+	 * @param i a fake instant, since the last change of rate; when paused, as if
+	 *          resumed now
+	 */
 	public Instant toReal(Instant i) {
-		final var fakeDuration = Duration.between(t0, i);
-		final var realDuration = toReal(fakeDuration);
-		return t0.plus(realDuration);
-	}
-
-	public long toReal(long millis) {
-		return millis / speedFactor;
+		final Segment s = segment;
+		final long fake = Duration.between(fakeOrigin, i).toNanos();
+		final long real = (s.paused ? realNanos() : s.realNanos) + (long) ((fake - s.fakeNanos) / s.rate);
+		return realOrigin.plusNanos(real);
 	}
 }
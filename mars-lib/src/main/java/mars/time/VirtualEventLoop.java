@@ -0,0 +1,158 @@
+package mars.time;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eventloop.StandardEventLoop;
+
+/**
+ * Discrete event loop running on virtual time.
+ * <p>
+ * Whenever there is nothing left to run, the clock jumps straight to the next
+ * pending timeout, so a simulation runs as fast as its events can be
+ * processed. {@link #now_()} returns the virtual time, which stays still during
+ * an event, and timeouts fire exactly at their virtual deadline.
+ * <p>
+ * A run is deterministic as long as everything feeding the loop is driven by
+ * the loop itself: agents living in the same process must deliver their
+ * messages through {@link #executor_()}. Work carried out on other threads has
+ * to {@link #holdClock_() hold the clock} until its result has been handed to
+ * the loop, otherwise time would run ahead of it. The calls processed through
+ * {@link eventloop.ElUtils} hold it while pending, for their timeout in real
+ * time at most, which the loop can lower. Messages coming from a broker are
+ * not held, so remote agents cannot take part in a virtual run.
+ */
+public class VirtualEventLoop extends StandardEventLoop {
+	private final static Logger LOGGER = LoggerFactory.getLogger(VirtualEventLoop.class);
+
+	public static final Instant DEFAULT_T0 = Instant.parse("2020-01-01T00:00:00Z");
+
+	private static final Runnable NO_HOLD = () -> {
+	};
+
+	private static final ScheduledExecutorService LAPSES = Executors.newSingleThreadScheduledExecutor(r -> {
+		final Thread thread = new Thread(r, "MARS Clock Hold Lapses");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Instant t0;
+	private final long t0Millis;
+	private final long horizonMillis;
+	private final long maxHoldMillis;
+	private final AtomicInteger holds = new AtomicInteger();
+	private volatile long millis;
+
+	public VirtualEventLoop() {
+		this(DEFAULT_T0);
+	}
+
+	public VirtualEventLoop(Instant t0) {
+		this(t0, null);
+	}
+
+	/**
+	 * @param t0      the virtual time the loop starts at
+	 * @param horizon how long to run: the loop quits as soon as the next timeout
+	 *                falls beyond it, or when nothing is left to run; {@code null}
+	 *                to run until quit
+	 */
+	public VirtualEventLoop(Instant t0, Duration horizon) {
+		this(t0, horizon, null);
+	}
+
+	/**
+	 * @param maxHold how long, in real time, a {@link #holdClock_(long) lapsing
+	 *                hold} can last at most; {@code null} to leave it to the
+	 *                holder, zero not to take such holds at all, when nothing
+	 *                feeds the loop from other threads
+	 */
+	public VirtualEventLoop(Instant t0, Duration horizon, Duration maxHold) {
+		this.t0 = t0;
+		this.t0Millis = t0.toEpochMilli();
+		this.horizonMillis = horizon == null ? Long.MAX_VALUE : horizon.toMillis();
+		this.maxHoldMillis = maxHold == null ? Long.MAX_VALUE : maxHold.toMillis();
+	}
+
+	@Override
+	protected long clockMillis() {
+		return millis;
+	}
+
+	@Override
+	protected long deadlineAfter(long delay) {
+		final long deadline = millis + delay;
+		return deadline < 0 ? Long.MAX_VALUE : deadline;
+	}
+
+	@Override
+	protected boolean advanceClock(long deadline) {
+		if (holds.get() > 0)
+			return false;
+		if (deadline > horizonMillis) {
+			LOGGER.info("Horizon reached @{}", now_());
+			quit_();
+			return true;
+		}
+		if (deadline == Long.MAX_VALUE)
+			return false;
+		millis = deadline;
+		return true;
+	}
+
+	@Override
+	public Instant now_() {
+		return t0.plusMillis(millis);
+	}
+
+	@Override
+	public long nowMillis_() {
+		return t0Millis + millis;
+	}
+
+	@Override
+	public long nowNanos_() {
+		return (t0Millis + millis) * 1_000_000;
+	}
+
+	@Override
+	public Runnable holdClock_() {
+		holds.incrementAndGet();
+		final AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			// the loop may be waiting for the hold to go away: wake it up
+			if (released.compareAndSet(false, true) && holds.decrementAndGet() == 0)
+				executor_().accept(() -> {
+				});
+		};
+	}
+
+	@Override
+	public Runnable holdClock_(long maxMillis) {
+		final long millis = Math.min(maxMillis, maxHoldMillis);
+		if (millis <= 0)
+			return NO_HOLD;
+		final Runnable release = holdClock_();
+		final ScheduledFuture<?> lapse = LAPSES.schedule(() -> {
+			LOGGER.warn("Clock hold lapsed after {} ms @{}", millis, now_());
+			release.run();
+		}, millis, TimeUnit.MILLISECONDS);
+		return () -> {
+			lapse.cancel(false);
+			release.run();
+		};
+	}
+
+	public Instant getT0() {
+		return t0;
+	}
+}
@@ -0,0 +1,50 @@
+package mars.utils;
+
+import java.util.Random;
+
+/**
+ * The delays between the retries of an operation: they double from the first
+ * one up to a maximum, and each is drawn at random between the half and the
+ * whole of its step, so that many agents retrying together spread out.
+ */
+public class Backoff {
+	private final long firstMillis;
+	private final long maxMillis;
+	private final Random random;
+	private long step;
+
+	public Backoff(long firstMillis, long maxMillis) {
+		this(firstMillis, maxMillis, new Random());
+	}
+
+	/**
+	 * @param firstMillis the step of the first retry
+	 * @param maxMillis   the largest step
+	 * @param random      draws the delays within their step
+	 */
+	public Backoff(long firstMillis, long maxMillis, Random random) {
+		if (firstMillis <= 0 || maxMillis < firstMillis)
+			throw new IllegalArgumentException("Bad backoff: " + firstMillis + " to " + maxMillis);
+		this.firstMillis = firstMillis;
+		this.maxMillis = maxMillis;
+		this.random = random;
+		this.step = firstMillis;
+	}
+
+	/**
+	 * @return how long to wait before the next retry
+	 */
+	public long next() {
+		final long s = step;
+		step = Math.min(s * 2, maxMillis);
+		final long half = s / 2;
+		return half + (long) (random.nextDouble() * (s - half + 1));
+	}
+
+	/**
+	 * Starts again from the first step, after a success.
+	 */
+	public void reset() {
+		step = firstMillis;
+	}
+}
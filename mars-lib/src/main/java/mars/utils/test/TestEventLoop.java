@@ -60,6 +60,16 @@ public class TestEventLoop extends StandardEventLoop {
 		return now;
 	}
 
+	@Override
+	public long nowMillis_() {
+		return now.toEpochMilli();
+	}
+
+	@Override
+	public long nowNanos_() {
+		return now.getEpochSecond() * 1_000_000_000 + now.getNano();
+	}
+
 	private class TestTimeout implements Timeout {
 		private final Instant time;
 		private final Event event;
@@ -0,0 +1,67 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import eventloop.ElUtils;
+import eventloop.StandardEventLoop;
+import mars.utils.test.ElRunner;
+
+class ElUtilsTest {
+	private final StandardEventLoop out = new StandardEventLoop();
+	private final List<Object> outcomes = new CopyOnWriteArrayList<>();
+
+	private void process(CompletableFuture<String> stage, long timeoutMillis) {
+		ElUtils.process(stage, timeoutMillis, outcomes::add, outcomes::add, () -> outcomes.add("timeout"));
+	}
+
+	@Test
+	void testDoneOnTheLoop() throws Exception {
+		final CompletableFuture<String> stage = new CompletableFuture<>();
+		final List<Boolean> inEl = new ArrayList<>();
+		new ElRunner(out).runEventAndWait(() -> {
+			ElUtils.process(stage, 60_000, r -> {
+				inEl.add(El.inEl());
+				outcomes.add(r);
+			}, outcomes::add, () -> outcomes.add("timeout"));
+			new Thread(() -> stage.complete("done")).start();
+		});
+		assertEquals(List.of("done"), outcomes);
+		assertEquals(List.of(true), inEl);
+	}
+
+	@Test
+	void testAlreadyDone() throws Exception {
+		new ElRunner(out).runEventAndWait(() -> process(CompletableFuture.completedFuture("done"), 60_000));
+		assertEquals(List.of("done"), outcomes);
+	}
+
+	@Test
+	void testErrorIsWrappedAsForADependentStage() throws Exception {
+		final IllegalStateException error = new IllegalStateException("expected");
+		new ElRunner(out).runEventAndWait(() -> process(CompletableFuture.failedFuture(error), 60_000));
+		assertEquals(1, outcomes.size());
+		assertTrue(outcomes.get(0) instanceof CompletionException);
+		assertSame(error, ((Throwable) outcomes.get(0)).getCause());
+	}
+
+	@Test
+	void testTimeoutThenLateReplyIsDropped() throws Exception {
+		final CompletableFuture<String> stage = new CompletableFuture<>();
+		new ElRunner(out).runEventAndWait(() -> process(stage, 5));
+		assertEquals(List.of("timeout"), outcomes);
+		stage.complete("late");
+		out.waitEmpty();
+		assertEquals(List.of("timeout"), outcomes);
+	}
+}
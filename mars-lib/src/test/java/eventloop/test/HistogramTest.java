@@ -0,0 +1,66 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.Histogram;
+
+class HistogramTest {
+	private final Histogram out = new Histogram();
+
+	@Test
+	void testEmpty() {
+		assertEquals(0, out.count());
+		assertEquals(0, out.valueAt(99));
+		assertEquals(0, out.max());
+	}
+
+	@Test
+	void testSmallValuesAreExact() {
+		for (int i = 0; i < 32; i++)
+			out.record(i);
+		out.record(-5);
+		assertEquals(33, out.count());
+		assertEquals(0, out.valueAt(0));
+		assertEquals(15, out.valueAt(50));
+		assertEquals(31, out.max());
+	}
+
+	@Test
+	void testPercentilesWithinPrecision() {
+		final SplittableRandom random = new SplittableRandom(7);
+		final long[] values = new long[100_000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(random.nextDouble(25));
+			out.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (final double p : new double[] { 10, 50, 90, 99, 99.9, 100 }) {
+			final long expected = values[(int) Math.ceil(values.length * p / 100) - 1];
+			final long actual = out.valueAt(p);
+			assertTrue(actual >= expected && actual <= expected * 1.04 + 1, p + ": " + actual + " vs " + expected);
+		}
+		assertEquals(out.valueAt(100), out.max());
+	}
+
+	@Test
+	void testCopyIsNotAffectedByLaterValues() {
+		out.record(1000);
+		final Histogram copy = out.copy();
+		out.record(2000);
+		assertEquals(1, copy.count());
+		assertEquals(2, out.count());
+	}
+
+	@Test
+	void testHugeValuesGoToTheLastBucket() {
+		out.record(Long.MAX_VALUE);
+		assertEquals(1, out.count());
+		assertTrue(out.max() > 1L << 40);
+	}
+}
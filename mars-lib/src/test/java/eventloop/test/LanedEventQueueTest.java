@@ -0,0 +1,123 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.EventLoop.Event;
+import eventloop.Lane;
+import eventloop.LaneStats;
+import eventloop.LanedEventQueue;
+import eventloop.OverloadPolicy;
+
+class LanedEventQueueTest {
+	private final List<String> ran = new ArrayList<>();
+
+	private Event event(String name) {
+		return () -> ran.add(name);
+	}
+
+	private void drain(LanedEventQueue out) throws Throwable {
+		Event e;
+		while ((e = out.poll()) != null)
+			e.run();
+	}
+
+	@Test
+	void testControlGoesAheadOfBulk() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue();
+		out.add(event("b1"), Lane.BULK);
+		out.add(event("c1"));
+		out.add(event("b2"), Lane.BULK);
+		out.add(event("c2"), Lane.CONTROL);
+		drain(out);
+		assertEquals(List.of("c1", "c2", "b1", "b2"), ran);
+		assertTrue(out.isEmpty());
+	}
+
+	@Test
+	void testFullLaneRejects() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue(2, OverloadPolicy.REJECT, 1, OverloadPolicy.REJECT);
+		out.add(event("c1"));
+		out.add(event("c2"));
+		assertThrows(RejectedExecutionException.class, () -> out.add(event("c3")));
+		out.add(event("b1"), Lane.BULK);
+		assertThrows(RejectedExecutionException.class, () -> out.add(event("b2"), Lane.BULK));
+		assertEquals(new LaneStats(2, 2, 1, 0), out.stats(Lane.CONTROL).get());
+		assertEquals(new LaneStats(1, 1, 1, 0), out.stats(Lane.BULK).get());
+		drain(out);
+		assertEquals(List.of("c1", "c2", "b1"), ran);
+		out.add(event("c4"));
+		assertEquals(1, out.stats(Lane.CONTROL).get().depth());
+	}
+
+	@Test
+	void testConsumerIsNeverRejected() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue(1, OverloadPolicy.REJECT, 1, OverloadPolicy.REJECT);
+		out.bindTo(Thread.currentThread());
+		out.add(event("c1"));
+		out.add(event("c2"));
+		drain(out);
+		assertEquals(List.of("c1", "c2"), ran);
+	}
+
+	@Test
+	void testDefaultControlLaneIsUnboundedAndBulkLaneRejects() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue();
+		for (int i = 0; i < LanedEventQueue.DEFAULT_BULK_CAPACITY; i++) {
+			out.add(event("c"));
+			out.add(event("b"), Lane.BULK);
+		}
+		out.add(event("c"));
+		assertThrows(RejectedExecutionException.class, () -> out.add(event("b"), Lane.BULK));
+		assertEquals(new LaneStats(LanedEventQueue.DEFAULT_BULK_CAPACITY + 1, Integer.MAX_VALUE, 0, 0),
+				out.stats(Lane.CONTROL).get());
+		assertEquals(1, out.stats(Lane.BULK).get().rejected());
+	}
+
+	@Test
+	void testFullLaneBlocksUntilThereIsRoom() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue(1, OverloadPolicy.BLOCK, 1, OverloadPolicy.REJECT);
+		out.add(event("c1"));
+		final Thread producer = new Thread(() -> out.add(event("c2")));
+		producer.start();
+		while (out.stats(Lane.CONTROL).get().blocked() == 0)
+			Thread.onSpinWait();
+		assertEquals(1, out.stats(Lane.CONTROL).get().depth());
+		out.poll().run();
+		producer.join(TimeUnit.SECONDS.toMillis(5));
+		assertEquals(1, out.stats(Lane.CONTROL).get().depth());
+		out.poll().run();
+		assertNull(out.poll());
+		assertEquals(List.of("c1", "c2"), ran);
+	}
+
+	@Test
+	void testBlockedProducerIsRejectedWhenInterrupted() throws Throwable {
+		final LanedEventQueue out = new LanedEventQueue(1, OverloadPolicy.BLOCK, 1, OverloadPolicy.REJECT);
+		out.add(event("c1"));
+		final List<Throwable> thrown = new ArrayList<>();
+		final Thread producer = new Thread(() -> {
+			try {
+				out.add(event("c2"));
+			} catch (final RejectedExecutionException e) {
+				thrown.add(e);
+			}
+		});
+		producer.start();
+		while (out.stats(Lane.CONTROL).get().blocked() == 0)
+			Thread.onSpinWait();
+		producer.interrupt();
+		producer.join(TimeUnit.SECONDS.toMillis(5));
+		assertEquals(1, thrown.size());
+		assertEquals(1, out.stats(Lane.CONTROL).get().rejected());
+	}
+}
@@ -0,0 +1,85 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import eventloop.LoopWatchdog;
+import eventloop.LoopWatchdog.Policy;
+import eventloop.LoopWatchdog.SlowEvent;
+import eventloop.LoopWatchdog.StalledEventException;
+import eventloop.StandardEventLoop;
+import mars.utils.test.ElRunner;
+
+class LoopWatchdogTest {
+	private final StandardEventLoop loop = new StandardEventLoop();
+	private final List<Throwable> stalls = new CopyOnWriteArrayList<>();
+	private final List<Boolean> reportedInEl = new CopyOnWriteArrayList<>();
+	private LoopWatchdog out;
+
+	@AfterEach
+	void tearDown() {
+		out.close();
+	}
+
+	@Test
+	void testWarnsOnceWithTheLoopStack() throws Exception {
+		out = new LoopWatchdog(loop, 20, Policy.WARN, 3, t -> {
+			reportedInEl.add(El.inEl());
+			stalls.add(t);
+		}).start();
+		new ElRunner(loop).runEventAndWait(() -> {
+			El.setTimeout(0, () -> Thread.sleep(200));
+		});
+		assertEquals(1, stalls.size());
+		assertEquals(List.of(true), reportedInEl);
+		final Throwable stall = stalls.get(0);
+		assertTrue(stall instanceof StalledEventException);
+		assertTrue(stall.getMessage().startsWith("Event from LoopWatchdogTest running for "), stall.getMessage());
+		assertTrue(Arrays.stream(stall.getStackTrace()).anyMatch(e -> e.getMethodName().equals("sleep")));
+	}
+
+	@Test
+	void testFailPolicyFailsTheEventOnly() throws Exception {
+		out = new LoopWatchdog(loop, 20, Policy.FAIL, 3, stalls::add).start();
+		final ElRunner runner = new ElRunner(loop);
+		assertThrows(StalledEventException.class, () -> runner.runEventAndWait(() -> {
+			final long until = System.currentTimeMillis() + 10_000;
+			while (System.currentTimeMillis() < until && !Thread.currentThread().isInterrupted())
+				Thread.onSpinWait();
+		}));
+		final CountDownLatch ran = new CountDownLatch(1);
+		loop.exec(() -> {
+			assertFalse(Thread.currentThread().isInterrupted());
+			ran.countDown();
+		});
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+		assertEquals(1, stalls.size());
+	}
+
+	@Test
+	void testKeepsTheSlowestEvents() throws Exception {
+		out = new LoopWatchdog(loop, 10_000, Policy.WARN, 2, stalls::add).start();
+		new ElRunner(loop).runEventAndWait(() -> {
+			for (final int millis : new int[] { 5, 30, 1, 15 })
+				El.setTimeout(millis, () -> Thread.sleep(millis));
+		});
+		final List<SlowEvent> slowest = out.slowest();
+		assertEquals(2, slowest.size());
+		assertTrue(slowest.get(0).nanos() >= 30_000_000);
+		assertTrue(slowest.get(1).nanos() >= 15_000_000 && slowest.get(1).nanos() < 30_000_000);
+		assertEquals("LoopWatchdogTest", slowest.get(0).origin());
+		assertTrue(stalls.isEmpty());
+	}
+}
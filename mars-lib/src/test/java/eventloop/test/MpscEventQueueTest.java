@@ -0,0 +1,72 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.EventLoop.Event;
+import eventloop.MpscEventQueue;
+
+class MpscEventQueueTest {
+	private final MpscEventQueue out = new MpscEventQueue();
+	private final List<Integer> ran = new ArrayList<>();
+
+	@Test
+	void testFifo() throws Throwable {
+		assertTrue(out.isEmpty());
+		assertNull(out.poll());
+		for (int i = 0; i < 3; i++) {
+			final int n = i;
+			out.add(() -> ran.add(n));
+		}
+		assertFalse(out.isEmpty());
+		Event e;
+		while ((e = out.poll()) != null)
+			e.run();
+		assertEquals(List.of(0, 1, 2), ran);
+		assertTrue(out.isEmpty());
+	}
+
+	@Test
+	void testConcurrentProducersLoseNothingAndKeepTheirOrder() throws Throwable {
+		final int producers = 4;
+		final int events = 100_000;
+		final int[] last = new int[producers];
+		final List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			last[p] = -1;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < events; i++) {
+					final int n = i;
+					out.add(() -> {
+						assertEquals(last[producer] + 1, n);
+						last[producer] = n;
+					});
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		int consumed = 0;
+		while (consumed < producers * events) {
+			final Event e = out.poll();
+			if (e == null) {
+				Thread.onSpinWait();
+				continue;
+			}
+			e.run();
+			consumed++;
+		}
+		for (final Thread t : threads)
+			t.join();
+		assertTrue(out.isEmpty());
+		for (final int l : last)
+			assertEquals(events - 1, l);
+	}
+}
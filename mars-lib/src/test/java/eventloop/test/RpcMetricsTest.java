@@ -0,0 +1,141 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import eventloop.ElUtils;
+import eventloop.EventLoop.Event;
+import eventloop.EventLoopMetrics;
+import eventloop.RpcMetrics;
+import eventloop.RpcMetrics.Counts;
+import eventloop.RpcMetrics.Key;
+import eventloop.RpcMetrics.Outcome;
+import eventloop.RpcMetrics.Stats;
+import eventloop.StandardEventLoop;
+import mars.utils.test.ElRunner;
+import mars.utils.test.ElTestSupport;
+
+class RpcMetricsTest {
+	private static final long TIMEOUT = 1_000;
+
+	private final ElTestSupport support = new ElTestSupport();
+
+	private static void call(String message, String agent, long replyAfterMillis, Throwable error) {
+		final CompletableFuture<String> reply = new CompletableFuture<>();
+		if (replyAfterMillis < TIMEOUT)
+			El.setTimeout(replyAfterMillis, () -> {
+				if (error == null)
+					reply.complete("ok");
+				else
+					reply.completeExceptionally(error);
+			});
+		ElUtils.process(message, agent, reply, TIMEOUT, r -> {
+		}, t -> {
+		}, () -> {
+		});
+	}
+
+	@Test
+	void testCallsAreRecordedByMessageAndAgent() throws Exception {
+		support.runEventAndWait(10_000, () -> {
+			call("testCalls1", "P1", 300, null);
+			call("testCalls1", "P1", 100, new RuntimeException());
+			call("testCalls1", "P1", 5_000, null);
+			call("testCalls1", "P2", 200, null);
+			call("testCalls2", "P1", 200, null);
+		});
+		final Map<Key, Counts> snapshot = RpcMetrics.CALLS.snapshot();
+		assertEquals(new Counts(1, 1, 1), snapshot.get(new Key("testCalls1", "P1")));
+		assertEquals(new Counts(1, 0, 0), snapshot.get(new Key("testCalls1", "P2")));
+		final Stats all = RpcMetrics.CALLS.byMessage().get("testCalls1");
+		assertEquals(2, all.done());
+		assertEquals(1, all.errors());
+		assertEquals(1, all.timeouts());
+		assertEquals(4, all.latency().count());
+		assertTrue(all.latency().max() >= TIMEOUT * 1_000_000, all.toString());
+		final Stats other = RpcMetrics.CALLS.byMessage().get("testCalls2");
+		assertEquals(1, other.done());
+		assertEquals(200 * 1_000_000, other.latency().max(), 200 * 1_000_000 * 0.04);
+	}
+
+	@Test
+	void testUntaggedCallsAreNotRecorded() throws Exception {
+		final long before = RpcMetrics.CALLS.snapshot().size();
+		support.runEventAndWait(1_000, () -> ElUtils.process(CompletableFuture.completedFuture("ok"), TIMEOUT, r -> {
+		}, t -> {
+		}, () -> {
+		}));
+		assertEquals(before, RpcMetrics.CALLS.snapshot().size());
+	}
+
+	@Test
+	void testLoopReportsCallsByMessageName() throws Exception {
+		final StandardEventLoop loop = new StandardEventLoop();
+		new ElRunner(loop).runEventAndWait(() -> {
+			El.executor().accept(RpcMetrics.SERVED.served("a", "A", () -> {
+			}));
+			El.executor().accept(RpcMetrics.SERVED.served("b", "A", () -> {
+			}));
+			ElUtils.process("a", "B", CompletableFuture.completedFuture("ok"), 1_000, r -> {
+			}, t -> {
+			}, () -> {
+			});
+			ElUtils.process("b", "B", new CompletableFuture<>(), 5, r -> {
+			}, t -> {
+			}, () -> {
+			});
+		});
+		final var times = loop.getMetrics().get().snapshot().serviceTimes();
+		assertEquals(1, times.get("a").count());
+		assertEquals(1, times.get("b").count());
+		assertEquals(1, times.get("a" + RpcMetrics.REPLY_SUFFIX).count());
+		assertEquals(1, times.get("b" + RpcMetrics.REPLY_SUFFIX + EventLoopMetrics.TIMEOUT_SUFFIX).count());
+	}
+
+	@Test
+	void testServedKeepsTheOriginAndRecordsErrors() throws Throwable {
+		final RpcMetrics out = new RpcMetrics();
+		final Event handler = () -> {
+		};
+		final Event served = out.served("m", "A", handler);
+		assertEquals(handler.getClass(), served.originClass());
+		assertEquals("m", served.origin());
+		served.run();
+		assertThrows(IllegalStateException.class, () -> out.served("m", "A", () -> {
+			throw new IllegalStateException();
+		}).run());
+		out.record("m", null, Outcome.TIMEOUT, 5);
+		final Map<Key, Counts> snapshot = out.snapshot();
+		assertEquals(List.of(new Key("m", null), new Key("m", "A")), List.copyOf(snapshot.keySet()));
+		assertEquals(new Counts(1, 1, 0), snapshot.get(new Key("m", "A")));
+	}
+
+	@Test
+	void testRecordingFromSeveralThreadsLosesNothing() throws Exception {
+		final RpcMetrics out = new RpcMetrics();
+		final List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final String agent = "A" + i % 2;
+			threads.add(new Thread(() -> {
+				for (int k = 0; k < 10_000; k++)
+					out.record("m", agent, Outcome.DONE, k);
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (final Thread thread : threads)
+			thread.join();
+		assertEquals(new Counts(20_000, 0, 0), out.snapshot().get(new Key("m", "A0")));
+		assertEquals(new Counts(20_000, 0, 0), out.snapshot().get(new Key("m", "A1")));
+		assertEquals(40_000, out.byMessage().get("m").latency().count());
+		assertEquals(40_000, out.byMessage().get("m").done());
+	}
+}
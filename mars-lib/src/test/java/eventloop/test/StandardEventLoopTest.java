@@ -1,13 +1,24 @@
 package eventloop.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
 import eventloop.El;
+import eventloop.EventLoopMetrics;
+import eventloop.IdleStrategy;
+import eventloop.Lane;
+import eventloop.LinkedEventQueue;
+import eventloop.MpscEventQueue;
 import eventloop.StandardEventLoop;
 import mars.utils.test.ElRunner;
 
@@ -36,4 +47,164 @@ class StandardEventLoopTest {
 			});
 		});
 	}
+
+	@Test
+	void testTimeoutsFireInOrderUnlessCancelled() throws Exception {
+		final List<Integer> fired = new ArrayList<>();
+		new ElRunner(out).runEventAndWait(() -> {
+			El.setTimeout(30, () -> fired.add(30));
+			El.setTimeout(10, () -> fired.add(10));
+			El.setTimeout(20, () -> fired.add(20)).cancel();
+			El.setTimeout(0, () -> fired.add(0));
+		});
+		assertEquals(List.of(0, 10, 30), fired);
+	}
+
+	@Test
+	void testEventsFromManyThreadsAreAllRunWithAnyStrategy() throws Exception {
+		for (final IdleStrategy idleStrategy : IdleStrategy.values()) {
+			runFromManyThreads(new StandardEventLoop(new MpscEventQueue(), idleStrategy, 16));
+			runFromManyThreads(new StandardEventLoop(new LinkedEventQueue(), idleStrategy, 1));
+		}
+	}
+
+	private void runFromManyThreads(StandardEventLoop loop) throws Exception {
+		final int producers = 4;
+		final int events = 10_000;
+		final int[] ran = new int[1];
+		final AtomicInteger started = new AtomicInteger();
+		final var executor = loop.executor_();
+		new ElRunner(loop).runEventAndWait(() -> {
+			for (int p = 0; p < producers; p++)
+				new Thread(() -> {
+					for (int i = 0; i < events; i++) {
+						if (i % 1000 == 0)
+							Thread.yield();
+						executor.accept(() -> ran[0]++);
+					}
+					executor.accept(() -> {
+						if (started.incrementAndGet() == producers)
+							El.quit();
+					});
+				}).start();
+			// keeps the loop busy until the producers are done
+			El.setTimeout(60_000, () -> {
+			});
+		});
+		assertEquals(producers * events, ran[0]);
+	}
+
+	@Test
+	void testEachLoopIsBoundToItsOwnThread() throws Exception {
+		final StandardEventLoop other = new StandardEventLoop();
+		final List<Object> seen = new ArrayList<>();
+		final List<Object> otherSeen = new ArrayList<>();
+		final ElRunner otherRunner = new ElRunner(other);
+		new ElRunner(out).runEventAndWait(() -> seen.add(El.current()));
+		otherRunner.runEventAndWait(() -> otherSeen.add(El.current()));
+		assertEquals(List.of(out), seen);
+		assertEquals(List.of(other), otherSeen);
+		assertFalse(El.inEl());
+	}
+
+	@Test
+	void testThreadIsUnboundWhenTheLoopEnds() throws Exception {
+		final List<Boolean> bound = new ArrayList<>();
+		final Thread thread = new Thread(() -> {
+			out.run();
+			bound.add(El.inEl());
+		});
+		out.exec(() -> {
+			assertSame(out, El.current());
+			El.quit();
+		});
+		thread.start();
+		thread.join(10_000);
+		assertEquals(List.of(false), bound);
+		assertFalse(out.isRunning());
+	}
+
+	@Test
+	void testMetricsByOrigin() throws Exception {
+		final ElRunner runner = new ElRunner(out);
+		out.setOnThrown(t -> false);
+		runner.runEventAndWait(() -> {
+			El.setTimeout(5, () -> Thread.sleep(2));
+			El.setTimeout(0, () -> {
+				throw new IllegalStateException("expected");
+			});
+			El.setTimeout(60_000, () -> {
+			}).cancel();
+		});
+		final EventLoopMetrics.Snapshot snapshot = out.getMetrics().get().snapshot();
+		assertEquals(0, snapshot.queueDepth());
+		assertEquals(0, snapshot.pendingTimeouts());
+		assertEquals(1, snapshot.thrown());
+		assertEquals(2, snapshot.dispatchLatency().count());
+		assertEquals(2, snapshot.serviceTimes().get("StandardEventLoopTest").count());
+		final var timeouts = snapshot.serviceTimes().get("StandardEventLoopTest" + EventLoopMetrics.TIMEOUT_SUFFIX);
+		assertEquals(1, timeouts.count());
+		assertTrue(timeouts.max() >= 2_000_000);
+	}
+
+	@Test
+	void testBulkEventsAreMeasuredByLane() throws Exception {
+		final List<Integer> ran = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final int n = i;
+			out.executor_(Lane.BULK).accept(() -> ran.add(n));
+		}
+		new ElRunner(out).runEventAndWait(() -> ran.add(-1));
+		// the control event goes first
+		assertEquals(List.of(-1, 0, 1, 2), ran);
+		final EventLoopMetrics.Snapshot snapshot = out.getMetrics().get().snapshot();
+		assertEquals(0, snapshot.queueDepth());
+		assertEquals(3, snapshot.laneDispatchLatency().get(Lane.BULK).count());
+		assertEquals(0, snapshot.lanes().get(Lane.BULK).rejected());
+		assertEquals(0, snapshot.lanes().get(Lane.BULK).depth());
+	}
+
+	@Test
+	void testWaitEmptyIncludesPendingTimeouts() throws Exception {
+		final List<String> ran = new ArrayList<>();
+		final Thread thread = new Thread(out);
+		out.exec(() -> El.setTimeout(200, () -> ran.add("timeout")));
+		assertFalse(out.waitEmpty(1, TimeUnit.MILLISECONDS));
+		thread.start();
+		assertFalse(out.waitEmpty(20, TimeUnit.MILLISECONDS));
+		assertTrue(out.waitEmpty(10, TimeUnit.SECONDS));
+		assertEquals(List.of("timeout"), ran);
+		assertTrue(out.isEmpty());
+		out.exec(El::quit);
+		thread.join(10_000);
+	}
+
+	@Test
+	void testWaitEmptyDoesNotPoll() throws Exception {
+		final ElRunner runner = new ElRunner(out);
+		final AtomicInteger ran = new AtomicInteger();
+		runner.runEventAndWait(() -> {
+		});
+		final long start = System.nanoTime();
+		for (int i = 0; i < 100; i++) {
+			out.exec(ran::incrementAndGet);
+			out.waitEmpty();
+		}
+		assertEquals(100, ran.get());
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	void testAwaitCondition() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		final ElRunner runner = new ElRunner(out);
+		runner.runEventAndWait(() -> {
+			for (int i = 1; i <= 5; i++)
+				El.setTimeout(i * 5, count::incrementAndGet);
+		});
+		assertEquals(5, count.get());
+		out.exec(() -> El.setTimeout(5, count::incrementAndGet));
+		assertTrue(out.awaitCondition(() -> count.get() == 6, 10, TimeUnit.SECONDS));
+		assertFalse(out.awaitCondition(() -> count.get() == 7, 20, TimeUnit.MILLISECONDS));
+	}
 }
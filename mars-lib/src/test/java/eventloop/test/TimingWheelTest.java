@@ -0,0 +1,117 @@
+package eventloop.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.EventLoop.Event;
+import eventloop.Timeout;
+import eventloop.TimingWheel;
+
+class TimingWheelTest {
+	private final TimingWheel out = new TimingWheel();
+	private final List<Long> fired = new ArrayList<>();
+
+	private Timeout schedule(long deadline) {
+		return out.schedule(deadline, () -> fired.add(deadline));
+	}
+
+	private void drain(long time) throws Throwable {
+		Event e;
+		while ((e = out.poll(time)) != null)
+			e.run();
+	}
+
+	@Test
+	void testExpiresInDeadlineOrderAcrossLevels() throws Throwable {
+		final long[] deadlines = { 70_000, 3, 255, 256, 65_536, 1L << 24, 300, 0, 5_000_000_000L };
+		for (final long d : deadlines)
+			schedule(d);
+		drain(Long.MAX_VALUE - (1L << 33));
+		assertEquals(List.of(0L, 3L, 255L, 256L, 300L, 65_536L, 70_000L, 1L << 24, 5_000_000_000L), fired);
+		assertTrue(out.isEmpty());
+	}
+
+	@Test
+	void testNothingExpiresEarly() throws Throwable {
+		schedule(1_000);
+		drain(999);
+		assertTrue(fired.isEmpty());
+		assertEquals(999, out.now());
+		drain(1_000);
+		assertEquals(List.of(1_000L), fired);
+	}
+
+	@Test
+	void testSameDeadlineExpiresInInsertionOrder() throws Throwable {
+		final List<Integer> order = new ArrayList<>();
+		out.schedule(70_000, () -> order.add(1));
+		drain(69_000);
+		out.schedule(70_000, () -> order.add(2));
+		out.schedule(70_000, () -> order.add(3));
+		drain(70_000);
+		assertEquals(List.of(1, 2, 3), order);
+	}
+
+	@Test
+	void testCancel() throws Throwable {
+		final Timeout t1 = schedule(10);
+		schedule(20);
+		final Timeout t3 = schedule(1 << 20);
+		t1.cancel();
+		t3.cancel();
+		t3.cancel();
+		assertEquals(1, out.size());
+		drain(Long.MAX_VALUE / 2);
+		assertEquals(List.of(20L), fired);
+	}
+
+	@Test
+	void testExpiredEntryCanCancelAnotherOneOfTheSameTick() throws Throwable {
+		final Timeout[] second = new Timeout[1];
+		out.schedule(5, () -> second[0].cancel());
+		second[0] = schedule(5);
+		drain(5);
+		assertTrue(fired.isEmpty());
+		assertTrue(out.isEmpty());
+	}
+
+	@Test
+	void testNextDeadlineSkipsEmptySlots() {
+		assertEquals(Long.MAX_VALUE, out.nextDeadline());
+		schedule(40);
+		assertEquals(40, out.nextDeadline());
+		final TimingWheel far = new TimingWheel(10);
+		far.schedule(50_000, () -> {
+		});
+		// cascade point of the level 1 slot holding the deadline
+		assertEquals(50_000 & ~0xFF, far.nextDeadline());
+		assertNull(far.poll(50_000 & ~0xFF));
+		assertEquals(50_000, far.nextDeadline());
+	}
+
+	@Test
+	void testRandomDeadlinesAgainstSort() throws Throwable {
+		final Random random = new Random(42);
+		final List<Long> expected = new ArrayList<>();
+		long time = 0;
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 200; i++) {
+				final long d = time + (long) Math.pow(2, random.nextDouble() * 34);
+				expected.add(d);
+				schedule(d);
+			}
+			time += random.nextInt(1 << 20);
+			drain(time);
+		}
+		drain(Long.MAX_VALUE / 2);
+		expected.sort(null);
+		assertEquals(expected, fired);
+	}
+}
@@ -0,0 +1,144 @@
+package mars.comm.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import mars.comm.AsyncSignalPublisher;
+import mars.comm.AsyncSignalPublisher.Policy;
+import mars.comm.AsyncSignalPublisher.Stats;
+
+class AsyncSignalPublisherTest {
+
+	private final List<Object> published = new CopyOnWriteArrayList<>();
+	private final CountDownLatch entered = new CountDownLatch(1);
+	private final CountDownLatch released = new CountDownLatch(1);
+	private AsyncSignalPublisher out;
+
+	@AfterEach
+	void tearDown() {
+		released.countDown();
+		if (out != null)
+			out.close();
+	}
+
+	/**
+	 * Publishes the payloads, holding the first one until released.
+	 */
+	private final SignalEmitter holdingFirst = (name, id, payload) -> {
+		entered.countDown();
+		try {
+			released.await();
+		} catch (final InterruptedException e) {
+			throw new IOException(e);
+		}
+		published.add(payload);
+	};
+
+	private void emitWhileHeld(int count) throws Exception {
+		out.emit("EVENT", "e", 0);
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i <= count; i++)
+			out.emit("EVENT", "e", i);
+	}
+
+	private Stats closed() {
+		released.countDown();
+		out.close();
+		return out.stats();
+	}
+
+	@Test
+	void testPublishesInOrderFromAnotherThread() throws Exception {
+		final var threads = new CopyOnWriteArrayList<Thread>();
+		out = new AsyncSignalPublisher((name, id, payload) -> {
+			threads.add(Thread.currentThread());
+			published.add(name + "[" + id + "]" + payload);
+		}).start();
+		for (int i = 0; i < 1_000; i++)
+			out.emit("EVENT", "e", i);
+		final Stats stats = closed();
+		assertEquals(1_000, published.size());
+		assertEquals("EVENT[e]0", published.get(0));
+		assertEquals("EVENT[e]999", published.get(999));
+		assertTrue(threads.stream().noneMatch(Thread.currentThread()::equals));
+		assertEquals(1_000, stats.published());
+		assertEquals(0, stats.depth());
+		assertEquals(1_000, stats.latency().count());
+	}
+
+	@Test
+	void testDropNewest() throws Exception {
+		out = new AsyncSignalPublisher(holdingFirst, 2, 1, Policy.DROP_NEWEST).start();
+		emitWhileHeld(4);
+		assertEquals(2, out.stats().depth());
+		final Stats stats = closed();
+		assertEquals(List.of(0, 1, 2), published);
+		assertEquals(2, stats.dropped());
+		assertEquals(2, stats.highWater());
+	}
+
+	@Test
+	void testDropOldest() throws Exception {
+		out = new AsyncSignalPublisher(holdingFirst, 2, 1, Policy.DROP_OLDEST).start();
+		emitWhileHeld(4);
+		final Stats stats = closed();
+		assertEquals(List.of(0, 3, 4), published);
+		assertEquals(2, stats.dropped());
+	}
+
+	@Test
+	void testBlockWaitsForRoom() throws Exception {
+		out = new AsyncSignalPublisher(holdingFirst, 2, 2, Policy.BLOCK).start();
+		emitWhileHeld(2);
+		final Thread producer = new Thread(() -> {
+			try {
+				out.emit("EVENT", "e", 3);
+			} catch (final IOException e) {
+				published.add(e);
+			}
+		});
+		producer.start();
+		producer.join(200);
+		assertTrue(producer.isAlive());
+		released.countDown();
+		producer.join(5_000);
+		final Stats stats = closed();
+		assertEquals(List.of(0, 1, 2, 3), published);
+		assertEquals(1, stats.blocked());
+		assertEquals(0, stats.dropped());
+	}
+
+	@Test
+	void testFailuresAreCountedAndSkipped() throws Exception {
+		out = new AsyncSignalPublisher((name, id, payload) -> {
+			if (payload.equals(1))
+				throw new IOException("broker down");
+			published.add(payload);
+		}).start();
+		for (int i = 0; i < 3; i++)
+			out.emit("EVENT", "e", i);
+		final Stats stats = closed();
+		assertEquals(List.of(0, 2), published);
+		assertEquals(1, stats.failed());
+		assertEquals(2, stats.published());
+	}
+
+	@Test
+	void testClosedRejectsSignals() throws Exception {
+		out = new AsyncSignalPublisher((name, id, payload) -> published.add(payload)).start();
+		out.close();
+		assertThrows(IOException.class, () -> out.emit("EVENT", "e", 0));
+	}
+}
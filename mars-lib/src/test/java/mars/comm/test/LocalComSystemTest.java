@@ -0,0 +1,77 @@
+package mars.comm.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.cellply.invosys.agent.AbstractResponder;
+import com.cellply.invosys.agent.Agent;
+import com.cellply.invosys.agent.CallContext;
+
+import mars.comm.LocalComSystem;
+
+class LocalComSystemTest {
+	private final LocalComSystem out = new LocalComSystem();
+
+	private static AbstractResponder<String> echo() {
+		return new AbstractResponder<>(String.class) {
+			@Override
+			public void executeInvocation(CallContext<String> callCtx) {
+				callCtx.exec((inv, p) -> callCtx.callingAgentId() + ":" + p);
+			}
+		};
+	}
+
+	@Test
+	void testInvocationsReachTheCalledAgent() throws Exception {
+		final Agent a = out.createAgent("A");
+		out.createAgent("B").addMethod("echo", echo());
+		assertEquals("A:x", a.getInvocationContext().invoke(String.class, "B", "echo", "x").get());
+	}
+
+	@Test
+	void testInvocationsOfUnknownAgentsOrMethodsFail() throws Exception {
+		final Agent a = out.createAgent("A");
+		out.createAgent("B").addMethod("echo", echo());
+		final var noAgent = a.getInvocationContext().invoke(String.class, "C", "echo", "x");
+		final var noMethod = a.getInvocationContext().invoke(String.class, "B", "ping", "x");
+		assertTrue(assertThrows(ExecutionException.class, noAgent::get).getCause() instanceof IOException);
+		assertTrue(assertThrows(ExecutionException.class, noMethod::get).getCause() instanceof IOException);
+	}
+
+	@Test
+	void testResultsOfTheWrongTypeFail() throws Exception {
+		final Agent a = out.createAgent("A");
+		out.createAgent("B").addMethod("echo", echo());
+		final var f = a.getInvocationContext().invoke(Integer.class, "B", "echo", "x");
+		assertTrue(assertThrows(ExecutionException.class, f::get).getCause() instanceof ClassCastException);
+	}
+
+	@Test
+	void testAgentNamesAreUnique() throws Exception {
+		out.createAgent("A");
+		assertThrows(IOException.class, () -> out.createAgent("A"));
+	}
+
+	@Test
+	void testDispatchersRouteSignalsByIdAndType() throws Exception {
+		final List<String> received = new ArrayList<>();
+		final var dispatcher = out.createSignalSubscriber("EVENT", "mars.#");
+		dispatcher.register("mars.landed", String.class,
+				(category, id, agentName, p) -> received.add(category + "/" + id + "/" + agentName + "=" + p));
+		final var emitter = out.createEmitter("A");
+		emitter.emit("EVENT", "mars.landed", "d1");
+		emitter.emit("EVENT", "mars.landed", 3);
+		emitter.emit("EVENT", "mars.lifted", "d1");
+		dispatcher.close();
+		emitter.emit("EVENT", "mars.landed", "d2");
+		assertEquals(List.of("EVENT/mars.landed/A=d1"), received);
+	}
+}
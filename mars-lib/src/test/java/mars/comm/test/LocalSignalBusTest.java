@@ -0,0 +1,56 @@
+package mars.comm.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.cellply.invosys.signalling.SignalDto;
+import com.cellply.invosys.signalling.SignalSubscriber;
+
+import mars.comm.LocalSignalBus;
+
+class LocalSignalBusTest {
+	private final List<String> received = new ArrayList<>();
+
+	private void log(String subscriber, SignalDto dto) {
+		received.add(subscriber + ":" + dto.agentId + "/" + dto.name + "/" + dto.id + "=" + dto.payload);
+	}
+
+	@Test
+	void testSignalsAreRoutedByNameAndId() throws Exception {
+		final LocalSignalBus out = new LocalSignalBus();
+		out.subscribe("HEARTBEAT", "#", dto -> log("all", dto));
+		final SignalSubscriber platforms = out.subscribe("HEARTBEAT", "PLT", dto -> log("plt", dto));
+		out.subscribe("ERROR", "mars.drone.#", dto -> log("err", dto));
+		final var emitter = out.emitter("A");
+		emitter.emit("HEARTBEAT", "PLT", null);
+		emitter.emit("HEARTBEAT", "TOWER", null);
+		emitter.emit("ERROR", "mars.drone.3", "low");
+		emitter.emit("ERROR", "mars.platform.3", "low");
+		platforms.close();
+		emitter.emit("HEARTBEAT", "PLT", null);
+		assertEquals(List.of("all:A/HEARTBEAT/PLT=null", "plt:A/HEARTBEAT/PLT=null", "all:A/HEARTBEAT/TOWER=null",
+				"err:A/ERROR/mars.drone.3=low", "all:A/HEARTBEAT/PLT=null"), received);
+	}
+
+	@Test
+	void testPayloadsArePassedByReferenceOrCopied() throws Exception {
+		final List<Object> payloads = new ArrayList<>();
+		final List<String> payload = List.of("x");
+		new LocalSignalBus().subscribe("S", "#", dto -> payloads.add(dto.payload));
+		final LocalSignalBus byReference = new LocalSignalBus();
+		byReference.subscribe("S", "#", dto -> payloads.add(dto.payload));
+		byReference.emitter("A").emit("S", "s", payload);
+		final LocalSignalBus copying = new LocalSignalBus(p -> new ArrayList<>((List<?>) p));
+		copying.subscribe("S", "#", dto -> payloads.add(dto.payload));
+		copying.emitter("A").emit("S", "s", payload);
+		assertSame(payload, payloads.get(0));
+		assertNotSame(payload, payloads.get(1));
+		assertEquals(payload, payloads.get(1));
+	}
+}
@@ -0,0 +1,45 @@
+package mars.comm.test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mars.comm.TopicFilter;
+
+class TopicFilterTest {
+
+	@Test
+	void testLiteral() {
+		assertTrue(new TopicFilter("TOWER").matches("TOWER"));
+		assertFalse(new TopicFilter("TOWER").matches("TOWER.1"));
+	}
+
+	@Test
+	void testHashMatchesZeroOrMoreWords() {
+		final TopicFilter out = new TopicFilter("mars.drone.#");
+		assertTrue(out.matches("mars.drone"));
+		assertTrue(out.matches("mars.drone.3"));
+		assertTrue(out.matches("mars.drone.3.battery"));
+		assertFalse(out.matches("mars.dronex"));
+		assertFalse(out.matches("mars.platform.3"));
+		assertTrue(new TopicFilter("#").matches("anything.at.all"));
+	}
+
+	@Test
+	void testStarMatchesExactlyOneWord() {
+		final TopicFilter out = new TopicFilter("mars.*.battery");
+		assertTrue(out.matches("mars.drone.battery"));
+		assertFalse(out.matches("mars.battery"));
+		assertFalse(out.matches("mars.drone.3.battery"));
+	}
+
+	@Test
+	void testHashInTheMiddle() {
+		final TopicFilter out = new TopicFilter("mars.#.battery.*");
+		assertTrue(out.matches("mars.battery.low"));
+		assertTrue(out.matches("mars.drone.3.battery.low"));
+		assertFalse(out.matches("mars.drone.3.battery"));
+		assertFalse(out.matches("mars.drone.battery.low.now"));
+	}
+}
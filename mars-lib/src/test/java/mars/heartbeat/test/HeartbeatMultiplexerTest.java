@@ -0,0 +1,91 @@
+package mars.heartbeat.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import mars.heartbeat.HeartbeatMultiplexer;
+import mars.heartbeat.HeartbeatSource;
+import mars.utils.test.ElTestSupport;
+
+class HeartbeatMultiplexerTest {
+	private final ElTestSupport support = new ElTestSupport();
+	private final List<String> signals = new ArrayList<>();
+	private final List<Long> sentAt = new ArrayList<>();
+	private final HeartbeatMultiplexer out = new HeartbeatMultiplexer((name, id, payload) -> {
+		signals.add(name + "/" + id + payload);
+		sentAt.add(El.nowMillis() % 3_600_000);
+	}, "HEARTBEAT", 5, 2, new Random(42));
+
+	@Test
+	void testOneSignalPerPeriodAndId() throws Exception {
+		support.runEventAndWait(12_000, () -> {
+			out.source("A", "PLT").start();
+			out.source("B", "PLT").start();
+			out.source("M", "MC").start();
+			out.source("A", "PLT").start();
+		});
+		assertEquals(List.of("HEARTBEAT/PLT[A]", "HEARTBEAT/PLT[B]", "HEARTBEAT/MC[M]", "HEARTBEAT/PLT[A, B]",
+				"HEARTBEAT/MC[M]", "HEARTBEAT/PLT[A, B]", "HEARTBEAT/MC[M]"), signals);
+		assertEquals(List.of(0L, 0L, 0L, 5_000L, 5_000L, 10_000L, 10_000L), sentAt);
+		assertEquals(3, out.size());
+	}
+
+	@Test
+	void testLargeBundlesAreSpreadOverThePeriod() throws Exception {
+		support.runEventAndWait(9_999, () -> {
+			for (int i = 0; i < 5; i++)
+				out.source("P" + i, "PLT").start();
+		});
+		assertEquals(List.of("HEARTBEAT/PLT[P0, P1]", "HEARTBEAT/PLT[P2, P3]", "HEARTBEAT/PLT[P4]"),
+				signals.subList(5, 8));
+		assertEquals(5_000, (long) sentAt.get(5));
+		assertTrue(sentAt.get(6) >= 5_000 + 1_666 && sentAt.get(6) < 5_000 + 3_332, sentAt.toString());
+		assertTrue(sentAt.get(7) >= 5_000 + 3_332 && sentAt.get(7) < 10_000, sentAt.toString());
+	}
+
+	@Test
+	void testSpreadBundlesCarryTheAgentsStillStarted() throws Exception {
+		support.runEventAndWait(9_999, () -> {
+			final List<HeartbeatSource> sources = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				sources.add(out.source("P" + i, "PLT"));
+				sources.get(i).start();
+			}
+			El.setTimeout(5_001, sources.get(3)::stop);
+		});
+		assertEquals(List.of("HEARTBEAT/PLT[P0, P1]", "HEARTBEAT/PLT[P2]", "HEARTBEAT/PLT[P4]"),
+				signals.subList(5, 8));
+	}
+
+	@Test
+	void testSpreadBundlesAreCancelledOnceAllStopped() throws Exception {
+		support.runEventAndWait(20_000, () -> {
+			final List<HeartbeatSource> sources = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				sources.add(out.source("P" + i, "PLT"));
+				sources.get(i).start();
+			}
+			El.setTimeout(5_001, () -> sources.forEach(HeartbeatSource::stop));
+		});
+		assertEquals(List.of("HEARTBEAT/PLT[P0, P1]"), signals.subList(5, signals.size()));
+		assertEquals(0, out.size());
+	}
+
+	@Test
+	void testNothingIsSentOnceAllStopped() throws Exception {
+		support.runEventAndWait(20_000, () -> {
+			final HeartbeatSource a = out.source("A", "PLT");
+			a.start();
+			El.setTimeout(7_000, a::stop);
+		});
+		assertEquals(List.of("HEARTBEAT/PLT[A]", "HEARTBEAT/PLT[A]"), signals);
+		assertEquals(0, out.size());
+	}
+}
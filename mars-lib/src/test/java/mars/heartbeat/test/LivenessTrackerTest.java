@@ -0,0 +1,159 @@
+package mars.heartbeat.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.heartbeat.LivenessTracker;
+import mars.utils.test.ElTestSupport;
+
+class LivenessTrackerTest {
+	private static final long LOST_AFTER = 10_000;
+
+	private final ElTestSupport support = new ElTestSupport();
+	private final List<String> events = new ArrayList<>();
+	private final AgentLifecycleListener listener = new AgentLifecycleListener() {
+		@Override
+		public void agentLost(String agentName, String category) {
+			log("lost", agentName, category);
+		}
+
+		@Override
+		public void agentDiscovered(String agentName, String category) {
+			log("discovered", agentName, category);
+		}
+
+		@Override
+		public void agentReturned(String agentName, String category) {
+			log("returned", agentName, category);
+		}
+	};
+	private final LivenessTracker out = new LivenessTracker(LOST_AFTER, listener);
+
+	private void log(String what, String agentName, String category) {
+		events.add(what + " " + agentName + "/" + category + " @" + El.nowMillis() / 1000 % 3600);
+	}
+
+	private void beat(String agentName, long periodMillis, long untilMillis) {
+		out.heartbeat(agentName, "c");
+		if (El.nowMillis() % 3_600_000 + periodMillis <= untilMillis)
+			El.setTimeout(periodMillis, () -> beat(agentName, periodMillis, untilMillis));
+	}
+
+	@Test
+	void testLostAndReturned() throws Exception {
+		support.runEventAndWait(60_000, () -> {
+			beat("A", 5_000, 60_000);
+			beat("B", 5_000, 5_000);
+			El.setTimeout(30_000, () -> out.heartbeat("B", "d"));
+		});
+		assertEquals(List.of("discovered A/c @0", "discovered B/c @0", "lost B/c @15", "returned B/d @30",
+				"lost B/d @40"), events);
+		assertTrue(out.isAlive("A"));
+		assertFalse(out.isAlive("B"));
+		assertFalse(out.isAlive("C"));
+		assertEquals(2, out.size());
+	}
+
+	@Test
+	void testLossIsReportedAtMostATenthOfThePeriodLate() throws Exception {
+		support.runEventAndWait(60_000, () -> {
+			for (int i = 0; i < 10; i++) {
+				final String agentName = "P" + i;
+				El.setTimeout(i * 300, () -> out.heartbeat(agentName, "c"));
+			}
+		});
+		assertEquals(20, events.size());
+		for (int i = 0; i < 10; i++) {
+			final String lost = events.get(10 + i);
+			final long at = Long.parseLong(lost.substring(lost.indexOf('@') + 1));
+			assertTrue(lost.startsWith("lost P" + i), lost);
+			assertTrue(at * 1000 >= i * 300 + LOST_AFTER && at * 1000 <= i * 300 + LOST_AFTER * 11 / 10, lost);
+		}
+	}
+
+	@Test
+	void testManyAgents() throws Exception {
+		final int agents = 100_000;
+		support.runEventAndWait(60_000, () -> {
+			for (int i = 0; i < agents; i++)
+				out.heartbeat("P" + i, "c");
+			El.setTimeout(5_000, () -> {
+				for (int i = 1; i < agents; i++)
+					out.heartbeat("P" + i, "c");
+			});
+		});
+		assertEquals(agents + agents, events.size());
+		assertTrue(events.get(agents).startsWith("lost P0/c @10"), events.get(agents));
+	}
+
+	@Test
+	void testIrregularAgentIsGivenMoreTimeWithPhi() throws Exception {
+		final LivenessTracker phi = new LivenessTracker(LOST_AFTER, 8, listener);
+		support.runEventAndWait(120_000, () -> {
+			long at = 0;
+			for (int i = 0; i < 12; i++) {
+				El.setTimeout(at, () -> {
+					out.heartbeat("J", "fixed");
+					phi.heartbeat("J", "phi");
+				});
+				at += i == 10 ? 15_000 : i % 2 == 0 ? 4_000 : 9_000;
+			}
+		});
+		assertEquals(List.of("discovered J/fixed @0", "discovered J/phi @0", "lost J/fixed @75",
+				"returned J/fixed @80", "lost J/fixed @90", "lost J/phi @105"), events);
+	}
+
+	@Test
+	void testPhiRisesWithSilence() throws Exception {
+		final LivenessTracker phi = new LivenessTracker(LOST_AFTER, 8, listener);
+		final List<Double> levels = new ArrayList<>();
+		support.runEventAndWait(60_000, () -> {
+			for (int i = 0; i <= 10; i++)
+				El.setTimeout(i * 1_000, () -> phi.heartbeat("A", "c"));
+			for (final long at : new long[] { 10_500, 12_000, 13_000 })
+				El.setTimeout(at, () -> levels.add(phi.phi("A")));
+		});
+		assertEquals(0.0, out.phi("A"));
+		assertTrue(levels.get(0) < 1, levels.toString());
+		assertTrue(levels.get(0) < levels.get(1) && levels.get(1) < levels.get(2), levels.toString());
+		assertTrue(levels.get(2) > 8, levels.toString());
+		// the lost period is the acceptable pause
+		assertEquals(List.of("discovered A/c @0", "lost A/c @20"), events);
+	}
+
+	@Test
+	void testLateHeartbeatWithinTheLostPeriodIsNoLoss() throws Exception {
+		final LivenessTracker phi = new LivenessTracker(LOST_AFTER, 8, listener);
+		final List<Double> levels = new ArrayList<>();
+		support.runEventAndWait(60_000, () -> {
+			// a 5 s pause after many regular heartbeats
+			for (int i = 0; i <= 40; i++)
+				if (i < 20 || i > 23)
+					El.setTimeout(i * 1_000, () -> phi.heartbeat("A", "c"));
+			El.setTimeout(23_000, () -> levels.add(phi.phi("A")));
+		});
+		assertTrue(levels.get(0) > 8, levels.toString());
+		assertEquals(List.of("discovered A/c @0", "lost A/c @50"), events);
+	}
+
+	@Test
+	void testLostPeriodAppliesUntilHeartbeatsAreLearnt() throws Exception {
+		final LivenessTracker phi = new LivenessTracker(LOST_AFTER, 8, listener);
+		final List<Double> levels = new ArrayList<>();
+		support.runEventAndWait(60_000, () -> {
+			for (int i = 0; i < 5; i++)
+				El.setTimeout(i * 1_000, () -> phi.heartbeat("A", "c"));
+			El.setTimeout(8_000, () -> levels.add(phi.phi("A")));
+		});
+		assertEquals(List.of(0.0), levels);
+		assertEquals(List.of("discovered A/c @0", "lost A/c @14"), events);
+	}
+}
@@ -0,0 +1,110 @@
+package mars.time.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import mars.time.FakedEventLoop;
+import mars.time.TimeFake;
+
+class TimeFakeTest {
+	private static final Instant T0 = Instant.parse("2021-03-01T00:00:00Z");
+
+	private long real;
+	private final TimeFake out = new TimeFake(2.5, T0, () -> real);
+
+	@Test
+	void testFractionalRate() {
+		real = 1_000_000;
+		assertEquals(2_500_000, out.fakeNanos());
+		assertEquals(T0.plusNanos(2_500_000), out.now());
+		assertEquals(400, out.toRealNanos(1000));
+		assertEquals(Duration.ofMillis(5), out.toFake(Duration.ofMillis(2)));
+		assertEquals(Duration.ofMillis(2), out.toReal(Duration.ofMillis(5)));
+	}
+
+	@Test
+	void testRateChangesWithoutJumps() {
+		real = 1000;
+		out.setRate(0.5);
+		assertEquals(2500, out.fakeNanos());
+		real = 3000;
+		assertEquals(3500, out.fakeNanos());
+		out.setRate(4);
+		assertEquals(3500, out.fakeNanos());
+		real = 3001;
+		assertEquals(3504, out.fakeNanos());
+		assertThrows(IllegalArgumentException.class, () -> out.setRate(0));
+	}
+
+	@Test
+	void testPauseStepResume() {
+		final AtomicInteger changes = new AtomicInteger();
+		out.onChange(changes::incrementAndGet);
+		assertThrows(IllegalStateException.class, () -> out.step(Duration.ofNanos(1)));
+		real = 100;
+		out.pause();
+		out.pause();
+		assertTrue(out.isPaused());
+		real = 1000;
+		assertEquals(250, out.fakeNanos());
+		assertEquals(Long.MAX_VALUE, out.toRealNanos(1));
+		out.step(Duration.ofNanos(50));
+		assertEquals(300, out.fakeNanos());
+		out.resume();
+		assertFalse(out.isPaused());
+		real = 1100;
+		assertEquals(550, out.fakeNanos());
+		assertEquals(3, changes.get());
+	}
+
+	@Test
+	void testLoopTimeoutsShorterThanTheRateAreNotDistorted() throws Exception {
+		final TimeFake timeFake = new TimeFake(1000);
+		final FakedEventLoop loop = new FakedEventLoop(timeFake);
+		final List<Duration> fired = new CopyOnWriteArrayList<>();
+		final Thread thread = new Thread(loop);
+		thread.start();
+		loop.exec(() -> {
+			final Instant start = timeFake.now();
+			for (final long millis : new long[] { 300, 100, 200 })
+				El.setTimeout(millis, () -> fired.add(Duration.between(start, timeFake.now())));
+		});
+		assertTrue(loop.waitEmpty(10, TimeUnit.SECONDS));
+		assertEquals(3, fired.size());
+		for (int i = 0; i < 3; i++)
+			assertTrue(fired.get(i).compareTo(Duration.ofMillis((i + 1) * 100)) >= 0, fired.toString());
+		loop.exec(El::quit);
+		thread.join(10_000);
+	}
+
+	@Test
+	void testPausedLoopFiresOnlyWhenStepped() throws Exception {
+		final TimeFake timeFake = new TimeFake(1);
+		final FakedEventLoop loop = new FakedEventLoop(timeFake);
+		final List<String> fired = new ArrayList<>();
+		final Thread thread = new Thread(loop);
+		thread.start();
+		timeFake.pause();
+		loop.exec(() -> El.setTimeout(60_000, () -> fired.add("fired")));
+		assertFalse(loop.waitEmpty(50, TimeUnit.MILLISECONDS));
+		// timeouts are rounded up to the next millisecond
+		timeFake.step(Duration.ofMinutes(1).plusMillis(1));
+		assertTrue(loop.waitEmpty(10, TimeUnit.SECONDS));
+		assertEquals(List.of("fired"), fired);
+		loop.exec(El::quit);
+		thread.join(10_000);
+	}
+}
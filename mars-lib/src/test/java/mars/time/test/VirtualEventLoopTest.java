@@ -0,0 +1,153 @@
+package mars.time.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import eventloop.ElUtils;
+import eventloop.EventLoop.Event;
+import mars.time.VirtualEventLoop;
+
+class VirtualEventLoopTest {
+	private static final Instant T0 = Instant.parse("2021-03-01T00:00:00Z");
+
+	private final VirtualEventLoop out = new VirtualEventLoop(T0, Duration.ofDays(1));
+	private Throwable thrown;
+
+	private void runToHorizon(Event event) throws Throwable {
+		out.setOnThrown(t -> {
+			thrown = t;
+			return true;
+		});
+		final Thread thread = new Thread(out);
+		out.exec(event);
+		thread.start();
+		thread.join(20_000);
+		assertFalse(thread.isAlive());
+		if (thrown != null)
+			throw thrown;
+	}
+
+	@Test
+	void testADayOfTicksRunsInNoTime() throws Throwable {
+		final long[] ticks = new long[1];
+		final long started = System.nanoTime();
+		runToHorizon(() -> tick(ticks));
+		assertTrue(Duration.ofNanos(System.nanoTime() - started).toSeconds() < 10);
+		assertEquals(86_401, ticks[0]);
+		assertEquals(T0.plus(Duration.ofDays(1)), out.now_());
+	}
+
+	private void tick(long[] ticks) {
+		ticks[0]++;
+		El.setTimeout(1000, () -> tick(ticks));
+	}
+
+	@Test
+	void testTimeoutsFireExactlyAtTheirVirtualDeadline() throws Throwable {
+		final List<String> fired = new ArrayList<>();
+		runToHorizon(() -> {
+			assertEquals(T0, El.now());
+			El.setTimeout(1, () -> fired.add("1 " + El.now()));
+			El.setTimeout(90_000, () -> {
+				fired.add("90000 " + El.now());
+				El.setTimeout(0, () -> fired.add("0 " + El.now()));
+				El.setTimeout(10, () -> fired.add("10 " + El.now()));
+			});
+			El.setTimeout(1, () -> fired.add("1b " + El.now()));
+		});
+		assertEquals(List.of("1 " + T0.plusMillis(1), "1b " + T0.plusMillis(1), "90000 " + T0.plusMillis(90_000),
+				"0 " + T0.plusMillis(90_000), "10 " + T0.plusMillis(90_010)), fired);
+	}
+
+	@Test
+	void testStopsWhenNothingIsLeft() throws Throwable {
+		runToHorizon(() -> El.setTimeout(2_000, () -> {
+		}));
+		assertEquals(T0.plusMillis(2_000), out.now_());
+	}
+
+	@Test
+	void testHeldClockWaitsForOtherThreads() throws Throwable {
+		final List<String> fired = new ArrayList<>();
+		runToHorizon(() -> {
+			final var executor = El.executor();
+			final Runnable release = El.holdClock();
+			El.setTimeout(5_000, () -> fired.add("timeout " + El.now()));
+			new Thread(() -> {
+				try {
+					Thread.sleep(50);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				executor.accept(() -> fired.add("result " + El.now()));
+				release.run();
+			}).start();
+		});
+		assertEquals(List.of("result " + T0, "timeout " + T0.plusMillis(5_000)), fired);
+	}
+
+	@Test
+	void testPendingCallHoldsTheClock() throws Throwable {
+		final List<String> fired = new ArrayList<>();
+		runToHorizon(() -> {
+			ElUtils.process(respondLater("pong", 50), 5_000, r -> fired.add(r + " " + El.now()),
+					t -> fired.add("error"), () -> fired.add("timeout " + El.now()));
+			El.setTimeout(1_000, () -> fired.add("timer " + El.now()));
+		});
+		assertEquals(List.of("pong " + T0, "timer " + T0.plusMillis(1_000)), fired);
+	}
+
+	@Test
+	void testHoldOfAnUnansweredCallLapses() throws Throwable {
+		final List<String> fired = new ArrayList<>();
+		runToHorizon(() -> {
+			ElUtils.process(new CompletableFuture<String>(), 100, r -> fired.add(r),
+					t -> fired.add("error"), () -> fired.add("timeout " + El.now()));
+			El.setTimeout(50, () -> fired.add("timer " + El.now()));
+		});
+		assertEquals(List.of("timer " + T0.plusMillis(50), "timeout " + T0.plusMillis(100)), fired);
+	}
+
+	@Test
+	void testLoopCanRefuseLapsingHolds() throws Throwable {
+		final VirtualEventLoop loop = new VirtualEventLoop(T0, null, Duration.ZERO);
+		final List<String> fired = new ArrayList<>();
+		loop.exec(() -> {
+			ElUtils.process(new CompletableFuture<String>(), 60_000, r -> fired.add(r), t -> fired.add("error"),
+					() -> {
+						fired.add("timeout " + El.now());
+						El.quit();
+					});
+		});
+		final long started = System.nanoTime();
+		loop.run();
+		assertTrue(Duration.ofNanos(System.nanoTime() - started).toSeconds() < 10);
+		assertEquals(List.of("timeout " + T0.plusMillis(60_000)), fired);
+	}
+
+	/*
+	 * Answers from a thread of its own, after some real time.
+	 */
+	private static CompletableFuture<String> respondLater(String reply, long millis) {
+		final CompletableFuture<String> stage = new CompletableFuture<>();
+		new Thread(() -> {
+			try {
+				Thread.sleep(millis);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stage.complete(reply);
+		}).start();
+		return stage;
+	}
+}
@@ -0,0 +1,37 @@
+package mars.utils.test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import mars.utils.Backoff;
+
+class BackoffTest {
+
+	@Test
+	void testDelaysDoubleUpToTheMax() throws Exception {
+		final Backoff out = new Backoff(200, 5_000, new Random(7));
+		final long[] steps = { 200, 400, 800, 1_600, 3_200, 5_000, 5_000 };
+		for (final long step : steps) {
+			final long delay = out.next();
+			assertTrue(delay >= step / 2 && delay <= step, delay + " for " + step);
+		}
+		out.reset();
+		assertTrue(out.next() <= 200);
+	}
+
+	@Test
+	void testDelaysAreSpread() throws Exception {
+		final Backoff out = new Backoff(1_000, 1_000, new Random(7));
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (int i = 0; i < 1_000; i++) {
+			final long delay = out.next();
+			min = Math.min(min, delay);
+			max = Math.max(max, delay);
+		}
+		assertTrue(min < 550 && max > 950, min + " - " + max);
+	}
+}
@@ -8,6 +8,7 @@ import com.cellply.invosys.agent.CallContext;
 import com.cellply.invosys.agent.OutgoingInvocation;
 
 import eventloop.EventLoop.Event;
+import eventloop.RpcMetrics;
 import mars.messages.DroneLandedConfirm;
 import mars.messages.DroneLandedIndication;
 import mars.messages.MessageNames;
@@ -60,7 +61,8 @@ public class StandardMcMessaging implements McMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsCompletedIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onPsCompleted(callCtx));
+			executor.accept(served(MessageNames.PS_COMPLETED_INDICATION, callCtx,
+					() -> messageReceiver.onPsCompleted(callCtx)));
 		}
 	}
 
@@ -72,7 +74,8 @@ public class StandardMcMessaging implements McMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsAbortIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onPsAbort(callCtx));
+			executor.accept(served(MessageNames.PS_ABORT_INDICATION, callCtx,
+					() -> messageReceiver.onPsAbort(callCtx)));
 		}
 	}
 
@@ -84,7 +87,8 @@ public class StandardMcMessaging implements McMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformAssignmentIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onPlatformAssignment(callCtx));
+			executor.accept(served(MessageNames.PLATFORM_ASSIGNMENT_INDICATION, callCtx,
+					() -> messageReceiver.onPlatformAssignment(callCtx)));
 		}
 	}
 
@@ -96,10 +100,15 @@ public class StandardMcMessaging implements McMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformAvailabilityIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onPlatformAvailability(callCtx));
+			executor.accept(served(MessageNames.PLATFORM_AVAILABILITY_INDICATION, callCtx,
+					() -> messageReceiver.onPlatformAvailability(callCtx)));
 		}
 	}
 
+	private static Event served(String message, CallContext<?> callCtx, Event event) {
+		return RpcMetrics.SERVED.served(message, callCtx.callingAgentId(), event);
+	}
+
 	@Override
 	public OutgoingInvocation<PsDemandResponse> sendPsDemandRequest(PsDemandRequest psRequirement) {
 		return agent.getInvocationContext().invoke(PsDemandResponse.class, towerName, MessageNames.PS_DEMAND_REQUEST,
@@ -16,6 +16,7 @@ import mars.heartbeat.AgentLifecycleListener;
 import mars.mc.comms.McMessaging;
 import mars.mc.comms.TowerMessageReceiver;
 import mars.messages.DroneLandedIndication;
+import mars.messages.MessageNames;
 import mars.messages.PlatformAssignmentIndication;
 import mars.messages.PlatformAvailabilityIndication;
 import mars.messages.PlatformCylinderEnterRequest;
@@ -43,6 +44,11 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 	private final McMessaging activeMessaging;
 	private final SignalEmitter signalEmitter;
 	private McCommsListener<T> l;
+	/*
+	 * The agent name of the last tower known, null until one is, tagging the RPC
+	 * metrics.
+	 */
+	private String towerName;
 
 	public McCommsOnComSystem(Function<TowerMessageReceiver, McMessaging> mcMessagingMaker,
 			Consumer<AgentLifecycleListener> allConsumer, SignalEmitter signalEmitter, long commsTimeoutMs) {
@@ -56,6 +62,7 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 		@Override
 		public void agentReturned(String agentName, String category) {
 			LOGGER.info("Agent returned: {} ({})", agentName, category);
+			towerName = agentName;
 			activeMessaging.setTowerName(agentName);
 			mcMessaging = activeMessaging;
 			l.onTowerReturned(agentName);
@@ -71,6 +78,7 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 		@Override
 		public void agentDiscovered(String agentName, String category) {
 			LOGGER.info("Agent discovered: {} ({})", agentName, category);
+			towerName = agentName;
 			activeMessaging.setTowerName(agentName);
 			mcMessaging = activeMessaging;
 			l.onTowerDiscovered(agentName);
@@ -111,7 +119,8 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 	@Override
 	public void sendPlatformReachabilityIndication(T ps, final PlatformReachabilityIndication indication) {
 		LOGGER.info("Sending PlatformReachabilityIndication: {}", indication);
-		ElUtils.process(mcMessaging.sendPlatformReachabilityIndication(indication), commsTimeoutMs,
+		ElUtils.process(MessageNames.PLATFORM_REACHABILITY_INDICATION, towerName,
+				mcMessaging.sendPlatformReachabilityIndication(indication), commsTimeoutMs,
 				r -> l.onPlatformReachabilityConfirm(ps), t -> l.onPlatformReachabilityError(t, ps),
 				() -> l.onPlatformReachabilityTimeout(ps));
 	}
@@ -119,7 +128,8 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 	@Override
 	public void sendPlatformCylinderEnterRequest(final PlatformCylinderEnterRequest req, T ps) {
 		LOGGER.info("Sending PlatformCylinderEnterRequest: {}", req);
-		ElUtils.process(mcMessaging.sendPlatformCylinderEnterRequest(req), commsTimeoutMs,
+		ElUtils.process(MessageNames.PLATFORM_CYLINDER_ENTER_REQUEST, towerName,
+				mcMessaging.sendPlatformCylinderEnterRequest(req), commsTimeoutMs,
 				r -> l.onCylinderEnterResponse(r, ps), t -> l.onCylinderEnterError(t, ps),
 				() -> l.onCylinderEnterTimeout(ps));
 	}
@@ -127,7 +137,8 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 	@Override
 	public void sendDroneLandedIndication(DroneLandedIndication indication, T ps) {
 		LOGGER.info("Sending DroneLandedIndication: {}", indication);
-		ElUtils.process(mcMessaging.sendDroneLandedIndication(indication), (long) 1000,
+		ElUtils.process(MessageNames.DRONE_LANDED_INDICATION, towerName,
+				mcMessaging.sendDroneLandedIndication(indication), (long) 1000,
 				r -> l.onDroneLandedConfirmed(r, ps), t -> l.onDroneLandedError(t, ps),
 				() -> l.onDroneLandedTimeout(ps));
 	}
@@ -135,14 +146,16 @@ public class McCommsOnComSystem<T> implements McComms<T>, McSideComms {
 	@Override
 	public void sendPsDemandRequest(final PsDemandRequest psDemandRequest, T ps) {
 		LOGGER.info("Sending PsDemandRequest: {}", psDemandRequest);
-		ElUtils.process(mcMessaging.sendPsDemandRequest(psDemandRequest), commsTimeoutMs,
+		ElUtils.process(MessageNames.PS_DEMAND_REQUEST, towerName,
+				mcMessaging.sendPsDemandRequest(psDemandRequest), commsTimeoutMs,
 				r -> l.onPsDemandResponse(r, ps), t -> l.onPsDemandError(t, ps), () -> l.onPsDemandTimeout(ps));
 	}
 
 	@Override
 	public void sendPlatformCylinderLeftIndication(PlatformCylinderLeftIndication indication, T ps) {
 		LOGGER.info("Sending PlatformCylinderLeftIndication: {}", indication);
-		ElUtils.process(mcMessaging.sendPlatformCylinderLeftIndication(indication), commsTimeoutMs,
+		ElUtils.process(MessageNames.PLATFORM_CYLINDER_LEFT_INDICATION, towerName,
+				mcMessaging.sendPlatformCylinderLeftIndication(indication), commsTimeoutMs,
 				r -> l.onCylinderLeftConfirmed(r, ps), t -> l.onCylinderLeftError(t, ps),
 				() -> l.onCylinderLeftTimeout(ps));
 	}
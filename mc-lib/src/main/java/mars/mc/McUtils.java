@@ -1,12 +1,15 @@
 package mars.mc;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import com.cellply.invosys.ComSystem;
 import com.cellply.invosys.agent.Agent;
 
 import eventloop.El;
+import mars.heartbeat.HeartbeatMultiplexer;
 import mars.heartbeat.LifecycleManager;
 import mars.mc.comms.StandardMcMessaging;
 import mars.messages.HeartbeatIds;
@@ -33,9 +36,24 @@ public final class McUtils<T> {
 	 */
 	public static <T> void start(ComSystem comSystem, String agentName, McLogics<T> mc, long commsTimeoutMs,
 			int heartbeatPeriodInSeconds) {
+		start(comSystem, agentName, mc, commsTimeoutMs, heartbeatPeriodInSeconds, null);
+	}
+
+	/**
+	 * As above, for an MC hosted in a process with others: its heartbeats are
+	 * sent in bundles by the given multiplexer, or alone when null.
+	 * 
+	 * @param multiplexer the multiplexer of the process, on the current event
+	 *                    loop
+	 */
+	public static <T> void start(ComSystem comSystem, String agentName, McLogics<T> mc, long commsTimeoutMs,
+			int heartbeatPeriodInSeconds, HeartbeatMultiplexer multiplexer) {
 		try {
-			final var lifecycleManager = new LifecycleManager(comSystem, agentName, heartbeatPeriodInSeconds,
-					HeartbeatIds.MC, HeartbeatIds.TOWER);
+			final var lifecycleManager = multiplexer == null
+					? new LifecycleManager(comSystem, agentName, heartbeatPeriodInSeconds, HeartbeatIds.MC,
+							HeartbeatIds.TOWER)
+					: new LifecycleManager(comSystem, multiplexer, agentName, heartbeatPeriodInSeconds,
+							HeartbeatIds.MC, HeartbeatIds.TOWER, 0);
 			El.addQuitEvent(() -> lifecycleManager.close());
 			final Agent agent = comSystem.createAgent(agentName);
 			final var c = new McCommsOnComSystem<T>(r -> new StandardMcMessaging(El.executor(), agent, r),
@@ -62,18 +80,51 @@ public final class McUtils<T> {
 	 * @throws IOException          on I/O errors
 	 */
 	public static <T> void main(String[] args, final McLogics<T> mc) throws InterruptedException, IOException {
+		if (args.length > 0 && args[0].contains(","))
+			throw new IllegalArgumentException("One logics cannot run several MCs: " + args[0]);
+		main(args, agentName -> mc);
+	}
+
+	/**
+	 * As {@link #main(String[], McLogics)}, the first argument being a comma
+	 * separated list of agent names: an MC is started for each, with the logics
+	 * created by the given function, all on the same event loop. The heartbeats
+	 * of several MCs are sent in bundles by a {@link HeartbeatMultiplexer}.
+	 * 
+	 * @param <T> the type of the PitStop.
+	 * @param args the command line args
+	 * @param mcs  creates the Mission Controller logics given the agent name
+	 * @throws InterruptedException when interrupted
+	 * @throws IOException          on I/O errors
+	 */
+	public static <T> void main(String[] args, final Function<String, ? extends McLogics<T>> mcs)
+			throws InterruptedException, IOException {
 
 		if (args.length == 0)
 			throw new IllegalArgumentException("Agent name missing");
-		final String agentName = args[0];
-		System.out.println("Starting MC with name " + agentName);
+		final List<String> agentNames = List.of(args[0].split(","));
+		System.out.println("Starting MC with names " + agentNames);
 		final String hostName = args.length > 1 ? args[1] : "localhost";
 		final var port = Optional.ofNullable(args.length > 2 ? Integer.parseInt(args[2]) : null);
 
 		final SharedConfiguration conf = SimUtils.loadSharedConf();
 		System.out.println("With conf: " + conf);
 		SimUtils.runSimulator(hostName, port, comSystem -> {
-			McUtils.start(comSystem, agentName, mc, conf.commsTimeoutMillis, conf.heartbeatPeriodInSeconds);
+			HeartbeatMultiplexer multiplexer = null;
+			if (agentNames.size() > 1) {
+				try {
+					multiplexer = LifecycleManager.multiplexer(comSystem, agentNames.get(0),
+							conf.heartbeatPeriodInSeconds);
+				} catch (final IOException e) {
+					e.printStackTrace();
+					System.err.println("Cannot create heartbeat multiplexer, giving up");
+					El.quit();
+					return;
+				}
+			}
+			for (final String agentName : agentNames)
+				McUtils.start(comSystem, agentName, mcs.apply(agentName), conf.commsTimeoutMillis,
+						conf.heartbeatPeriodInSeconds, multiplexer);
 		}, conf.timeRate).join();
 	}
 }
@@ -0,0 +1,66 @@
+package mars.mc.samples;
+
+import java.util.List;
+
+import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * When the next PS demand arrives.
+ */
+public interface ArrivalProcess {
+
+	/**
+	 * @return the milliseconds to wait for the next arrival, negative if no more
+	 *         arrivals will come
+	 */
+	long nextDelayMillis();
+
+	/**
+	 * Arrivals independent of each other, at the given mean rate.
+	 *
+	 * @param ratePerSecond the mean number of arrivals per second
+	 * @param rng           the source of randomness
+	 */
+	static ArrivalProcess poisson(double ratePerSecond, RandomGenerator rng) {
+		if (ratePerSecond <= 0)
+			throw new IllegalArgumentException("Arrival rate must be positive: " + ratePerSecond);
+		final var interArrival = new ExponentialDistribution(rng, 1000 / ratePerSecond);
+		return () -> Math.round(interArrival.sample());
+	}
+
+	/**
+	 * Arrivals at the given times.
+	 *
+	 * @param atMillis the times of the arrivals, in milliseconds from the start,
+	 *                 ascending
+	 * @param repeat   whether the script starts again once over, the first
+	 *                 arrival following the last one as it follows the start
+	 */
+	static ArrivalProcess scripted(List<Long> atMillis, boolean repeat) {
+		for (int i = 1; i < atMillis.size(); i++)
+			if (atMillis.get(i) < atMillis.get(i - 1))
+				throw new IllegalArgumentException("Arrival times must be ascending: " + atMillis);
+		if (repeat && (atMillis.isEmpty() || atMillis.get(atMillis.size() - 1) <= 0))
+			throw new IllegalArgumentException("A repeated script must last: " + atMillis);
+		final List<Long> script = List.copyOf(atMillis);
+		return new ArrivalProcess() {
+			private int next;
+			private long last;
+
+			@Override
+			public long nextDelayMillis() {
+				if (next == script.size()) {
+					if (!repeat)
+						return -1;
+					next = 0;
+					last = 0;
+				}
+				final long at = script.get(next++);
+				final long delay = Math.max(0, at - last);
+				last = at;
+				return delay;
+			}
+		};
+	}
+}
@@ -0,0 +1,163 @@
+package mars.mc.samples;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.distribution.ConstantRealDistribution;
+import org.apache.commons.math3.distribution.EnumeratedDistribution;
+import org.apache.commons.math3.distribution.ExponentialDistribution;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.distribution.RealDistribution;
+import org.apache.commons.math3.distribution.UniformRealDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.util.Pair;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import mars.messages.GeoCoord;
+
+/**
+ * The swarm driven by a {@link SwarmMc}, loaded from a JSON file.
+ */
+public class SwarmConfiguration {
+
+	public static class Arrivals {
+		/**
+		 * "poisson" or "scripted".
+		 */
+		public String process = "poisson";
+		/**
+		 * The mean PS demands per second of a poisson process.
+		 */
+		public double ratePerSecond = 2;
+		/**
+		 * The times of the demands of a scripted process, in milliseconds from the
+		 * discovery of the tower.
+		 */
+		public List<Long> atMillis = new ArrayList<>();
+		/**
+		 * Whether a scripted process starts again once over.
+		 */
+		public boolean repeat;
+
+		@Override
+		public String toString() {
+			return "Arrivals [process=" + process + ", ratePerSecond=" + ratePerSecond + ", atMillis=" + atMillis
+					+ ", repeat=" + repeat + "]";
+		}
+	}
+
+	public static class Lifetime {
+		/**
+		 * "exponential", "uniform", "normal" or "constant".
+		 */
+		public String distribution = "exponential";
+		public double meanMinutes = 20;
+		/**
+		 * The half width of a uniform distribution, the standard deviation of a
+		 * normal one.
+		 */
+		public double spreadMinutes = 5;
+		/**
+		 * No drone lives less than this, whatever the distribution says.
+		 */
+		public double minMinutes = 2;
+
+		@Override
+		public String toString() {
+			return "Lifetime [distribution=" + distribution + ", meanMinutes=" + meanMinutes + ", spreadMinutes="
+					+ spreadMinutes + ", minMinutes=" + minMinutes + "]";
+		}
+	}
+
+	/**
+	 * The most drones in flight at once; demands arriving when all are busy are
+	 * not made.
+	 */
+	public int drones = 1_000;
+	public Arrivals arrivals = new Arrivals();
+	/**
+	 * The payload types demanded, with their weights.
+	 */
+	public Map<String, Double> payloadTypes = Map.of("PT1", 1.0);
+	/**
+	 * How long a drone lives from its demand, if not served.
+	 */
+	public Lifetime endOfDroneLife = new Lifetime();
+	/**
+	 * The drones appear within this distance from the center.
+	 */
+	public GeoCoord center = new GeoCoord(8.5, 44.5);
+	public double radiusKm = 20;
+	public double minSpeedMetersPerSecond = 10;
+	public double maxSpeedMetersPerSecond = 20;
+	/**
+	 * The fraction of the flight time the reported ETAs are widened by.
+	 */
+	public double etaSlack = .2;
+	/**
+	 * How long a drone takes to cross the cylinder of a platform.
+	 */
+	public long cylinderMillis = 10_000;
+	/**
+	 * How often the swarm logs its counters, 0 not to.
+	 */
+	public int statsPeriodSeconds = 10;
+
+	/**
+	 * @return the configuration in the given file, the default one if there is no
+	 *         such file
+	 */
+	public static SwarmConfiguration load(File file) throws IOException {
+		try (var r = new FileReader(file)) {
+			return JsonMapper.builder().build().readValue(r, SwarmConfiguration.class);
+		} catch (final FileNotFoundException e) {
+			return new SwarmConfiguration();
+		}
+	}
+
+	ArrivalProcess arrivalProcess(RandomGenerator rng) {
+		return switch (arrivals.process) {
+		case "poisson" -> ArrivalProcess.poisson(arrivals.ratePerSecond, rng);
+		case "scripted" -> ArrivalProcess.scripted(arrivals.atMillis, arrivals.repeat);
+		default -> throw new IllegalArgumentException("Unknown arrival process: " + arrivals.process);
+		};
+	}
+
+	EnumeratedDistribution<String> payloadTypeMix(RandomGenerator rng) {
+		if (payloadTypes.isEmpty())
+			throw new IllegalArgumentException("No payload types");
+		final List<Pair<String, Double>> weights = new ArrayList<>();
+		payloadTypes.forEach((type, weight) -> weights.add(new Pair<>(type, weight)));
+		return new EnumeratedDistribution<>(rng, weights);
+	}
+
+	/**
+	 * @return the distribution of the lifetimes, in milliseconds
+	 */
+	RealDistribution lifetime(RandomGenerator rng) {
+		final double mean = endOfDroneLife.meanMinutes * 60_000;
+		final double spread = endOfDroneLife.spreadMinutes * 60_000;
+		return switch (endOfDroneLife.distribution) {
+		case "exponential" -> new ExponentialDistribution(rng, mean);
+		case "uniform" -> new UniformRealDistribution(rng, mean - spread, mean + spread);
+		case "normal" -> new NormalDistribution(rng, mean, spread);
+		case "constant" -> new ConstantRealDistribution(mean);
+		default -> throw new IllegalArgumentException("Unknown lifetime distribution: " + endOfDroneLife.distribution);
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "SwarmConfiguration [drones=" + drones + ", arrivals=" + arrivals + ", payloadTypes=" + payloadTypes
+				+ ", endOfDroneLife=" + endOfDroneLife + ", center=" + center + ", radiusKm=" + radiusKm
+				+ ", minSpeedMetersPerSecond=" + minSpeedMetersPerSecond + ", maxSpeedMetersPerSecond="
+				+ maxSpeedMetersPerSecond + ", etaSlack=" + etaSlack + ", cylinderMillis=" + cylinderMillis
+				+ ", statsPeriodSeconds=" + statsPeriodSeconds + "]";
+	}
+}
@@ -0,0 +1,86 @@
+package mars.mc.samples;
+
+import java.util.Optional;
+
+import eventloop.Timeout;
+import mars.messages.GeoCoord;
+
+/**
+ * A drone of a {@link SwarmMc}: where it is, how fast it flies and the PS it is
+ * on, if any. It flies straight at constant speed.
+ */
+class SwarmDrone {
+	private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+	final String id;
+	final double speedMetersPerSecond;
+	PitStop pitStop;
+	Optional<Timeout> lifeTimeout = Optional.empty();
+	private GeoCoord from;
+	private GeoCoord to;
+	private long departedAtMillis;
+	private long arrivesAtMillis;
+
+	SwarmDrone(String id, GeoCoord position, double speedMetersPerSecond) {
+		this.id = id;
+		this.speedMetersPerSecond = speedMetersPerSecond;
+		this.from = position;
+		this.to = position;
+	}
+
+	GeoCoord positionAt(long nowMillis) {
+		if (nowMillis >= arrivesAtMillis)
+			return to;
+		final double f = (double) (nowMillis - departedAtMillis) / (arrivesAtMillis - departedAtMillis);
+		return new GeoCoord(from.lon() + (to.lon() - from.lon()) * f, from.lat() + (to.lat() - from.lat()) * f);
+	}
+
+	/**
+	 * @return how long it would take to fly from where the drone is to the target
+	 */
+	long flightMillis(GeoCoord target, long nowMillis) {
+		return Math.round(distanceMeters(positionAt(nowMillis), target) / speedMetersPerSecond * 1000);
+	}
+
+	/**
+	 * Starts flying towards the target, hovering there once arrived.
+	 *
+	 * @param minMillis the flight lasts at least this, the drone slowing down
+	 * @return how long the flight lasts
+	 */
+	long flyTo(GeoCoord target, long nowMillis, long minMillis) {
+		final long millis = Math.max(minMillis, flightMillis(target, nowMillis));
+		from = positionAt(nowMillis);
+		to = target;
+		departedAtMillis = nowMillis;
+		arrivesAtMillis = nowMillis + millis;
+		return millis;
+	}
+
+	void stop(long nowMillis) {
+		from = to = positionAt(nowMillis);
+		arrivesAtMillis = nowMillis;
+	}
+
+	/**
+	 * @return the great circle distance between the points
+	 */
+	static double distanceMeters(GeoCoord a, GeoCoord b) {
+		final double dLat = Math.toRadians(b.lat() - a.lat());
+		final double dLon = Math.toRadians(b.lon() - a.lon());
+		final double h = Math.pow(Math.sin(dLat / 2), 2)
+				+ Math.cos(Math.toRadians(a.lat())) * Math.cos(Math.toRadians(b.lat())) * Math.pow(Math.sin(dLon / 2), 2);
+		return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(h)));
+	}
+
+	/**
+	 * @param bearing radians clockwise from the north
+	 * @return the point at the given distance and bearing, good for short
+	 *         distances
+	 */
+	static GeoCoord offset(GeoCoord origin, double meters, double bearing) {
+		final double dLat = meters * Math.cos(bearing) / EARTH_RADIUS_METERS;
+		final double dLon = meters * Math.sin(bearing) / (EARTH_RADIUS_METERS * Math.cos(Math.toRadians(origin.lat())));
+		return new GeoCoord(origin.lon() + Math.toDegrees(dLon), origin.lat() + Math.toDegrees(dLat));
+	}
+}
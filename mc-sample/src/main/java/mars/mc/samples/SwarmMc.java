@@ -0,0 +1,471 @@
+package mars.mc.samples;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.commons.math3.distribution.EnumeratedDistribution;
+import org.apache.commons.math3.distribution.RealDistribution;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eventloop.El;
+import eventloop.Timeout;
+import mars.mc.McComms;
+import mars.mc.McCommsListener;
+import mars.mc.McLogics;
+import mars.mc.McSideComms;
+import mars.mc.McUtils;
+import mars.messages.DroneLandedConfirm;
+import mars.messages.DroneLandedIndication;
+import mars.messages.GeoCoord;
+import mars.messages.PlatformAssignmentConfirm;
+import mars.messages.PlatformAssignmentIndication;
+import mars.messages.PlatformAvailabilityConfirm;
+import mars.messages.PlatformAvailabilityIndication;
+import mars.messages.PlatformCylinderEnterRequest;
+import mars.messages.PlatformCylinderEnterResponse;
+import mars.messages.PlatformCylinderLeftConfirm;
+import mars.messages.PlatformCylinderLeftIndication;
+import mars.messages.PlatformReachabilityIndication;
+import mars.messages.PsAbortConfirm;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedIndication;
+import mars.messages.PsDemandRequest;
+import mars.messages.PsDemandResponse;
+import mars.messages.PsPlatformAvailability;
+import mars.messages.PsPlatformReachability;
+import mars.side.signals.DroneLandedEvent;
+import mars.side.signals.DroneTookOffEvent;
+import mars.side.signals.Events;
+import mars.side.signals.PayloadOnBoard;
+import mars.signals.Signals;
+import mars.utils.FileSeededRanodmSupplier;
+
+/**
+ * A {@link McLogics} driving a swarm of drones, to load a tower.
+ * <p>
+ * The PS demands arrive by an {@link ArrivalProcess}, each taken by an idle
+ * drone, or by a new one while the swarm is smaller than configured. The
+ * payload type and the end of life of the drone are drawn from the configured
+ * distributions. Drones appear at random within an area and report their ETAs
+ * from the distance to each platform and their speed; once assigned, they fly
+ * to the platform, land, take off when served, and become idle where they are.
+ * A drone not landed by the end of its life is lost.
+ * <p>
+ * The state of each drone is indexed by drone and by PS, so that every message
+ * finds it at once; the swarm logs its counters periodically instead of each
+ * message.
+ */
+public class SwarmMc implements McLogics<PitStop>, McCommsListener<PitStop> {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(SwarmMc.class);
+
+	/**
+	 * Runs a swarm for each of the comma separated MC names, in one process.
+	 */
+	public static void main(String[] args) throws Exception {
+		final SwarmConfiguration conf = SwarmConfiguration.load(new File("swarm.json"));
+		final Supplier<Random> randomSupplier = new FileSeededRanodmSupplier(new File("swarm-rand.json"));
+		McUtils.main(args, agentName -> new SwarmMc(conf, randomSupplier));
+	}
+
+	private final SwarmConfiguration conf;
+	private final Random random;
+	private final ArrivalProcess arrivals;
+	private final EnumeratedDistribution<String> payloadTypeMix;
+	private final RealDistribution lifetime;
+
+	private final Map<String, SwarmDrone> dronesById = new HashMap<>();
+	private final Map<Integer, PitStop> psById = new HashMap<>();
+	private final Queue<SwarmDrone> idle = new ArrayDeque<>();
+	private final Map<String, GeoCoord> platforms = new HashMap<>();
+
+	private McComms<PitStop> comms;
+	private McSideComms sideComms;
+	private Optional<Timeout> nextArrival = Optional.empty();
+	private boolean arriving;
+	private int nextRequestId;
+	private int nextDroneId;
+
+	private long demanded;
+	private long notDemanded;
+	private long served;
+	private long aborted;
+	private long expired;
+	private long errors;
+	private long timeouts;
+
+	public SwarmMc(SwarmConfiguration conf, Supplier<Random> randomSupplier) {
+		LOGGER.info("Using random: {} and {}", randomSupplier, conf);
+		this.conf = conf;
+		this.random = randomSupplier.get();
+		final JDKRandomGenerator rng = new JDKRandomGenerator();
+		rng.setSeed(random.nextLong());
+		this.arrivals = conf.arrivalProcess(rng);
+		this.payloadTypeMix = conf.payloadTypeMix(rng);
+		this.lifetime = conf.lifetime(rng);
+	}
+
+	@Override
+	public void start(McComms<PitStop> comms, McSideComms sideComms) {
+		this.comms = comms;
+		comms.setListener(this);
+		this.sideComms = sideComms;
+		El.addQuitEvent(this::logCounters);
+		if (conf.statsPeriodSeconds > 0)
+			El.setTimeout(conf.statsPeriodSeconds * 1000L, this::logCountersPeriodically);
+		if (comms.isTowerActive()) {
+			LOGGER.info("Tower is active, starting arrivals");
+			startArrivals();
+		} else {
+			LOGGER.info("Waiting for tower is active for starting arrivals");
+		}
+	}
+
+	@Override
+	public void onTowerDiscovered(String agentName) {
+		LOGGER.info("Tower has become active, starting arrivals");
+		startArrivals();
+	}
+
+	@Override
+	public void onTowerLost(String agentName) {
+		LOGGER.warn("Tower lost, suspending arrivals");
+		nextArrival.ifPresent(Timeout::cancel);
+		nextArrival = Optional.empty();
+		arriving = false;
+	}
+
+	@Override
+	public void onTowerReturned(String agentName) {
+		LOGGER.info("Tower returned, resuming arrivals");
+		startArrivals();
+	}
+
+	@Override
+	public void onPsDemandResponse(PsDemandResponse r, PitStop ps) {
+		LOGGER.debug("<<- {} for {}", r, ps);
+		final var drone = droneOn(ps);
+		if (drone == null)
+			return;
+		ps.pitStopId = r.psId();
+		psById.put(ps.pitStopId, ps);
+		comms.sendPlatformReachabilityIndication(ps,
+				new PlatformReachabilityIndication(ps.pitStopId, reachabilities(drone, r.psPlatformAvailabilities())));
+	}
+
+	@Override
+	public void onPsDemandTimeout(PitStop ps) {
+		LOGGER.warn("PS Demand Request timed out for request: {}", ps.requestId);
+		timeouts++;
+		release(ps);
+	}
+
+	@Override
+	public void onPsDemandError(Throwable t, PitStop ps) {
+		LOGGER.warn("PS Demand Request got an error for request: {}: {}", ps.requestId, t.toString());
+		errors++;
+		release(ps);
+	}
+
+	@Override
+	public void onPlatformReachabilityConfirm(PitStop ps) {
+		LOGGER.debug("Platform Reachability Confirm for PS: {}", ps.pitStopId);
+	}
+
+	@Override
+	public void onPlatformReachabilityTimeout(PitStop ps) {
+		LOGGER.warn("Platforms reachability timed out for PS: {}", ps.pitStopId);
+		timeouts++;
+	}
+
+	@Override
+	public void onPlatformReachabilityError(Throwable t, PitStop ps) {
+		LOGGER.warn("Platforms reachability got an error for PS: {}: {}", ps.pitStopId, t.toString());
+		errors++;
+	}
+
+	@Override
+	public PlatformAvailabilityConfirm onPlatformAvailabilityIndication(PlatformAvailabilityIndication p) {
+		LOGGER.debug("{}", p);
+		final PitStop ps = searchPs(p.psId());
+		return new PlatformAvailabilityConfirm(ps.pitStopId,
+				reachabilities(droneOf(ps), p.psPlatformAvailabilities()));
+	}
+
+	@Override
+	public PlatformAssignmentConfirm onPlatformAssignmentIndication(PlatformAssignmentIndication p) {
+		LOGGER.debug("{}", p);
+		final PitStop ps = searchPs(p.psId());
+		final SwarmDrone drone = droneOf(ps);
+		ps.platformId = p.platformId();
+		ps.platformAvailableAt = El.now();
+
+		// the drone does not arrive before the platform is expected to be ready
+		final long now = El.nowMillis();
+		final long slotMillis = Math.max(0, El.now().until(p.at(), ChronoUnit.MILLIS));
+		final GeoCoord platform = platforms.get(p.platformId());
+		final long travelMillis = platform == null ? slotMillis : drone.flyTo(platform, now, slotMillis);
+		LOGGER.debug("Drone {} flies to platform: {} for PS: {} in: {} ms", drone.id, ps.platformId, ps.pitStopId,
+				travelMillis);
+		ps.travelTimeout.ifPresent(Timeout::cancel);
+		ps.travelTimeout = Optional.of(El.setTimeout(travelMillis, () -> droneArrivedAtPlatform(ps)));
+		return new PlatformAssignmentConfirm();
+	}
+
+	@Override
+	public void onCylinderEnterResponse(PlatformCylinderEnterResponse r, PitStop ps) {
+		LOGGER.debug("{} for PS: {}", r, ps.pitStopId);
+		ps.authorizedEnterCylinderAt = El.now();
+		landDrone(ps);
+	}
+
+	@Override
+	public void onCylinderEnterTimeout(PitStop ps) {
+		LOGGER.warn("Cylinder enter Request timed out for PS: {}", ps.pitStopId);
+		timeouts++;
+	}
+
+	@Override
+	public void onCylinderEnterError(Throwable t, PitStop ps) {
+		LOGGER.warn("Drone cannot enter platform: {} cylinder for PS: {}: {}", ps.platformId, ps.pitStopId,
+				t.toString());
+		errors++;
+	}
+
+	@Override
+	public void onDroneLandedConfirmed(DroneLandedConfirm r, PitStop ps) {
+		LOGGER.debug("{} for PS: {}", r, ps.pitStopId);
+		ps.landedAt = El.now();
+	}
+
+	@Override
+	public void onDroneLandedTimeout(PitStop ps) {
+		LOGGER.warn("Drone landed indication timed out for PS: {}", ps.pitStopId);
+		timeouts++;
+	}
+
+	@Override
+	public void onDroneLandedError(Throwable t, PitStop ps) {
+		LOGGER.warn("Drone landed indication got an error for PS: {}: {}", ps.pitStopId, t.toString());
+		errors++;
+	}
+
+	@Override
+	public PsCompletedIndication onPsCompletedIndication(PsCompletedIndication p) {
+		LOGGER.debug("{}", p);
+		final PitStop ps = searchPs(p.psId());
+		if (!p.platformId().equals(ps.platformId))
+			throw new IllegalArgumentException("Bad platform for PS: " + ps.pitStopId + " expected: " + ps.platformId
+					+ " but got: " + p.platformId());
+		takeOff(ps);
+		return new PsCompletedIndication(ps.pitStopId, ps.platformId);
+	}
+
+	@Override
+	public void onCylinderLeftConfirmed(PlatformCylinderLeftConfirm c, PitStop ps) {
+		LOGGER.debug("{} for PS: {}", c, ps.pitStopId);
+		served++;
+		release(ps);
+	}
+
+	@Override
+	public void onCylinderLeftTimeout(PitStop ps) {
+		LOGGER.warn("Cylinder Left Indication timed out for PS: {}", ps.pitStopId);
+		timeouts++;
+		release(ps);
+	}
+
+	@Override
+	public void onCylinderLeftError(Throwable t, PitStop ps) {
+		LOGGER.warn("Cylinder Left Indication got an error for PS: {}: {}", ps.pitStopId, t.toString());
+		errors++;
+		release(ps);
+	}
+
+	@Override
+	public PsAbortConfirm onPsAbortIndication(PsAbortIndication p) {
+		LOGGER.debug("{}", p);
+		final PitStop ps = psById.get(p.psId());
+		if (ps == null) {
+			LOGGER.debug("Abort of PS {}, whose drone is gone", p.psId());
+			return new PsAbortConfirm();
+		}
+		final SwarmDrone drone = droneOn(ps);
+		if (drone != null)
+			drone.stop(El.nowMillis());
+		aborted++;
+		release(ps);
+		return new PsAbortConfirm();
+	}
+
+	private void startArrivals() {
+		if (arriving)
+			return;
+		arriving = true;
+		scheduleArrival();
+	}
+
+	private void scheduleArrival() {
+		final long delay = arrivals.nextDelayMillis();
+		if (delay < 0) {
+			LOGGER.info("No more arrivals");
+			nextArrival = Optional.empty();
+			return;
+		}
+		nextArrival = Optional.of(El.setTimeout(delay, () -> {
+			demand();
+			scheduleArrival();
+		}));
+	}
+
+	private void demand() {
+		SwarmDrone drone = idle.poll();
+		if (drone == null) {
+			if (dronesById.size() >= conf.drones) {
+				notDemanded++;
+				return;
+			}
+			drone = newDrone();
+		}
+		final String payloadType = payloadTypeMix.sample();
+		final long lifeMillis = Math.max((long) (conf.endOfDroneLife.minMinutes * 60_000),
+				(long) lifetime.sample());
+		final var ps = new PitStop(nextRequestId++, new Drone(drone.id, new PayloadOnBoard(
+				new UUID(random.nextLong(), random.nextLong()).toString(), payloadType, random.nextDouble())),
+				El.now());
+		drone.pitStop = ps;
+		final SwarmDrone d = drone;
+		drone.lifeTimeout = Optional.of(El.setTimeout(lifeMillis, () -> expire(d)));
+		demanded++;
+		comms.sendPsDemandRequest(new PsDemandRequest(ps.requestId, payloadType, El.now().plusMillis(lifeMillis)), ps);
+	}
+
+	private SwarmDrone newDrone() {
+		final double distance = conf.radiusKm * 1000 * Math.sqrt(random.nextDouble());
+		final double speed = conf.minSpeedMetersPerSecond
+				+ random.nextDouble() * (conf.maxSpeedMetersPerSecond - conf.minSpeedMetersPerSecond);
+		final var drone = new SwarmDrone("SWARM-" + nextDroneId++,
+				SwarmDrone.offset(conf.center, distance, random.nextDouble() * 2 * Math.PI), speed);
+		dronesById.put(drone.id, drone);
+		return drone;
+	}
+
+	private List<PsPlatformReachability> reachabilities(SwarmDrone drone, List<PsPlatformAvailability> availabilities) {
+		final long now = El.nowMillis();
+		final Instant nowInstant = El.now();
+		return availabilities.stream().map(a -> {
+			platforms.put(a.platformId(), a.geoCoord());
+			final long flightMillis = drone.flightMillis(a.geoCoord(), now);
+			final long slackMillis = (long) (flightMillis * conf.etaSlack);
+			return new PsPlatformReachability(a.platformId(), nowInstant.plusMillis(flightMillis - slackMillis),
+					nowInstant.plusMillis(flightMillis + slackMillis));
+		}).collect(Collectors.toList());
+	}
+
+	private void droneArrivedAtPlatform(PitStop ps) {
+		LOGGER.debug("Drone {} arrived at platform: {} for PS: {}", ps.drone.id(), ps.platformId, ps.pitStopId);
+		ps.travelTimeout = Optional.empty();
+		ps.arrivedAtPlatformCylinder = El.now();
+		comms.sendPlatformCylinderEnterRequest(new PlatformCylinderEnterRequest(ps.pitStopId, ps.platformId), ps);
+	}
+
+	private void landDrone(PitStop ps) {
+		El.setTimeout(conf.cylinderMillis, () -> {
+			final SwarmDrone drone = droneOn(ps);
+			if (drone == null)
+				return;
+			drone.lifeTimeout.ifPresent(Timeout::cancel);
+			drone.lifeTimeout = Optional.empty();
+			sideComms.emitSideSignal(Signals.EVENT.name(), Events.MARS_DRONE_LANDED,
+					new DroneLandedEvent(ps.drone.id(), ps.platformId, ps.drone.payloadOnBoard()));
+			comms.sendDroneLandedIndication(new DroneLandedIndication(ps.pitStopId, ps.platformId, ps.drone.id()), ps);
+		});
+	}
+
+	private void takeOff(PitStop ps) {
+		sideComms.emitSideSignal(Signals.EVENT.name(), Events.MARS_DRONE_TOOK_OFF,
+				new DroneTookOffEvent(ps.drone.id(), ps.platformId));
+		El.setTimeout(conf.cylinderMillis, () -> {
+			ps.leftCylinderAt = El.now();
+			comms.sendPlatformCylinderLeftIndication(new PlatformCylinderLeftIndication(ps.pitStopId, ps.platformId),
+					ps);
+		});
+	}
+
+	private void expire(SwarmDrone drone) {
+		final PitStop ps = drone.pitStop;
+		LOGGER.debug("Drone {} reached its end of life on {}", drone.id, ps);
+		drone.lifeTimeout = Optional.empty();
+		expired++;
+		forget(ps);
+		dronesById.remove(drone.id);
+	}
+
+	/*
+	 * The drone of the PS is idle again.
+	 */
+	private void release(PitStop ps) {
+		final SwarmDrone drone = droneOn(ps);
+		forget(ps);
+		if (drone == null)
+			return;
+		drone.lifeTimeout.ifPresent(Timeout::cancel);
+		drone.lifeTimeout = Optional.empty();
+		drone.pitStop = null;
+		idle.add(drone);
+	}
+
+	private void forget(PitStop ps) {
+		ps.travelTimeout.ifPresent(Timeout::cancel);
+		ps.travelTimeout = Optional.empty();
+		if (ps.pitStopId != null)
+			psById.remove(ps.pitStopId, ps);
+	}
+
+	/*
+	 * The drone still on the PS, null if it has been released or lost meanwhile.
+	 */
+	private SwarmDrone droneOn(PitStop ps) {
+		final SwarmDrone drone = dronesById.get(ps.drone.id());
+		return drone != null && drone.pitStop == ps ? drone : null;
+	}
+
+	private SwarmDrone droneOf(PitStop ps) {
+		final SwarmDrone drone = droneOn(ps);
+		if (drone == null)
+			throw new IllegalStateException("No drone on PS " + ps.pitStopId);
+		return drone;
+	}
+
+	private PitStop searchPs(int psId) {
+		final var ps = psById.get(psId);
+		if (ps == null)
+			throw new IllegalArgumentException("Unexpected PS id " + psId);
+		return ps;
+	}
+
+	private void logCountersPeriodically() {
+		logCounters();
+		El.setTimeout(conf.statsPeriodSeconds * 1000L, this::logCountersPeriodically);
+	}
+
+	private void logCounters() {
+		LOGGER.info(
+				"Drones: {} busy, {} idle; demands: {} made, {} without drones, {} served, {} aborted, {} expired; {} errors, {} timeouts",
+				dronesById.size() - idle.size(), idle.size(), demanded, notDemanded, served, aborted, expired, errors,
+				timeouts);
+	}
+}
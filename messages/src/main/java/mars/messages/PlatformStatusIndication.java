@@ -1,5 +1,15 @@
 package mars.messages;
 
-public record PlatformStatusIndication(PlatformStatus status) {
+/**
+ * A change of the status of a platform, with the bays that have changed, if
+ * any.
+ * 
+ * @param seq numbers the indications of a platform from 1, so that the tower
+ *            can tell a lost or reordered one; 0 when not numbered
+ */
+public record PlatformStatusIndication(PlatformStatus status, long seq) {
 
+	public PlatformStatusIndication(PlatformStatus status) {
+		this(status, 0);
+	}
 }
@@ -1,5 +1,14 @@
 package mars.messages;
 
-public record PlatformStatusResponse(GeoCoord geoCoord, PlatformStatus status) {
+/**
+ * The full status of a platform.
+ * 
+ * @param seq the number of the last {@link PlatformStatusIndication} sent
+ *            before this status was taken, 0 when not numbered
+ */
+public record PlatformStatusResponse(GeoCoord geoCoord, PlatformStatus status, long seq) {
 
+	public PlatformStatusResponse(GeoCoord geoCoord, PlatformStatus status) {
+		this(geoCoord, status, 0);
+	}
 }
@@ -8,6 +8,7 @@ import com.cellply.invosys.agent.CallContext;
 import com.cellply.invosys.agent.OutgoingInvocation;
 
 import eventloop.EventLoop.Event;
+import eventloop.RpcMetrics;
 import mars.messages.AnomalyIndication;
 import mars.messages.DroneLandedIndication;
 import mars.messages.MessageNames;
@@ -45,7 +46,8 @@ public class StandardPlatformMessaging implements PlatformMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsAbortIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onPsAbort(callCtx));
+			executor.accept(served(MessageNames.PS_ABORT_INDICATION, callCtx,
+					() -> messageReceiver.onPsAbort(callCtx)));
 		}
 	}
 
@@ -57,7 +59,8 @@ public class StandardPlatformMessaging implements PlatformMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformStatusRequest> callCtx) {
-			executor.accept(() -> messageReceiver.onPlatformStatus(callCtx));
+			executor.accept(served(MessageNames.PLATFORM_STATUS_REQUEST, callCtx,
+					() -> messageReceiver.onPlatformStatus(callCtx)));
 		}
 	}
 
@@ -69,7 +72,7 @@ public class StandardPlatformMessaging implements PlatformMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<ReadyPsRequest> callCtx) {
-			executor.accept(() -> messageReceiver.onReadyPs(callCtx));
+			executor.accept(served(MessageNames.READY_PS_REQUEST, callCtx, () -> messageReceiver.onReadyPs(callCtx)));
 		}
 	}
 
@@ -81,7 +84,8 @@ public class StandardPlatformMessaging implements PlatformMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<DroneLandedIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onDroneLanded(callCtx));
+			executor.accept(served(MessageNames.DRONE_LANDED_INDICATION, callCtx,
+					() -> messageReceiver.onDroneLanded(callCtx)));
 		}
 	}
 
@@ -93,10 +97,15 @@ public class StandardPlatformMessaging implements PlatformMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<AnomalyIndication> callCtx) {
-			executor.accept(() -> messageReceiver.onAnomalyIndicated(callCtx));
+			executor.accept(served(MessageNames.ANOMALY_INDICATION, callCtx,
+					() -> messageReceiver.onAnomalyIndicated(callCtx)));
 		}
 	}
 
+	private static Event served(String message, CallContext<?> callCtx, Event event) {
+		return RpcMetrics.SERVED.served(message, callCtx.callingAgentId(), event);
+	}
+
 	@Override
 	public OutgoingInvocation<PlatformStatusConfirm> sendPlatformStatusIndication(
 			PlatformStatusIndication platformStatusIndication) {
@@ -16,6 +16,7 @@ import mars.messages.CannotReadyPayload;
 import mars.messages.CannotStartPsException;
 import mars.messages.DroneLandedConfirm;
 import mars.messages.DroneLandedIndication;
+import mars.messages.MessageNames;
 import mars.messages.PlatformQuitRequest;
 import mars.messages.PlatformQuitResponse;
 import mars.messages.PlatformStatusConfirm;
@@ -38,6 +39,11 @@ public abstract class AbstractPlatformLogics {
 	private final StandardPlatformMessaging platformMessaging;
 
 	private final long commsTimeout;
+	/*
+	 * The agent name of the last tower known, null until one is, tagging the RPC
+	 * metrics.
+	 */
+	private String towerName;
 
 	public AbstractPlatformLogics(Function<TowerMessageReceiver, StandardPlatformMessaging> messagingMaker,
 			Consumer<AgentLifecycleListener> allConsumer, long commsTimeout) {
@@ -94,6 +100,7 @@ public abstract class AbstractPlatformLogics {
 		@Override
 		public void agentReturned(String agentName, String category) {
 			LOGGER.info("Agent returned: {} ({})", agentName, category);
+			towerName = agentName;
 			platformMessaging.setTowerName(agentName);
 		}
 
@@ -106,6 +113,7 @@ public abstract class AbstractPlatformLogics {
 		@Override
 		public void agentDiscovered(String agentName, String category) {
 			LOGGER.info("Agent discovered: {} ({})", agentName, category);
+			towerName = agentName;
 			platformMessaging.setTowerName(agentName);
 		}
 	};
@@ -119,7 +127,8 @@ public abstract class AbstractPlatformLogics {
 
 	protected void sendQuitRequest(PlatformQuitRequest platformQuitRequest) {
 		LOGGER.info("Sending QuitRequest {}", platformQuitRequest);
-		ElUtils.process(platformMessaging.sendPlatformQuitRequest(platformQuitRequest), commsTimeout,
+		ElUtils.process(MessageNames.PLATFORM_QUIT_REQUEST, towerName,
+				platformMessaging.sendPlatformQuitRequest(platformQuitRequest), commsTimeout,
 				r -> this.onQuitResponse(r), t -> this.onQuitResponseError(t), () -> this.onQuitRepsonseTimeout());
 	}
 
@@ -131,7 +140,8 @@ public abstract class AbstractPlatformLogics {
 
 	protected void sendStatusIndication(PlatformStatusIndication statusIndication) {
 		LOGGER.info("Sending StatusIndication {}", statusIndication);
-		ElUtils.process(platformMessaging.sendPlatformStatusIndication(statusIndication), commsTimeout,
+		ElUtils.process(MessageNames.PLATFORM_STATUS_INDICATION, towerName,
+				platformMessaging.sendPlatformStatusIndication(statusIndication), commsTimeout,
 				r -> this.onStatusConfirm(r), t -> this.onStatusConfirmError(t), () -> this.onStatusConfirmTimeout());
 	}
 
@@ -143,7 +153,8 @@ public abstract class AbstractPlatformLogics {
 
 	protected void sendPsCompletedIndication(PsCompletedIndication psCompletedIndication) {
 		LOGGER.info("Sending PsCompletedIndication {}", psCompletedIndication);
-		ElUtils.process(platformMessaging.sendPsCompletedIndication(psCompletedIndication), commsTimeout,
+		ElUtils.process(MessageNames.PS_COMPLETED_INDICATION, towerName,
+				platformMessaging.sendPsCompletedIndication(psCompletedIndication), commsTimeout,
 				r -> this.onPsCompletedConfirm(r), t -> this.onPsCompletedConfirmError(t),
 				() -> this.onPsCompletedConfirmTimeout());
 	}
@@ -30,7 +30,6 @@ import mars.messages.PlatformQuitRequest;
 import mars.messages.PlatformQuitResponse;
 import mars.messages.PlatformStatus;
 import mars.messages.PlatformStatusConfirm;
-import mars.messages.PlatformStatusIndication;
 import mars.messages.PlatformStatusRequest;
 import mars.messages.PlatformStatusResponse;
 import mars.messages.PsAbortConfirm;
@@ -85,13 +84,26 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 
 	private final long serviceTimeMarginMillis;
 
+	private final StatusPublisher statusPublisher;
+
 	public PlatformLogics(Function<TowerMessageReceiver, StandardPlatformMessaging> messagingMaker,
 			Consumer<AgentLifecycleListener> allConsumer, PlatformEventEmitter eventEmitter, long commsTimeout,
 			long serviceTimeMarginMillis, String myName) {
+		this(messagingMaker, allConsumer, eventEmitter, commsTimeout, serviceTimeMarginMillis, 0, myName);
+	}
+
+	/**
+	 * @param statusWindowMillis how long bay updates are merged into a single
+	 *                           status indication, 0 to send each at once
+	 */
+	public PlatformLogics(Function<TowerMessageReceiver, StandardPlatformMessaging> messagingMaker,
+			Consumer<AgentLifecycleListener> allConsumer, PlatformEventEmitter eventEmitter, long commsTimeout,
+			long serviceTimeMarginMillis, long statusWindowMillis, String myName) {
 		super(messagingMaker, allConsumer, commsTimeout);
 		this.myName = myName;
 		this.serviceTimeMarginMillis = serviceTimeMarginMillis;
 		this.eventEmitter = eventEmitter;
+		this.statusPublisher = new StatusPublisher(statusWindowMillis, this::sendStatusIndication);
 	}
 
 	public void setModel(PlatformInternals<B> internals) {
@@ -104,7 +116,7 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 	@Override
 	protected PlatformStatusResponse onPlatformStatusRequest(PlatformStatusRequest p) {
 		LOGGER.info("Arrived PlatformStatusRequest {}", p);
-		return new PlatformStatusResponse(internals.getGeoCoord(), status());
+		return new PlatformStatusResponse(internals.getGeoCoord(), status(), statusPublisher.lastSeq());
 	}
 
 	private PlatformStatus status() {
@@ -123,8 +135,7 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 
 	private void readyPsUpdated(Integer psId) {
 		currentReadyPs = psId;
-		sendStatusIndication(new PlatformStatusIndication(
-				new PlatformStatus(currentReadyPs, alarms(), null, automationSystem().getServiceTime())));
+		statusPublisher.publish(new PlatformStatus(currentReadyPs, alarms(), null, automationSystem().getServiceTime()));
 	}
 
 	@Override
@@ -157,7 +168,7 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 
 	private void updateFlangeUnavailable(boolean unavailable) {
 		flangeUnvavilable = unavailable;
-		sendStatusIndication(new PlatformStatusIndication(status()));
+		statusPublisher.publish(new PlatformStatus(currentReadyPs, alarms(), null, automationSystem().getServiceTime()));
 		eventEmitter.emitFlangeUnavailable(unavailable);
 	}
 
@@ -195,16 +206,19 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 	@Override
 	protected void onStatusConfirm(PlatformStatusConfirm r) {
 		LOGGER.debug("Status Confirmed");
+		statusPublisher.confirmed();
 	}
 
 	@Override
 	protected void onStatusConfirmError(Throwable t) {
 		LOGGER.error("StatusConfirm Error", t);
+		statusPublisher.confirmed();
 	}
 
 	@Override
 	protected void onStatusConfirmTimeout() {
 		LOGGER.error("StatusConfirm went Timeout");
+		statusPublisher.confirmed();
 	}
 
 	@Override
@@ -249,13 +263,13 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 	protected void onRechargeComplete(B bay) {
 		LOGGER.info("Recharge complete in bay {}", bay);
 		final var s = new PlatformStatus(currentReadyPs, alarms(), convert(bay), automationSystem().getServiceTime());
-		sendStatusIndication(new PlatformStatusIndication(s));
+		statusPublisher.publish(s);
 	}
 
 	protected void onBayContentUpdate(B bay) {
 		LOGGER.info("Content update in bay {}", bay);
 		final var s = new PlatformStatus(currentReadyPs, alarms(), convert(bay), automationSystem().getServiceTime());
-		sendStatusIndication(new PlatformStatusIndication(s));
+		statusPublisher.publish(s);
 	}
 
 	private PlatformAlarms alarms() {
@@ -266,6 +280,13 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 		return internals.getAutomationSystem();
 	}
 
+	/**
+	 * @return the publisher of the status indications, with its counters
+	 */
+	public StatusPublisher getStatusPublisher() {
+		return statusPublisher;
+	}
+
 	@Override
 	public CompletableFuture<Void> quit() {
 		quitFuture = new CompletableFuture<Void>();
@@ -283,7 +304,7 @@ public class PlatformLogics<B extends Bay<B>> extends AbstractPlatformLogics imp
 		if (p.anomalies().contains(Anomaly.CYLINDER_BUSY))
 			cylinderBusy = true;
 		final var s = new PlatformStatus(currentReadyPs, alarms(), null, automationSystem().getServiceTime());
-		sendStatusIndication(new PlatformStatusIndication(s));
+		statusPublisher.publish(s);
 		return new AnomalyConfirm();
 	}
 }
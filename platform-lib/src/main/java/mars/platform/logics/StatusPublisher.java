@@ -0,0 +1,140 @@
+package mars.platform.logics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eventloop.El;
+import eventloop.Timeout;
+import mars.messages.PayloadBay;
+import mars.messages.PlatformAlarms;
+import mars.messages.PlatformStatus;
+import mars.messages.PlatformStatusIndication;
+
+/**
+ * Merges the status updates of a platform into fewer
+ * {@link PlatformStatusIndication}s. The bays updated within a window are sent
+ * together, with the last ready PS, alarms and service time, once the window is
+ * over and the previous indication has been confirmed. A change of the alarms
+ * is sent at once, with whatever is pending. With a window of 0 every update is
+ * sent as it comes. The indications are numbered from 1, so that the tower can
+ * tell when it has missed one and ask for the full status. To be used on the
+ * event loop thread only.
+ */
+public class StatusPublisher {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(StatusPublisher.class);
+
+	private final long windowMillis;
+	private final Consumer<PlatformStatusIndication> sender;
+	private final Map<Integer, PayloadBay> bays = new LinkedHashMap<>();
+	private PlatformStatus last;
+	private int merged;
+	private PlatformAlarms sentAlarms = new PlatformAlarms(false, false);
+	private Timeout window;
+	private boolean unconfirmed;
+	private long updates;
+	private long indications;
+
+	/**
+	 * @param windowMillis how long bay updates are merged, 0 to send each update
+	 * @param sender       sends the indications; {@link #confirmed()} must be
+	 *                     called when each is confirmed, has failed or has gone
+	 *                     timeout
+	 */
+	public StatusPublisher(long windowMillis, Consumer<PlatformStatusIndication> sender) {
+		if (windowMillis < 0)
+			throw new IllegalArgumentException("Window must not be negative: " + windowMillis);
+		this.windowMillis = windowMillis;
+		this.sender = sender;
+	}
+
+	/**
+	 * Publishes an update of the status, whose bays are those that have changed,
+	 * if any.
+	 */
+	public void publish(PlatformStatus status) {
+		updates++;
+		if (windowMillis == 0) {
+			send(status);
+			return;
+		}
+		last = status;
+		merged++;
+		if (status.payloadBays() != null)
+			for (final PayloadBay b : status.payloadBays())
+				bays.put(b.bayId(), b);
+		if (!status.alarms().equals(sentAlarms))
+			flush();
+		else if (window == null)
+			window = El.setTimeout(windowMillis, this::windowOver);
+	}
+
+	/**
+	 * To be called when the last indication has been confirmed, or will never be.
+	 */
+	public void confirmed() {
+		unconfirmed = false;
+		if (last != null && window == null)
+			flush();
+	}
+
+	/**
+	 * @return how many updates have been published
+	 */
+	public long updates() {
+		return updates;
+	}
+
+	/**
+	 * @return how many indications have been sent
+	 */
+	public long indications() {
+		return indications;
+	}
+
+	/**
+	 * @return the number of the last indication sent, 0 if none
+	 */
+	public long lastSeq() {
+		return indications;
+	}
+
+	/**
+	 * @return how many updates have been merged into others
+	 */
+	public long coalesced() {
+		return updates - indications - (last == null ? 0 : merged);
+	}
+
+	private void windowOver() {
+		window = null;
+		if (!unconfirmed)
+			flush();
+	}
+
+	private void flush() {
+		if (window != null) {
+			window.cancel();
+			window = null;
+		}
+		final PlatformStatus s = new PlatformStatus(last.readyPsId(), last.alarms(),
+				bays.isEmpty() ? null : new ArrayList<>(bays.values()), last.serviceMillis());
+		LOGGER.debug("Merged {} updates with {} bays", merged, bays.size());
+		last = null;
+		merged = 0;
+		bays.clear();
+		send(s);
+	}
+
+	private void send(PlatformStatus status) {
+		indications++;
+		unconfirmed = true;
+		sentAlarms = status.alarms();
+		sender.accept(new PlatformStatusIndication(status, indications));
+	}
+}
@@ -1,11 +1,14 @@
 package mars.platform.sim;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 import com.cellply.invosys.ComSystem;
 
 import eventloop.El;
+import mars.comm.AsyncSignalPublisher;
+import mars.heartbeat.HeartbeatMultiplexer;
 import mars.heartbeat.LifecycleManager;
 import mars.messages.HeartbeatIds;
 import mars.platform.comms.StandardPlatformMessaging;
@@ -19,7 +22,10 @@ import mars.utils.FailingFactory;
 public class PltUtils {
 
 	/**
-	 * Parses the command line parameters and starts a Platform Simulator.
+	 * Parses the command line parameters and starts a Platform Simulator for each
+	 * of the comma separated agent names of the first argument, all on the same
+	 * event loop. The heartbeats of several platforms are sent in bundles by a
+	 * {@link HeartbeatMultiplexer}.
 	 * 
 	 * @param <B>              the bay type
 	 * @param args             the command line args
@@ -32,11 +38,11 @@ public class PltUtils {
 
 		if (args.length == 0)
 			throw new IllegalArgumentException("Missing agent name");
-		final String name = args[0];
+		final List<String> names = List.of(args[0].split(","));
 		if (args.length == 1)
 			throw new IllegalArgumentException("Missing configuration file name");
 		final String confFile = args[1];
-		System.out.println("Starting PLT with name " + name + " conf file " + confFile);
+		System.out.println("Starting PLT with names " + names + " conf file " + confFile);
 		final String hostName = args.length > 2 ? args[2] : "localhost";
 		final var port = Optional.ofNullable(args.length > 3 ? Integer.parseInt(args[3]) : null);
 
@@ -45,8 +51,22 @@ public class PltUtils {
 		final SharedConfiguration conf = SimUtils.loadSharedConf();
 		System.out.println("With conf: " + conf);
 		SimUtils.runSimulator(hostName, port, comSystem -> {
-			run(comSystem, name, conf.heartbeatPeriodInSeconds, serviceTimeMarginMillis,
-					() -> internalsFactory.createInternals(confFile, comSystem, name), conf.commsTimeoutMillis);
+			HeartbeatMultiplexer multiplexer = null;
+			if (names.size() > 1) {
+				try {
+					multiplexer = LifecycleManager.multiplexer(comSystem, names.get(0),
+							conf.heartbeatPeriodInSeconds);
+				} catch (final IOException e) {
+					System.err.println("Cannot create heartbeat multiplexer, giving up");
+					e.printStackTrace();
+					El.quit();
+					return;
+				}
+			}
+			for (final String name : names)
+				run(comSystem, name, conf.heartbeatPeriodInSeconds, serviceTimeMarginMillis,
+						() -> internalsFactory.createInternals(confFile, comSystem, name), conf.commsTimeoutMillis,
+						conf.statusWindowMillis, conf.signalCapacity, conf.signalPolicy, multiplexer);
 		}, conf.timeRate).join();
 	}
 
@@ -66,17 +86,65 @@ public class PltUtils {
 	public static <B extends Bay<B>> void run(ComSystem comSystem, String agentName, final int heartbeatPeriodInSeconds,
 			long serviceTimeMarginMillis, final FailingFactory<PlatformInternals<B>> internalsFactory,
 			long commsTimeoutMillis) {
+		run(comSystem, agentName, heartbeatPeriodInSeconds, serviceTimeMarginMillis, internalsFactory,
+				commsTimeoutMillis, 0);
+	}
+
+	/**
+	 * Runs a Platform as {@link #run(ComSystem, String, int, long, FailingFactory, long)}
+	 * does, merging the bay updates sent to the tower.
+	 * 
+	 * @param statusWindowMillis how long bay updates are merged into a single
+	 *                           status indication, 0 to send each at once
+	 */
+	public static <B extends Bay<B>> void run(ComSystem comSystem, String agentName, final int heartbeatPeriodInSeconds,
+			long serviceTimeMarginMillis, final FailingFactory<PlatformInternals<B>> internalsFactory,
+			long commsTimeoutMillis, long statusWindowMillis) {
+		run(comSystem, agentName, heartbeatPeriodInSeconds, serviceTimeMarginMillis, internalsFactory,
+				commsTimeoutMillis, statusWindowMillis, AsyncSignalPublisher.DEFAULT_CAPACITY,
+				AsyncSignalPublisher.Policy.DROP_OLDEST);
+	}
+
+	/**
+	 * As above, publishing the signals through an {@link AsyncSignalPublisher}
+	 * with the given capacity and policy.
+	 */
+	public static <B extends Bay<B>> void run(ComSystem comSystem, String agentName, final int heartbeatPeriodInSeconds,
+			long serviceTimeMarginMillis, final FailingFactory<PlatformInternals<B>> internalsFactory,
+			long commsTimeoutMillis, long statusWindowMillis, int signalCapacity,
+			AsyncSignalPublisher.Policy signalPolicy) {
+		run(comSystem, agentName, heartbeatPeriodInSeconds, serviceTimeMarginMillis, internalsFactory,
+				commsTimeoutMillis, statusWindowMillis, signalCapacity, signalPolicy, null);
+	}
+
+	/**
+	 * As above, for a Platform hosted in a process with others: its heartbeats
+	 * are sent in bundles by the given multiplexer, or alone when null.
+	 * 
+	 * @param multiplexer the multiplexer of the process, on the current event
+	 *                    loop
+	 */
+	public static <B extends Bay<B>> void run(ComSystem comSystem, String agentName, final int heartbeatPeriodInSeconds,
+			long serviceTimeMarginMillis, final FailingFactory<PlatformInternals<B>> internalsFactory,
+			long commsTimeoutMillis, long statusWindowMillis, int signalCapacity,
+			AsyncSignalPublisher.Policy signalPolicy, HeartbeatMultiplexer multiplexer) {
 		try {
 			final var agent = comSystem.createAgent(agentName);
 			final var internals = internalsFactory.create();
 			try {
-				final var lifecycleManager = new LifecycleManager(comSystem, agentName, heartbeatPeriodInSeconds,
-						HeartbeatIds.PLT, HeartbeatIds.TOWER);
+				final var lifecycleManager = multiplexer == null
+						? new LifecycleManager(comSystem, agentName, heartbeatPeriodInSeconds, HeartbeatIds.PLT,
+								HeartbeatIds.TOWER)
+						: new LifecycleManager(comSystem, multiplexer, agentName, heartbeatPeriodInSeconds,
+								HeartbeatIds.PLT, HeartbeatIds.TOWER, 0);
 				El.addQuitEvent(() -> lifecycleManager.close());
+				final var publisher = new AsyncSignalPublisher(comSystem.createEmitter(agentName), signalCapacity,
+						signalPolicy).start();
+				El.addQuitEvent(publisher::close);
 				new PlatformLogics<B>((tmr) -> new StandardPlatformMessaging(El.executor(), agent, tmr),
-						lifecycleManager::addAgentLifecycleListener,
-						new ComSystemEventEmitter(comSystem.createEmitter(agentName)), commsTimeoutMillis,
-						serviceTimeMarginMillis, agent.getName()).setModel(internals);
+						lifecycleManager::addAgentLifecycleListener, new ComSystemEventEmitter(publisher),
+						commsTimeoutMillis, serviceTimeMarginMillis, statusWindowMillis, agent.getName())
+						.setModel(internals);
 				lifecycleManager.start();
 				System.out.println("Platform running. Press ^C to exit");
 			} catch (final Exception e) {
@@ -28,9 +28,13 @@ import com.cellply.invosys.agent.MockCallContext;
 import com.cellply.invosys.agent.OutgoingInvocation;
 
 import eventloop.El;
+import eventloop.RpcMetrics;
+import eventloop.RpcMetrics.Key;
 import mars.messages.CannotStartPsException;
 import mars.messages.DroneLandedIndication;
 import mars.messages.GeoCoord;
+import mars.messages.HeartbeatIds;
+import mars.messages.MessageNames;
 import mars.messages.PayloadBay;
 import mars.messages.PlatformAlarms;
 import mars.messages.PlatformQuitRequest;
@@ -125,7 +129,7 @@ class PlatformLogicsTest {
 		when(testEnv.pm.sendPsCompletedIndication(new PsCompletedIndication(34, pltName)))
 				.thenReturn(OutgoingInvocation.completed(new PsCompletedConfirm()));
 		when(testEnv.pm.sendPlatformStatusIndication(
-				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), null, SVC_MILLIS))))
+				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), null, SVC_MILLIS), 1)))
 						.thenReturn(OutgoingInvocation.completed(new PlatformStatusConfirm()));
 
 		// when
@@ -154,7 +158,7 @@ class PlatformLogicsTest {
 
 		// then
 		verify(testEnv.pm).sendPlatformStatusIndication(
-				new PlatformStatusIndication(new PlatformStatus(34, new PlatformAlarms(true, false), any(), 60_000)));
+				new PlatformStatusIndication(new PlatformStatus(34, new PlatformAlarms(true, false), any(), 60_000), 1));
 		verifyNoMoreInteractions(automationSystem);
 		verifyNoMoreInteractions(testEnv.pm);
 		verify(eventEmitter).emitFlangeUnavailable(true);
@@ -171,7 +175,7 @@ class PlatformLogicsTest {
 
 		// then
 		verify(testEnv.pm).sendPlatformStatusIndication(
-				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), any(), SVC_MILLIS)));
+				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), any(), SVC_MILLIS), 1));
 		verifyNoMoreInteractions(testEnv.pm);
 		verify(eventEmitter).emitFlangeUnavailable(false);
 	}
@@ -186,7 +190,7 @@ class PlatformLogicsTest {
 		when(testEnv.pm.sendPsCompletedIndication(new PsCompletedIndication(34, pltName)))
 				.thenReturn(OutgoingInvocation.failed(new Exception()));
 		when(testEnv.pm.sendPlatformStatusIndication(
-				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), null, SVC_MILLIS))))
+				new PlatformStatusIndication(new PlatformStatus(null, noAlarms(), null, SVC_MILLIS), 1)))
 						.thenReturn(OutgoingInvocation.completed(new PlatformStatusConfirm()));
 
 		// when
@@ -276,7 +280,7 @@ class PlatformLogicsTest {
 		initWith(bay1);
 
 		when(testEnv.pm.sendPlatformStatusIndication(new PlatformStatusIndication(new PlatformStatus(null, noAlarms(),
-				withBays(bay(1, withPayload("PL1", "PT1", 1d, null))), SVC_MILLIS))))
+				withBays(bay(1, withPayload("PL1", "PT1", 1d, null))), SVC_MILLIS), 1)))
 						.thenReturn(OutgoingInvocation.completed(new PlatformStatusConfirm()));
 
 		// when
@@ -306,6 +310,24 @@ class PlatformLogicsTest {
 		assertTrue(quitCs.isDone());
 	}
 
+	@Test
+	void quitPlatformIsRecordedForTheTowerAgent() throws Exception {
+		// given
+		when(testEnv.pm.sendPlatformQuitRequest(new PlatformQuitRequest(pltName))).thenReturn(
+				OutgoingInvocation.completed(new PlatformQuitResponse(34, testEnv.at(2, ChronoUnit.MINUTES))));
+
+		testEnv.runEventAndWait(0, () -> {
+			// when
+			testEnv.all.agentDiscovered("TOWER 7", HeartbeatIds.TOWER);
+			out.quit();
+		});
+
+		// then
+		assertTrue(RpcMetrics.CALLS.snapshot().containsKey(new Key(MessageNames.PLATFORM_QUIT_REQUEST, "TOWER 7")));
+		assertFalse(RpcMetrics.CALLS.snapshot()
+				.containsKey(new Key(MessageNames.PLATFORM_QUIT_REQUEST, HeartbeatIds.TOWER)));
+	}
+
 	@Test
 	void quitPlatformError() throws Exception {
 		// given
@@ -0,0 +1,94 @@
+package mars.platform.logics.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import mars.messages.PayloadBay;
+import mars.messages.PlatformAlarms;
+import mars.messages.PlatformStatus;
+import mars.messages.PlatformStatusIndication;
+import mars.platform.logics.StatusPublisher;
+import mars.utils.test.ElTestSupport;
+
+class StatusPublisherTest {
+	private static final long WINDOW = 200;
+
+	private final ElTestSupport support = new ElTestSupport();
+	private final List<String> sent = new ArrayList<>();
+	private StatusPublisher out;
+
+	private void send(PlatformStatusIndication indication) {
+		final PlatformStatus s = indication.status();
+		final StringBuilder b = new StringBuilder();
+		b.append(s.readyPsId()).append(s.alarms().isUnavailable() ? " alarm" : "").append(" [");
+		if (s.payloadBays() != null)
+			s.payloadBays().forEach(bay -> b.append(bay.bayId()).append(":").append(bay.prepareMillis()).append(" "));
+		sent.add(b.toString().trim() + "] @" + El.nowMillis() % 3_600_000);
+	}
+
+	private static PlatformStatus status(Integer readyPsId, boolean alarm, PayloadBay... bays) {
+		return new PlatformStatus(readyPsId, new PlatformAlarms(alarm, false), bays.length == 0 ? null : List.of(bays),
+				1_000);
+	}
+
+	private static PayloadBay bay(int id, long prepareMillis) {
+		return new PayloadBay(id, null, prepareMillis);
+	}
+
+	@Test
+	void testNoWindowSendsEachUpdate() throws Exception {
+		out = new StatusPublisher(0, this::send);
+		support.runEventAndWait(1_000, () -> {
+			out.publish(status(null, false, bay(1, 10)));
+			out.publish(status(null, false, bay(2, 10)));
+		});
+		assertEquals(List.of("null [1:10] @0", "null [2:10] @0"), sent);
+		assertEquals(0, out.coalesced());
+	}
+
+	@Test
+	void testBayUpdatesAreMergedOverTheWindow() throws Exception {
+		out = new StatusPublisher(WINDOW, this::send);
+		support.runEventAndWait(2_000, () -> {
+			for (int i = 0; i < 40; i++)
+				out.publish(status(null, false, bay(i % 4, i)));
+			out.publish(status(7, false));
+			El.setTimeout(WINDOW + 10, out::confirmed);
+		});
+		assertEquals(List.of("7 [0:36 1:37 2:38 3:39] @200"), sent);
+		assertEquals(41, out.updates());
+		assertEquals(1, out.indications());
+		assertEquals(40, out.coalesced());
+	}
+
+	@Test
+	void testWaitsForTheConfirmOfThePreviousIndication() throws Exception {
+		out = new StatusPublisher(WINDOW, this::send);
+		support.runEventAndWait(2_000, () -> {
+			out.publish(status(null, false, bay(1, 1)));
+			El.setTimeout(WINDOW + 10, () -> out.publish(status(null, false, bay(2, 2))));
+			El.setTimeout(WINDOW + 20, () -> out.publish(status(null, false, bay(1, 3))));
+			El.setTimeout(1_000, out::confirmed);
+			El.setTimeout(1_100, out::confirmed);
+		});
+		assertEquals(List.of("null [1:1] @200", "null [2:2 1:3] @1000"), sent);
+	}
+
+	@Test
+	void testAlarmsAreSentAtOnce() throws Exception {
+		out = new StatusPublisher(WINDOW, this::send);
+		support.runEventAndWait(2_000, () -> {
+			out.publish(status(null, false, bay(1, 1)));
+			El.setTimeout(50, () -> out.publish(status(null, true)));
+			El.setTimeout(60, () -> out.publish(status(null, true, bay(2, 2))));
+			El.setTimeout(70, () -> out.publish(status(null, false)));
+		});
+		assertEquals(List.of("null alarm [1:1] @50", "null [2:2] @70"), sent);
+		assertEquals(2, out.coalesced());
+	}
+}
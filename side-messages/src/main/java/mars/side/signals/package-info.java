@@ -0,0 +1,7 @@
+/**
+ * Codecs for these records are generated at compile time.
+ */
+@GenerateCodecs
+package mars.side.signals;
+
+import mars.codec.GenerateCodecs;
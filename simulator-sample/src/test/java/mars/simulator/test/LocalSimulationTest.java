@@ -0,0 +1,140 @@
+package mars.simulator.test;
+
+import static java.util.stream.Collectors.toSet;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import eventloop.El;
+import eventloop.EventLoop;
+import mars.comm.AsyncSignalPublisher;
+import mars.comm.LocalComSystem;
+import mars.heartbeat.HeartbeatMultiplexer;
+import mars.heartbeat.LifecycleManager;
+import mars.mc.McComms;
+import mars.mc.McCommsListener;
+import mars.mc.McUtils;
+import mars.messages.GeoCoord;
+import mars.messages.PsDemandRequest;
+import mars.messages.PsDemandResponse;
+import mars.platform.logics.Payload;
+import mars.platform.sim.PltUtils;
+import mars.platform.sim.SimulativeBay;
+import mars.platform.sim.dummy.DummyAutomationSystem;
+import mars.platform.sim.dummy.DummyPlatformInternals;
+import mars.simulation.SimUtils;
+import mars.tower.Planner;
+import mars.tower.Tower;
+
+/**
+ * Runs a tower, a platform and an MC in this JVM, each on its own loop, over a
+ * {@link LocalComSystem}.
+ */
+class LocalSimulationTest {
+	private static final int HEARTBEAT_SECONDS = 1;
+	private static final long COMMS_TIMEOUT_MILLIS = 2_000;
+	private static final long RETRY_MILLIS = 250;
+
+	private final LocalComSystem comSystem = new LocalComSystem();
+	private final List<EventLoop> loops = new ArrayList<>();
+	private final List<Thread> threads = new ArrayList<>();
+
+	private void run(String name, Runnable agent) {
+		threads.add(SimUtils.runSimulator(comSystem, name, c -> {
+			synchronized (loops) {
+				loops.add(El.current());
+			}
+			agent.run();
+		}, null));
+	}
+
+	@AfterEach
+	void quit() throws InterruptedException {
+		synchronized (loops) {
+			loops.forEach(loop -> loop.exec(El::quit));
+		}
+		for (final Thread thread : threads)
+			thread.join(5_000);
+		comSystem.close();
+	}
+
+	private void runPlatform(String name, HeartbeatMultiplexer multiplexer) {
+		PltUtils.run(comSystem, name, HEARTBEAT_SECONDS, 10_000, () -> {
+			final var automationSystem = new DummyAutomationSystem(comSystem, name, El.executor());
+			automationSystem.getPayloadBays().add(new SimulativeBay(1, Optional.of(new Payload("PT1", "P1")), 1, 0));
+			final var internals = new DummyPlatformInternals(automationSystem);
+			internals.setGeoCoord(new GeoCoord(8.5, 44.5));
+			return internals;
+		}, COMMS_TIMEOUT_MILLIS, 0, AsyncSignalPublisher.DEFAULT_CAPACITY, AsyncSignalPublisher.Policy.DROP_OLDEST,
+				multiplexer);
+	}
+
+	@Test
+	void testTowerOffersThePlatformToTheMc() throws Exception {
+		run("TOWER", () -> Tower.run(comSystem, "TOWER", HEARTBEAT_SECONDS, Planner.NULL, 10_000, 10_000,
+				COMMS_TIMEOUT_MILLIS));
+		run("PLT1", () -> runPlatform("PLT1", null));
+
+		verifyOffered(List.of("PLT1"));
+	}
+
+	@Test
+	void testPlatformsOfOneProcessAreDiscoveredThroughTheirBundledHeartbeats() throws Exception {
+		run("TOWER", () -> Tower.run(comSystem, "TOWER", HEARTBEAT_SECONDS, Planner.NULL, 10_000, 10_000,
+				COMMS_TIMEOUT_MILLIS));
+		run("PLTS", () -> {
+			try {
+				final var multiplexer = LifecycleManager.multiplexer(comSystem, "PLTS", HEARTBEAT_SECONDS);
+				runPlatform("PLT1", multiplexer);
+				runPlatform("PLT2", multiplexer);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+
+		verifyOffered(List.of("PLT1", "PLT2"));
+	}
+
+	private void verifyOffered(List<String> platforms) {
+		@SuppressWarnings("unchecked")
+		final McCommsListener<Integer> listener = mock(McCommsListener.class);
+		final AtomicReference<McComms<Integer>> comms = new AtomicReference<>();
+		final AtomicInteger requestId = new AtomicInteger();
+		final Runnable demand = () -> comms.get().sendPsDemandRequest(
+				new PsDemandRequest(requestId.incrementAndGet(), "PT1", Instant.now().plusSeconds(600)),
+				requestId.get());
+		doAnswer(i -> {
+			demand.run();
+			return null;
+		}).when(listener).onTowerDiscovered(any());
+		// until the tower knows the platforms
+		final Predicate<PsDemandResponse> offered = r -> r.psPlatformAvailabilities().stream()
+				.map(a -> a.platformId()).collect(toSet()).containsAll(platforms);
+		doAnswer(i -> El.setTimeout(RETRY_MILLIS, demand::run)).when(listener).onPsDemandError(any(), any());
+		doAnswer(i -> offered.test(i.getArgument(0)) ? null : El.setTimeout(RETRY_MILLIS, demand::run))
+				.when(listener).onPsDemandResponse(any(), any());
+		run("MC1", () -> McUtils.<Integer>start(comSystem, "MC1", (c, sideComms) -> {
+			comms.set(c);
+			c.setListener(listener);
+		}, COMMS_TIMEOUT_MILLIS, HEARTBEAT_SECONDS));
+
+		verify(listener, timeout(20_000)).onPsDemandResponse(argThat(offered::test), anyInt());
+	}
+}
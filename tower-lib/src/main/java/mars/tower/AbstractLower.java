@@ -16,6 +16,7 @@ import mars.messages.AnomalyIndication;
 import mars.messages.DroneLandedConfirm;
 import mars.messages.DroneLandedIndication;
 import mars.messages.HeartbeatIds;
+import mars.messages.MessageNames;
 import mars.messages.PlatformAssignmentConfirm;
 import mars.messages.PlatformAssignmentIndication;
 import mars.messages.PlatformCylinderEnterRequest;
@@ -206,7 +207,8 @@ public abstract class AbstractLower<T> {
 			final PlatformAssignmentIndication ind) {
 		LOGGER.info("->> [{}] {}", destAgentName, ind);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendPlatformAssignmentIndication(destAgentName, ind), commsTimeoutTwr,
+		ElUtils.process(MessageNames.PLATFORM_ASSIGNMENT_INDICATION, destAgentName,
+				messaging.sendPlatformAssignmentIndication(destAgentName, ind), commsTimeoutTwr,
 				r -> onPlatformAssignmentConfirm(r, ps), t -> onPlatformAssignmentIndicationError(t, ps),
 				() -> onPlatformAssignmentIndicationTimeout(ps));
 	}
@@ -220,7 +222,8 @@ public abstract class AbstractLower<T> {
 	protected void sendReadyPsRequest(String destAgentName, ReadyPsRequest req, T ps) {
 		LOGGER.info("->> [{}] {} ", destAgentName, req);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendReadyPsRequest(destAgentName, req), commsTimeoutTwr,
+		ElUtils.process(MessageNames.READY_PS_REQUEST, destAgentName,
+				messaging.sendReadyPsRequest(destAgentName, req), commsTimeoutTwr,
 				r -> onReadyPsResponse(destAgentName, r, ps), t -> onReadyPsRequestError(t, ps),
 				() -> onReadyPsRequestTimeout(ps));
 	}
@@ -234,7 +237,8 @@ public abstract class AbstractLower<T> {
 	protected void sendDroneLandedIndication(String destAgentName, DroneLandedIndication ind, T ps) {
 		LOGGER.info("->> [{}] {}", destAgentName, ind);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendDroneLandedIndication(destAgentName, ind), commsTimeoutTwr,
+		ElUtils.process(MessageNames.DRONE_LANDED_INDICATION, destAgentName,
+				messaging.sendDroneLandedIndication(destAgentName, ind), commsTimeoutTwr,
 				r -> onDroneLandedConfirm(destAgentName, r, ps), t -> onDroneLandedIndicationError(t, ps),
 				() -> onDroneLandedIndicationTimeout(ps));
 	}
@@ -248,7 +252,8 @@ public abstract class AbstractLower<T> {
 	protected void sendPsCompletedIndication(String destAgentName, PsCompletedIndication req, T ps) {
 		LOGGER.info("->> [{}] {}", destAgentName, req);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendPsCompletedIndication(destAgentName, req), commsTimeoutTwr,
+		ElUtils.process(MessageNames.PS_COMPLETED_INDICATION, destAgentName,
+				messaging.sendPsCompletedIndication(destAgentName, req), commsTimeoutTwr,
 				r -> onPsCompletedConfirm(destAgentName, r, ps), t -> onPsCompletedIndicationError(t, ps),
 				() -> onPsCompletedIndicationTimeout(ps));
 	}
@@ -261,21 +266,23 @@ public abstract class AbstractLower<T> {
 
 	protected void sendPlatformStatusRequest(String destAgentName, PlatformStatusRequest req) {
 		LOGGER.info("->> [{}] {}", destAgentName, req);
-		ElUtils.process(messaging.sendPlatformStatusRequest(destAgentName, req), commsTimeoutTwr,
-				r -> onPlatformStatusResponse(destAgentName, r), this::onPlatformStatusRequestError,
-				this::onPlatformStatusRequestTimeout);
+		ElUtils.process(MessageNames.PLATFORM_STATUS_REQUEST, destAgentName,
+				messaging.sendPlatformStatusRequest(destAgentName, req), commsTimeoutTwr,
+				r -> onPlatformStatusResponse(destAgentName, r), t -> onPlatformStatusRequestError(destAgentName, t),
+				() -> onPlatformStatusRequestTimeout(destAgentName));
 	}
 
 	protected abstract void onPlatformStatusResponse(String pltName, PlatformStatusResponse r);
 
-	protected abstract void onPlatformStatusRequestError(Throwable t);
+	protected abstract void onPlatformStatusRequestError(String pltName, Throwable t);
 
-	protected abstract void onPlatformStatusRequestTimeout();
+	protected abstract void onPlatformStatusRequestTimeout(String pltName);
 
 	public void sendPsAbortToMc(String destAgentName, PsAbortIndication ind, T ps) {
 		LOGGER.info("->> [{}] {}", destAgentName, ind);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendPsAbortIndication(destAgentName, ind), commsTimeoutTwr,
+		ElUtils.process(MessageNames.PS_ABORT_INDICATION, destAgentName,
+				messaging.sendPsAbortIndication(destAgentName, ind), commsTimeoutTwr,
 				r -> onPsAbortToMcConfirm(destAgentName, r, ps), t -> onPsAbortToMcIndicationError(t, ps),
 				() -> onPsAbortToMcIndicationTimeout(ps));
 	}
@@ -289,7 +296,8 @@ public abstract class AbstractLower<T> {
 	protected void sendPsAbortToPlt(String destAgentName, PsAbortIndication ind, T ps) {
 		LOGGER.info("->> [{}] {}", destAgentName, ind);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendPsAbortIndication(destAgentName, ind), commsTimeoutTwr,
+		ElUtils.process(MessageNames.PS_ABORT_INDICATION, destAgentName,
+				messaging.sendPsAbortIndication(destAgentName, ind), commsTimeoutTwr,
 				r -> onPsAbortToPltConfirm(destAgentName, r, ps), t -> onPsAbortToPltIndicationError(t, ps),
 				() -> onPsAbortToPltIndicationTimeout(ps));
 	}
@@ -303,7 +311,8 @@ public abstract class AbstractLower<T> {
 	protected void sendAnomalyIndication(String destAgentName, AnomalyIndication ind, T ps) {
 		LOGGER.info("->> [{}] {}", destAgentName, ind);
 		LOGGER.debug("For PS: {}", ps);
-		ElUtils.process(messaging.sendAnomalyIndication(destAgentName, ind), commsTimeoutTwr,
+		ElUtils.process(MessageNames.ANOMALY_INDICATION, destAgentName,
+				messaging.sendAnomalyIndication(destAgentName, ind), commsTimeoutTwr,
 				r -> onAnomalyConfirm(destAgentName, r, ps), t -> onAnomalyIndicationError(t, ps),
 				() -> onAnomalyIndicationTimeout(ps));
 	}
@@ -132,7 +132,7 @@ public class PitStop {
 		LOGGER.debug("[PS: {}] Reachability update {} ", id, psPlatformReachabilities);
 		this.reachabilities = psPlatformReachabilities;
 		reachabilitiesUpdatedAt = El.now();
-		log(El.now(), new PsLog.ReachabilitiesUpdate(psPlatformReachabilities));
+		log(reachabilitiesUpdatedAt, new PsLog.ReachabilitiesUpdate(psPlatformReachabilities));
 	}
 
 	public List<PsPlatformReachability> getReachabilities() {
@@ -26,16 +26,22 @@ public class Planning {
 		final long deployMillis = 10000;
 		final Instant t0 = El.now().plus(deployMillis, ChronoUnit.MILLIS);
 		final var executor = El.executor();
+		// on virtual time the clock must wait for the plan
+		final Runnable releaseClock = El.holdClock();
 		thread = new Thread(() -> {
-			LOGGER.info("Calling planner");
-			final Plan plan = planner.plan(t0, plannables, planned, platformStates);
-
-			executor.accept(() -> {
-				if (cancelled)
-					LOGGER.info("Planning has been cancelled");
-				else
-					planConsumer.accept(plan);
-			});
+			try {
+				LOGGER.info("Calling planner");
+				final Plan plan = planner.plan(t0, plannables, planned, platformStates);
+
+				executor.accept(() -> {
+					if (cancelled)
+						LOGGER.info("Planning has been cancelled");
+					else
+						planConsumer.accept(plan);
+				});
+			} finally {
+				releaseClock.run();
+			}
 		});
 		LOGGER.info("Starting planner thread");
 		thread.start();
@@ -0,0 +1,125 @@
+package mars.tower;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.agent.OutgoingInvocation;
+
+import eventloop.EventLoop.Event;
+import mars.messages.AnomalyConfirm;
+import mars.messages.AnomalyIndication;
+import mars.messages.DroneLandedConfirm;
+import mars.messages.DroneLandedIndication;
+import mars.messages.PlatformAssignmentConfirm;
+import mars.messages.PlatformAssignmentIndication;
+import mars.messages.PlatformAvailabilityConfirm;
+import mars.messages.PlatformAvailabilityIndication;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsAbortConfirm;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedConfirm;
+import mars.messages.PsCompletedIndication;
+import mars.messages.ReadyPsRequest;
+import mars.messages.ReadyPsResponse;
+
+/**
+ * A {@link TowerMessaging} handing every send over to a single executor, so
+ * that the messaging shared by the shards of a {@link ShardedTower} is only
+ * ever invoked on one thread.
+ * <p>
+ * Each send returns at once an invocation completed as the delegate one, on
+ * the thread delivering the reply. A send rejected by the executor or failing
+ * on it completes exceptionally.
+ *
+ * @author mperrando
+ *
+ */
+public class SerialTowerMessaging implements TowerMessaging {
+	private final static Logger LOGGER = LoggerFactory.getLogger(SerialTowerMessaging.class);
+
+	private final Consumer<Event> executor;
+	private final TowerMessaging delegate;
+
+	public SerialTowerMessaging(Consumer<Event> executor, TowerMessaging delegate) {
+		this.executor = executor;
+		this.delegate = delegate;
+	}
+
+	private <T> OutgoingInvocation<T> send(String message, Supplier<OutgoingInvocation<T>> send) {
+		final OutgoingInvocation<T> result = new OutgoingInvocation<>();
+		final Event event = () -> {
+			try {
+				send.get().whenComplete((r, t) -> {
+					if (t == null)
+						result.complete(r);
+					else
+						result.completeExceptionally(t);
+				});
+			} catch (final RuntimeException e) {
+				LOGGER.error("Cannot send {}", message, e);
+				result.completeExceptionally(e);
+			}
+		};
+		try {
+			executor.accept(event);
+		} catch (final RuntimeException e) {
+			LOGGER.error("Cannot schedule {}", message, e);
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	@Override
+	public OutgoingInvocation<PsAbortConfirm> sendPsAbortIndication(String destAgentName, PsAbortIndication psAbort) {
+		return send("PsAbortIndication", () -> delegate.sendPsAbortIndication(destAgentName, psAbort));
+	}
+
+	@Override
+	public OutgoingInvocation<PlatformStatusResponse> sendPlatformStatusRequest(String destAgentName,
+			PlatformStatusRequest platformStatusRequest) {
+		return send("PlatformStatusRequest",
+				() -> delegate.sendPlatformStatusRequest(destAgentName, platformStatusRequest));
+	}
+
+	@Override
+	public OutgoingInvocation<ReadyPsResponse> sendReadyPsRequest(String destAgentName, ReadyPsRequest readyPsRequest) {
+		return send("ReadyPsRequest", () -> delegate.sendReadyPsRequest(destAgentName, readyPsRequest));
+	}
+
+	@Override
+	public OutgoingInvocation<DroneLandedConfirm> sendDroneLandedIndication(String destAgentName,
+			DroneLandedIndication droneLandedIndication) {
+		return send("DroneLandedIndication",
+				() -> delegate.sendDroneLandedIndication(destAgentName, droneLandedIndication));
+	}
+
+	@Override
+	public OutgoingInvocation<PsCompletedConfirm> sendPsCompletedIndication(String destAgentName,
+			PsCompletedIndication psCompletedIndication) {
+		return send("PsCompletedIndication",
+				() -> delegate.sendPsCompletedIndication(destAgentName, psCompletedIndication));
+	}
+
+	@Override
+	public OutgoingInvocation<PlatformAssignmentConfirm> sendPlatformAssignmentIndication(String destAgentName,
+			PlatformAssignmentIndication platformAssignmentIndication) {
+		return send("PlatformAssignmentIndication",
+				() -> delegate.sendPlatformAssignmentIndication(destAgentName, platformAssignmentIndication));
+	}
+
+	@Override
+	public OutgoingInvocation<PlatformAvailabilityConfirm> sendPlatformAvailabilityIndication(String destAgentName,
+			PlatformAvailabilityIndication platformAvailabilityIndication) {
+		return send("PlatformAvailabilityIndication",
+				() -> delegate.sendPlatformAvailabilityIndication(destAgentName, platformAvailabilityIndication));
+	}
+
+	@Override
+	public OutgoingInvocation<AnomalyConfirm> sendAnomalyIndication(String destAgentName, AnomalyIndication ind) {
+		return send("AnomalyIndication", () -> delegate.sendAnomalyIndication(destAgentName, ind));
+	}
+}
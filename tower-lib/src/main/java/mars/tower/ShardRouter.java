@@ -0,0 +1,288 @@
+package mars.tower;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.agent.CallContext;
+
+import eventloop.EventLoop.Event;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.messages.DroneLandedIndication;
+import mars.messages.HeartbeatIds;
+import mars.messages.PlatformCylinderEnterRequest;
+import mars.messages.PlatformCylinderLeftIndication;
+import mars.messages.PlatformQuitRequest;
+import mars.messages.PlatformReachabilityIndication;
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedIndication;
+import mars.messages.PsDemandRequest;
+import mars.tower.comms.McMessageReceiver;
+import mars.tower.comms.PlatformMessageReceiver;
+
+/**
+ * Routes the incoming messages and the agent lifecycle events of a
+ * {@link ShardedTower} to the owning {@link TowerShard}.
+ * <p>
+ * Platforms are partitioned by the hash of their name, pit stops by their id:
+ * shard {@code k} of {@code n} numbers its pit stops {@code k + 1},
+ * {@code k + 1 + n}, ... A {@link PsDemandRequest} is the only message that
+ * needs the shards to coordinate: all of them are asked how many platforms
+ * they have with the requested payload type, and the pit stop is created on
+ * the least loaded one that has some. The loads may be stale by then: if that
+ * shard has no platform for the demand any more, the other shards are asked
+ * in turn, and the demand fails only when none has one. From then on the pit
+ * stop lives on the shard that has accepted it, which plans it on its own
+ * platforms only.
+ * <p>
+ * The receivers can be called on any thread, so the messaging feeding the
+ * router can use the {@link #DIRECT_EXECUTOR}.
+ *
+ * @author mperrando
+ *
+ */
+public class ShardRouter implements PlatformMessageReceiver, McMessageReceiver, AgentLifecycleListener {
+	private final static Logger LOGGER = LoggerFactory.getLogger(ShardRouter.class);
+
+	public static final Consumer<Event> DIRECT_EXECUTOR = e -> {
+		try {
+			e.run();
+		} catch (final Throwable t) {
+			LOGGER.error("Cannot route", t);
+		}
+	};
+
+	public static record ShardLoad(int platforms, int pitStops) {
+	}
+
+	private volatile List<TowerShard> shards;
+
+	/**
+	 * Starts routing to the given shards, ordered by index.
+	 */
+	public void start(List<TowerShard> shards) {
+		this.shards = List.copyOf(shards);
+	}
+
+	public static int shardOfPlatform(String pltId, int shardCount) {
+		return Math.floorMod(pltId.hashCode(), shardCount);
+	}
+
+	public static int shardOfPs(int psId, int shardCount) {
+		return Math.floorMod(psId - 1, shardCount);
+	}
+
+	public static int firstPsId(int shard) {
+		return shard + 1;
+	}
+
+	/**
+	 * @return the index of the shard with the fewest pit stops per platform among
+	 *         the ones having some platform, 0 if no shard has any
+	 */
+	public static int leastLoaded(List<ShardLoad> loads) {
+		int best = -1;
+		for (int i = 0; i < loads.size(); i++) {
+			final ShardLoad l = loads.get(i);
+			if (l.platforms() == 0)
+				continue;
+			if (best < 0) {
+				best = i;
+				continue;
+			}
+			final ShardLoad b = loads.get(best);
+			if ((long) l.pitStops() * b.platforms() < (long) b.pitStops() * l.platforms())
+				best = i;
+		}
+		return Math.max(best, 0);
+	}
+
+	private TowerShard platformShard(String pltId) {
+		final List<TowerShard> s = shards;
+		return s.get(shardOfPlatform(pltId, s.size()));
+	}
+
+	private TowerShard psShard(int psId) {
+		final List<TowerShard> s = shards;
+		return s.get(shardOfPs(psId, s.size()));
+	}
+
+	private boolean isReady(CallContext<?> callCtx) {
+		if (shards != null)
+			return true;
+		LOGGER.warn("Not ready yet, refusing call from: {}", callCtx.callingAgentId());
+		callCtx.fail(new IllegalStateException("Tower is not ready"));
+		return false;
+	}
+
+	// From platforms
+
+	@Override
+	public void onPlatformStatus(CallContext<PlatformStatusIndication> callCtx) {
+		if (isReady(callCtx))
+			platformShard(callCtx.callingAgentId()).onPlatformMessage(r -> r.onPlatformStatus(callCtx));
+	}
+
+	@Override
+	public void onPsCompleted(CallContext<PsCompletedIndication> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onPlatformMessage(r -> r.onPsCompleted(callCtx));
+	}
+
+	@Override
+	public void onPlatformQuit(CallContext<PlatformQuitRequest> callCtx) {
+		if (isReady(callCtx))
+			platformShard(callCtx.callingAgentId()).onPlatformMessage(r -> r.onPlatformQuit(callCtx));
+	}
+
+	// From MCs
+
+	@Override
+	public void onPsDemand(CallContext<PsDemandRequest> callCtx) {
+		if (!isReady(callCtx))
+			return;
+		final List<TowerShard> s = shards;
+		final String payloadType = callCtx.params().payloadType();
+		final List<CompletableFuture<ShardLoad>> loads = s.stream()
+				.map(shard -> shard.query(l -> new ShardLoad(l.countPlatformsWithPayloadType(payloadType),
+						l.getPitStops().size())))
+				.collect(toList());
+		CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new)).whenComplete((v, t) -> {
+			if (t != null) {
+				LOGGER.error("Cannot collect shard loads", t);
+				callCtx.fail(new IllegalStateException("Cannot route PS demand", t));
+				return;
+			}
+			final int index = leastLoaded(loads.stream().map(CompletableFuture::join).collect(toList()));
+			new PsDemandFallback(callCtx, s, index).route(0);
+		});
+	}
+
+	@Override
+	public void onPsAbort(CallContext<PsAbortIndication> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onMcMessage(r -> r.onPsAbort(callCtx));
+	}
+
+	@Override
+	public void onPlatformCylinderEnter(CallContext<PlatformCylinderEnterRequest> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onMcMessage(r -> r.onPlatformCylinderEnter(callCtx));
+	}
+
+	@Override
+	public void onDroneLanded(CallContext<DroneLandedIndication> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onMcMessage(r -> r.onDroneLanded(callCtx));
+	}
+
+	@Override
+	public void onPlatformCylinderLeft(CallContext<PlatformCylinderLeftIndication> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onMcMessage(r -> r.onPlatformCylinderLeft(callCtx));
+	}
+
+	@Override
+	public void onPlatformReachability(CallContext<PlatformReachabilityIndication> callCtx) {
+		if (isReady(callCtx))
+			psShard(callCtx.params().psId()).onMcMessage(r -> r.onPlatformReachability(callCtx));
+	}
+
+	// Lifecycle: a platform concerns its shard only, other agents concern all
+
+	@Override
+	public void agentDiscovered(String agentName, String category) {
+		toShards(agentName, category, l -> l.agentDiscovered(agentName, category));
+	}
+
+	@Override
+	public void agentLost(String agentName, String category) {
+		toShards(agentName, category, l -> l.agentLost(agentName, category));
+	}
+
+	@Override
+	public void agentReturned(String agentName, String category) {
+		toShards(agentName, category, l -> l.agentReturned(agentName, category));
+	}
+
+	/*
+	 * Routes a demand to the shards starting from the chosen one, moving to the
+	 * next as long as they have no platform for it. The tower does not use the
+	 * invocation context when executing a demand, so none is given.
+	 */
+	private static class PsDemandFallback implements CallContext<PsDemandRequest> {
+		private final CallContext<PsDemandRequest> callCtx;
+		private final List<TowerShard> shards;
+		private final int first;
+		private int tried;
+
+		PsDemandFallback(CallContext<PsDemandRequest> callCtx, List<TowerShard> shards, int first) {
+			this.callCtx = callCtx;
+			this.shards = shards;
+			this.first = first;
+		}
+
+		void route(int tried) {
+			this.tried = tried;
+			final int index = (first + tried) % shards.size();
+			LOGGER.debug("PS demand for payload type {} routed to shard {}", callCtx.params().payloadType(), index);
+			shards.get(index).onMcMessage(r -> r.onPsDemand(this));
+		}
+
+		@Override
+		public PsDemandRequest params() {
+			return callCtx.params();
+		}
+
+		@Override
+		public String callingAgentId() {
+			return callCtx.callingAgentId();
+		}
+
+		@Override
+		public void exec(Exec<PsDemandRequest> exec) {
+			try {
+				resolve(exec.apply(null, params()));
+			} catch (final Exception e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void resolve(Object result) {
+			callCtx.resolve(result);
+		}
+
+		@Override
+		public void fail(Exception e) {
+			if (e instanceof NoAvailabilityException && tried + 1 < shards.size())
+				route(tried + 1);
+			else
+				callCtx.fail(e);
+		}
+
+		@Override
+		public <R> BiConsumer<R, Throwable> action() {
+			return (r, t) -> {
+				if (t == null)
+					resolve(r);
+				else
+					fail(t instanceof Exception e ? e : new Exception(t));
+			};
+		}
+	}
+
+	private void toShards(String agentName, String category, Consumer<AgentLifecycleListener> c) {
+		if (HeartbeatIds.PLT.equals(category))
+			platformShard(agentName).onLifecycle(c);
+		else
+			shards.forEach(s -> s.onLifecycle(c));
+	}
+}
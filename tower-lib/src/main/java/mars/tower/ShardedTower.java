@@ -0,0 +1,178 @@
+package mars.tower;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.ComSystem;
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import eventloop.El;
+import eventloop.LoopWatchdog;
+import eventloop.LoopWatchdog.Policy;
+import mars.comm.AsyncSignalPublisher;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.heartbeat.LifecycleManager;
+import mars.messages.HeartbeatIds;
+import mars.simulation.SharedConfiguration;
+import mars.tower.comms.McMessageReceiver;
+import mars.tower.comms.PlatformMessageReceiver;
+import mars.tower.comms.StandardTowerMessaging;
+
+/**
+ * A {@link Tower} split in shards, each running on its own thread, so that the
+ * pit stops are processed in parallel.
+ * <p>
+ * Every {@link TowerShard} has its own {@link StandardLower},
+ * {@link WorldModel} and {@link StandardUpper}, and owns a slice of the
+ * platforms together with the pit stops assigned to them; the
+ * {@link ShardRouter} dispatches incoming messages to the owning shard. A
+ * single messaging is shared by all the shards: {@link #run} wraps it in a
+ * {@link SerialTowerMessaging}, so that the agent is only invoked on the main
+ * tower loop, while the replies are handed back to the sending shard.
+ * <p>
+ * The loop of each shard can be watched by a {@link LoopWatchdog}, as the one
+ * of a {@link Tower}; capturing the traffic is not supported, as a
+ * {@link mars.tower.capture.TowerCapture} records a single loop.
+ *
+ * @author mperrando
+ *
+ */
+public class ShardedTower {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(ShardedTower.class);
+
+	private static final long SHARDS_QUIT_WAIT_MILLIS = 5_000;
+
+	private final List<TowerShard> shards = new ArrayList<>();
+	private final List<SignalEmitter> signalEmitters = new ArrayList<>();
+
+	/**
+	 * Runs a {@link ShardedTower} with the given number of shards, configured as
+	 * a {@link Tower}, each shard publishing its signals through an
+	 * {@link AsyncSignalPublisher} closed once the shards have quit, and having
+	 * its loop watched by a {@link LoopWatchdog} when
+	 * {@link SharedConfiguration#stallThresholdMillis} is positive.
+	 *
+	 * The {@link SharedConfiguration#captureFile} must be null: a sharded tower
+	 * cannot be captured.
+	 *
+	 * @see Tower#run(ComSystem, String, Planner, SharedConfiguration)
+	 */
+	public static void run(ComSystem comSystem, String agentName, Planner planner, SharedConfiguration conf,
+			int shardCount) {
+		if (conf.captureFile != null)
+			throw new IllegalArgumentException("A sharded tower cannot be captured");
+		final List<AsyncSignalPublisher> publishers = new ArrayList<>();
+		try {
+			final var lifecycleManager = new LifecycleManager(comSystem, agentName, conf.heartbeatPeriodInSeconds,
+					HeartbeatIds.TOWER, "#", conf.phiThreshold);
+			El.addQuitEvent(() -> lifecycleManager.close());
+			final var agent = comSystem.createAgent(agentName);
+			final var tower = new ShardedTower(shardCount,
+					(pmr, mmr) -> new SerialTowerMessaging(El.executor(),
+							new StandardTowerMessaging(ShardRouter.DIRECT_EXECUTOR, agent, pmr, mmr)),
+					() -> {
+						try {
+							final var publisher = new AsyncSignalPublisher(comSystem.createEmitter(agentName),
+									conf.signalCapacity, conf.signalPolicy).start();
+							publishers.add(publisher);
+							return publisher;
+						} catch (final IOException e) {
+							throw new IllegalStateException("Cannot create signal emitter", e);
+						}
+					}, lifecycleManager::addAgentLifecycleListener, conf.commsTimeoutMillis, conf.landingWaitMillis,
+					conf.psReadyWaitMillis, planner);
+			El.addQuitEvent(() -> {
+				if (!tower.quitAndWait(SHARDS_QUIT_WAIT_MILLIS))
+					LOGGER.warn("Shards still running after {} ms", SHARDS_QUIT_WAIT_MILLIS);
+				publishers.forEach(AsyncSignalPublisher::close);
+			});
+			if (conf.stallThresholdMillis > 0)
+				tower.watch(conf.stallThresholdMillis).forEach(Tower::closeOnQuit);
+			lifecycleManager.start();
+			System.out.println("TOWER running with " + shardCount + " shards. Press ^C to exit");
+		} catch (final IOException | InterruptedException e) {
+			publishers.forEach(AsyncSignalPublisher::close);
+			e.printStackTrace();
+			System.err.println("Cannot create sharded tower, giving up");
+			El.quit();
+		}
+	}
+
+	/**
+	 * Creates the shards and starts routing to them, returning when all are
+	 * ready.
+	 *
+	 * @param shardCount     how many shards to run
+	 * @param messagingMaker creates the {@link TowerMessaging} shared by the
+	 *                       shards, given the receivers of the router; it is
+	 *                       invoked on the shard threads, see
+	 *                       {@link SerialTowerMessaging}
+	 * @param signalEmitters supplies a {@link SignalEmitter} for each shard
+	 * @param allConsumer    receives the {@link AgentLifecycleListener} of the
+	 *                       router
+	 * @see Tower#Tower(BiFunction, SignalEmitter, Consumer, long, long, long,
+	 *      Planner)
+	 */
+	public ShardedTower(int shardCount,
+			BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker,
+			Supplier<SignalEmitter> signalEmitters, Consumer<AgentLifecycleListener> allConsumer,
+			long commsTimeoutMillis, long psReadyWaitMillis, long landingWaitMillis, Planner planner)
+			throws InterruptedException {
+		if (shardCount < 1)
+			throw new IllegalArgumentException("At least one shard is needed");
+		final ShardRouter router = new ShardRouter();
+		final TowerMessaging messaging = messagingMaker.apply(router, router);
+		for (int i = 0; i < shardCount; i++) {
+			final int index = i;
+			final SignalEmitter signalEmitter = signalEmitters.get();
+			this.signalEmitters.add(signalEmitter);
+			shards.add(new TowerShard(index,
+					shard -> new Tower((pmr, mmr) -> shard.bind(pmr, mmr, messaging), signalEmitter, shard::bind,
+							commsTimeoutMillis, psReadyWaitMillis, landingWaitMillis, planner,
+							ShardRouter.firstPsId(index), shardCount)));
+		}
+		router.start(shards);
+		allConsumer.accept(router);
+		LOGGER.info("Started {} shards", shardCount);
+	}
+
+	/**
+	 * Starts watching the loop of each shard, the stalls being signalled as
+	 * errors through the emitter of the shard.
+	 *
+	 * @return the watchdogs, by shard
+	 */
+	public List<LoopWatchdog> watch(long stallThresholdMillis) {
+		final List<LoopWatchdog> watchdogs = new ArrayList<>();
+		for (int i = 0; i < shards.size(); i++)
+			watchdogs.add(new LoopWatchdog(shards.get(i).eventLoop(), stallThresholdMillis, Policy.WARN,
+					Tower.SLOWEST_EVENTS, new ErrorSignaler(signalEmitters.get(i))).start());
+		return watchdogs;
+	}
+
+	public void quit() {
+		shards.forEach(TowerShard::quit);
+	}
+
+	/**
+	 * Quits the shards and waits for their threads to end.
+	 *
+	 * @return whether all the shards have ended in time
+	 */
+	public boolean quitAndWait(long millis) throws InterruptedException {
+		quit();
+		final long deadline = System.currentTimeMillis() + millis;
+		boolean ended = true;
+		for (final TowerShard shard : shards)
+			ended &= shard.awaitQuit(Math.max(deadline - System.currentTimeMillis(), 1));
+		return ended;
+	}
+}
@@ -35,6 +35,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import eventloop.El;
+import eventloop.EventLoop;
 import mars.agent.OnlineStatus;
 import mars.heartbeat.AgentLifecycleListener;
 import mars.messages.AnomalyConfirm;
@@ -82,11 +83,13 @@ import mars.utils.ListenerNotifier;
 public class StandardLower extends AbstractLower<PitStop> implements Lower, Actions {
 
 	private final Consumer<Throwable> onError;
-	private int nextPsId = 1;
+	private int nextPsId;
+	private final int psIdStep;
 	private final PlanUpdater planUpdater = new PlanUpdater(this);
 	private final long psLandingWaitMillis;
 	private final ListenerNotifier<PsListener> listenerNotifier = new ListenerNotifier<>();
 	private final long halfMarginMillis;
+	private final StatusSequences statusSequences = new StatusSequences();
 	private final PsListener repeater = new PsListener() {
 		@Override
 		public void stateUpdate(PitStop ps, PsState old, PsState state) {
@@ -108,7 +111,22 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 			BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker,
 			Consumer<AgentLifecycleListener> allConsumer, Consumer<Throwable> onError, long commsTimeoutTwr,
 			long landingWaitMillis, long halfMarginMillis) {
+		this(worldModel, messagingMaker, allConsumer, onError, commsTimeoutTwr, landingWaitMillis, halfMarginMillis, 1,
+				1);
+	}
+
+	/**
+	 * Creates a {@link StandardLower} that numbers its {@link PitStop}s as
+	 * {@code firstPsId}, {@code firstPsId + psIdStep}, ... so that the lowers of
+	 * a {@link ShardedTower} never clash on ids.
+	 */
+	public StandardLower(WorldModel worldModel,
+			BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker,
+			Consumer<AgentLifecycleListener> allConsumer, Consumer<Throwable> onError, long commsTimeoutTwr,
+			long landingWaitMillis, long halfMarginMillis, int firstPsId, int psIdStep) {
 		super(worldModel, messagingMaker, allConsumer, commsTimeoutTwr);
+		this.nextPsId = firstPsId;
+		this.psIdStep = psIdStep;
 		this.psLandingWaitMillis = landingWaitMillis;
 		this.halfMarginMillis = halfMarginMillis;
 		this.onError = onError;
@@ -213,7 +231,8 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 	protected PsDemandResponse onPsDemandRequest(final String mcId, final PsDemandRequest request)
 			throws NoAvailabilityException {
 		LOGGER.info("<<-[{}] {}", mcId, request);
-		final var ps = new PitStop(nextPsId++);
+		final var ps = new PitStop(nextPsId);
+		nextPsId += psIdStep;
 		LOGGER.debug("PS: {}", ps);
 		insertNewPitstop(ps);
 		ps.addPsListener(repeater);
@@ -226,6 +245,13 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 		return new PsDemandResponse(request.requestId(), ps.id, platforms);
 	}
 
+	/**
+	 * @return how many of the known platforms have a payload of the given type
+	 */
+	public int countPlatformsWithPayloadType(String payloadType) {
+		return platformsForPayloadType(payloadType).size();
+	}
+
 	@Override
 	protected PlatformReachabilityConfirm onPlatformReachabilityIndication(PlatformReachabilityIndication p) {
 		LOGGER.info("<<- {} ", p);
@@ -252,9 +278,11 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 	protected void onPlatformAssignmentConfirm(PlatformAssignmentConfirm r, PitStop ps) {
 		info(ps, "<<- {}", r);
 		ps.checkState(() -> {
+			final EventLoop el = El.current();
+			final Instant now = el.now_();
 			final Instant maxArrivalTime = getMaxArrivalTime(ps);
-			if (maxArrivalTime.isAfter(now())) {
-				ps.tooLateOnArrivalTimeout = setTimeout(now().until(maxArrivalTime, MILLIS), () -> {
+			if (maxArrivalTime.isAfter(now)) {
+				ps.tooLateOnArrivalTimeout = el.setTimeout_(now.until(maxArrivalTime, MILLIS), () -> {
 					error(ps, new TimeoutException(), "Aborting for timeout on arrival time");
 					abortPs(ps);
 				});
@@ -293,14 +321,16 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 			ps.tooLateOnArrivalTimeout.cancel();
 			ps.pendingCylinderEntereFuture(f);
 			ps.checkState(() -> {
+				final EventLoop el = El.current();
+				final Instant now = el.now_();
 				final Instant maxArrivalTime = getMaxArrivalTime(ps);
 				LOGGER.debug("maxArrivalTime: {}", maxArrivalTime);
 				final Instant minArrivalTime = getMinArrivalTime(ps);
 				LOGGER.debug("minArrivalTime: {}", minArrivalTime);
-				if (minArrivalTime.isAfter(now()) || maxArrivalTime.isBefore(now())) {
+				if (minArrivalTime.isAfter(now) || maxArrivalTime.isBefore(now)) {
 					error(ps, new TimeoutException(),
 							"Aborting for not in time on arrival, expected at: {} arrival at: {}", ps.arrivalTime(),
-							now());
+							now);
 					ps.failCylinderEnterFutureIfPending(new RuntimeException("PS not in time on arrival"));
 					abortPs(ps);
 				} else {
@@ -309,7 +339,7 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 						authorizeLanding(ps);
 					} else if (isEngaged(ps)) {
 						info(ps, "platform is preparing ");
-						ps.waitingPsReadyTimeout = setTimeout(now().until(maxArrivalTime, MILLIS), () -> {
+						ps.waitingPsReadyTimeout = el.setTimeout_(now.until(maxArrivalTime, MILLIS), () -> {
 							error(ps, new TimeoutException(), "platform did not prepare PS in time, aborting");
 							ps.failCylinderEnterFutureIfPending(new TimeoutException("Platform is not ready"));
 							abortPs(ps);
@@ -522,6 +552,11 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 	@Override
 	protected void onPlatformStatusResponse(String pltName, PlatformStatusResponse r) {
 		LOGGER.info("<<- {}", r);
+		if (!statusSequences.snapshot(pltName, r.seq())) {
+			LOGGER.warn("Status of {} is older than its last indication, requesting it again", pltName);
+			sendPlatformStatusRequest(pltName, new PlatformStatusRequest());
+			return;
+		}
 		final mars.messages.PlatformStatus status = r.status().normalize();
 		final var s = new PlatformStatus(pltName, status.readyPsId(), r.geoCoord(), OnlineStatus.ONLINE,
 				status.alarms(), status.serviceMillis(), status.payloadBays());
@@ -530,26 +565,28 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 
 	@Override
 	protected void onPlatformDiscovered(String agentName) {
+		statusSequences.forget(agentName);
+		statusSequences.requested(agentName);
 		sendPlatformStatusRequest(agentName, new PlatformStatusRequest());
 	}
 
 	@Override
 	protected void onPlatformLost(String agentName) {
+		statusSequences.forget(agentName);
 		worldModel.updatePlatform(agentName,
 				new PlatformStatus(agentName, null, null, OnlineStatus.LOST, null, 0, null));
 	}
 
 	@Override
-	protected void onPlatformStatusRequestError(Throwable t) {
-		LOGGER.warn(
-				"Error in PlatformStatusResponse. No more requests will be done. Waiting for spontaneous indication.",
-				t);
+	protected void onPlatformStatusRequestError(String pltName, Throwable t) {
+		LOGGER.warn("Error in PlatformStatusResponse from {}. Waiting for spontaneous indication.", pltName, t);
+		statusSequences.failed(pltName);
 	}
 
 	@Override
-	protected void onPlatformStatusRequestTimeout() {
-		LOGGER.warn(
-				"Timeout in PlatformStatusResponse. No more requests will be done. Waiting for spontaneous indication.");
+	protected void onPlatformStatusRequestTimeout(String pltName) {
+		LOGGER.warn("Timeout in PlatformStatusResponse from {}. Waiting for spontaneous indication.", pltName);
+		statusSequences.failed(pltName);
 	}
 
 	@Override
@@ -562,7 +599,17 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 			LOGGER.error("status: {} contains one or more unknown bay ids", indication);
 			throw new IllegalArgumentException("Indication contains one or more unknown bay ids");
 		}
+		final var verdict = statusSequences.indication(pltId, indication.seq());
+		if (verdict == StatusSequences.Verdict.STALE) {
+			LOGGER.warn("Ignoring stale status indication {} from {}", indication.seq(), pltId);
+			return new PlatformStatusConfirm();
+		}
 		updatePlatformStatus(pltId, receivedStatus);
+		if (verdict == StatusSequences.Verdict.RESYNC) {
+			LOGGER.warn("Missed status indications from {} before {}, requesting its status", pltId,
+					indication.seq());
+			sendPlatformStatusRequest(pltId, new PlatformStatusRequest());
+		}
 		return new PlatformStatusConfirm();
 	}
 
@@ -611,7 +658,8 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 	}
 
 	private boolean hasPayloadType(PlatformStatus s, String payloadType) {
-		return s.payloadBays().stream()
+		// a lost platform has no bays
+		return s.payloadBays() != null && s.payloadBays().stream()
 				.anyMatch(pb -> ofNullable(pb.payload()).map(b -> b.payloadType().equals(payloadType)).orElse(false));
 	}
 
@@ -667,10 +715,11 @@ public class StandardLower extends AbstractLower<PitStop> implements Lower, Acti
 
 	private void scheduleBurying(final PitStop ps) {
 		if (isEngaged(ps)) {
-			final long millis = El.now().until(ps.getAssignation().get().occupiedTo(), MILLIS);
+			final EventLoop el = El.current();
+			final long millis = el.now_().until(ps.getAssignation().get().occupiedTo(), MILLIS);
 			if (millis > 0) {
 				info(ps, "scheduling burying in {} ms", millis);
-				El.setTimeout(millis, () -> bury(ps));
+				el.setTimeout_(millis, () -> bury(ps));
 			} else {
 				bury(ps);
 			}
@@ -0,0 +1,122 @@
+package mars.tower;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PlatformStatusResponse;
+
+/**
+ * Follows the sequence numbers of the {@link PlatformStatusIndication}s of each
+ * platform, to tell when one has been lost or has come out of order, and so
+ * when the full status must be requested again. Indications numbered 0 come
+ * from platforms that do not number them, and are always applied.
+ * <p>
+ * A platform numbering from 1 again, after any numbered indication, has
+ * restarted: its status is requested again, even if a request to the previous
+ * run is still pending. A first indication coming late or twice is taken for a
+ * restart too, which costs a request only. As the first indication of the new
+ * run may be lost, going back by more than the reordering window is a restart
+ * as well; a platform discovered again or returned starts afresh through
+ * {@link #forget(String)}. Otherwise only a request at a time is made per
+ * platform.
+ */
+public class StatusSequences {
+
+	public enum Verdict {
+		/**
+		 * The indication is the next one, or it cannot be told.
+		 */
+		APPLY,
+		/**
+		 * The indication is older than the status known: it must be ignored.
+		 */
+		STALE,
+		/**
+		 * Some indication has been missed: this one is to be applied, and the full
+		 * status requested.
+		 */
+		RESYNC
+	}
+
+	/**
+	 * How far back indications may come out of order, by default.
+	 */
+	public static final int DEFAULT_REORDER_WINDOW = 8;
+
+	private final Map<String, Long> applied = new HashMap<>();
+	private final Set<String> requested = new HashSet<>();
+	private final int reorderWindow;
+
+	public StatusSequences() {
+		this(DEFAULT_REORDER_WINDOW);
+	}
+
+	/**
+	 * @param reorderWindow how far back an indication may come out of order;
+	 *                      going back further is a restart of the platform
+	 */
+	public StatusSequences(int reorderWindow) {
+		this.reorderWindow = reorderWindow;
+	}
+
+	/**
+	 * @return what to do with the indication with the given sequence number
+	 */
+	public Verdict indication(String pltName, long seq) {
+		if (seq == 0)
+			return Verdict.APPLY;
+		final long last = applied.getOrDefault(pltName, 0L);
+		if ((seq == 1 && last >= 1) || last - seq > reorderWindow) {
+			applied.put(pltName, seq);
+			requested.add(pltName);
+			return Verdict.RESYNC;
+		}
+		if (seq <= last)
+			return Verdict.STALE;
+		applied.put(pltName, seq);
+		if (seq == last + 1 || !requested.add(pltName))
+			return Verdict.APPLY;
+		return Verdict.RESYNC;
+	}
+
+	/**
+	 * To be called when the full status of a platform is requested.
+	 */
+	public void requested(String pltName) {
+		requested.add(pltName);
+	}
+
+	/**
+	 * To be called when the request of the full status has failed: the next gap
+	 * will request it again.
+	 */
+	public void failed(String pltName) {
+		requested.remove(pltName);
+	}
+
+	/**
+	 * Takes the full status of a platform.
+	 *
+	 * @param seq the sequence number of the {@link PlatformStatusResponse}
+	 * @return false if the status is older than indications already applied, and
+	 *         must be requested again
+	 */
+	public boolean snapshot(String pltName, long seq) {
+		if (seq < applied.getOrDefault(pltName, 0L) && seq != 0)
+			return false;
+		applied.put(pltName, seq);
+		requested.remove(pltName);
+		return true;
+	}
+
+	/**
+	 * To be called when a platform is lost, or discovered again.
+	 */
+	public void forget(String pltName) {
+		applied.remove(pltName);
+		requested.remove(pltName);
+	}
+}
@@ -1,6 +1,7 @@
 package mars.tower;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -12,9 +13,16 @@ import com.cellply.invosys.ComSystem;
 import com.cellply.invosys.signalling.SignalEmitter;
 
 import eventloop.El;
+import eventloop.Lane;
+import eventloop.LoopWatchdog;
+import eventloop.LoopWatchdog.Policy;
+import eventloop.StandardEventLoop;
+import mars.comm.AsyncSignalPublisher;
 import mars.heartbeat.AgentLifecycleListener;
 import mars.heartbeat.LifecycleManager;
 import mars.messages.HeartbeatIds;
+import mars.simulation.SharedConfiguration;
+import mars.tower.capture.TowerCapture;
 import mars.tower.comms.McMessageReceiver;
 import mars.tower.comms.PlatformMessageReceiver;
 import mars.tower.comms.StandardTowerMessaging;
@@ -23,25 +31,81 @@ public class Tower {
 
 	private final static Logger LOGGER = LoggerFactory.getLogger(Tower.class);
 
+	static final int SLOWEST_EVENTS = 10;
+
+	private final StandardLower lower;
+
 	public static void run(ComSystem comSystem, String agentName, int heartbeatPeriodInSeconds, Planner planner,
 			long landingWaitMillis, long psReadyWaitMillis, long commsTimeoutMillis) {
+		final var conf = new SharedConfiguration();
+		conf.heartbeatPeriodInSeconds = heartbeatPeriodInSeconds;
+		conf.landingWaitMillis = landingWaitMillis;
+		conf.psReadyWaitMillis = psReadyWaitMillis;
+		conf.commsTimeoutMillis = commsTimeoutMillis;
+		run(comSystem, agentName, planner, conf);
+	}
+
+	/**
+	 * Runs a {@link Tower} on the current event loop, as configured:
+	 * <ul>
+	 * <li>agents are lost with a phi-accrual detector when
+	 * {@link SharedConfiguration#phiThreshold} is positive, see
+	 * {@link LifecycleManager};
+	 * <li>the loop is watched by a {@link LoopWatchdog} that signals as errors the
+	 * events running longer than {@link SharedConfiguration#stallThresholdMillis},
+	 * if positive;
+	 * <li>the traffic is captured into {@link SharedConfiguration#captureFile}, if
+	 * not null, see {@link TowerCapture};
+	 * <li>the signals are published through an {@link AsyncSignalPublisher} with
+	 * the configured capacity and policy.
+	 * </ul>
+	 */
+	public static void run(ComSystem comSystem, String agentName, Planner planner, SharedConfiguration conf) {
 		try {
-			final var lifecycleManager = new LifecycleManager(comSystem, agentName, heartbeatPeriodInSeconds,
-					HeartbeatIds.TOWER, "#");
+			final var lifecycleManager = new LifecycleManager(comSystem, agentName, conf.heartbeatPeriodInSeconds,
+					HeartbeatIds.TOWER, "#", conf.phiThreshold);
 			El.addQuitEvent(() -> lifecycleManager.close());
 			final var agent = comSystem.createAgent(agentName);
-			new Tower((pmr, mmr) -> new StandardTowerMessaging(El.executor(), agent, pmr, mmr),
-					comSystem.createEmitter(agentName), lifecycleManager::addAgentLifecycleListener, commsTimeoutMillis,
-					landingWaitMillis, psReadyWaitMillis, planner);
+			final var publisher = new AsyncSignalPublisher(comSystem.createEmitter(agentName), conf.signalCapacity,
+					conf.signalPolicy).start();
+			El.addQuitEvent(() -> LOGGER.info("Signals: {}", publisher.stats()));
+			El.addQuitEvent(publisher::close);
+			SignalEmitter signalEmitter = publisher;
+			BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker = (pmr,
+					mmr) -> new StandardTowerMessaging(El.executor(), El.executor(Lane.BULK), agent, pmr, mmr);
+			Consumer<AgentLifecycleListener> allConsumer = lifecycleManager::addAgentLifecycleListener;
+			if (conf.captureFile != null) {
+				final Path captureFile = Paths.get(conf.captureFile);
+				final var capture = new TowerCapture(captureFile, El.current()::nowMillis_);
+				El.addQuitEvent(capture::close);
+				messagingMaker = capture.messaging(messagingMaker);
+				allConsumer = capture.lifecycle(allConsumer);
+				signalEmitter = capture.emitter(signalEmitter);
+				LOGGER.info("Capturing into {}", captureFile);
+			}
+			new Tower(messagingMaker, signalEmitter, allConsumer, conf.commsTimeoutMillis, conf.landingWaitMillis,
+					conf.psReadyWaitMillis, planner);
+			if (conf.stallThresholdMillis > 0 && El.current() instanceof StandardEventLoop eventLoop)
+				closeOnQuit(new LoopWatchdog(eventLoop, conf.stallThresholdMillis, Policy.WARN, SLOWEST_EVENTS,
+						new ErrorSignaler(signalEmitter)).start());
 			lifecycleManager.start();
 			System.out.println("TOWER running. Press ^C to exit");
 		} catch (final IOException e) {
 			e.printStackTrace();
-			System.err.println("Cannot create lifecycle listener, giving up");
+			System.err.println("Cannot create lifecycle listener or capture, giving up");
 			El.quit();
 		}
 	}
 
+	/**
+	 * Logs the slowest events of the watchdog and closes it when the current
+	 * loop quits.
+	 */
+	static void closeOnQuit(LoopWatchdog watchdog) {
+		El.addQuitEvent(() -> LOGGER.info("Slowest events: {}", watchdog.slowest()));
+		El.addQuitEvent(watchdog::close);
+	}
+
 	/**
 	 * Creates a {@link Tower} composed by {@link StandardLower},
 	 * {@link StandardUpper} and the given {@link Planner}.
@@ -62,9 +126,21 @@ public class Tower {
 	public Tower(BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker,
 			SignalEmitter signalEmitter, Consumer<AgentLifecycleListener> allConsumer, long commsTimeoutMillis,
 			long psReadyWaitMillis, long landingWaitMillis, Planner planner) {
+		this(messagingMaker, signalEmitter, allConsumer, commsTimeoutMillis, psReadyWaitMillis, landingWaitMillis,
+				planner, 1, 1);
+	}
+
+	/**
+	 * Creates a {@link Tower} whose {@link PitStop} ids start from
+	 * {@code firstPsId} and go up by {@code psIdStep}, used by the shards of a
+	 * {@link ShardedTower}.
+	 */
+	public Tower(BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker,
+			SignalEmitter signalEmitter, Consumer<AgentLifecycleListener> allConsumer, long commsTimeoutMillis,
+			long psReadyWaitMillis, long landingWaitMillis, Planner planner, int firstPsId, int psIdStep) {
 		LOGGER.info("Creating lower level");
-		final Lower lower = new StandardLower(new WorldModel(), messagingMaker, allConsumer,
-				new ErrorSignaler(signalEmitter), commsTimeoutMillis, psReadyWaitMillis, landingWaitMillis);
+		lower = new StandardLower(new WorldModel(), messagingMaker, allConsumer, new ErrorSignaler(signalEmitter),
+				commsTimeoutMillis, psReadyWaitMillis, landingWaitMillis, firstPsId, psIdStep);
 		lower.addPsListener(new PsEmitter(signalEmitter));
 		try {
 			lower.addPsListener(new PsFileDumper(Paths.get("pit_stops")));
@@ -74,4 +150,8 @@ public class Tower {
 		LOGGER.info("Creating upper level");
 		new StandardUpper(lower, planner);
 	}
+
+	StandardLower lower() {
+		return lower;
+	}
 }
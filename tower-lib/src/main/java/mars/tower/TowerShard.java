@@ -0,0 +1,142 @@
+package mars.tower;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eventloop.El;
+import eventloop.EventLoop;
+import eventloop.EventLoop.Event;
+import eventloop.StandardEventLoop;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.tower.comms.McMessageReceiver;
+import mars.tower.comms.PlatformMessageReceiver;
+
+/**
+ * One slice of a {@link ShardedTower}: a {@link Tower} running on its own
+ * {@link EventLoop} thread and owning the platforms and the pit stops routed to
+ * it.
+ *
+ * @author mperrando
+ *
+ */
+public class TowerShard {
+	private final static Logger LOGGER = LoggerFactory.getLogger(TowerShard.class);
+
+	private final int index;
+	private final StandardEventLoop eventLoop;
+	private final Consumer<Event> executor;
+	private final Thread thread;
+
+	private Tower tower;
+	private PlatformMessageReceiver platformMessageReceiver;
+	private McMessageReceiver mcMessageReceiver;
+	private AgentLifecycleListener agentLifecycleListener;
+
+	/**
+	 * Starts the shard thread and creates its {@link Tower} on it, returning when
+	 * the tower is ready.
+	 *
+	 * @param towerMaker creates the tower of this shard, which must be
+	 *                   {@link #bind(AgentLifecycleListener) bound} to it; called
+	 *                   on the shard thread
+	 */
+	public TowerShard(int index, Function<TowerShard, Tower> towerMaker) throws InterruptedException {
+		this.index = index;
+		this.eventLoop = new StandardEventLoop();
+		this.executor = eventLoop.executor_();
+		this.thread = new Thread(eventLoop, "MARS Tower Shard " + index);
+		thread.start();
+		final CompletableFuture<Tower> created = new CompletableFuture<>();
+		eventLoop.exec(() -> {
+			try {
+				created.complete(towerMaker.apply(this));
+			} catch (final Throwable t) {
+				created.completeExceptionally(t);
+			}
+		});
+		try {
+			tower = created.get();
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException("Cannot create tower shard " + index, e.getCause());
+		}
+		LOGGER.info("Shard {} ready", index);
+	}
+
+	/**
+	 * To be passed as messaging maker to the {@link Tower}: keeps the receivers
+	 * and hands out the shared messaging.
+	 */
+	public TowerMessaging bind(PlatformMessageReceiver pmr, McMessageReceiver mmr, TowerMessaging messaging) {
+		this.platformMessageReceiver = pmr;
+		this.mcMessageReceiver = mmr;
+		return messaging;
+	}
+
+	/**
+	 * To be passed as lifecycle listener consumer to the {@link Tower}.
+	 */
+	public void bind(AgentLifecycleListener agentLifecycleListener) {
+		this.agentLifecycleListener = agentLifecycleListener;
+	}
+
+	public int index() {
+		return index;
+	}
+
+	public StandardEventLoop eventLoop() {
+		return eventLoop;
+	}
+
+	/**
+	 * Runs the event on the shard thread. Can be called from any thread.
+	 */
+	public void execute(Event event) {
+		executor.accept(event);
+	}
+
+	public void onPlatformMessage(Consumer<PlatformMessageReceiver> c) {
+		execute(() -> c.accept(platformMessageReceiver));
+	}
+
+	public void onMcMessage(Consumer<McMessageReceiver> c) {
+		execute(() -> c.accept(mcMessageReceiver));
+	}
+
+	public void onLifecycle(Consumer<AgentLifecycleListener> c) {
+		execute(() -> c.accept(agentLifecycleListener));
+	}
+
+	/**
+	 * Evaluates a function of the shard lower on the shard thread.
+	 */
+	public <T> CompletableFuture<T> query(Function<StandardLower, T> function) {
+		final CompletableFuture<T> result = new CompletableFuture<>();
+		execute(() -> {
+			try {
+				result.complete(function.apply(tower.lower()));
+			} catch (final Throwable t) {
+				result.completeExceptionally(t);
+			}
+		});
+		return result;
+	}
+
+	public void quit() {
+		execute(El::quit);
+	}
+
+	/**
+	 * Waits for the shard thread to end, after a {@link #quit()}.
+	 *
+	 * @return whether the thread has ended
+	 */
+	public boolean awaitQuit(long millis) throws InterruptedException {
+		thread.join(millis);
+		return !thread.isAlive();
+	}
+}
@@ -0,0 +1,38 @@
+package mars.tower.capture;
+
+/**
+ * What crossed the boundary of a tower, as kept in a capture.
+ *
+ * @param atMillis the time of the loop, in epoch milliseconds
+ * @param callId   ties a call made to its reply, 0 for the other entries
+ * @param agent    the calling or called agent, the agent discovered or lost,
+ *                 or the id of the signal
+ * @param message  the message name, the category of the agent or the name of
+ *                 the signal
+ * @param payload  a record, a {@link CapturedError}, a string or null
+ */
+public record CaptureEntry(long atMillis, Kind kind, long callId, String agent, String message, Object payload) {
+
+	public enum Kind {
+		/**
+		 * A call received.
+		 */
+		IN,
+		/**
+		 * A call made.
+		 */
+		OUT,
+		/**
+		 * The reply to a call made.
+		 */
+		REPLY,
+		/**
+		 * The error replied to a call made.
+		 */
+		FAILURE,
+		/**
+		 * A signal emitted.
+		 */
+		SIGNAL, DISCOVERED, LOST, RETURNED
+	}
+}
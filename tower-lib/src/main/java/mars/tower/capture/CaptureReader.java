@@ -0,0 +1,136 @@
+package mars.tower.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import mars.codec.BinaryCodec;
+import mars.codec.BinaryReader;
+import mars.codec.RecordCodec;
+import mars.tower.capture.CaptureEntry.Kind;
+
+/**
+ * Reads the {@link CaptureEntry}s written by a {@link CaptureWriter}, all
+ * sessions one after the other. The captured records must be those of the
+ * same version of the messages.
+ */
+public class CaptureReader implements Closeable {
+
+	private final DataInputStream in;
+	private final List<String> names = new ArrayList<>();
+	private long lastMillis;
+
+	public CaptureReader(Path file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+		try {
+			if (readLength() != 0)
+				throw new IOException("Not a capture: " + file);
+			startSession();
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return all the entries of the given capture
+	 */
+	public static List<CaptureEntry> readAll(Path file) throws IOException {
+		try (var reader = new CaptureReader(file)) {
+			final List<CaptureEntry> entries = new ArrayList<>();
+			for (var e = reader.read(); e != null; e = reader.read())
+				entries.add(e);
+			return entries;
+		}
+	}
+
+	/**
+	 * @return the next entry, null at the end of the capture
+	 * @throws IOException if the capture is truncated, malformed or holds
+	 *                     records of another version
+	 */
+	public CaptureEntry read() throws IOException {
+		int length;
+		try {
+			length = readLength();
+		} catch (final EOFException e) {
+			return null;
+		}
+		if (length == 0) {
+			startSession();
+			return read();
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		try {
+			final BinaryReader frame = new BinaryReader(bytes);
+			final long atMillis = lastMillis + frame.readSignedLong();
+			final Kind kind = frame.readEnum(Kind.values());
+			final long callId = frame.readVarLong();
+			final String agent = readName(frame);
+			final String message = readName(frame);
+			final Object payload = readPayload(frame);
+			if (!frame.isAtEnd())
+				throw new IllegalArgumentException("Trailing bytes");
+			lastMillis = atMillis;
+			return new CaptureEntry(atMillis, kind, callId, agent, message, payload);
+		} catch (final IllegalArgumentException | ReflectiveOperationException e) {
+			throw new IOException("Cannot read capture entry", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private int readLength() throws IOException {
+		int length = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = in.readUnsignedByte();
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return length;
+		}
+		throw new IOException("Malformed frame length");
+	}
+
+	private void startSession() throws IOException {
+		if (in.readInt() != CaptureWriter.MAGIC)
+			throw new IOException("Not a capture session");
+		names.clear();
+		lastMillis = 0;
+	}
+
+	private String readName(BinaryReader frame) {
+		final long tag = frame.readVarLong();
+		if (tag == 0)
+			return null;
+		if (tag <= names.size())
+			return names.get((int) tag - 1);
+		if (tag != names.size() + 1)
+			throw new IllegalArgumentException("Unknown name reference: " + tag);
+		final String name = frame.readString();
+		names.add(name);
+		return name;
+	}
+
+	private Object readPayload(BinaryReader frame) throws ClassNotFoundException {
+		final int known = names.size();
+		final String type = readName(frame);
+		if (type == null)
+			return null;
+		if (type.equals(String.class.getName()))
+			return frame.readString();
+		final RecordCodec<?> codec = BinaryCodec.codecFor(Class.forName(type));
+		if (names.size() > known && frame.readFixedInt() != codec.fingerprint())
+			throw new IllegalArgumentException("Captured from another version of " + codec.schema());
+		return codec.read(frame);
+	}
+}
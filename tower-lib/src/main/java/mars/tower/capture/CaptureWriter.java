@@ -0,0 +1,132 @@
+package mars.tower.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mars.codec.BinaryCodec;
+import mars.codec.BinaryWriter;
+import mars.codec.RecordCodec;
+
+/**
+ * Appends {@link CaptureEntry}s to a file, in the binary form of
+ * {@link BinaryCodec}. Each run starts a session with a 0 and a magic number;
+ * then each entry is a frame preceded by its length, holding the time elapsed
+ * since the previous entry, and the agent, message and payload type names as
+ * indexes into a table growing along the session. The fingerprint of a record
+ * is written with its type name, the first time only. Payloads that are not
+ * records, or whose components cannot be encoded, are kept as their string.
+ * <p>
+ * Entries can be written from any thread.
+ */
+public class CaptureWriter implements Closeable {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(CaptureWriter.class);
+
+	static final int MAGIC = 0x4d435031;
+
+	private final DataOutputStream out;
+	private final BinaryWriter frame = new BinaryWriter();
+	private final Map<String, Integer> names = new HashMap<>();
+	private final Set<Class<?>> unencodable = new HashSet<>();
+	private long lastMillis;
+
+	public CaptureWriter(Path file) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+		out.writeByte(0);
+		out.writeInt(MAGIC);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the payload cannot be encoded: nothing
+	 *                                  is written
+	 */
+	public synchronized void write(CaptureEntry entry) throws IOException {
+		final int known = names.size();
+		frame.reset();
+		try {
+			frame.writeSignedLong(entry.atMillis() - lastMillis);
+			frame.writeEnum(entry.kind());
+			frame.writeVarLong(entry.callId());
+			writeName(entry.agent());
+			writeName(entry.message());
+			writePayload(entry.payload());
+		} catch (final RuntimeException e) {
+			names.values().removeIf(index -> index >= known);
+			throw new IllegalArgumentException("Cannot encode " + entry, e);
+		}
+		lastMillis = entry.atMillis();
+		for (int length = frame.size(); ; length >>>= 7)
+			if ((length & ~0x7F) == 0) {
+				out.writeByte(length);
+				break;
+			} else
+				out.writeByte(length & 0x7F | 0x80);
+		out.write(frame.toByteArray());
+	}
+
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * 0 for null, the index of the name shifted by one, or the next index
+	 * followed by the new name.
+	 * 
+	 * @return whether the name is new
+	 */
+	private boolean writeName(String name) {
+		if (name == null) {
+			frame.writeByte(0);
+			return false;
+		}
+		final Integer index = names.putIfAbsent(name, names.size());
+		frame.writeVarLong(index == null ? names.size() : index + 1L);
+		if (index == null)
+			frame.writeString(name);
+		return index == null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writePayload(Object payload) {
+		if (payload == null) {
+			writeName(null);
+			return;
+		}
+		final Class<?> type = payload.getClass();
+		if (type.isRecord() && !unencodable.contains(type)) {
+			final RecordCodec<Object> codec;
+			try {
+				codec = (RecordCodec<Object>) BinaryCodec.codecFor(type);
+			} catch (final IllegalArgumentException e) {
+				LOGGER.warn("{} will be captured as strings: {}", type.getName(), e.getMessage());
+				unencodable.add(type);
+				writePayload(payload.toString());
+				return;
+			}
+			if (writeName(type.getName()))
+				frame.writeFixedInt(codec.fingerprint());
+			codec.write(frame, payload);
+			return;
+		}
+		writeName(String.class.getName());
+		frame.writeString(payload.toString());
+	}
+}
@@ -0,0 +1,28 @@
+package mars.tower.capture;
+
+/**
+ * An exception, as kept in a capture.
+ *
+ * @param type the class name of the exception
+ */
+public record CapturedError(String type, String message) {
+
+	public static CapturedError of(Throwable t) {
+		return new CapturedError(t.getClass().getName(), t.getMessage());
+	}
+
+	/**
+	 * @return an exception of the captured type if it can be made from its
+	 *         message, a {@link RuntimeException} otherwise
+	 */
+	public Exception toException() {
+		try {
+			final Class<?> c = Class.forName(type);
+			if (Exception.class.isAssignableFrom(c))
+				return (Exception) c.getConstructor(String.class).newInstance(message);
+		} catch (final ReflectiveOperationException e) {
+			// falls back below
+		}
+		return new RuntimeException(type + ": " + message);
+	}
+}
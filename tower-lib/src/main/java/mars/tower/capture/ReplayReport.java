@@ -0,0 +1,39 @@
+package mars.tower.capture;
+
+import java.util.Map;
+
+import eventloop.RpcMetrics.Stats;
+
+/**
+ * The outcome of a {@link TowerReplay}.
+ *
+ * @param received      the calls and lifecycle events fed to the tower
+ * @param made          the calls made by the tower
+ * @param diverged      the calls made that were not captured, or were captured
+ *                      with another payload
+ * @param missing       the calls captured that the tower has not made
+ * @param failed        the calls received answered with an error
+ * @param errors        the errors signaled by the tower
+ * @param wallNanos     how long the replay took
+ * @param virtualMillis how much time of the loop has elapsed
+ * @param latency       by message name, or by kind for the lifecycle events, the
+ *                      time the tower took to handle what it received, in real
+ *                      nanoseconds
+ */
+public record ReplayReport(long received, long made, long diverged, long missing, long failed, long errors,
+		long wallNanos, long virtualMillis, Map<String, Stats> latency) {
+
+	/**
+	 * @return the calls and events received per second of real time
+	 */
+	public double throughput() {
+		return wallNanos == 0 ? 0 : received * 1e9 / wallNanos;
+	}
+
+	/**
+	 * @return whether the tower has behaved as captured
+	 */
+	public boolean matches() {
+		return diverged == 0 && missing == 0;
+	}
+}
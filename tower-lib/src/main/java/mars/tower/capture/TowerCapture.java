@@ -0,0 +1,291 @@
+package mars.tower.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.agent.CallContext;
+import com.cellply.invosys.agent.OutgoingInvocation;
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import mars.heartbeat.AgentLifecycleListener;
+import mars.messages.AnomalyConfirm;
+import mars.messages.AnomalyIndication;
+import mars.messages.DroneLandedConfirm;
+import mars.messages.DroneLandedIndication;
+import mars.messages.MessageNames;
+import mars.messages.PlatformAssignmentConfirm;
+import mars.messages.PlatformAssignmentIndication;
+import mars.messages.PlatformAvailabilityConfirm;
+import mars.messages.PlatformAvailabilityIndication;
+import mars.messages.PlatformCylinderEnterRequest;
+import mars.messages.PlatformCylinderLeftIndication;
+import mars.messages.PlatformQuitRequest;
+import mars.messages.PlatformReachabilityIndication;
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsAbortConfirm;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedConfirm;
+import mars.messages.PsCompletedIndication;
+import mars.messages.PsDemandRequest;
+import mars.messages.ReadyPsRequest;
+import mars.messages.ReadyPsResponse;
+import mars.tower.TowerMessaging;
+import mars.tower.capture.CaptureEntry.Kind;
+import mars.tower.comms.McMessageReceiver;
+import mars.tower.comms.PlatformMessageReceiver;
+
+/**
+ * Captures what crosses the boundary of a tower: the calls it receives, as
+ * handed to its receivers, the calls it makes and their replies, the signals it
+ * emits and the agents discovered and lost. The tower is wrapped by passing
+ * its dependencies through {@link #messaging(BiFunction)},
+ * {@link #lifecycle(Consumer)} and {@link #emitter(SignalEmitter)}.
+ * <p>
+ * The replies the tower gives to the calls it receives are not captured, those
+ * being sent by the transport through the call context: a {@link TowerReplay}
+ * tells them by the calls the tower makes instead. When the capture cannot be
+ * written any more it stops, without disturbing the tower.
+ */
+public class TowerCapture implements Closeable {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(TowerCapture.class);
+
+	private final CaptureWriter writer;
+	private final LongSupplier clockMillis;
+	private final AtomicLong calls = new AtomicLong();
+	private volatile boolean failed;
+
+	/**
+	 * @param clockMillis the time of the loop of the tower, in epoch milliseconds;
+	 *                    read from the threads replying to the calls as well
+	 */
+	public TowerCapture(Path file, LongSupplier clockMillis) throws IOException {
+		this.writer = new CaptureWriter(file);
+		this.clockMillis = clockMillis;
+	}
+
+	/**
+	 * @return a messaging maker capturing the calls received and made by the
+	 *         tower
+	 */
+	public BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messaging(
+			BiFunction<PlatformMessageReceiver, McMessageReceiver, TowerMessaging> messagingMaker) {
+		return (pmr, mmr) -> new CapturingMessaging(messagingMaker.apply(new CapturingPlatformReceiver(pmr),
+				new CapturingMcReceiver(mmr)));
+	}
+
+	/**
+	 * @return a consumer of lifecycle listeners capturing the agents discovered,
+	 *         lost and returned
+	 */
+	public Consumer<AgentLifecycleListener> lifecycle(Consumer<AgentLifecycleListener> allConsumer) {
+		return listener -> allConsumer.accept(new AgentLifecycleListener() {
+			@Override
+			public void agentLost(String agentName, String category) {
+				capture(Kind.LOST, 0, agentName, category, null);
+				listener.agentLost(agentName, category);
+			}
+
+			@Override
+			public void agentDiscovered(String agentName, String category) {
+				capture(Kind.DISCOVERED, 0, agentName, category, null);
+				listener.agentDiscovered(agentName, category);
+			}
+
+			@Override
+			public void agentReturned(String agentName, String category) {
+				capture(Kind.RETURNED, 0, agentName, category, null);
+				listener.agentReturned(agentName, category);
+			}
+		});
+	}
+
+	/**
+	 * @return an emitter capturing the signals emitted
+	 */
+	public SignalEmitter emitter(SignalEmitter signalEmitter) {
+		return (name, id, payload) -> {
+			capture(Kind.SIGNAL, 0, id, name, payload instanceof Throwable t ? CapturedError.of(t) : payload);
+			signalEmitter.emit(name, id, payload);
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		failed = true;
+		writer.close();
+	}
+
+	private void capture(Kind kind, long callId, String agent, String message, Object payload) {
+		if (failed)
+			return;
+		try {
+			writer.write(new CaptureEntry(clockMillis.getAsLong(), kind, callId, agent, message, payload));
+		} catch (final IllegalArgumentException e) {
+			LOGGER.warn("Not captured", e);
+		} catch (final IOException e) {
+			failed = true;
+			LOGGER.error("Cannot write capture, stopping it", e);
+		}
+	}
+
+	private void received(String message, CallContext<?> callCtx) {
+		capture(Kind.IN, 0, callCtx.callingAgentId(), message, callCtx.params());
+	}
+
+	private <T> OutgoingInvocation<T> made(String message, String destAgentName, Object payload,
+			OutgoingInvocation<T> invocation) {
+		final long callId = calls.incrementAndGet();
+		capture(Kind.OUT, callId, destAgentName, message, payload);
+		invocation.whenComplete((reply, t) -> {
+			if (t == null)
+				capture(Kind.REPLY, callId, destAgentName, message, reply);
+			else
+				capture(Kind.FAILURE, callId, destAgentName, message, CapturedError.of(t));
+		});
+		return invocation;
+	}
+
+	private class CapturingPlatformReceiver implements PlatformMessageReceiver {
+		private final PlatformMessageReceiver receiver;
+
+		private CapturingPlatformReceiver(PlatformMessageReceiver receiver) {
+			this.receiver = receiver;
+		}
+
+		@Override
+		public void onPlatformStatus(CallContext<PlatformStatusIndication> callCtx) {
+			received(MessageNames.PLATFORM_STATUS_INDICATION, callCtx);
+			receiver.onPlatformStatus(callCtx);
+		}
+
+		@Override
+		public void onPsCompleted(CallContext<PsCompletedIndication> callCtx) {
+			received(MessageNames.PS_COMPLETED_INDICATION, callCtx);
+			receiver.onPsCompleted(callCtx);
+		}
+
+		@Override
+		public void onPlatformQuit(CallContext<PlatformQuitRequest> callCtx) {
+			received(MessageNames.PLATFORM_QUIT_REQUEST, callCtx);
+			receiver.onPlatformQuit(callCtx);
+		}
+	}
+
+	private class CapturingMcReceiver implements McMessageReceiver {
+		private final McMessageReceiver receiver;
+
+		private CapturingMcReceiver(McMessageReceiver receiver) {
+			this.receiver = receiver;
+		}
+
+		@Override
+		public void onPsDemand(CallContext<PsDemandRequest> callCtx) {
+			received(MessageNames.PS_DEMAND_REQUEST, callCtx);
+			receiver.onPsDemand(callCtx);
+		}
+
+		@Override
+		public void onPsAbort(CallContext<PsAbortIndication> callCtx) {
+			received(MessageNames.PS_ABORT_INDICATION, callCtx);
+			receiver.onPsAbort(callCtx);
+		}
+
+		@Override
+		public void onPlatformCylinderEnter(CallContext<PlatformCylinderEnterRequest> callCtx) {
+			received(MessageNames.PLATFORM_CYLINDER_ENTER_REQUEST, callCtx);
+			receiver.onPlatformCylinderEnter(callCtx);
+		}
+
+		@Override
+		public void onDroneLanded(CallContext<DroneLandedIndication> callCtx) {
+			received(MessageNames.DRONE_LANDED_INDICATION, callCtx);
+			receiver.onDroneLanded(callCtx);
+		}
+
+		@Override
+		public void onPlatformCylinderLeft(CallContext<PlatformCylinderLeftIndication> callCtx) {
+			received(MessageNames.PLATFORM_CYLINDER_LEFT_INDICATION, callCtx);
+			receiver.onPlatformCylinderLeft(callCtx);
+		}
+
+		@Override
+		public void onPlatformReachability(CallContext<PlatformReachabilityIndication> callCtx) {
+			received(MessageNames.PLATFORM_REACHABILITY_INDICATION, callCtx);
+			receiver.onPlatformReachability(callCtx);
+		}
+	}
+
+	private class CapturingMessaging implements TowerMessaging {
+		private final TowerMessaging messaging;
+
+		private CapturingMessaging(TowerMessaging messaging) {
+			this.messaging = messaging;
+		}
+
+		@Override
+		public OutgoingInvocation<PsAbortConfirm> sendPsAbortIndication(String destAgentName,
+				PsAbortIndication psAbort) {
+			return made(MessageNames.PS_ABORT_INDICATION, destAgentName, psAbort,
+					messaging.sendPsAbortIndication(destAgentName, psAbort));
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformStatusResponse> sendPlatformStatusRequest(String destAgentName,
+				PlatformStatusRequest platformStatusRequest) {
+			return made(MessageNames.PLATFORM_STATUS_REQUEST, destAgentName, platformStatusRequest,
+					messaging.sendPlatformStatusRequest(destAgentName, platformStatusRequest));
+		}
+
+		@Override
+		public OutgoingInvocation<ReadyPsResponse> sendReadyPsRequest(String destAgentName,
+				ReadyPsRequest readyPsRequest) {
+			return made(MessageNames.READY_PS_REQUEST, destAgentName, readyPsRequest,
+					messaging.sendReadyPsRequest(destAgentName, readyPsRequest));
+		}
+
+		@Override
+		public OutgoingInvocation<DroneLandedConfirm> sendDroneLandedIndication(String destAgentName,
+				DroneLandedIndication droneLandedIndication) {
+			return made(MessageNames.DRONE_LANDED_INDICATION, destAgentName, droneLandedIndication,
+					messaging.sendDroneLandedIndication(destAgentName, droneLandedIndication));
+		}
+
+		@Override
+		public OutgoingInvocation<PsCompletedConfirm> sendPsCompletedIndication(String destAgentName,
+				PsCompletedIndication psCompletedIndication) {
+			return made(MessageNames.PS_COMPLETED_INDICATION, destAgentName, psCompletedIndication,
+					messaging.sendPsCompletedIndication(destAgentName, psCompletedIndication));
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformAssignmentConfirm> sendPlatformAssignmentIndication(String destAgentName,
+				PlatformAssignmentIndication platformAssignmentIndication) {
+			return made(MessageNames.PLATFORM_ASSIGNMENT_INDICATION, destAgentName, platformAssignmentIndication,
+					messaging.sendPlatformAssignmentIndication(destAgentName, platformAssignmentIndication));
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformAvailabilityConfirm> sendPlatformAvailabilityIndication(
+				String destAgentName, PlatformAvailabilityIndication platformAvailabilityIndication) {
+			return made(MessageNames.PLATFORM_AVAILABILITY_INDICATION, destAgentName, platformAvailabilityIndication,
+					messaging.sendPlatformAvailabilityIndication(destAgentName, platformAvailabilityIndication));
+		}
+
+		@Override
+		public OutgoingInvocation<AnomalyConfirm> sendAnomalyIndication(String destAgentName, AnomalyIndication ind) {
+			return made(MessageNames.ANOMALY_INDICATION, destAgentName, ind,
+					messaging.sendAnomalyIndication(destAgentName, ind));
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package mars.tower.capture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cellply.invosys.agent.MockCallContext;
+import com.cellply.invosys.agent.OutgoingInvocation;
+
+import eventloop.El;
+import eventloop.RpcMetrics;
+import eventloop.StandardEventLoop;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.messages.AnomalyConfirm;
+import mars.messages.AnomalyIndication;
+import mars.messages.DroneLandedConfirm;
+import mars.messages.DroneLandedIndication;
+import mars.messages.MessageNames;
+import mars.messages.PlatformAssignmentConfirm;
+import mars.messages.PlatformAssignmentIndication;
+import mars.messages.PlatformAvailabilityConfirm;
+import mars.messages.PlatformAvailabilityIndication;
+import mars.messages.PlatformCylinderEnterRequest;
+import mars.messages.PlatformCylinderLeftIndication;
+import mars.messages.PlatformQuitRequest;
+import mars.messages.PlatformReachabilityIndication;
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsAbortConfirm;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsCompletedConfirm;
+import mars.messages.PsCompletedIndication;
+import mars.messages.PsDemandRequest;
+import mars.messages.ReadyPsRequest;
+import mars.messages.ReadyPsResponse;
+import mars.time.FakedEventLoop;
+import mars.time.TimeFake;
+import mars.time.VirtualEventLoop;
+import mars.tower.Planner;
+import mars.tower.StandardLower;
+import mars.tower.StandardUpper;
+import mars.tower.TowerMessaging;
+import mars.tower.WorldModel;
+import mars.tower.capture.CaptureEntry.Kind;
+import mars.tower.comms.McMessageReceiver;
+import mars.tower.comms.PlatformMessageReceiver;
+
+/**
+ * Feeds a capture of a {@link TowerCapture} back into a new tower, made of a
+ * {@link StandardLower} and a {@link StandardUpper}, on a loop of its own: the
+ * calls received and the agents discovered and lost are fed at their captured
+ * times, and the calls the tower makes are answered at once with the captured
+ * replies, matched by agent and message name in the order they were made. A
+ * call captured without reply never completes.
+ * <p>
+ * The time runs on a {@link VirtualEventLoop}, as fast as possible, or on a
+ * {@link FakedEventLoop} at the given rate. Either way the tower is expected to
+ * make the calls it made when captured: those it does not, or makes with
+ * another payload, are reported.
+ */
+public class TowerReplay {
+
+	private final static Logger LOGGER = LoggerFactory.getLogger(TowerReplay.class);
+
+	private static record Key(String agent, String message) {
+	}
+
+	private static record Call(CaptureEntry out, CaptureEntry reply) {
+	}
+
+	private final List<CaptureEntry> fed = new ArrayList<>();
+	private final List<Call> calls = new ArrayList<>();
+	private final long firstMillis;
+	private final long lastMillis;
+
+	public TowerReplay(Path file) throws IOException {
+		this(CaptureReader.readAll(file));
+	}
+
+	public TowerReplay(List<CaptureEntry> entries) {
+		if (entries.isEmpty())
+			throw new IllegalArgumentException("Nothing to replay");
+		final Map<Long, CaptureEntry> replies = new HashMap<>();
+		for (final CaptureEntry e : entries)
+			if (e.kind() == Kind.REPLY || e.kind() == Kind.FAILURE)
+				replies.put(e.callId(), e);
+		for (final CaptureEntry e : entries)
+			switch (e.kind()) {
+			case IN, DISCOVERED, LOST, RETURNED -> fed.add(e);
+			case OUT -> calls.add(new Call(e, replies.get(e.callId())));
+			default -> {
+			}
+			}
+		// replies are captured from other threads, slightly out of order
+		fed.sort(Comparator.comparingLong(CaptureEntry::atMillis));
+		firstMillis = entries.stream().mapToLong(CaptureEntry::atMillis).min().getAsLong();
+		lastMillis = entries.stream().mapToLong(CaptureEntry::atMillis).max().getAsLong();
+	}
+
+	/**
+	 * Replays the capture on the calling thread, which must not be running a
+	 * loop already.
+	 *
+	 * @param rate         the rate of the time, 0 to run as fast as possible
+	 * @param settleMillis how long to go on after the last captured entry
+	 */
+	public ReplayReport run(double rate, long settleMillis, Planner planner, long commsTimeoutMillis,
+			long psReadyWaitMillis, long landingWaitMillis) {
+		final Instant t0 = Instant.ofEpochMilli(firstMillis);
+		// the calls are answered on the loop itself: a missing reply must not hold it
+		final StandardEventLoop loop = rate == 0 ? new VirtualEventLoop(t0, null, Duration.ZERO)
+				: new FakedEventLoop(new TimeFake(rate, t0));
+		final Run run = new Run();
+		loop.exec(() -> {
+			new StandardUpper(new StandardLower(new WorldModel(), run::bind, run::bind, t -> run.errors++,
+					commsTimeoutMillis, psReadyWaitMillis, landingWaitMillis), planner);
+			run.feed(0);
+			El.setTimeout(lastMillis - firstMillis + settleMillis, El::quit);
+		});
+		final long started = System.nanoTime();
+		loop.run();
+		final long wallNanos = System.nanoTime() - started;
+		return run.report(wallNanos, loop.nowMillis_() - firstMillis);
+	}
+
+	private class Run implements TowerMessaging {
+		private final Map<Key, Deque<Call>> expected = new HashMap<>();
+		private final List<MockCallContext<?>> contexts = new ArrayList<>();
+		private final RpcMetrics metrics = new RpcMetrics();
+		private PlatformMessageReceiver platformReceiver;
+		private McMessageReceiver mcReceiver;
+		private AgentLifecycleListener lifecycleListener;
+		private long received;
+		private long made;
+		private long diverged;
+		private long errors;
+
+		private Run() {
+			for (final Call c : calls)
+				expected.computeIfAbsent(new Key(c.out().agent(), c.out().message()), k -> new ArrayDeque<>()).add(c);
+		}
+
+		private TowerMessaging bind(PlatformMessageReceiver pmr, McMessageReceiver mmr) {
+			this.platformReceiver = pmr;
+			this.mcReceiver = mmr;
+			return this;
+		}
+
+		private void bind(AgentLifecycleListener listener) {
+			this.lifecycleListener = listener;
+		}
+
+		private void feed(int from) {
+			int i = from;
+			for (; i < fed.size() && fed.get(i).atMillis() <= El.nowMillis(); i++) {
+				final CaptureEntry e = fed.get(i);
+				received++;
+				try {
+					metrics.served(e.kind() == Kind.IN ? e.message() : e.kind().name(), e.agent(), () -> deliver(e))
+							.run();
+				} catch (final Throwable t) {
+					errors++;
+					LOGGER.warn("Replaying {} has thrown", e, t);
+				}
+			}
+			if (i < fed.size()) {
+				final int next = i;
+				El.setTimeout(fed.get(next).atMillis() - El.nowMillis(), () -> feed(next));
+			}
+		}
+
+		private void deliver(CaptureEntry e) {
+			switch (e.kind()) {
+			case DISCOVERED -> lifecycleListener.agentDiscovered(e.agent(), e.message());
+			case LOST -> lifecycleListener.agentLost(e.agent(), e.message());
+			case RETURNED -> lifecycleListener.agentReturned(e.agent(), e.message());
+			default -> {
+				switch (e.message()) {
+				case MessageNames.PLATFORM_STATUS_INDICATION -> platformReceiver
+						.onPlatformStatus(context(e, PlatformStatusIndication.class));
+				case MessageNames.PS_COMPLETED_INDICATION -> platformReceiver
+						.onPsCompleted(context(e, PsCompletedIndication.class));
+				case MessageNames.PLATFORM_QUIT_REQUEST -> platformReceiver
+						.onPlatformQuit(context(e, PlatformQuitRequest.class));
+				case MessageNames.PS_DEMAND_REQUEST -> mcReceiver.onPsDemand(context(e, PsDemandRequest.class));
+				case MessageNames.PS_ABORT_INDICATION -> mcReceiver.onPsAbort(context(e, PsAbortIndication.class));
+				case MessageNames.PLATFORM_CYLINDER_ENTER_REQUEST -> mcReceiver
+						.onPlatformCylinderEnter(context(e, PlatformCylinderEnterRequest.class));
+				case MessageNames.DRONE_LANDED_INDICATION -> mcReceiver
+						.onDroneLanded(context(e, DroneLandedIndication.class));
+				case MessageNames.PLATFORM_CYLINDER_LEFT_INDICATION -> mcReceiver
+						.onPlatformCylinderLeft(context(e, PlatformCylinderLeftIndication.class));
+				case MessageNames.PLATFORM_REACHABILITY_INDICATION -> mcReceiver
+						.onPlatformReachability(context(e, PlatformReachabilityIndication.class));
+				default -> throw new IllegalArgumentException("Unknown message: " + e.message());
+				}
+			}
+			}
+		}
+
+		private <T> MockCallContext<T> context(CaptureEntry e, Class<T> type) {
+			final MockCallContext<T> callCtx = new MockCallContext<>(e.agent(), type.cast(e.payload()), null);
+			contexts.add(callCtx);
+			return callCtx;
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> OutgoingInvocation<T> answer(String message, String destAgentName, Object payload) {
+			made++;
+			final Deque<Call> queue = expected.get(new Key(destAgentName, message));
+			final Call call = queue == null ? null : queue.poll();
+			if (call == null || !call.out().payload().equals(payload)) {
+				diverged++;
+				LOGGER.debug("Diverged on {} to {}: {} instead of {}", message, destAgentName, payload,
+						call == null ? null : call.out().payload());
+			}
+			if (call == null || call.reply() == null)
+				return OutgoingInvocation.notCompleting();
+			if (call.reply().kind() == Kind.FAILURE)
+				return OutgoingInvocation.failed(((CapturedError) call.reply().payload()).toException());
+			return OutgoingInvocation.completed((T) call.reply().payload());
+		}
+
+		private ReplayReport report(long wallNanos, long virtualMillis) {
+			long failed = 0;
+			for (final MockCallContext<?> callCtx : contexts)
+				try {
+					callCtx.checkError();
+				} catch (final Exception e) {
+					failed++;
+				}
+			final long missing = expected.values().stream().mapToLong(Deque::size).sum();
+			return new ReplayReport(received, made, diverged, missing, failed, errors, wallNanos, virtualMillis,
+					metrics.byMessage());
+		}
+
+		@Override
+		public OutgoingInvocation<PsAbortConfirm> sendPsAbortIndication(String destAgentName,
+				PsAbortIndication psAbort) {
+			return answer(MessageNames.PS_ABORT_INDICATION, destAgentName, psAbort);
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformStatusResponse> sendPlatformStatusRequest(String destAgentName,
+				PlatformStatusRequest platformStatusRequest) {
+			return answer(MessageNames.PLATFORM_STATUS_REQUEST, destAgentName, platformStatusRequest);
+		}
+
+		@Override
+		public OutgoingInvocation<ReadyPsResponse> sendReadyPsRequest(String destAgentName,
+				ReadyPsRequest readyPsRequest) {
+			return answer(MessageNames.READY_PS_REQUEST, destAgentName, readyPsRequest);
+		}
+
+		@Override
+		public OutgoingInvocation<DroneLandedConfirm> sendDroneLandedIndication(String destAgentName,
+				DroneLandedIndication droneLandedIndication) {
+			return answer(MessageNames.DRONE_LANDED_INDICATION, destAgentName, droneLandedIndication);
+		}
+
+		@Override
+		public OutgoingInvocation<PsCompletedConfirm> sendPsCompletedIndication(String destAgentName,
+				PsCompletedIndication psCompletedIndication) {
+			return answer(MessageNames.PS_COMPLETED_INDICATION, destAgentName, psCompletedIndication);
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformAssignmentConfirm> sendPlatformAssignmentIndication(String destAgentName,
+				PlatformAssignmentIndication platformAssignmentIndication) {
+			return answer(MessageNames.PLATFORM_ASSIGNMENT_INDICATION, destAgentName, platformAssignmentIndication);
+		}
+
+		@Override
+		public OutgoingInvocation<PlatformAvailabilityConfirm> sendPlatformAvailabilityIndication(
+				String destAgentName, PlatformAvailabilityIndication platformAvailabilityIndication) {
+			return answer(MessageNames.PLATFORM_AVAILABILITY_INDICATION, destAgentName,
+					platformAvailabilityIndication);
+		}
+
+		@Override
+		public OutgoingInvocation<AnomalyConfirm> sendAnomalyIndication(String destAgentName, AnomalyIndication ind) {
+			return answer(MessageNames.ANOMALY_INDICATION, destAgentName, ind);
+		}
+	}
+}
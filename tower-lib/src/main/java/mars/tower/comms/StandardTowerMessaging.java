@@ -1,5 +1,6 @@
 package mars.tower.comms;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 import com.cellply.invosys.agent.AbstractResponder;
@@ -8,6 +9,7 @@ import com.cellply.invosys.agent.CallContext;
 import com.cellply.invosys.agent.OutgoingInvocation;
 
 import eventloop.EventLoop.Event;
+import eventloop.RpcMetrics;
 import mars.messages.AnomalyConfirm;
 import mars.messages.AnomalyIndication;
 import mars.messages.DroneLandedConfirm;
@@ -33,19 +35,31 @@ import mars.messages.ReadyPsRequest;
 import mars.messages.ReadyPsResponse;
 import mars.tower.TowerMessaging;
 
+/**
+ * Platform statuses go to the bulk executor. They are not coalesced, each
+ * indication carrying only the bays it updates. When an executor rejects a
+ * message, the error is the reply.
+ */
 public class StandardTowerMessaging implements TowerMessaging {
 
 	private final Agent agent;
 	private final PlatformMessageReceiver platformMessageReceiver;
 	private final McMessageReceiver mcMessageReceiver;
 	private final Consumer<Event> executor;
+	private final Consumer<Event> bulkExecutor;
 
 	public StandardTowerMessaging(Consumer<Event> executor, Agent agent,
 			PlatformMessageReceiver platformMessageReceiver, McMessageReceiver mcMessageReceiver) {
+		this(executor, executor, agent, platformMessageReceiver, mcMessageReceiver);
+	}
+
+	public StandardTowerMessaging(Consumer<Event> executor, Consumer<Event> bulkExecutor, Agent agent,
+			PlatformMessageReceiver platformMessageReceiver, McMessageReceiver mcMessageReceiver) {
 		this.agent = agent;
 		this.platformMessageReceiver = platformMessageReceiver;
 		this.mcMessageReceiver = mcMessageReceiver;
 		this.executor = executor;
+		this.bulkExecutor = bulkExecutor;
 
 		// From MC
 		agent.addMethod(MessageNames.PS_DEMAND_REQUEST, new PsDemandRequestResponder());
@@ -68,7 +82,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformStatusIndication> callCtx) {
-			executor.accept(() -> platformMessageReceiver.onPlatformStatus(callCtx));
+			submit(bulkExecutor, callCtx, served(MessageNames.PLATFORM_STATUS_INDICATION, callCtx,
+					() -> platformMessageReceiver.onPlatformStatus(callCtx)));
 		}
 	}
 
@@ -80,7 +95,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformQuitRequest> callCtx) {
-			executor.accept(() -> platformMessageReceiver.onPlatformQuit(callCtx));
+			submit(executor, callCtx, served(MessageNames.PLATFORM_QUIT_REQUEST, callCtx,
+					() -> platformMessageReceiver.onPlatformQuit(callCtx)));
 		}
 	}
 
@@ -92,7 +108,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsCompletedIndication> callCtx) {
-			executor.accept(() -> platformMessageReceiver.onPsCompleted(callCtx));
+			submit(executor, callCtx, served(MessageNames.PS_COMPLETED_INDICATION, callCtx,
+					() -> platformMessageReceiver.onPsCompleted(callCtx)));
 		}
 	}
 
@@ -104,7 +121,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsDemandRequest> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onPsDemand(callCtx));
+			submit(executor, callCtx, served(MessageNames.PS_DEMAND_REQUEST, callCtx,
+					() -> mcMessageReceiver.onPsDemand(callCtx)));
 		}
 	}
 
@@ -116,7 +134,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PsAbortIndication> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onPsAbort(callCtx));
+			submit(executor, callCtx, served(MessageNames.PS_ABORT_INDICATION, callCtx,
+					() -> mcMessageReceiver.onPsAbort(callCtx)));
 		}
 	}
 
@@ -128,7 +147,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformCylinderEnterRequest> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onPlatformCylinderEnter(callCtx));
+			submit(executor, callCtx, served(MessageNames.PLATFORM_CYLINDER_ENTER_REQUEST, callCtx,
+					() -> mcMessageReceiver.onPlatformCylinderEnter(callCtx)));
 		}
 	}
 
@@ -140,7 +160,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<DroneLandedIndication> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onDroneLanded(callCtx));
+			submit(executor, callCtx, served(MessageNames.DRONE_LANDED_INDICATION, callCtx,
+					() -> mcMessageReceiver.onDroneLanded(callCtx)));
 		}
 	}
 
@@ -152,7 +173,8 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformCylinderLeftIndication> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onPlatformCylinderLeft(callCtx));
+			submit(executor, callCtx, served(MessageNames.PLATFORM_CYLINDER_LEFT_INDICATION, callCtx,
+					() -> mcMessageReceiver.onPlatformCylinderLeft(callCtx)));
 		}
 	}
 
@@ -164,7 +186,20 @@ public class StandardTowerMessaging implements TowerMessaging {
 
 		@Override
 		public void executeInvocation(CallContext<PlatformReachabilityIndication> callCtx) {
-			executor.accept(() -> mcMessageReceiver.onPlatformReachability(callCtx));
+			submit(executor, callCtx, served(MessageNames.PLATFORM_REACHABILITY_INDICATION, callCtx,
+					() -> mcMessageReceiver.onPlatformReachability(callCtx)));
+		}
+	}
+
+	private static Event served(String message, CallContext<?> callCtx, Event event) {
+		return RpcMetrics.SERVED.served(message, callCtx.callingAgentId(), event);
+	}
+
+	private static void submit(Consumer<Event> executor, CallContext<?> callCtx, Event event) {
+		try {
+			executor.accept(event);
+		} catch (final RejectedExecutionException e) {
+			callCtx.fail(e);
 		}
 	}
 
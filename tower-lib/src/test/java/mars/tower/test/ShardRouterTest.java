@@ -0,0 +1,54 @@
+package mars.tower.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import mars.tower.ShardRouter;
+import mars.tower.ShardRouter.ShardLoad;
+
+class ShardRouterTest {
+
+	@Test
+	void testPsIdsOfAShardAreRoutedBackToIt() {
+		final int shards = 4;
+		final Set<Integer> ids = new HashSet<>();
+		for (int shard = 0; shard < shards; shard++) {
+			for (int k = 0; k < 100; k++) {
+				final int psId = ShardRouter.firstPsId(shard) + k * shards;
+				assertEquals(shard, ShardRouter.shardOfPs(psId, shards));
+				ids.add(psId);
+			}
+		}
+		assertEquals(400, ids.size());
+	}
+
+	@Test
+	void testSingleShardKeepsTheUsualNumbering() {
+		assertEquals(1, ShardRouter.firstPsId(0));
+		assertEquals(0, ShardRouter.shardOfPs(1, 1));
+		assertEquals(0, ShardRouter.shardOfPlatform("PLT-7", 1));
+	}
+
+	@Test
+	void testPlatformsAreSpreadOverShards() {
+		final int[] counts = new int[4];
+		for (int i = 0; i < 1000; i++)
+			counts[ShardRouter.shardOfPlatform("PLT-" + i, 4)]++;
+		for (final int c : counts)
+			assertEquals(250, c, 60);
+	}
+
+	@Test
+	void testDemandGoesToLeastLoadedShardWithPlatforms() {
+		assertEquals(2, ShardRouter.leastLoaded(
+				List.of(new ShardLoad(0, 0), new ShardLoad(2, 10), new ShardLoad(3, 6), new ShardLoad(1, 4))));
+		assertEquals(1, ShardRouter.leastLoaded(List.of(new ShardLoad(2, 2), new ShardLoad(2, 1))));
+		assertEquals(0, ShardRouter.leastLoaded(List.of(new ShardLoad(1, 1), new ShardLoad(1, 1))));
+		assertEquals(0, ShardRouter.leastLoaded(List.of(new ShardLoad(0, 0), new ShardLoad(0, 0))));
+	}
+}
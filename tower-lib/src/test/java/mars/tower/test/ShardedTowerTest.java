@@ -0,0 +1,421 @@
+package mars.tower.test;
+
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.cellply.invosys.agent.CallContext;
+import com.cellply.invosys.agent.OutgoingInvocation;
+import com.cellply.invosys.signalling.SignalEmitter;
+
+import eventloop.LoopWatchdog;
+import mars.heartbeat.AgentLifecycleListener;
+import mars.messages.GeoCoord;
+import mars.messages.HeartbeatIds;
+import mars.messages.PayloadBay;
+import mars.messages.PlatformAlarms;
+import mars.messages.PlatformQuitRequest;
+import mars.messages.PlatformStatus;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsAbortIndication;
+import mars.messages.PsDemandRequest;
+import mars.messages.PsDemandResponse;
+import mars.messages.RestoringPayload;
+import mars.signals.Signals;
+import mars.simulation.SharedConfiguration;
+import mars.tower.NoAvailabilityException;
+import mars.tower.Planner;
+import mars.tower.SerialTowerMessaging;
+import mars.tower.ShardRouter;
+import mars.tower.ShardedTower;
+import mars.tower.TowerMessaging;
+import mars.tower.TowerShard;
+
+/**
+ * Routes calls through a {@link ShardedTower} over a fake messaging, telling
+ * the shard that handled each of them by the name of its thread.
+ */
+class ShardedTowerTest {
+	private static final int SHARDS = 3;
+	private static final long TIMEOUT_MILLIS = 60_000;
+
+	private final TowerMessaging messaging = mock(TowerMessaging.class);
+	private final List<TowerShard> shards = new ArrayList<>();
+	private final List<SignalEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ShardRouter router;
+	private ShardedTower out;
+
+	private static String shardThread(int index) {
+		return "MARS Tower Shard " + index;
+	}
+
+	private void startTower() throws InterruptedException {
+		out = new ShardedTower(SHARDS, (pmr, mmr) -> {
+			router = (ShardRouter) pmr;
+			return messaging;
+		}, () -> {
+			final SignalEmitter emitter = mock(SignalEmitter.class);
+			emitters.add(emitter);
+			return emitter;
+		}, l -> {
+		}, TIMEOUT_MILLIS, TIMEOUT_MILLIS, TIMEOUT_MILLIS, Planner.NULL);
+	}
+
+	@AfterEach
+	void quit() throws InterruptedException {
+		release.countDown();
+		if (out != null)
+			assertTrue(out.quitAndWait(5_000));
+		shards.forEach(TowerShard::quit);
+		for (final TowerShard shard : shards)
+			assertTrue(shard.awaitQuit(5_000));
+	}
+
+	@Test
+	void testPlatformsAreServedByTheirShard() throws Exception {
+		final Map<String, String> requested = new ConcurrentHashMap<>();
+		when(messaging.sendPlatformStatusRequest(anyString(), any())).thenAnswer(i -> {
+			requested.put(i.getArgument(0), Thread.currentThread().getName());
+			return new OutgoingInvocation<>();
+		});
+		startTower();
+
+		for (int i = 0; i < 9; i++)
+			router.agentDiscovered("PLT-" + i, HeartbeatIds.PLT);
+
+		verify(messaging, timeout(5_000).times(9)).sendPlatformStatusRequest(anyString(),
+				any(PlatformStatusRequest.class));
+		for (int i = 0; i < 9; i++) {
+			final String plt = "PLT-" + i;
+			final String expected = shardThread(ShardRouter.shardOfPlatform(plt, SHARDS));
+			assertEquals(expected, requested.get(plt));
+			final Call<PlatformQuitRequest> quit = new Call<>(plt, new PlatformQuitRequest(plt));
+			router.onPlatformQuit(quit);
+			assertEquals(expected, quit.thread.get(5, SECONDS));
+		}
+	}
+
+	@Test
+	void testPitStopsLiveOnTheShardOfTheirPlatform() throws Exception {
+		final String plt = platformOfShard(2);
+		givenPlatformsWithPayloadType("PT1");
+		startTower();
+
+		router.agentDiscovered(plt, HeartbeatIds.PLT);
+
+		final Call<PsDemandRequest> demand = demandUntilAvailable("PT1");
+		assertEquals(shardThread(2), demand.thread.get());
+		final int psId = ((PsDemandResponse) demand.result.get()).psId();
+		assertEquals(2, ShardRouter.shardOfPs(psId, SHARDS));
+
+		final Call<PsAbortIndication> abort = new Call<>("MC1", new PsAbortIndication(psId));
+		router.onPsAbort(abort);
+		assertEquals(shardThread(2), abort.thread.get(5, SECONDS));
+	}
+
+	@Test
+	void testPsDemandFallsBackToTheOtherShards() throws Exception {
+		final String plt0 = platformOfShard(0);
+		final String plt2 = platformOfShard(2);
+		givenPlatformsWithPayloadType("PT1");
+		startTower();
+		router.agentDiscovered(plt2, HeartbeatIds.PLT);
+		demandUntilAvailable("PT1");
+
+		// shard 1 answers the loads only once shard 2 has lost its platform
+		final Blocking blocking = new Blocking(platformOfShard(1));
+		router.onPlatformQuit(blocking);
+		blocking.thread.get(5, SECONDS);
+		final Call<PsDemandRequest> demand = new Call<>("MC1",
+				new PsDemandRequest(100, "PT1", Instant.now().plus(10, MINUTES)));
+		router.onPsDemand(demand);
+		router.agentLost(plt2, HeartbeatIds.PLT);
+		router.agentDiscovered(plt0, HeartbeatIds.PLT);
+		for (int i = 0; i < 2; i++) {
+			sync(plt0);
+			sync(plt2);
+		}
+		release.countDown();
+
+		// routed to shard 2, which had the only platform when asked for its load
+		final Object response = demand.result.get(5, SECONDS);
+		assertEquals(shardThread(0), demand.thread.get());
+		assertEquals(0, ShardRouter.shardOfPs(((PsDemandResponse) response).psId(), SHARDS));
+	}
+
+	@Test
+	void testPsDemandFailsWhenNoShardHasThePayloadType() throws Exception {
+		startTower();
+
+		final Call<PsDemandRequest> demand = new Call<>("MC1",
+				new PsDemandRequest(1, "PT1", Instant.now().plus(10, MINUTES)));
+		router.onPsDemand(demand);
+
+		assertTrue(assertThrows(ExecutionException.class, () -> demand.result.get(5, SECONDS))
+				.getCause() instanceof NoAvailabilityException);
+	}
+
+	@Test
+	void testShardLoopsAreWatched() throws Exception {
+		startTower();
+		final List<LoopWatchdog> watchdogs = out.watch(50);
+		try {
+			final Blocking blocking = new Blocking(platformOfShard(1));
+			router.onPlatformQuit(blocking);
+			blocking.thread.get(5, SECONDS);
+			Thread.sleep(500);
+			release.countDown();
+			// the stall is signalled on the shard thread, once the event is over
+			verify(emitters.get(1), timeout(5_000)).emit(eq(Signals.ERROR.name()), anyString(),
+					any(LoopWatchdog.StalledEventException.class));
+		} finally {
+			watchdogs.forEach(LoopWatchdog::close);
+		}
+	}
+
+	@Test
+	void testCaptureIsRejected() throws Exception {
+		final SharedConfiguration conf = new SharedConfiguration();
+		conf.captureFile = "capture";
+		assertThrows(IllegalArgumentException.class, () -> ShardedTower.run(null, "TOWER", Planner.NULL, conf, SHARDS));
+	}
+
+	@Test
+	void testLifecycleOfOtherAgentsReachesAllShards() throws Exception {
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < SHARDS; i++)
+			shards.add(new TowerShard(i, shard -> {
+				shard.bind(new RecordingListener(events));
+				return null;
+			}));
+		router = new ShardRouter();
+		router.start(shards);
+		final String plt = platformOfShard(1);
+
+		router.agentDiscovered("MC1", HeartbeatIds.MC);
+		router.agentLost(plt, HeartbeatIds.PLT);
+		for (final TowerShard shard : shards) {
+			final CompletableFuture<Void> done = new CompletableFuture<>();
+			shard.execute(() -> done.complete(null));
+			done.get(5, SECONDS);
+		}
+
+		Collections.sort(events);
+		assertEquals(List.of("discovered MC1 on " + shardThread(0), "discovered MC1 on " + shardThread(1),
+				"discovered MC1 on " + shardThread(2), "lost " + plt + " on " + shardThread(1)), events);
+	}
+
+	@Test
+	void testSerialMessagingSendsOnItsExecutor() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "SENDER"));
+		final List<String> senders = Collections.synchronizedList(new ArrayList<>());
+		when(messaging.sendPlatformStatusRequest(anyString(), any())).thenAnswer(i -> {
+			senders.add(Thread.currentThread().getName());
+			return OutgoingInvocation.completed(new PlatformStatusResponse(null, null));
+		});
+		final TowerMessaging serial = new SerialTowerMessaging(e -> executor.execute(() -> {
+			try {
+				e.run();
+			} catch (final Throwable t) {
+				throw new IllegalStateException(t);
+			}
+		}), messaging);
+		try {
+			final List<CompletableFuture<PlatformStatusResponse>> replies = new ArrayList<>();
+			final List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < SHARDS; i++) {
+				final String plt = "PLT-" + i;
+				final Thread thread = new Thread(() -> {
+					synchronized (replies) {
+						replies.add(serial.sendPlatformStatusRequest(plt, new PlatformStatusRequest()));
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for (final Thread thread : threads)
+				thread.join();
+			for (final CompletableFuture<PlatformStatusResponse> reply : replies)
+				assertEquals(new PlatformStatusResponse(null, null), reply.get(5, SECONDS));
+			assertEquals(List.of("SENDER", "SENDER", "SENDER"), senders);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testSerialMessagingFailsRejectedSends() throws Exception {
+		final TowerMessaging serial = new SerialTowerMessaging(e -> {
+			throw new IllegalStateException("Quit");
+		}, messaging);
+		final var reply = serial.sendPlatformStatusRequest("PLT-0", new PlatformStatusRequest());
+		assertTrue(assertThrows(ExecutionException.class, reply::get).getCause() instanceof IllegalStateException);
+	}
+
+	private void givenPlatformsWithPayloadType(String payloadType) {
+		final PayloadBay bay = new PayloadBay(1,
+				new RestoringPayload("P1", payloadType, .5, Instant.now().plus(10, MINUTES)), 1_000);
+		when(messaging.sendPlatformStatusRequest(anyString(), any()))
+				.thenReturn(OutgoingInvocation.completed(new PlatformStatusResponse(new GeoCoord(8.5, 44.6),
+						new PlatformStatus(null, new PlatformAlarms(false, false), List.of(bay), 60_000))));
+	}
+
+	/*
+	 * Waits for the shard of the platform to process what it has been given so
+	 * far.
+	 */
+	private void sync(String plt) throws Exception {
+		final Call<PlatformQuitRequest> call = new Call<>(plt, new PlatformQuitRequest(plt));
+		router.onPlatformQuit(call);
+		call.result.get(5, SECONDS);
+	}
+
+	private static String platformOfShard(int index) {
+		for (int i = 0;; i++)
+			if (ShardRouter.shardOfPlatform("PLT-" + i, SHARDS) == index)
+				return "PLT-" + i;
+	}
+
+	/*
+	 * The status of a discovered platform is processed on its shard after the
+	 * discovery, so demand until the shard knows it.
+	 */
+	private Call<PsDemandRequest> demandUntilAvailable(String payloadType) throws Exception {
+		for (int k = 1; k <= 50; k++) {
+			final Call<PsDemandRequest> demand = new Call<>("MC1",
+					new PsDemandRequest(k, payloadType, Instant.now().plus(10, MINUTES)));
+			router.onPsDemand(demand);
+			try {
+				demand.result.get(5, SECONDS);
+				return demand;
+			} catch (final ExecutionException e) {
+				Thread.sleep(100);
+			}
+		}
+		throw new AssertionError("No platform with payload type " + payloadType);
+	}
+
+	/*
+	 * Records the thread on which the call is answered and its outcome.
+	 */
+	private static class Call<P> implements CallContext<P> {
+		private final String callingAgentId;
+		private final P params;
+		final CompletableFuture<String> thread = new CompletableFuture<>();
+		final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		Call(String callingAgentId, P params) {
+			this.callingAgentId = callingAgentId;
+			this.params = params;
+		}
+
+		@Override
+		public P params() {
+			return params;
+		}
+
+		@Override
+		public String callingAgentId() {
+			return callingAgentId;
+		}
+
+		@Override
+		public void exec(Exec<P> exec) {
+			try {
+				resolve(exec.apply(null, params));
+			} catch (final Exception e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void resolve(Object r) {
+			thread.complete(Thread.currentThread().getName());
+			result.complete(r);
+		}
+
+		@Override
+		public void fail(Exception e) {
+			thread.complete(Thread.currentThread().getName());
+			result.completeExceptionally(e);
+		}
+
+		@Override
+		public <R> BiConsumer<R, Throwable> action() {
+			return (r, t) -> {
+				thread.complete(Thread.currentThread().getName());
+				if (t == null)
+					result.complete(r);
+				else
+					result.completeExceptionally(t);
+			};
+		}
+	}
+
+	/*
+	 * Holds the shard thread on which it is executed until the test releases it.
+	 */
+	private class Blocking extends Call<PlatformQuitRequest> {
+		Blocking(String plt) {
+			super(plt, new PlatformQuitRequest(plt));
+		}
+
+		@Override
+		public void exec(Exec<PlatformQuitRequest> exec) {
+			super.exec(exec);
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static record RecordingListener(List<String> events) implements AgentLifecycleListener {
+		private void record(String event, String agentName) {
+			events.add(event + " " + agentName + " on " + Thread.currentThread().getName());
+		}
+
+		@Override
+		public void agentLost(String agentName, String category) {
+			record("lost", agentName);
+		}
+
+		@Override
+		public void agentDiscovered(String agentName, String category) {
+			record("discovered", agentName);
+		}
+
+		@Override
+		public void agentReturned(String agentName, String category) {
+			record("returned", agentName);
+		}
+	}
+}
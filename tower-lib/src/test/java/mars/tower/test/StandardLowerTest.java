@@ -153,6 +153,36 @@ public class StandardLowerTest {
 		te.assertBay("PLT1", 12).hasPayload("PT7").isCharged(1);
 	}
 
+	@Test
+	void testPlatformStatusIndicationGapRequestsStatus() throws Exception {
+		// given
+		te.setPlatformStatus(te.platform1With(te.bay(4, "PT1"), te.bay(8, "PT4")));
+		when(te.tower.sendPlatformStatusRequest("PLT1", new PlatformStatusRequest())).thenReturn(OutgoingInvocation
+				.completed(new PlatformStatusResponse(te.plt1Geo, new mars.messages.PlatformStatus(null, te.noAlarms(),
+						te.bays(te.bay(4, "PT7"), te.bay(8, "PT9")), SERVICE_MILLIS), 3)));
+
+		final var first = new MockCallContext<>("PLT1",
+				new PlatformStatusIndication(new mars.messages.PlatformStatus(null, te.noAlarms(),
+						te.bays(te.emptyBay(4)), SERVICE_MILLIS), 1),
+				null);
+		final var third = new MockCallContext<>("PLT1",
+				new PlatformStatusIndication(new mars.messages.PlatformStatus(null, te.noAlarms(),
+						te.bays(te.bay(4, "PT7")), SERVICE_MILLIS), 3),
+				null);
+		// when
+		te.runEventAndWait(0, () -> {
+			te.pltSent.onPlatformStatus(first);
+			te.pltSent.onPlatformStatus(third);
+		});
+
+		// then
+		first.checkError();
+		third.checkError();
+		verify(te.tower).sendPlatformStatusRequest("PLT1", new PlatformStatusRequest());
+		te.assertBay("PLT1", 4).hasPayload("PT7");
+		te.assertBay("PLT1", 8).hasPayload("PT9");
+	}
+
 	@Test
 	void testOnPlatformLostUpdatePlatformStatus() throws Exception {
 		// given
@@ -0,0 +1,119 @@
+package mars.tower.test;
+
+import static mars.tower.StatusSequences.Verdict.APPLY;
+import static mars.tower.StatusSequences.Verdict.RESYNC;
+import static mars.tower.StatusSequences.Verdict.STALE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mars.tower.StatusSequences;
+
+class StatusSequencesTest {
+
+	private final StatusSequences out = new StatusSequences();
+
+	@Test
+	void testInOrder() throws Exception {
+		assertTrue(out.snapshot("P", 3));
+		assertEquals(APPLY, out.indication("P", 4));
+		assertEquals(APPLY, out.indication("P", 5));
+		assertEquals(STALE, out.indication("P", 5));
+		assertEquals(APPLY, out.indication("Q", 1));
+	}
+
+	@Test
+	void testNotNumberedAreAlwaysApplied() throws Exception {
+		assertTrue(out.snapshot("P", 0));
+		assertEquals(APPLY, out.indication("P", 0));
+		assertEquals(APPLY, out.indication("P", 0));
+	}
+
+	@Test
+	void testGapIsResyncedOnce() throws Exception {
+		assertTrue(out.snapshot("P", 1));
+		assertEquals(RESYNC, out.indication("P", 3));
+		assertEquals(APPLY, out.indication("P", 5));
+		assertEquals(STALE, out.indication("P", 2));
+		assertTrue(out.snapshot("P", 5));
+		assertEquals(RESYNC, out.indication("P", 7));
+	}
+
+	@Test
+	void testStaleSnapshotIsRequestedAgain() throws Exception {
+		out.requested("P");
+		assertEquals(APPLY, out.indication("P", 4));
+		assertFalse(out.snapshot("P", 3));
+		assertEquals(APPLY, out.indication("P", 6));
+		assertTrue(out.snapshot("P", 6));
+		assertEquals(APPLY, out.indication("P", 7));
+	}
+
+	@Test
+	void testFailedRequestIsMadeAgainOnNextGap() throws Exception {
+		out.requested("P");
+		assertEquals(APPLY, out.indication("P", 2));
+		out.failed("P");
+		assertEquals(RESYNC, out.indication("P", 4));
+	}
+
+	@Test
+	void testRestartedPlatformIsResynced() throws Exception {
+		assertTrue(out.snapshot("P", 8));
+		assertEquals(RESYNC, out.indication("P", 1));
+		assertEquals(APPLY, out.indication("P", 2));
+		assertEquals(STALE, out.indication("P", 2));
+	}
+
+	@Test
+	void testPlatformRestartedAfterOneIndicationIsResynced() throws Exception {
+		assertTrue(out.snapshot("P", 0));
+		assertEquals(APPLY, out.indication("P", 1));
+		assertEquals(RESYNC, out.indication("P", 1));
+		assertTrue(out.snapshot("P", 1));
+		assertEquals(APPLY, out.indication("P", 2));
+	}
+
+	@Test
+	void testRestartWhileRequestingIsResynced() throws Exception {
+		assertTrue(out.snapshot("P", 4));
+		assertEquals(RESYNC, out.indication("P", 6));
+		assertEquals(RESYNC, out.indication("P", 1));
+	}
+
+	@Test
+	void testRestartedPlatformWhoseFirstIndicationIsDroppedIsResynced() throws Exception {
+		assertTrue(out.snapshot("P", 20));
+		assertEquals(RESYNC, out.indication("P", 2));
+		assertEquals(APPLY, out.indication("P", 3));
+		assertTrue(out.snapshot("P", 3));
+		assertEquals(APPLY, out.indication("P", 4));
+	}
+
+	@Test
+	void testOutOfOrderWithinTheWindowIsStale() throws Exception {
+		final StatusSequences out = new StatusSequences(4);
+		assertTrue(out.snapshot("P", 10));
+		assertEquals(STALE, out.indication("P", 6));
+		assertEquals(RESYNC, out.indication("P", 5));
+	}
+
+	@Test
+	void testRediscoveredPlatformStartsAfresh() throws Exception {
+		assertTrue(out.snapshot("P", 5));
+		out.forget("P");
+		out.requested("P");
+		assertEquals(APPLY, out.indication("P", 2));
+		assertTrue(out.snapshot("P", 2));
+		assertEquals(APPLY, out.indication("P", 3));
+	}
+
+	@Test
+	void testLostPlatformIsForgotten() throws Exception {
+		assertTrue(out.snapshot("P", 8));
+		out.forget("P");
+		assertEquals(RESYNC, out.indication("P", 3));
+	}
+}
@@ -0,0 +1,135 @@
+package mars.tower.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mars.messages.CannotReadyPayload;
+import mars.messages.GeoCoord;
+import mars.messages.HeartbeatIds;
+import mars.messages.MessageNames;
+import mars.messages.PlatformAlarms;
+import mars.messages.PlatformStatus;
+import mars.messages.PlatformStatusIndication;
+import mars.messages.PlatformStatusRequest;
+import mars.messages.PlatformStatusResponse;
+import mars.messages.PsDemandRequest;
+import mars.tower.capture.CaptureEntry;
+import mars.tower.capture.CaptureEntry.Kind;
+import mars.tower.capture.CaptureReader;
+import mars.tower.capture.CaptureWriter;
+import mars.tower.capture.CapturedError;
+import mars.tower.capture.ReplayReport;
+import mars.tower.capture.TowerReplay;
+import mars.tower.planner.dummy.DummyPlanner;
+
+class TowerReplayTest {
+	private static final long T0 = 1_600_000_000_000L;
+	private static final PlatformStatus STATUS = new PlatformStatus(null, new PlatformAlarms(false, false),
+			List.of(), 1_000);
+
+	private Path file;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (file != null)
+			Files.deleteIfExists(file);
+	}
+
+	private List<CaptureEntry> platformDiscovered() {
+		final var entries = new ArrayList<CaptureEntry>();
+		entries.add(new CaptureEntry(T0, Kind.DISCOVERED, 0, "PLT1", HeartbeatIds.PLT, null));
+		entries.add(new CaptureEntry(T0, Kind.OUT, 1, "PLT1", MessageNames.PLATFORM_STATUS_REQUEST,
+				new PlatformStatusRequest()));
+		entries.add(new CaptureEntry(T0 + 1_500, Kind.IN, 0, "PLT1", MessageNames.PLATFORM_STATUS_INDICATION,
+				new PlatformStatusIndication(STATUS, 1)));
+		// captured from the thread of the reply, after the indication
+		entries.add(new CaptureEntry(T0 + 5, Kind.REPLY, 1, "PLT1", MessageNames.PLATFORM_STATUS_REQUEST,
+				new PlatformStatusResponse(new GeoCoord(9.1, 45.4), STATUS, 0)));
+		return entries;
+	}
+
+	@Test
+	void testEntriesAreReadAsWritten() throws Exception {
+		file = Files.createTempFile("capture", ".bin");
+		final var entries = platformDiscovered();
+		entries.add(new CaptureEntry(T0 + 1_600, Kind.FAILURE, 2, "PLT1", MessageNames.READY_PS_REQUEST,
+				CapturedError.of(new CannotReadyPayload("PT1"))));
+		entries.add(new CaptureEntry(T0 + 1_600, Kind.SIGNAL, 0, "pitStopLogUpdate", "EVENT", "a log line"));
+		try (var writer = new CaptureWriter(file)) {
+			for (final var e : entries.subList(0, 3))
+				writer.write(e);
+		}
+		// a new session, appended
+		try (var writer = new CaptureWriter(file)) {
+			for (final var e : entries.subList(3, entries.size()))
+				writer.write(e);
+		}
+		assertEquals(entries, CaptureReader.readAll(file));
+	}
+
+	@Test
+	void testRepeatedEntriesAreCompact() throws Exception {
+		file = Files.createTempFile("capture", ".bin");
+		try (var writer = new CaptureWriter(file)) {
+			for (int i = 0; i < 1_000; i++)
+				writer.write(new CaptureEntry(T0 + i * 250, Kind.IN, 0, "PLT" + i % 10,
+						MessageNames.PLATFORM_STATUS_INDICATION, new PlatformStatusIndication(STATUS, i)));
+		}
+		assertTrue(Files.size(file) < 25_000, "Size " + Files.size(file));
+		assertEquals(1_000, CaptureReader.readAll(file).size());
+	}
+
+	@Test
+	void testCapturedErrorsAreRebuilt() throws Exception {
+		assertTrue(CapturedError.of(new CannotReadyPayload("PT1")).toException() instanceof CannotReadyPayload);
+		final Exception e = new CapturedError("no.such.Exception", "gone").toException();
+		assertEquals("no.such.Exception: gone", e.getMessage());
+	}
+
+	@Test
+	void testOtherFilesAreRejected() throws Exception {
+		file = Files.createTempFile("capture", ".bin");
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5 });
+		assertThrows(IOException.class, () -> CaptureReader.readAll(file));
+	}
+
+	@Test
+	void testReplayMatchesTheCapture() throws Exception {
+		final ReplayReport report = new TowerReplay(platformDiscovered()).run(0, 2_000, new DummyPlanner(1_000),
+				10_000, 15_000, 30_000);
+		assertEquals(2, report.received());
+		assertEquals(1, report.made());
+		assertEquals(0, report.failed());
+		assertEquals(0, report.errors());
+		assertTrue(report.matches(), report.toString());
+		assertEquals(3_500, report.virtualMillis());
+		assertEquals(1, report.latency().get(MessageNames.PLATFORM_STATUS_INDICATION).latency().count());
+		assertEquals(1, report.latency().get(Kind.DISCOVERED.name()).latency().count());
+	}
+
+	@Test
+	void testReplayReportsDivergence() throws Exception {
+		final var entries = platformDiscovered();
+		entries.add(new CaptureEntry(T0 + 10, Kind.OUT, 2, "PLT2", MessageNames.PLATFORM_STATUS_REQUEST,
+				new PlatformStatusRequest()));
+		entries.add(new CaptureEntry(T0 + 2_000, Kind.IN, 0, "MC1", MessageNames.PS_DEMAND_REQUEST,
+				new PsDemandRequest(1, "PT1", null)));
+		entries.set(0, new CaptureEntry(T0, Kind.DISCOVERED, 0, "PLT3", HeartbeatIds.PLT, null));
+		final ReplayReport report = new TowerReplay(entries).run(0, 0, new DummyPlanner(1_000), 10_000, 15_000,
+				30_000);
+		assertFalse(report.matches());
+		assertEquals(1, report.diverged());
+		assertEquals(2, report.missing());
+	}
+}
@@ -0,0 +1,41 @@
+package mars.tower.samples;
+
+import java.nio.file.Paths;
+
+import mars.simulation.SharedConfiguration;
+import mars.simulation.SimUtils;
+import mars.tower.capture.ReplayReport;
+import mars.tower.capture.TowerReplay;
+import mars.tower.planner.dummy.DummyPlanner;
+
+/**
+ * Replays the capture given on the command line into the tower run by
+ * {@link Tower1}, as fast as possible or at the rate given after the file, and
+ * prints how it went. Exits with 1 if the tower has not behaved as captured.
+ */
+public class ReplayTower1 {
+	public static void main(String[] args) throws Exception {
+		final int psReadyWaitMillis = 30_000;
+		final int landingWaitMillis = 15_000;
+
+		if (args.length == 0) {
+			System.err.println("Usage: ReplayTower1 <capture file> [time rate]");
+			System.exit(2);
+		}
+		final double rate = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+		final SharedConfiguration conf = SimUtils.loadSharedConf();
+		final var replay = new TowerReplay(Paths.get(args[0]));
+		// the timings are passed as Tower.run does
+		final ReplayReport report = replay.run(rate, conf.commsTimeoutMillis,
+				new DummyPlanner(psReadyWaitMillis + landingWaitMillis), conf.commsTimeoutMillis, landingWaitMillis,
+				psReadyWaitMillis);
+		System.out.printf("Received %d, made %d calls in %.3f s (%.0f/s) for %.3f s of tower time%n",
+				report.received(), report.made(), report.wallNanos() / 1e9, report.throughput(),
+				report.virtualMillis() / 1e3);
+		System.out.printf("Diverged %d, missing %d, failed %d, errors %d%n", report.diverged(), report.missing(),
+				report.failed(), report.errors());
+		report.latency().forEach((message, stats) -> System.out.println(message + ": " + stats.latency()));
+		System.exit(report.matches() ? 0 : 1);
+	}
+}